@@ -0,0 +1,101 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.database.ids.integer;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRange;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+
+/**
+ * Benchmark the kNN heap, as used by linear scan kNN queries: insert a stream
+ * of random distances, then produce the sorted kNN list.
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DoubleIntegerDBIDKNNHeapBenchmark {
+  /**
+   * Number of candidates.
+   */
+  @Param({ "100000" })
+  int size;
+
+  /**
+   * Number of neighbors.
+   */
+  @Param({ "10", "100" })
+  int k;
+
+  /**
+   * Candidate IDs.
+   */
+  DBIDRange ids;
+
+  /**
+   * Candidate distances.
+   */
+  double[] dists;
+
+  @Setup
+  public void setup() {
+    Random rnd = new Random(0L);
+    ids = DBIDUtil.generateStaticDBIDRange(size);
+    dists = new double[size];
+    for(int i = 0; i < size; i++) {
+      dists[i] = rnd.nextDouble();
+    }
+  }
+
+  @Benchmark
+  public DoubleIntegerDBIDKNNList insert() {
+    final DoubleIntegerDBIDKNNHeap heap = new DoubleIntegerDBIDKNNHeap(k);
+    double max = Double.POSITIVE_INFINITY;
+    int i = 0;
+    for(DBIDArrayIter iter = ids.iter(); iter.valid(); iter.advance(), i++) {
+      final double dist = dists[i];
+      if(dist <= max) {
+        max = heap.insert(dist, iter);
+      }
+    }
+    return heap.toKNNList();
+  }
+}
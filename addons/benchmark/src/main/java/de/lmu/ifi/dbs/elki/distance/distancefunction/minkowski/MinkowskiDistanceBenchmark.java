@@ -0,0 +1,126 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.lmu.ifi.dbs.elki.data.DoubleVector;
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.PrimitiveDistanceFunction;
+
+/**
+ * Benchmark the Minkowski family of distance functions, computing the
+ * distances of one query vector to a set of synthetic vectors.
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MinkowskiDistanceBenchmark {
+  /**
+   * Number of vectors.
+   */
+  @Param({ "10000" })
+  int size;
+
+  /**
+   * Dimensionality.
+   */
+  @Param({ "2", "10", "100" })
+  int dim;
+
+  /**
+   * Distance function to benchmark.
+   */
+  @Param({ "euclidean", "squaredeuclidean", "manhattan", "maximum", "lp3", "lp0.5" })
+  String distance;
+
+  /**
+   * Data vectors.
+   */
+  NumberVector[] data;
+
+  /**
+   * Distance function.
+   */
+  PrimitiveDistanceFunction<? super NumberVector> df;
+
+  @Setup
+  public void setup() {
+    Random rnd = new Random(0L);
+    data = new NumberVector[size];
+    for(int i = 0; i < size; i++) {
+      double[] v = new double[dim];
+      for(int d = 0; d < dim; d++) {
+        v[d] = rnd.nextDouble();
+      }
+      data[i] = DoubleVector.wrap(v);
+    }
+    switch(distance){
+    case "euclidean":
+      df = EuclideanDistanceFunction.STATIC;
+      break;
+    case "squaredeuclidean":
+      df = SquaredEuclideanDistanceFunction.STATIC;
+      break;
+    case "manhattan":
+      df = ManhattanDistanceFunction.STATIC;
+      break;
+    case "maximum":
+      df = MaximumDistanceFunction.STATIC;
+      break;
+    default:
+      if(!distance.startsWith("lp")) {
+        throw new IllegalArgumentException("Unknown distance: " + distance);
+      }
+      double p = Double.parseDouble(distance.substring(2));
+      df = (p == (int) p) ? new LPIntegerNormDistanceFunction((int) p) : new LPNormDistanceFunction(p);
+    }
+  }
+
+  @Benchmark
+  public double distances() {
+    final NumberVector query = data[0];
+    double sum = 0.;
+    for(NumberVector v : data) {
+      sum += df.distance(query, v);
+    }
+    return sum;
+  }
+}
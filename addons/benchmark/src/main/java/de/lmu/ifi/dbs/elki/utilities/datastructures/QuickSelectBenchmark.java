@@ -0,0 +1,91 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.utilities.datastructures;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark QuickSelect on double arrays.
+ *
+ * The input array is copied for every invocation, because QuickSelect
+ * partially sorts its input.
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuickSelectBenchmark {
+  /**
+   * Number of values.
+   */
+  @Param({ "1000", "100000" })
+  int size;
+
+  /**
+   * Unsorted values.
+   */
+  double[] values;
+
+  /**
+   * Scratch array.
+   */
+  double[] scratch;
+
+  @Setup
+  public void setup() {
+    Random rnd = new Random(0L);
+    values = new double[size];
+    scratch = new double[size];
+    for(int i = 0; i < size; i++) {
+      values[i] = rnd.nextDouble();
+    }
+  }
+
+  @Benchmark
+  public double median() {
+    System.arraycopy(values, 0, scratch, 0, size);
+    return QuickSelect.median(scratch);
+  }
+
+  @Benchmark
+  public double quantile() {
+    System.arraycopy(values, 0, scratch, 0, size);
+    return QuickSelect.quantile(scratch, 0.1);
+  }
+}
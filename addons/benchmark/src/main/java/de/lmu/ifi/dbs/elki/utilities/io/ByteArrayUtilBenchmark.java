@@ -0,0 +1,119 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.utilities.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark the varint coding of {@link ByteArrayUtil}.
+ *
+ * Values are drawn with a random magnitude, such that all encoded lengths
+ * occur.
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ByteArrayUtilBenchmark {
+  /**
+   * Number of values.
+   */
+  @Param({ "100000" })
+  int size;
+
+  /**
+   * Values to encode.
+   */
+  int[] values;
+
+  /**
+   * Output buffer.
+   */
+  ByteBuffer buffer;
+
+  /**
+   * Encoded values.
+   */
+  ByteBuffer encoded;
+
+  @Setup
+  public void setup() {
+    Random rnd = new Random(0L);
+    values = new int[size];
+    for(int i = 0; i < size; i++) {
+      values[i] = rnd.nextInt() >>> rnd.nextInt(32);
+    }
+    buffer = ByteBuffer.allocate(size * 5);
+    encoded = ByteBuffer.allocate(size * 5);
+    for(int v : values) {
+      ByteArrayUtil.writeUnsignedVarint(encoded, v);
+    }
+    encoded.flip();
+  }
+
+  @Benchmark
+  public int writeUnsignedVarint() {
+    buffer.clear();
+    for(int v : values) {
+      ByteArrayUtil.writeUnsignedVarint(buffer, v);
+    }
+    return buffer.position();
+  }
+
+  @Benchmark
+  public int readUnsignedVarint() throws IOException {
+    encoded.rewind();
+    int sum = 0;
+    for(int i = 0; i < size; i++) {
+      sum += ByteArrayUtil.readUnsignedVarint(encoded);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public int writeSignedVarint() {
+    buffer.clear();
+    for(int v : values) {
+      ByteArrayUtil.writeSignedVarint(buffer, -v);
+    }
+    return buffer.position();
+  }
+}
@@ -22,6 +22,7 @@ package de.lmu.ifi.dbs.elki.algorithm.clustering.em;
 
 import de.lmu.ifi.dbs.elki.data.NumberVector;
 import de.lmu.ifi.dbs.elki.data.model.MeanModel;
+import de.lmu.ifi.dbs.elki.math.linearalgebra.CovarianceMatrix;
 
 /**
  * Models useable in EM clustering.
@@ -43,6 +44,15 @@ public interface EMClusterModel<M extends MeanModel> {
    */
   void updateE(NumberVector vec, double weight);
 
+  /**
+   * Update with aggregated statistics, as if {@link #updateE} had been called
+   * for each aggregated vector. This is used to merge partial results that
+   * were computed in parallel.
+   * 
+   * @param stats Weighted mean and scatter of the vectors
+   */
+  void updateE(CovarianceMatrix stats);
+
   /**
    * Finalize the E step.
    */
@@ -28,6 +28,7 @@ import de.lmu.ifi.dbs.elki.data.NumberVector;
 import de.lmu.ifi.dbs.elki.data.model.EMModel;
 import de.lmu.ifi.dbs.elki.logging.Logging;
 import de.lmu.ifi.dbs.elki.math.MathUtil;
+import de.lmu.ifi.dbs.elki.math.linearalgebra.CovarianceMatrix;
 import de.lmu.ifi.dbs.elki.math.linearalgebra.LUDecomposition;
 import de.lmu.ifi.dbs.elki.math.linearalgebra.VMath;
 import net.jafama.FastMath;
@@ -156,6 +157,38 @@ public class MultivariateGaussianModel implements EMClusterModel<EMModel> {
     System.arraycopy(nmea, 0, mean, 0, nmea.length);
   }
 
+  @Override
+  public void updateE(CovarianceMatrix stats) {
+    assert (stats.getDimensionality() == mean.length);
+    final double owsum = stats.getWeight();
+    if(!(owsum > 0.)) {
+      return;
+    }
+    final double[] omean = stats.getMeanVector();
+    final double[][] oscat = stats.getScatterMatrix();
+    final double nwsum = wsum + owsum, f = wsum * owsum / nwsum;
+    for(int i = 0; i < mean.length; i++) {
+      nmea[i] = omean[i] - mean[i];
+    }
+    // Update covariance matrix
+    for(int i = 0; i < mean.length; i++) {
+      for(int j = i; j < mean.length; j++) {
+        double delta = oscat[i][j] + nmea[i] * nmea[j] * f;
+        covariance[i][j] = covariance[i][j] + delta;
+        // Optimize via symmetry
+        if(i != j) {
+          covariance[j][i] = covariance[j][i] + delta;
+        }
+      }
+    }
+    // Update means
+    final double r = owsum / nwsum;
+    for(int i = 0; i < mean.length; i++) {
+      mean[i] += nmea[i] * r;
+    }
+    wsum = nwsum;
+  }
+
   @Override
   public void finalizeEStep() {
     if(wsum > Double.MIN_NORMAL) {
@@ -0,0 +1,374 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.clustering.em;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import de.lmu.ifi.dbs.elki.data.Cluster;
+import de.lmu.ifi.dbs.elki.data.Clustering;
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.data.model.MeanModel;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.ModifiableDBIDs;
+import de.lmu.ifi.dbs.elki.database.relation.MaterializedRelation;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.database.relation.RelationUtil;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.SquaredEuclideanDistanceFunction;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.logging.statistics.DoubleStatistic;
+import de.lmu.ifi.dbs.elki.logging.statistics.LongStatistic;
+import de.lmu.ifi.dbs.elki.math.linearalgebra.CovarianceMatrix;
+import de.lmu.ifi.dbs.elki.parallel.ParallelCore;
+import de.lmu.ifi.dbs.elki.parallel.ParallelExecutor;
+import de.lmu.ifi.dbs.elki.utilities.exceptions.AbortException;
+import net.jafama.FastMath;
+
+/**
+ * Parallel version of EM clustering with Gaussian mixture models.
+ *
+ * The data set is split into one contiguous partition per thread. In the
+ * expectation step, each thread computes the cluster probabilities of its own
+ * objects, stored in a single flat array, and accumulates the weighted means
+ * and scatter matrixes of each cluster in its own {@link CovarianceMatrix}
+ * objects. In the maximization step, these are merged in partition order, and
+ * the models are updated from the merged statistics. Aggregating the
+ * statistics in the same pass as the expectation step saves one pass over the
+ * data per iteration.
+ *
+ * The log-likelihood and the models are the same as with {@link EM}, except
+ * for the order of floating point additions; the result does not depend on
+ * the thread scheduling.
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ *
+ * @apiviz.uses ParallelCore
+ *
+ * @param <V> vector type to analyze
+ * @param <M> model type to produce
+ */
+public class ParallelEM<V extends NumberVector, M extends MeanModel> extends EM<V, M> {
+  /**
+   * The logger for this class.
+   */
+  private static final Logging LOG = Logging.getLogger(ParallelEM.class);
+
+  /**
+   * Key for statistics logging.
+   */
+  private static final String KEY = ParallelEM.class.getName();
+
+  /**
+   * Minimum number of objects per partition.
+   */
+  private static final int MIN_PARTITION_SIZE = 1024;
+
+  /**
+   * Constructor.
+   *
+   * @param k k parameter
+   * @param delta delta parameter
+   * @param mfactory EM cluster model factory
+   * @param maxiter Maximum number of iterations
+   * @param soft Include soft assignments
+   */
+  public ParallelEM(int k, double delta, EMClusterModelFactory<V, M> mfactory, int maxiter, boolean soft) {
+    super(k, delta, mfactory, maxiter, soft);
+  }
+
+  @Override
+  public Clustering<M> run(Database database, Relation<V> relation) {
+    if(relation.size() == 0) {
+      throw new IllegalArgumentException("database empty: must contain elements");
+    }
+    if((long) relation.size() * k > Integer.MAX_VALUE) {
+      throw new AbortException("Too many objects (" + relation.size() + ") for " + k + " clusters: the cluster probabilities do not fit into a single array.");
+    }
+    // initial models
+    if(LOG.isVerbose()) {
+      LOG.verbose("initializing " + k + " models");
+    }
+    List<? extends EMClusterModel<M>> models = mfactory.buildInitialModels(database, relation, k, SquaredEuclideanDistanceFunction.STATIC);
+    final ArrayDBIDs ids = DBIDUtil.ensureArray(relation.getDBIDs());
+    final int size = ids.size(), dim = RelationUtil.dimensionality(relation);
+    // Cluster probabilities, k per object.
+    final double[] probClusterIGivenX = new double[size * k];
+    final int max = (size + MIN_PARTITION_SIZE - 1) / MIN_PARTITION_SIZE;
+    final int numparts = Math.max(1, Math.min(ParallelCore.getCore().getParallelism(), max));
+    List<Partition> parts = new ArrayList<>(numparts);
+    for(int i = 0; i < numparts; i++) {
+      parts.add(new Partition(relation, ids, models, probClusterIGivenX, //
+          (int) (i * (long) size / numparts), (int) ((i + 1) * (long) size / numparts), dim));
+    }
+    double emNew = expectation(parts) / size;
+
+    // iteration unless no change
+    if(LOG.isVerbose()) {
+      LOG.verbose("iterating EM");
+    }
+    if(LOG.isVerbose()) {
+      LOG.verbose("iteration " + 0 + " - expectation value: " + emNew);
+    }
+
+    int it = 1;
+    for(; it <= maxiter || maxiter < 0; it++) {
+      final double emOld = emNew;
+      maximization(parts, models, size);
+      // reassign probabilities
+      emNew = expectation(parts) / size;
+
+      if(LOG.isVerbose()) {
+        LOG.verbose("iteration " + it + " - expectation value: " + emNew);
+      }
+      if(Math.abs(emOld - emNew) <= delta || emOld > emNew) {
+        break;
+      }
+    }
+    if(LOG.isStatistics()) {
+      LOG.statistics(new LongStatistic(KEY + ".iterations", it));
+      LOG.statistics(new DoubleStatistic(KEY + ".loglikelihood", emNew));
+    }
+
+    if(LOG.isVerbose()) {
+      LOG.verbose("assigning clusters");
+    }
+
+    // fill result with clusters and models
+    List<ModifiableDBIDs> hardClusters = new ArrayList<>(k);
+    for(int i = 0; i < k; i++) {
+      hardClusters.add(DBIDUtil.newHashSet());
+    }
+
+    // provide a hard clustering
+    WritableDataStore<double[]> soft = isSoft() ? DataStoreUtil.makeStorage(ids, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_SORTED, double[].class) : null;
+    for(DBIDArrayIter iditer = ids.iter(); iditer.valid(); iditer.advance()) {
+      final int off = iditer.getOffset() * k;
+      int maxIndex = 0;
+      double currentMax = 0.0;
+      for(int i = 0; i < k; i++) {
+        if(probClusterIGivenX[off + i] > currentMax) {
+          maxIndex = i;
+          currentMax = probClusterIGivenX[off + i];
+        }
+      }
+      hardClusters.get(maxIndex).add(iditer);
+      if(soft != null) {
+        soft.put(iditer, Arrays.copyOfRange(probClusterIGivenX, off, off + k));
+      }
+    }
+    Clustering<M> result = new Clustering<>("EM Clustering", "em-clustering");
+    // provide models within the result
+    for(int i = 0; i < k; i++) {
+      Cluster<M> model = new Cluster<>(hardClusters.get(i), models.get(i).finalizeCluster());
+      result.addToplevelCluster(model);
+    }
+    if(soft != null) {
+      result.addChildResult(new MaterializedRelation<>("cluster assignments", "em-soft-score", SOFT_TYPE, soft, ids));
+    }
+    return result;
+  }
+
+  /**
+   * Run the expectation step on all partitions.
+   *
+   * @param parts Partitions
+   * @return Sum of the log likelihoods
+   */
+  private static double expectation(final List<Partition> parts) {
+    ParallelExecutor.runBlocks(parts.size(), 1, new ParallelExecutor.BlockWorkerFactory<ParallelExecutor.BlockWorker>() {
+      @Override
+      public ParallelExecutor.BlockWorker make() {
+        return new ParallelExecutor.BlockWorker() {
+          @Override
+          public void process(int start, int end) {
+            for(int i = start; i < end; i++) {
+              parts.get(i).expectation();
+            }
+          }
+        };
+      }
+    });
+    // Add in partition order, for deterministic results.
+    double emSum = 0.;
+    for(Partition part : parts) {
+      emSum += part.emSum;
+    }
+    return emSum;
+  }
+
+  /**
+   * Merge the statistics of all partitions, and update the models.
+   *
+   * @param parts Partitions
+   * @param models Models to update
+   * @param size Data set size
+   */
+  private static void maximization(List<Partition> parts, List<? extends EMClusterModel<?>> models, int size) {
+    final CovarianceMatrix[] merged = parts.get(0).stats;
+    for(int p = 1; p < parts.size(); p++) {
+      final CovarianceMatrix[] stats = parts.get(p).stats;
+      for(int i = 0; i < merged.length; i++) {
+        merged[i].put(stats[i]);
+      }
+    }
+    int i = 0;
+    for(EMClusterModel<?> m : models) {
+      m.beginEStep();
+      m.updateE(merged[i]);
+      m.finalizeEStep();
+      m.setWeight(merged[i].getWeight() / size);
+      i++;
+    }
+  }
+
+  /**
+   * A contiguous partition of the data set, processed by a single thread.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   */
+  private static class Partition {
+    /**
+     * Data relation.
+     */
+    final Relation<? extends NumberVector> relation;
+
+    /**
+     * Iterator over the object ids.
+     */
+    final DBIDArrayIter iter;
+
+    /**
+     * Cluster models.
+     */
+    final List<? extends EMClusterModel<?>> models;
+
+    /**
+     * Cluster probabilities of all objects, k per object.
+     */
+    final double[] probClusterIGivenX;
+
+    /**
+     * Range of this partition.
+     */
+    final int start, end;
+
+    /**
+     * Weighted statistics of each cluster, for the next maximization step.
+     */
+    final CovarianceMatrix[] stats;
+
+    /**
+     * Sum of the log likelihoods of this partition.
+     */
+    double emSum;
+
+    /**
+     * Constructor.
+     *
+     * @param relation Data relation
+     * @param ids Object ids
+     * @param models Cluster models
+     * @param probClusterIGivenX Output storage for cluster probabilities
+     * @param start First object
+     * @param end End of the partition (exclusive)
+     * @param dim Dimensionality
+     */
+    Partition(Relation<? extends NumberVector> relation, ArrayDBIDs ids, List<? extends EMClusterModel<?>> models, double[] probClusterIGivenX, int start, int end, int dim) {
+      this.relation = relation;
+      this.iter = ids.iter();
+      this.models = models;
+      this.probClusterIGivenX = probClusterIGivenX;
+      this.start = start;
+      this.end = end;
+      this.stats = new CovarianceMatrix[models.size()];
+      for(int i = 0; i < stats.length; i++) {
+        stats[i] = new CovarianceMatrix(dim);
+      }
+    }
+
+    /**
+     * Assign the cluster probabilities of this partition, and aggregate the
+     * cluster statistics.
+     */
+    void expectation() {
+      final int k = stats.length;
+      for(CovarianceMatrix s : stats) {
+        s.reset();
+      }
+      double emSum = 0.;
+      for(int j = start; j < end; j++) {
+        final NumberVector vec = relation.get(iter.seek(j));
+        final int off = j * k;
+        double priorProbability = 0.;
+        {
+          int i = 0;
+          for(EMClusterModel<?> m : models) {
+            final double p = m.estimateDensity(vec);
+            probClusterIGivenX[off + i] = p;
+            priorProbability += p;
+            ++i;
+          }
+        }
+        double logP = Math.max(FastMath.log(priorProbability), MIN_LOGLIKELIHOOD);
+        emSum += (logP == logP) ? logP : 0.; /* avoid NaN */
+
+        for(int i = 0; i < k; i++) {
+          // do not divide by zero!
+          final double prob = priorProbability > 0. ? probClusterIGivenX[off + i] / priorProbability : 0.;
+          probClusterIGivenX[off + i] = prob;
+          if(prob > 0.) {
+            stats[i].put(vec, prob);
+          }
+        }
+      }
+      this.emSum = emSum;
+    }
+  }
+
+  @Override
+  protected Logging getLogger() {
+    return LOG;
+  }
+
+  /**
+   * Parameterization class.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   */
+  public static class Parameterizer<V extends NumberVector, M extends MeanModel> extends EM.Parameterizer<V, M> {
+    @Override
+    protected ParallelEM<V, M> makeInstance() {
+      return new ParallelEM<>(k, delta, initializer, maxiter, false);
+    }
+  }
+}
@@ -27,6 +27,7 @@ import de.lmu.ifi.dbs.elki.data.NumberVector;
 import de.lmu.ifi.dbs.elki.data.model.EMModel;
 import de.lmu.ifi.dbs.elki.logging.Logging;
 import de.lmu.ifi.dbs.elki.math.MathUtil;
+import de.lmu.ifi.dbs.elki.math.linearalgebra.CovarianceMatrix;
 import net.jafama.FastMath;
 
 /**
@@ -132,6 +133,31 @@ public class SphericalGaussianModel implements EMClusterModel<EMModel> {
     System.arraycopy(nmea, 0, mean, 0, nmea.length);
   }
 
+  @Override
+  public void updateE(CovarianceMatrix stats) {
+    assert (stats.getDimensionality() == mean.length);
+    final double owsum = stats.getWeight();
+    if(!(owsum > 0.)) {
+      return;
+    }
+    final double[] omean = stats.getMeanVector();
+    final double[][] oscat = stats.getScatterMatrix();
+    final double nwsum = wsum + owsum, f = wsum * owsum / nwsum;
+    for(int i = 0; i < mean.length; i++) {
+      nmea[i] = omean[i] - mean[i];
+    }
+    // Update variance
+    for(int i = 0; i < mean.length; i++) {
+      variance += oscat[i][i] + nmea[i] * nmea[i] * f;
+    }
+    // Update means
+    final double r = owsum / nwsum;
+    for(int i = 0; i < mean.length; i++) {
+      mean[i] += nmea[i] * r;
+    }
+    wsum = nwsum;
+  }
+
   @Override
   public void finalizeEStep() {
     if(wsum > 0.) {
@@ -255,7 +255,8 @@ public class ParallelGeneralizedDBSCAN extends AbstractAlgorithm<Clustering<Mode
       DBIDs ids = npred.getIDs();
       // Do the majority of the work in parallel:
       // (This will call "instantiate".)
-      ParallelExecutor.run(ids, this);
+      FiniteProgress prog = LOG.isVerbose() ? new FiniteProgress("Processing objects", ids.size(), LOG) : null;
+      ParallelExecutor.run(ids, prog, LOG, this);
 
       // Build the final result
       FiniteProgress pprog = LOG.isVerbose() ? new FiniteProgress("Building final result", ids.size(), LOG) : null;
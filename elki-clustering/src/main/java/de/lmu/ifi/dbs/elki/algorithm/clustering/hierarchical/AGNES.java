@@ -21,6 +21,8 @@
 package de.lmu.ifi.dbs.elki.algorithm.clustering.hierarchical;
 
 import de.lmu.ifi.dbs.elki.algorithm.AbstractDistanceBasedAlgorithm;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.hierarchical.matrix.DoubleTriangularMatrix;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.hierarchical.matrix.TriangularMatrix;
 import de.lmu.ifi.dbs.elki.data.type.TypeInformation;
 import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
 import de.lmu.ifi.dbs.elki.database.Database;
@@ -33,9 +35,9 @@ import de.lmu.ifi.dbs.elki.distance.distancefunction.DistanceFunction;
 import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.SquaredEuclideanDistanceFunction;
 import de.lmu.ifi.dbs.elki.logging.Logging;
 import de.lmu.ifi.dbs.elki.logging.progress.FiniteProgress;
+import de.lmu.ifi.dbs.elki.parallel.ParallelExecutor;
 import de.lmu.ifi.dbs.elki.utilities.Alias;
 import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
-import de.lmu.ifi.dbs.elki.utilities.exceptions.AbortException;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.OptionID;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.ObjectParameter;
@@ -52,6 +54,9 @@ import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.ObjectParameter;
  * This implementation uses the pointer-based representation used by SLINK, so
  * that the extraction algorithms we have can be used with either of them.
  *
+ * The distance matrix is stored in a {@link TriangularMatrix}; for large data
+ * sets, single precision or memory-mapped storage can be chosen.
+ *
  * The algorithm is believed to be first published (for single-linkage) by:
  * <p>
  * P. H. Sneath<br />
@@ -87,6 +92,7 @@ import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.ObjectParameter;
  *
  * @apiviz.composedOf LinkageMethod
  * @apiviz.composedOf PointerHierarchyRepresentationBuilder
+ * @apiviz.uses TriangularMatrix
  *
  * @param <O> Object type
  */
@@ -102,11 +108,21 @@ public class AGNES<O> extends AbstractDistanceBasedAlgorithm<O, PointerHierarchy
    */
   private static final Logging LOG = Logging.getLogger(AGNES.class);
 
+  /**
+   * Number of rows per work unit of the parallel matrix initialization.
+   */
+  private static final int FILL_BLOCKSIZE = 16;
+
   /**
    * Current linkage method in use.
    */
   LinkageMethod linkage = WardLinkageMethod.STATIC;
 
+  /**
+   * Storage of the distance matrix.
+   */
+  TriangularMatrix.Factory matrix = DoubleTriangularMatrix.Factory.STATIC;
+
   /**
    * Constructor.
    *
@@ -114,8 +130,20 @@ public class AGNES<O> extends AbstractDistanceBasedAlgorithm<O, PointerHierarchy
    * @param linkage Linkage method
    */
   public AGNES(DistanceFunction<? super O> distanceFunction, LinkageMethod linkage) {
+    this(distanceFunction, linkage, DoubleTriangularMatrix.Factory.STATIC);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param distanceFunction Distance function to use
+   * @param linkage Linkage method
+   * @param matrix Distance matrix storage
+   */
+  public AGNES(DistanceFunction<? super O> distanceFunction, LinkageMethod linkage, TriangularMatrix.Factory matrix) {
     super(distanceFunction);
     this.linkage = linkage;
+    this.matrix = matrix;
   }
 
   /**
@@ -139,45 +167,44 @@ public class AGNES<O> extends AbstractDistanceBasedAlgorithm<O, PointerHierarchy
     ArrayDBIDs ids = DBIDUtil.ensureArray(relation.getDBIDs());
     final int size = ids.size();
 
-    if(size > 0x10000) {
-      throw new AbortException("This implementation does not scale to data sets larger than " + //
-          0x10000 // = 65535
-          + " instances (~16 GB RAM), at which point the Java maximum array size is reached.");
-    }
     if(SingleLinkageMethod.class.isInstance(linkage)) {
       LOG.verbose("Notice: SLINK is a much faster algorithm for single-linkage clustering!");
     }
 
     // Compute the initial (lower triangular) distance matrix.
-    double[] scratch = new double[triangleSize(size)];
     DBIDArrayIter ix = ids.iter(), iy = ids.iter();
     boolean square = WardLinkageMethod.class.isInstance(linkage) && !(SquaredEuclideanDistanceFunction.class.isInstance(getDistanceFunction()));
-    initializeDistanceMatrix(scratch, dq, ix, iy, square);
-
-    // Initialize space for result:
-    PointerHierarchyRepresentationBuilder builder = new PointerHierarchyRepresentationBuilder(ids);
-
-    // Repeat until everything merged into 1 cluster
-    FiniteProgress prog = LOG.isVerbose() ? new FiniteProgress("Agglomerative clustering", size - 1, LOG) : null;
-    int wsize = size;
-    for(int i = 1; i < size; i++) {
-      int x = findMerge(wsize, scratch, ix, iy, builder);
-      if(x == wsize - 1) {
-        --wsize;
-        for(ix.seek(wsize - 1); builder.isLinked(ix); ix.retract()) {
+    try (TriangularMatrix scratch = matrix.make(size)) {
+      initializeDistanceMatrix(scratch, dq, ids, square);
+
+      // Initialize space for result:
+      PointerHierarchyRepresentationBuilder builder = new PointerHierarchyRepresentationBuilder(ids);
+
+      // Repeat until everything merged into 1 cluster
+      FiniteProgress prog = LOG.isVerbose() ? new FiniteProgress("Agglomerative clustering", size - 1, LOG) : null;
+      int wsize = size;
+      for(int i = 1; i < size; i++) {
+        int x = findMerge(wsize, scratch, ix, iy, builder);
+        if(x == wsize - 1) {
           --wsize;
+          for(ix.seek(wsize - 1); builder.isLinked(ix); ix.retract()) {
+            --wsize;
+          }
         }
+        LOG.incrementProcessed(prog);
       }
-      LOG.incrementProcessed(prog);
-    }
-    LOG.ensureCompleted(prog);
+      LOG.ensureCompleted(prog);
 
-    return builder.complete();
+      return builder.complete();
+    }
   }
 
   /**
    * Compute the size of a complete x by x triangle (minus diagonal)
    *
+   * For {@link TriangularMatrix} positions, use
+   * {@link TriangularMatrix#triangleSize}, which does not overflow.
+   *
    * @param x Offset
    * @return Size of complete triangle
    */
@@ -187,23 +214,51 @@ public class AGNES<O> extends AbstractDistanceBasedAlgorithm<O, PointerHierarchy
 
   /**
    * Initialize a distance matrix.
+   * <p>
+   * The rows are computed in parallel, in blocks of rows, starting with the
+   * longest rows.
    *
    * @param scratch Scratch space to be used.
    * @param dq Distance query
-   * @param ix Data iterator
-   * @param iy Data iterator
+   * @param ids Object ids, in matrix order
    * @param square Flag to use squared distances.
    */
-  protected static void initializeDistanceMatrix(double[] scratch, DistanceQuery<?> dq, DBIDArrayIter ix, DBIDArrayIter iy, boolean square) {
-    int pos = 0;
-    for(ix.seek(0); ix.valid(); ix.advance()) {
+  protected static void initializeDistanceMatrix(final TriangularMatrix scratch, final DistanceQuery<?> dq, final ArrayDBIDs ids, final boolean square) {
+    final int size = ids.size();
+    // Blocks are claimed in ascending order, but map to descending rows.
+    ParallelExecutor.runBlocks(size, FILL_BLOCKSIZE, new ParallelExecutor.BlockWorkerFactory<ParallelExecutor.BlockWorker>() {
+      @Override
+      public ParallelExecutor.BlockWorker make() {
+        return new ParallelExecutor.BlockWorker() {
+          @Override
+          public void process(int start, int end) {
+            initializeRows(scratch, dq, ids, square, Math.max(1, size - end), size - start);
+          }
+        };
+      }
+    });
+  }
+
+  /**
+   * Initialize a range of rows of the distance matrix.
+   *
+   * @param scratch Scratch space to be used.
+   * @param dq Distance query
+   * @param ids Object ids, in matrix order
+   * @param square Flag to use squared distances.
+   * @param start First row
+   * @param end End row (exclusive)
+   */
+  private static void initializeRows(TriangularMatrix scratch, DistanceQuery<?> dq, ArrayDBIDs ids, boolean square, int start, int end) {
+    DBIDArrayIter ix = ids.iter(), iy = ids.iter();
+    for(ix.seek(start); ix.getOffset() < end; ix.advance()) {
       final int x = ix.getOffset();
-      assert (pos == triangleSize(x));
+      long pos = TriangularMatrix.triangleSize(x);
       for(iy.seek(0); iy.getOffset() < x; iy.advance()) {
         double dist = dq.distance(ix, iy);
         // Ward uses variances -- i.e. squared values
         dist = square ? (dist * dist) : dist;
-        scratch[pos] = dist;
+        scratch.set(pos, dist);
         pos++;
       }
     }
@@ -219,24 +274,25 @@ public class AGNES<O> extends AbstractDistanceBasedAlgorithm<O, PointerHierarchy
    * @param builder Pointer representation builder
    * @return x, for shrinking the working set.
    */
-  protected int findMerge(int size, double[] scratch, DBIDArrayIter ix, DBIDArrayIter iy, PointerHierarchyRepresentationBuilder builder) {
+  protected int findMerge(int size, TriangularMatrix scratch, DBIDArrayIter ix, DBIDArrayIter iy, PointerHierarchyRepresentationBuilder builder) {
     double mindist = Double.POSITIVE_INFINITY;
     int x = -1, y = -1;
     // Find minimum:
-    for(int ox = 0, xbase = 0; ox < size; xbase += ox++) {
+    long xbase = 0;
+    for(int ox = 0; ox < size; xbase += ox++) {
       // Skip if object has already joined a cluster:
       if(builder.isLinked(ix.seek(ox))) {
         continue;
       }
-      assert (xbase == triangleSize(ox));
+      assert (xbase == TriangularMatrix.triangleSize(ox));
       for(int oy = 0; oy < ox; oy++) {
         // Skip if object has already joined a cluster:
         if(builder.isLinked(iy.seek(oy))) {
           continue;
         }
-        final int idx = xbase + oy;
-        if(scratch[idx] <= mindist) {
-          mindist = scratch[idx];
+        final double v = scratch.get(xbase + oy);
+        if(v <= mindist) {
+          mindist = v;
           x = ox;
           y = oy;
         }
@@ -259,7 +315,7 @@ public class AGNES<O> extends AbstractDistanceBasedAlgorithm<O, PointerHierarchy
    * @param x First matrix position
    * @param y Second matrix position
    */
-  protected void merge(int size, double[] scratch, DBIDArrayIter ix, DBIDArrayIter iy, PointerHierarchyRepresentationBuilder builder, double mindist, int x, int y) {
+  protected void merge(int size, TriangularMatrix scratch, DBIDArrayIter ix, DBIDArrayIter iy, PointerHierarchyRepresentationBuilder builder, double mindist, int x, int y) {
     // Avoid allocating memory, by reusing existing iterators:
     ix.seek(x);
     iy.seek(y);
@@ -291,9 +347,9 @@ public class AGNES<O> extends AbstractDistanceBasedAlgorithm<O, PointerHierarchy
    * @param sizex Old size of first cluster
    * @param sizey Old size of second cluster
    */
-  protected void updateMatrix(int size, double[] scratch, DBIDArrayIter ij, PointerHierarchyRepresentationBuilder builder, double mindist, int x, int y, final int sizex, final int sizey) {
+  protected void updateMatrix(int size, TriangularMatrix scratch, DBIDArrayIter ij, PointerHierarchyRepresentationBuilder builder, double mindist, int x, int y, final int sizex, final int sizey) {
     // Update distance matrix. Note: y < x
-    final int xbase = triangleSize(x), ybase = triangleSize(y);
+    final long xbase = TriangularMatrix.triangleSize(x), ybase = TriangularMatrix.triangleSize(y);
 
     // Write to (y, j), with j < y
     int j = 0;
@@ -302,18 +358,18 @@ public class AGNES<O> extends AbstractDistanceBasedAlgorithm<O, PointerHierarchy
         continue;
       }
       assert (j < y); // Otherwise, ybase + j is the wrong position!
-      final int yb = ybase + j;
-      scratch[yb] = linkage.combine(sizex, scratch[xbase + j], sizey, scratch[yb], builder.getSize(ij), mindist);
+      final long yb = ybase + j;
+      scratch.set(yb, linkage.combine(sizex, scratch.get(xbase + j), sizey, scratch.get(yb), builder.getSize(ij), mindist));
     }
     j++; // Skip y
     // Write to (j, y), with y < j < x
-    int jbase = triangleSize(j);
+    long jbase = TriangularMatrix.triangleSize(j);
     for(; j < x; jbase += j++) {
       if(builder.isLinked(ij.seek(j))) {
         continue;
       }
-      final int jb = jbase + y;
-      scratch[jb] = linkage.combine(sizex, scratch[xbase + j], sizey, scratch[jb], builder.getSize(ij), mindist);
+      final long jb = jbase + y;
+      scratch.set(jb, linkage.combine(sizex, scratch.get(xbase + j), sizey, scratch.get(jb), builder.getSize(ij), mindist));
     }
     jbase += j++; // Skip x
     // Write to (j, y), with y < x < j
@@ -321,7 +377,7 @@ public class AGNES<O> extends AbstractDistanceBasedAlgorithm<O, PointerHierarchy
       if(builder.isLinked(ij.seek(j))) {
         continue;
       }
-      scratch[jbase + y] = linkage.combine(sizex, scratch[jbase + x], sizey, scratch[jbase + y], builder.getSize(ij), mindist);
+      scratch.set(jbase + y, linkage.combine(sizex, scratch.get(jbase + x), sizey, scratch.get(jbase + y), builder.getSize(ij), mindist));
     }
   }
 
@@ -351,11 +407,21 @@ public class AGNES<O> extends AbstractDistanceBasedAlgorithm<O, PointerHierarchy
      */
     public static final OptionID LINKAGE_ID = new OptionID("hierarchical.linkage", "Linkage method to use (e.g. Ward, Single-Link)");
 
+    /**
+     * Option ID for the distance matrix storage.
+     */
+    public static final OptionID MATRIX_ID = new OptionID("hierarchical.matrix", "Storage of the distance matrix, e.g. in single precision or memory-mapped for large data sets.");
+
     /**
      * Current linkage in use.
      */
     protected LinkageMethod linkage;
 
+    /**
+     * Distance matrix storage.
+     */
+    protected TriangularMatrix.Factory matrix;
+
     @Override
     protected void makeOptions(Parameterization config) {
       // We don't call super, because we want a different default distance.
@@ -369,11 +435,24 @@ public class AGNES<O> extends AbstractDistanceBasedAlgorithm<O, PointerHierarchy
       if(config.grab(linkageP)) {
         linkage = linkageP.instantiateClass(config);
       }
+
+      matrix = makeParameterMatrix(config);
+    }
+
+    /**
+     * Get the distance matrix storage parameter.
+     *
+     * @param config Parameterization
+     * @return Matrix factory
+     */
+    protected static TriangularMatrix.Factory makeParameterMatrix(Parameterization config) {
+      ObjectParameter<TriangularMatrix.Factory> matrixP = new ObjectParameter<>(MATRIX_ID, TriangularMatrix.Factory.class, DoubleTriangularMatrix.Factory.class);
+      return config.grab(matrixP) ? matrixP.instantiateClass(config) : null;
     }
 
     @Override
     protected AGNES<O> makeInstance() {
-      return new AGNES<>(distanceFunction, linkage);
+      return new AGNES<>(distanceFunction, linkage, matrix);
     }
   }
 }
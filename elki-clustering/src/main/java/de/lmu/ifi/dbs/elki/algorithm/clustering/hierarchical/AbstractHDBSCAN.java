@@ -30,10 +30,10 @@ import de.lmu.ifi.dbs.elki.database.datastore.WritableDBIDDataStore;
 import de.lmu.ifi.dbs.elki.database.datastore.WritableDoubleDataStore;
 import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
-import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDVar;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.KNNList;
 import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
 import de.lmu.ifi.dbs.elki.database.query.knn.KNNQuery;
 import de.lmu.ifi.dbs.elki.distance.distancefunction.DistanceFunction;
@@ -41,6 +41,12 @@ import de.lmu.ifi.dbs.elki.logging.Logging;
 import de.lmu.ifi.dbs.elki.logging.progress.FiniteProgress;
 import de.lmu.ifi.dbs.elki.math.MathUtil;
 import de.lmu.ifi.dbs.elki.math.geometry.PrimsMinimumSpanningTree;
+import de.lmu.ifi.dbs.elki.parallel.ParallelExecutor;
+import de.lmu.ifi.dbs.elki.parallel.processor.KDistanceProcessor;
+import de.lmu.ifi.dbs.elki.parallel.processor.KNNProcessor;
+import de.lmu.ifi.dbs.elki.parallel.processor.WriteDoubleDataStoreProcessor;
+import de.lmu.ifi.dbs.elki.parallel.variables.SharedDouble;
+import de.lmu.ifi.dbs.elki.parallel.variables.SharedObject;
 import de.lmu.ifi.dbs.elki.result.Result;
 import de.lmu.ifi.dbs.elki.utilities.datastructures.heap.DoubleLongHeap;
 import de.lmu.ifi.dbs.elki.utilities.documentation.Description;
@@ -67,6 +73,8 @@ import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.IntParameter;
  *
  * @apiviz.composedOf HDBSCANAdapter
  * @apiviz.composedOf HeapMSTCollector
+ * @apiviz.uses KNNProcessor
+ * @apiviz.uses KDistanceProcessor
  *
  * @param <O> Input object type
  * @param <R> Output result type
@@ -97,6 +105,9 @@ public abstract class AbstractHDBSCAN<O, R extends Result> extends AbstractDista
   /**
    * Compute the core distances for all objects.
    *
+   * The kNN queries are run in parallel on all cores, so the kNN query must
+   * support concurrent use.
+   *
    * @param ids Objects
    * @param knnQ kNN query
    * @param minPts Minimum neighborhood size
@@ -106,14 +117,34 @@ public abstract class AbstractHDBSCAN<O, R extends Result> extends AbstractDista
     final Logging LOG = getLogger();
     final WritableDoubleDataStore coredists = DataStoreUtil.makeDoubleStorage(ids, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_DB);
     FiniteProgress cprog = LOG.isVerbose() ? new FiniteProgress("Computing core sizes", ids.size(), LOG) : null;
-    for(DBIDIter iter = ids.iter(); iter.valid(); iter.advance()) {
-      coredists.put(iter, knnQ.getKNNForDBID(iter, minPts).getKNNDistance());
-      LOG.incrementProcessed(cprog);
-    }
-    LOG.ensureCompleted(cprog);
+    KNNProcessor<O> knnm = new KNNProcessor<>(minPts, knnQ);
+    SharedObject<KNNList> knnv = new SharedObject<>();
+    knnm.connectKNNOutput(knnv);
+    KDistanceProcessor kdistm = new KDistanceProcessor(minPts);
+    SharedDouble kdistv = new SharedDouble();
+    kdistm.connectKNNInput(knnv);
+    kdistm.connectOutput(kdistv);
+    WriteDoubleDataStoreProcessor storem = new WriteDoubleDataStoreProcessor(coredists);
+    storem.connectInput(kdistv);
+    ParallelExecutor.run(ids, cprog, LOG, knnm, kdistm, storem);
     return coredists;
   }
 
+  /**
+   * Copy the core distances into an array, by offset.
+   *
+   * @param ids Objects
+   * @param coredists Core distances
+   * @return Core distances, by offset
+   */
+  protected static double[] coreDistanceArray(ArrayDBIDs ids, DoubleDataStore coredists) {
+    double[] cores = new double[ids.size()];
+    for(DBIDArrayIter iter = ids.iter(); iter.valid(); iter.advance()) {
+      cores[iter.getOffset()] = coredists.doubleValue(iter);
+    }
+    return cores;
+  }
+
   /**
    * Class for processing the HDBSCAN G_mpts graph.
    *
@@ -131,9 +162,9 @@ public abstract class AbstractHDBSCAN<O, R extends Result> extends AbstractDista
     private DBIDArrayIter q, p;
 
     /**
-     * Core distance storage.
+     * Core distances, by offset.
      */
-    private DoubleDataStore coredists;
+    private double[] coredists;
 
     /**
      * Distance query for exact distances.
@@ -151,17 +182,13 @@ public abstract class AbstractHDBSCAN<O, R extends Result> extends AbstractDista
       this.ids = ids;
       this.q = ids.iter();
       this.p = ids.iter();
-      this.coredists = coredists;
+      this.coredists = coreDistanceArray(ids, coredists);
       this.distq = distq;
     }
 
     @Override
     public double distance(ArrayDBIDs data, int ip, int iq) {
-      p.seek(ip);
-      q.seek(iq);
-      double coreP = coredists.doubleValue(p);
-      double coreQ = coredists.doubleValue(q);
-      return MathUtil.max(coreP, coreQ, distq.distance(p, q));
+      return MathUtil.max(coredists[ip], coredists[iq], distq.distance(p.seek(ip), q.seek(iq)));
     }
 
     @Override
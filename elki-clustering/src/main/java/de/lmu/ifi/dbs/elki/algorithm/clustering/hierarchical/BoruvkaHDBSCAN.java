@@ -0,0 +1,647 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.clustering.hierarchical;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import de.lmu.ifi.dbs.elki.data.type.TypeInformation;
+import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableDBIDDataStore;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableDoubleDataStore;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableIntegerDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDListIter;
+import de.lmu.ifi.dbs.elki.database.ids.KNNList;
+import de.lmu.ifi.dbs.elki.database.query.DatabaseQuery;
+import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
+import de.lmu.ifi.dbs.elki.database.query.knn.KNNQuery;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.DistanceFunction;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.logging.progress.FiniteProgress;
+import de.lmu.ifi.dbs.elki.math.MathUtil;
+import de.lmu.ifi.dbs.elki.parallel.ParallelExecutor;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.arrays.DoubleIntegerArrayQuickSort;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.heap.DoubleLongHeap;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.heap.DoubleLongMinHeap;
+import de.lmu.ifi.dbs.elki.utilities.documentation.Description;
+import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
+import de.lmu.ifi.dbs.elki.utilities.documentation.Title;
+
+/**
+ * HDBSCAN clustering, building the minimum spanning tree of the mutual
+ * reachability graph with Boruvka's algorithm.
+ *
+ * In every round, the nearest other component of each object is found in
+ * parallel, and the shortest edge of each component is added to the tree, so
+ * at most log2(n) rounds are needed. The nearest component of an object only
+ * needs to be searched again when its previous candidate has been merged into
+ * the same component. Because this distance can only increase, the previous
+ * value is a lower bound, and objects that cannot beat the shortest known edge
+ * of their component are skipped. All searches are also bounded by this edge,
+ * so the work in later rounds concentrates on the component borders. For
+ * metric distances, the lower bounds are also passed on to the neighbors found
+ * by a search, using the triangle inequality, so the interior of a large
+ * component does not need to be searched object by object.
+ *
+ * If an index supporting kNN queries is available (e.g. a cover tree or a
+ * k-d-tree), the nearest component is found with kNN queries of increasing
+ * size. Otherwise, all objects are scanned, which is quadratic in every round;
+ * {@link HDBSCANLinearMemory} is then usually faster on a single core.
+ *
+ * The result is the same pointer representation as in the other HDBSCAN
+ * implementations.
+ *
+ * Reference:
+ * <p>
+ * R. J. G. B. Campello, D. Moulavi, and J. Sander<br />
+ * Density-Based Clustering Based on Hierarchical Density Estimates<br />
+ * Pacific-Asia Conference on Advances in Knowledge Discovery and Data Mining,
+ * PAKDD
+ * </p>
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ *
+ * @param <O> Object type
+ *
+ * @apiviz.composedOf Instance
+ * @apiviz.has PointerDensityHierarchyRepresentationResult
+ */
+@Title("HDBSCAN: Hierarchical Density-Based Spatial Clustering of Applications with Noise")
+@Description("Density-Based Clustering Based on Hierarchical Density Estimates, using Boruvka's minimum spanning tree algorithm.")
+@Reference(authors = "R. J. G. B. Campello, D. Moulavi, and J. Sander", //
+    title = "Density-Based Clustering Based on Hierarchical Density Estimates", //
+    booktitle = "Pacific-Asia Conference on Advances in Knowledge Discovery and Data Mining, PAKDD", //
+    url = "http://dx.doi.org/10.1007/978-3-642-37456-2_14")
+public class BoruvkaHDBSCAN<O> extends AbstractHDBSCAN<O, PointerDensityHierarchyRepresentationResult> implements HierarchicalClusteringAlgorithm {
+  /**
+   * Class logger.
+   */
+  private static final Logging LOG = Logging.getLogger(BoruvkaHDBSCAN.class);
+
+  /**
+   * Additional reference for documentation.
+   */
+  @Reference(authors = "O. Borůvka", //
+      title = "O jistém problému minimálním (About a certain minimal problem)", //
+      booktitle = "Práce moravské přírodovědecké společnosti, 3")
+  public static final Void BORUVKA_REFERENCE = null;
+
+  /**
+   * Constructor.
+   *
+   * @param distanceFunction Distance function
+   * @param minPts Minimum number of points for density
+   */
+  public BoruvkaHDBSCAN(DistanceFunction<? super O> distanceFunction, int minPts) {
+    super(distanceFunction, minPts);
+  }
+
+  /**
+   * Run the algorithm
+   *
+   * @param db Database
+   * @param relation Relation
+   * @return Clustering hierarchy
+   */
+  public PointerDensityHierarchyRepresentationResult run(Database db, Relation<O> relation) {
+    final DistanceQuery<O> distQ = db.getDistanceQuery(relation, getDistanceFunction());
+    final KNNQuery<O> knnQ = db.getKNNQuery(distQ, minPts);
+    // Only use kNN queries for the spanning tree if they are accelerated:
+    final KNNQuery<O> treeQ = db.getKNNQuery(distQ, minPts, DatabaseQuery.HINT_HEAVY_USE, DatabaseQuery.HINT_OPTIMIZED_ONLY, DatabaseQuery.HINT_NO_CACHE);
+    // We need array addressing later.
+    final ArrayDBIDs ids = DBIDUtil.ensureArray(relation.getDBIDs());
+
+    // 1. Compute the core distances
+    final WritableDoubleDataStore coredists = computeCoreDists(ids, knnQ, minPts);
+
+    // 2. Build spanning tree.
+    final int numedges = ids.size() - 1;
+    DoubleLongHeap heap = new DoubleLongMinHeap(Math.max(numedges, 1));
+    FiniteProgress mprog = LOG.isVerbose() ? new FiniteProgress("Computing minimum spanning tree (n-1 edges)", Math.max(numedges, 0), LOG) : null;
+    new Instance<>(ids, coreDistanceArray(ids, coredists), distQ, treeQ, minPts).run(new HeapMSTCollector(heap, mprog, LOG));
+    LOG.ensureCompleted(mprog);
+
+    // Storage for pointer representation:
+    WritableDBIDDataStore pi = DataStoreUtil.makeDBIDStorage(ids, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_STATIC);
+    WritableDoubleDataStore lambda = DataStoreUtil.makeDoubleStorage(ids, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_STATIC, Double.POSITIVE_INFINITY);
+    convertToPointerRepresentation(ids, heap, pi, lambda);
+
+    return new PointerDensityHierarchyRepresentationResult(ids, pi, lambda, coredists);
+  }
+
+  /**
+   * Instance for a single data set.
+   *
+   * The nearest other component of each object is computed in parallel; only
+   * the merging of components is sequential.
+   *
+   * @author Erich Schubert
+   *
+   * @param <O> Object type
+   */
+  private static class Instance<O> {
+    /**
+     * Number of objects searched per work unit.
+     */
+    private static final int BLOCKSIZE = 64;
+
+    /**
+     * Objects.
+     */
+    private final ArrayDBIDs ids;
+
+    /**
+     * Offset of each object.
+     */
+    private final WritableIntegerDataStore offsets;
+
+    /**
+     * Core distances, by offset.
+     */
+    private final double[] cores;
+
+    /**
+     * Distance query.
+     */
+    private final DistanceQuery<O> distQ;
+
+    /**
+     * Accelerated kNN query, may be {@code null}.
+     */
+    private final KNNQuery<O> treeQ;
+
+    /**
+     * Propagate lower bounds to neighbors, using the triangle inequality.
+     */
+    private final boolean metric;
+
+    /**
+     * Union-find parent pointers.
+     */
+    private final int[] parent;
+
+    /**
+     * Component of each object (root in {@link #parent}).
+     */
+    private final int[] comp;
+
+    /**
+     * Nearest object in a different component, -1 if unknown.
+     */
+    private final int[] target;
+
+    /**
+     * Mutual reachability distance to {@link #target}.
+     */
+    private final double[] dist;
+
+    /**
+     * Last kNN query size needed for each object.
+     */
+    private final int[] kk;
+
+    /**
+     * Lower bound of the distance to the nearest other component, as raw long
+     * bits. This only increases, as components are merged.
+     */
+    private final AtomicLongArray lower;
+
+    /**
+     * Upper bound of the shortest outgoing edge of each component, by root.
+     * Stored as raw long bits, to allow atomic minimum updates.
+     */
+    private final AtomicLongArray bound;
+
+    /**
+     * Objects to search in the current round, by ascending lower bound.
+     */
+    private final int[] order;
+
+    /**
+     * Constructor.
+     *
+     * @param ids Objects
+     * @param cores Core distances, by offset
+     * @param distQ Distance query
+     * @param treeQ Accelerated kNN query, may be {@code null}
+     * @param k Initial kNN query size
+     */
+    public Instance(ArrayDBIDs ids, double[] cores, DistanceQuery<O> distQ, KNNQuery<O> treeQ, int k) {
+      final int size = ids.size();
+      this.ids = ids;
+      this.cores = cores;
+      this.distQ = distQ;
+      this.treeQ = treeQ;
+      this.metric = distQ.getDistanceFunction().isMetric();
+      this.offsets = DataStoreUtil.makeIntegerStorage(ids, DataStoreFactory.HINT_TEMP | DataStoreFactory.HINT_HOT, -1);
+      this.parent = new int[size];
+      this.comp = new int[size];
+      this.target = new int[size];
+      this.dist = new double[size];
+      this.kk = new int[size];
+      this.lower = new AtomicLongArray(size);
+      this.bound = new AtomicLongArray(size);
+      this.order = new int[size];
+      for(DBIDArrayIter it = ids.iter(); it.valid(); it.advance()) {
+        final int i = it.getOffset();
+        offsets.putInt(it, i);
+        parent[i] = comp[i] = i;
+        target[i] = -1;
+        kk[i] = k;
+        lower.set(i, Double.doubleToRawLongBits(cores[i]));
+      }
+    }
+
+    /**
+     * Build the minimum spanning tree.
+     *
+     * @param collector Edge collector
+     */
+    public void run(HeapMSTCollector collector) {
+      final int size = ids.size();
+      // Shortest edge of each component, by its root.
+      int[] best = new int[size];
+      // Candidate edges of a round, and their lengths.
+      int[] edges = new int[size];
+      double[] lengths = new double[size];
+      double[] bounds = new double[size];
+      int components = size;
+      while(components > 1) {
+        ParallelExecutor.runBlocks(prepareRound(bounds, lengths), BLOCKSIZE, new ParallelExecutor.BlockWorkerFactory<Searcher>() {
+          @Override
+          public Searcher make() {
+            return new Searcher();
+          }
+        });
+        // Shortest edge of each component:
+        Arrays.fill(best, -1);
+        for(int i = 0; i < size; i++) {
+          final int c = comp[i], b = best[c], t = target[i];
+          if(t >= 0 && comp[t] != c && (b < 0 || dist[i] < dist[b])) {
+            best[c] = i;
+          }
+        }
+        int numedges = 0;
+        for(int c = 0; c < size; c++) {
+          final int b = best[c];
+          if(b >= 0) {
+            edges[numedges] = b;
+            lengths[numedges++] = dist[b];
+          }
+        }
+        // Add in ascending order, as two components may choose the same edge.
+        DoubleIntegerArrayQuickSort.sort(lengths, edges, numedges);
+        final int before = components;
+        for(int e = 0; e < numedges; e++) {
+          final int i = edges[e], j = target[i];
+          final int ri = find(i), rj = find(j);
+          if(ri == rj) {
+            continue;
+          }
+          parent[ri] = rj;
+          collector.addEdge(lengths[e], i, j);
+          --components;
+        }
+        if(components == before) {
+          // Only infinite edges remain, e.g. if minPts exceeds the data size:
+          for(int i = 0, r = find(0); i < size; i++) {
+            final int ri = find(i);
+            if(ri != r) {
+              parent[ri] = r;
+              collector.addEdge(Double.POSITIVE_INFINITY, i, r);
+              --components;
+            }
+          }
+          break;
+        }
+        for(int i = 0; i < size; i++) {
+          comp[i] = find(i);
+        }
+      }
+    }
+
+    /**
+     * Prepare a round: initialize the component bounds with the nearest
+     * neighbors that are still in a different component, and collect the
+     * objects that need to be searched, by ascending lower bound.
+     *
+     * The distance to the nearest other component of an object can only
+     * increase when components are merged, so the lower bounds remain valid.
+     * Objects whose lower bound is not below the shortest known edge of their
+     * component cannot contribute, and are skipped.
+     *
+     * @param bounds Scratch array for the bounds
+     * @param lbs Scratch array for the lower bounds
+     * @return Number of objects to search
+     */
+    private int prepareRound(double[] bounds, double[] lbs) {
+      final int size = ids.size();
+      Arrays.fill(bounds, Double.POSITIVE_INFINITY);
+      for(int i = 0; i < size; i++) {
+        final int c = comp[i], t = target[i];
+        if(t >= 0 && comp[t] != c && dist[i] < bounds[c]) {
+          bounds[c] = dist[i];
+        }
+      }
+      for(int c = 0; c < size; c++) {
+        bound.set(c, Double.doubleToRawLongBits(bounds[c]));
+      }
+      int num = 0;
+      for(int i = 0; i < size; i++) {
+        final int c = comp[i], t = target[i];
+        if(t >= 0 && comp[t] != c) {
+          continue; // Still valid.
+        }
+        final double lb = getLower(i);
+        if(lb < bounds[c]) {
+          order[num] = i;
+          lbs[num++] = lb;
+        }
+      }
+      // Search the most promising objects first, to tighten the bounds early.
+      DoubleIntegerArrayQuickSort.sort(lbs, order, num);
+      return num;
+    }
+
+    /**
+     * Get the lower bound of an object.
+     *
+     * @param i Object offset
+     * @return Lower bound
+     */
+    private double getLower(int i) {
+      return Double.longBitsToDouble(lower.get(i));
+    }
+
+    /**
+     * Raise the lower bound of an object.
+     *
+     * @param i Object offset
+     * @param d New lower bound
+     */
+    private void raiseLower(int i, double d) {
+      final long bits = Double.doubleToRawLongBits(d);
+      for(long cur = lower.get(i); d > Double.longBitsToDouble(cur); cur = lower.get(i)) {
+        if(lower.compareAndSet(i, cur, bits)) {
+          return;
+        }
+      }
+    }
+
+    /**
+     * Get the current bound of a component.
+     *
+     * @param c Component
+     * @return Bound
+     */
+    private double getBound(int c) {
+      return Double.longBitsToDouble(bound.get(c));
+    }
+
+    /**
+     * Lower the bound of a component.
+     *
+     * @param c Component
+     * @param d New bound
+     */
+    private void updateBound(int c, double d) {
+      final long bits = Double.doubleToRawLongBits(d);
+      for(long cur = bound.get(c); d < Double.longBitsToDouble(cur); cur = bound.get(c)) {
+        if(bound.compareAndSet(c, cur, bits)) {
+          return;
+        }
+      }
+    }
+
+    /**
+     * Find the root of an object, with path halving.
+     *
+     * @param i Object offset
+     * @return Root offset
+     */
+    private int find(int i) {
+      while(parent[i] != i) {
+        i = parent[i] = parent[parent[i]];
+      }
+      return i;
+    }
+
+    /**
+     * Find the nearest other component of each object.
+     *
+     * Only edges shorter than the current bound of the component are of
+     * interest. If none is found, the object has no target, and the bound is
+     * kept as lower bound for the next rounds.
+     *
+     * @author Erich Schubert
+     */
+    private class Searcher implements ParallelExecutor.BlockWorker {
+      /**
+       * Iterator for scanning.
+       */
+      private DBIDArrayIter it = ids.iter();
+
+      /**
+       * Iterator for the query object.
+       */
+      private DBIDArrayIter id = ids.iter();
+
+      @Override
+      public void process(int start, int end) {
+        for(int p = start; p < end; p++) {
+          final int i = order[p];
+          // Bound may have improved since the round was prepared:
+          if(getLower(i) >= getBound(comp[i])) {
+            continue;
+          }
+          id.seek(i);
+          if(treeQ == null || !searchIndex(i)) {
+            searchLinear(i);
+          }
+        }
+      }
+
+      /**
+       * Store the search result of an object.
+       *
+       * @param i Object offset
+       * @param bestj Nearest object in another component, or -1
+       * @param limit Distance to bestj, or lower bound if there is none
+       */
+      private void store(int i, int bestj, double limit) {
+        target[i] = bestj;
+        dist[i] = limit;
+        raiseLower(i, limit);
+        if(bestj >= 0) {
+          updateBound(comp[i], limit);
+        }
+      }
+
+      /**
+       * Find the nearest other component by scanning all objects.
+       *
+       * @param i Object offset
+       */
+      private void searchLinear(int i) {
+        final int ci = comp[i];
+        final double core = cores[i];
+        double limit = getBound(ci);
+        int bestj = -1;
+        for(it.seek(0); it.valid() && core < limit; it.advance()) {
+          final int j = it.getOffset();
+          if(comp[j] == ci || MathUtil.max(core, cores[j]) >= limit) {
+            continue;
+          }
+          final double d = MathUtil.max(core, cores[j], distQ.distance(id, it));
+          if(d < limit) {
+            limit = d;
+            bestj = j;
+          }
+          // Another object of this component may have found a shorter edge:
+          final double b = getBound(ci);
+          if(b < limit) {
+            limit = b;
+            bestj = -1;
+          }
+        }
+        store(i, bestj, limit);
+      }
+
+      /**
+       * Find the nearest other component using kNN queries of increasing size,
+       * until the k-distance exceeds the best edge found.
+       *
+       * For metric distances, the search continues up to twice the bound, or
+       * the nearest other component. If no other component is within radius r,
+       * a neighbor at distance d is at least r-d away from all other
+       * components, so the interior objects of a component can be skipped
+       * without searching each of them.
+       *
+       * @param i Object offset
+       * @return {@code false} if the index could not answer the query.
+       */
+      private boolean searchIndex(int i) {
+        final int ci = comp[i], size = ids.size();
+        final double core = cores[i];
+        for(int k = kk[i];; k = Math.min(k << 1, size)) {
+          KNNList knns = treeQ.getKNNForDBID(id, k);
+          final boolean all = knns.size() >= size;
+          if(!all && knns.size() < k) {
+            return false; // Index returned fewer neighbors than requested.
+          }
+          double limit = getBound(ci);
+          int bestj = -1;
+          // Raw distance to the nearest other component seen.
+          double radius = Double.POSITIVE_INFINITY;
+          DoubleDBIDListIter n = knns.iter();
+          for(; n.valid(); n.advance()) {
+            final double d = n.doubleValue();
+            // All further objects are at least this far away:
+            if(d >= limit || core >= limit) {
+              break;
+            }
+            final int j = offsets.intValue(n);
+            if(comp[j] == ci) {
+              continue;
+            }
+            radius = radius < d ? radius : d;
+            final double m = MathUtil.max(core, cores[j], d);
+            if(m < limit) {
+              limit = m;
+              bestj = j;
+            }
+          }
+          if(!all && !n.valid()) {
+            continue; // A shorter edge may be further away.
+          }
+          if(metric) {
+            for(; radius == Double.POSITIVE_INFINITY && n.valid(); n.advance()) {
+              if(comp[offsets.intValue(n)] != ci) {
+                radius = n.doubleValue();
+              }
+            }
+            if(radius == Double.POSITIVE_INFINITY) {
+              // No other component among the neighbors:
+              radius = knns.getKNNDistance();
+              if(radius < 2 * limit && !all) {
+                continue; // Search further, to skip more objects.
+              }
+            }
+            propagate(knns, radius);
+          }
+          kk[i] = k;
+          store(i, bestj, limit);
+          return true;
+        }
+      }
+
+      /**
+       * Raise the lower bounds of the neighbors of an object.
+       *
+       * @param knns Neighbors
+       * @param radius Raw distance to the nearest other component
+       */
+      private void propagate(KNNList knns, double radius) {
+        for(DoubleDBIDListIter n = knns.iter(); n.valid(); n.advance()) {
+          final double d = n.doubleValue();
+          if(d >= radius) {
+            break;
+          }
+          raiseLower(offsets.intValue(n), radius - d);
+        }
+      }
+    }
+  }
+
+  @Override
+  public TypeInformation[] getInputTypeRestriction() {
+    return TypeUtil.array(getDistanceFunction().getInputTypeRestriction());
+  }
+
+  @Override
+  protected Logging getLogger() {
+    return LOG;
+  }
+
+  /**
+   * Parameterization class
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   *
+   * @param <O> Object type
+   */
+  public static class Parameterizer<O> extends AbstractHDBSCAN.Parameterizer<O> {
+    @Override
+    protected BoruvkaHDBSCAN<O> makeInstance() {
+      return new BoruvkaHDBSCAN<>(distanceFunction, minPts);
+    }
+  }
+}
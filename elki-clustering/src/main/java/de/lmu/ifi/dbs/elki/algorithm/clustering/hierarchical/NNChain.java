@@ -20,6 +20,8 @@
  */
 package de.lmu.ifi.dbs.elki.algorithm.clustering.hierarchical;
 
+import de.lmu.ifi.dbs.elki.algorithm.clustering.hierarchical.matrix.DoubleTriangularMatrix;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.hierarchical.matrix.TriangularMatrix;
 import de.lmu.ifi.dbs.elki.data.type.TypeInformation;
 import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
 import de.lmu.ifi.dbs.elki.database.Database;
@@ -34,7 +36,6 @@ import de.lmu.ifi.dbs.elki.logging.Logging;
 import de.lmu.ifi.dbs.elki.logging.progress.FiniteProgress;
 import de.lmu.ifi.dbs.elki.utilities.datastructures.arraylike.IntegerArray;
 import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
-import de.lmu.ifi.dbs.elki.utilities.exceptions.AbortException;
 
 /**
  * NNchain clustering algorithm.
@@ -80,7 +81,18 @@ public class NNChain<O> extends AGNES<O> {
    * @param distanceFunction Distance function
    */
   public NNChain(DistanceFunction<? super O> distanceFunction, LinkageMethod linkage) {
-    super(distanceFunction, linkage);
+    this(distanceFunction, linkage, DoubleTriangularMatrix.Factory.STATIC);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param distanceFunction Distance function
+   * @param linkage Linkage method
+   * @param matrix Distance matrix storage
+   */
+  public NNChain(DistanceFunction<? super O> distanceFunction, LinkageMethod linkage, TriangularMatrix.Factory matrix) {
+    super(distanceFunction, linkage, matrix);
   }
 
   /**
@@ -94,28 +106,23 @@ public class NNChain<O> extends AGNES<O> {
     DistanceQuery<O> dq = db.getDistanceQuery(relation, getDistanceFunction());
     ArrayDBIDs ids = DBIDUtil.ensureArray(relation.getDBIDs());
     final int size = ids.size();
-    if(size > 0x10000) {
-      throw new AbortException("This implementation does not scale to data sets larger than " + //
-          0x10000 // = 65535
-          + " instances (~16 GB RAM), at which point the Java maximum array size is reached.");
-    }
     if(SingleLinkageMethod.class.isInstance(linkage)) {
       LOG.verbose("Notice: SLINK is a much faster algorithm for single-linkage clustering!");
     }
 
     // Compute the initial (lower triangular) distance matrix.
-    double[] scratch = new double[triangleSize(size)];
     DBIDArrayIter ix = ids.iter(), iy = ids.iter();
-    // Position counter - must agree with computeOffset!
     final boolean square = WardLinkageMethod.class.isInstance(linkage) && !(SquaredEuclideanDistanceFunction.class.isInstance(getDistanceFunction()));
-    initializeDistanceMatrix(scratch, dq, ix, iy, square);
+    try (TriangularMatrix scratch = matrix.make(size)) {
+      initializeDistanceMatrix(scratch, dq, ids, square);
 
-    // Initialize space for result:
-    PointerHierarchyRepresentationBuilder builder = new PointerHierarchyRepresentationBuilder(ids);
+      // Initialize space for result:
+      PointerHierarchyRepresentationBuilder builder = new PointerHierarchyRepresentationBuilder(ids);
 
-    nnChainCore(size, scratch, ix, iy, builder);
+      nnChainCore(size, scratch, ix, iy, builder);
 
-    return builder.complete();
+      return builder.complete();
+    }
   }
 
   /**
@@ -129,7 +136,7 @@ public class NNChain<O> extends AGNES<O> {
    * @param iy another iterator to reuse
    * @param builder Result builder
    */
-  private void nnChainCore(int size, double[] distances, DBIDArrayIter ix, DBIDArrayIter iy, PointerHierarchyRepresentationBuilder builder) {
+  private void nnChainCore(int size, TriangularMatrix distances, DBIDArrayIter ix, DBIDArrayIter iy, PointerHierarchyRepresentationBuilder builder) {
     // The maximum chain size = number of ids + 1
     IntegerArray chain = new IntegerArray(size + 1);
 
@@ -176,10 +183,10 @@ public class NNChain<O> extends AGNES<O> {
       double minDist = getDistance(distances, a, b);
       do {
         int c = b;
-        final int ta = triangleSize(a);
+        final long ta = TriangularMatrix.triangleSize(a);
         for(int i = 0; i < a; i++) {
           if(i != b && !builder.isLinked(ix.seek(i))) {
-            double dist = distances[ta + i];
+            double dist = distances.get(ta + i);
             if(dist < minDist) {
               minDist = dist;
               c = i;
@@ -188,7 +195,7 @@ public class NNChain<O> extends AGNES<O> {
         }
         for(int i = a + 1; i < size; i++) {
           if(i != b && !builder.isLinked(ix.seek(i))) {
-            double dist = distances[triangleSize(i) + a];
+            double dist = distances.get(TriangularMatrix.triangleSize(i) + a);
             if(dist < minDist) {
               minDist = dist;
               c = i;
@@ -229,6 +236,19 @@ public class NNChain<O> extends AGNES<O> {
         (x < y) ? distances[triangleSize(y) + x] : distances[triangleSize(x) + y];
   }
 
+  /**
+   * Get a value from the (upper triangular) distance matrix.
+   * 
+   * @param distances Distance matrix
+   * @param x First object
+   * @param y Second object
+   * @return Distance
+   */
+  protected static double getDistance(TriangularMatrix distances, int x, int y) {
+    return (x == y) ? 0 : //
+        distances.get(x < y ? TriangularMatrix.triangleSize(y) + x : TriangularMatrix.triangleSize(x) + y);
+  }
+
   @Override
   public TypeInformation[] getInputTypeRestriction() {
     return TypeUtil.array(getDistanceFunction().getInputTypeRestriction());
@@ -250,7 +270,7 @@ public class NNChain<O> extends AGNES<O> {
   public static class Parameterizer<O> extends AGNES.Parameterizer<O> {
     @Override
     protected NNChain<O> makeInstance() {
-      return new NNChain<>(distanceFunction, linkage);
+      return new NNChain<>(distanceFunction, linkage, matrix);
     }
   }
 }
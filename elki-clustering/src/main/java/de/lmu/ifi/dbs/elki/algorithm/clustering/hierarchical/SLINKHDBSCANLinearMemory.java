@@ -25,10 +25,10 @@ import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
 import de.lmu.ifi.dbs.elki.database.Database;
 import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
 import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
-import de.lmu.ifi.dbs.elki.database.datastore.DoubleDataStore;
 import de.lmu.ifi.dbs.elki.database.datastore.WritableDBIDDataStore;
 import de.lmu.ifi.dbs.elki.database.datastore.WritableDoubleDataStore;
 import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
@@ -115,6 +115,7 @@ public class SLINKHDBSCANLinearMemory<O> extends AbstractHDBSCAN<O, PointerDensi
     // Compute the core distances
     // minPts + 1: ignore query point.
     final WritableDoubleDataStore coredists = computeCoreDists(ids, knnQ, minPts);
+    final double[] cores = coreDistanceArray(ids, coredists);
 
     WritableDBIDDataStore pi = DataStoreUtil.makeDBIDStorage(ids, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_STATIC);
     WritableDoubleDataStore lambda = DataStoreUtil.makeDoubleStorage(ids, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_STATIC, Double.POSITIVE_INFINITY);
@@ -125,11 +126,11 @@ public class SLINKHDBSCANLinearMemory<O> extends AbstractHDBSCAN<O, PointerDensi
     // has to be an array for monotonicity reasons!
     ModifiableDBIDs processedIDs = DBIDUtil.newArray(ids.size());
 
-    for(DBIDIter id = ids.iter(); id.valid(); id.advance()) {
+    for(DBIDArrayIter id = ids.iter(); id.valid(); id.advance()) {
       // Steps 1,3,4 are exactly as in SLINK
       step1(id, pi, lambda);
       // Step 2 is modified to use a different distance
-      step2(id, processedIDs, distQ, coredists, m);
+      step2(id, id.getOffset(), processedIDs, distQ, cores, m);
       step3(id, pi, lambda, processedIDs, m);
       step4(id, pi, lambda, processedIDs);
 
@@ -164,15 +165,18 @@ public class SLINKHDBSCANLinearMemory<O> extends AbstractHDBSCAN<O, PointerDensi
    *
    * @param id the id of the object to be inserted into the pointer
    *        representation
-   * @param processedIDs the already processed ids
+   * @param off Offset of the object
+   * @param processedIDs the already processed ids, in offset order
    * @param distQuery Distance query
+   * @param cores Core distances, by offset
    * @param m Data store
    */
-  private void step2(DBIDRef id, DBIDs processedIDs, DistanceQuery<? super O> distQuery, DoubleDataStore coredists, WritableDoubleDataStore m) {
-    double coreP = coredists.doubleValue(id);
-    for(DBIDIter it = processedIDs.iter(); it.valid(); it.advance()) {
+  private void step2(DBIDRef id, int off, DBIDs processedIDs, DistanceQuery<? super O> distQuery, double[] cores, WritableDoubleDataStore m) {
+    final double coreP = cores[off];
+    int j = 0;
+    for(DBIDIter it = processedIDs.iter(); it.valid(); it.advance(), j++) {
       // M(i) = dist(i, n+1)
-      double coreQ = coredists.doubleValue(it);
+      double coreQ = cores[j];
       double dist = MathUtil.max(coreP, coreQ, distQuery.distance(id, it));
       m.putDouble(it, dist);
     }
@@ -0,0 +1,126 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.clustering.hierarchical.matrix;
+
+import de.lmu.ifi.dbs.elki.utilities.exceptions.AbortException;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.AbstractParameterizer;
+
+/**
+ * Triangular matrix stored on the Java heap in single precision, which halves the memory requirements at the cost of precision (the distances, and the linkage updates, are rounded to float).
+ * <p>
+ * The values are stored in chunks of 2^26 entries, to not be limited by
+ * the maximum Java array size.
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ */
+public class FloatTriangularMatrix implements TriangularMatrix {
+  /**
+   * Number of bits per chunk.
+   */
+  private static final int CHUNKBITS = 26;
+
+  /**
+   * Mask for the offset within a chunk.
+   */
+  private static final long CHUNKMASK = (1L << CHUNKBITS) - 1;
+
+  /**
+   * Number of rows.
+   */
+  private final int size;
+
+  /**
+   * Data chunks.
+   */
+  private float[][] chunks;
+
+  /**
+   * Constructor.
+   *
+   * @param size Number of rows
+   */
+  public FloatTriangularMatrix(int size) {
+    this.size = size;
+    final long total = TriangularMatrix.triangleSize(size);
+    if(total * 4 > Runtime.getRuntime().maxMemory()) {
+      throw new AbortException("A distance matrix for " + size + " objects needs " + ((total * 4) >>> 20) + " MB of memory, but the Java heap is limited to " + (Runtime.getRuntime().maxMemory() >>> 20) + " MB. Increase the heap size with -Xmx, or use " + MappedTriangularMatrix.class.getSimpleName() + ".");
+    }
+    final int nchunks = (int) ((total + CHUNKMASK) >>> CHUNKBITS);
+    chunks = new float[nchunks][];
+    for(int i = 0; i < nchunks; i++) {
+      chunks[i] = new float[(int) Math.min(total - (((long) i) << CHUNKBITS), 1L << CHUNKBITS)];
+    }
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public double get(long pos) {
+    return chunks[(int) (pos >>> CHUNKBITS)][(int) (pos & CHUNKMASK)];
+  }
+
+  @Override
+  public void set(long pos, double v) {
+    chunks[(int) (pos >>> CHUNKBITS)][(int) (pos & CHUNKMASK)] = (float) v;
+  }
+
+  @Override
+  public void close() {
+    chunks = null;
+  }
+
+  /**
+   * Factory for float precision matrixes.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.has FloatTriangularMatrix
+   */
+  public static class Factory implements TriangularMatrix.Factory {
+    /**
+     * Static instance.
+     */
+    public static final Factory STATIC = new Factory();
+
+    @Override
+    public FloatTriangularMatrix make(int size) {
+      return new FloatTriangularMatrix(size);
+    }
+
+    /**
+     * Parameterization class.
+     *
+     * @author Erich Schubert
+     *
+     * @apiviz.exclude
+     */
+    public static class Parameterizer extends AbstractParameterizer {
+      @Override
+      protected Factory makeInstance() {
+        return STATIC;
+      }
+    }
+  }
+}
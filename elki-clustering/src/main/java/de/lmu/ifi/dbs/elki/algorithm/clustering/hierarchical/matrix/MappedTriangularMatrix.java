@@ -0,0 +1,243 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.clustering.hierarchical.matrix;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+
+import de.lmu.ifi.dbs.elki.logging.LoggingUtil;
+import de.lmu.ifi.dbs.elki.utilities.exceptions.AbortException;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.AbstractParameterizer;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.OptionID;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.FileParameter;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.Flag;
+
+/**
+ * Triangular matrix stored off-heap, in a memory-mapped temporary file.
+ * <p>
+ * Similar to {@code OnDiskUpperTriangleMatrix}, but without a file header, and
+ * mapped in multiple segments so that the file size is not limited to 2 GB.
+ * The operating system pages the matrix in and out as needed, so the matrix
+ * size is only limited by the available disk space; but performance will
+ * degrade badly once the matrix no longer fits into main memory.
+ * <p>
+ * The temporary file is deleted when the matrix is closed. Java does not allow
+ * unmapping memory explicitly, so the address space is only released once the
+ * buffers are garbage collected.
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ */
+public class MappedTriangularMatrix implements TriangularMatrix {
+  /**
+   * Number of bits per segment.
+   */
+  private static final int SEGMENTBITS = 27;
+
+  /**
+   * Mask for the offset within a segment.
+   */
+  private static final long SEGMENTMASK = (1L << SEGMENTBITS) - 1;
+
+  /**
+   * Number of rows.
+   */
+  private final int size;
+
+  /**
+   * Backing file.
+   */
+  private File file;
+
+  /**
+   * Segments, in double precision.
+   */
+  private DoubleBuffer[] dsegments;
+
+  /**
+   * Segments, in single precision.
+   */
+  private FloatBuffer[] fsegments;
+
+  /**
+   * Constructor.
+   *
+   * @param size Number of rows
+   * @param dir Directory for the temporary file, may be {@code null}
+   * @param useFloat Store values in single precision
+   */
+  public MappedTriangularMatrix(int size, File dir, boolean useFloat) {
+    this.size = size;
+    final long total = TriangularMatrix.triangleSize(size);
+    final int bytes = useFloat ? 4 : 8;
+    final int nsegments = (int) ((total + SEGMENTMASK) >>> SEGMENTBITS);
+    try {
+      file = File.createTempFile("elki-matrix", ".bin", dir);
+      file.deleteOnExit();
+      try (RandomAccessFile raf = new RandomAccessFile(file, "rw"); //
+          FileChannel channel = raf.getChannel()) {
+        raf.setLength(total * bytes);
+        if(useFloat) {
+          fsegments = new FloatBuffer[nsegments];
+        }
+        else {
+          dsegments = new DoubleBuffer[nsegments];
+        }
+        for(int i = 0; i < nsegments; i++) {
+          final long start = ((long) i) << SEGMENTBITS;
+          final long len = Math.min(total - start, 1L << SEGMENTBITS) * bytes;
+          // The mapping remains valid after closing the channel.
+          if(useFloat) {
+            fsegments[i] = channel.map(FileChannel.MapMode.READ_WRITE, start * bytes, len).order(ByteOrder.nativeOrder()).asFloatBuffer();
+          }
+          else {
+            dsegments[i] = channel.map(FileChannel.MapMode.READ_WRITE, start * bytes, len).order(ByteOrder.nativeOrder()).asDoubleBuffer();
+          }
+        }
+      }
+    }
+    catch(IOException e) {
+      close();
+      throw new AbortException("Could not allocate a memory-mapped distance matrix of " + ((total * bytes) >>> 20) + " MB.", e);
+    }
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public double get(long pos) {
+    return dsegments != null ? dsegments[(int) (pos >>> SEGMENTBITS)].get((int) (pos & SEGMENTMASK)) : //
+        fsegments[(int) (pos >>> SEGMENTBITS)].get((int) (pos & SEGMENTMASK));
+  }
+
+  @Override
+  public void set(long pos, double v) {
+    if(dsegments != null) {
+      dsegments[(int) (pos >>> SEGMENTBITS)].put((int) (pos & SEGMENTMASK), v);
+    }
+    else {
+      fsegments[(int) (pos >>> SEGMENTBITS)].put((int) (pos & SEGMENTMASK), (float) v);
+    }
+  }
+
+  @Override
+  public void close() {
+    dsegments = null;
+    fsegments = null;
+    if(file != null && !file.delete()) {
+      LoggingUtil.warning("Could not delete temporary matrix file: " + file);
+    }
+    file = null;
+  }
+
+  /**
+   * Factory for memory-mapped matrixes.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.has MappedTriangularMatrix
+   */
+  public static class Factory implements TriangularMatrix.Factory {
+    /**
+     * Directory for temporary files, may be {@code null}.
+     */
+    private File dir;
+
+    /**
+     * Store values in single precision.
+     */
+    private boolean useFloat;
+
+    /**
+     * Constructor.
+     *
+     * @param dir Directory for temporary files, may be {@code null}
+     * @param useFloat Store values in single precision
+     */
+    public Factory(File dir, boolean useFloat) {
+      super();
+      this.dir = dir;
+      this.useFloat = useFloat;
+    }
+
+    @Override
+    public MappedTriangularMatrix make(int size) {
+      return new MappedTriangularMatrix(size, dir, useFloat);
+    }
+
+    /**
+     * Parameterization class.
+     *
+     * @author Erich Schubert
+     *
+     * @apiviz.exclude
+     */
+    public static class Parameterizer extends AbstractParameterizer {
+      /**
+       * Option ID for the temporary directory.
+       */
+      public static final OptionID DIR_ID = new OptionID("matrix.mapped.dir", "Directory for the temporary matrix file. Defaults to the system temporary directory.");
+
+      /**
+       * Option ID for single precision storage.
+       */
+      public static final OptionID FLOAT_ID = new OptionID("matrix.mapped.float", "Store the matrix in single precision, to halve the file size.");
+
+      /**
+       * Directory for temporary files.
+       */
+      private File dir;
+
+      /**
+       * Store values in single precision.
+       */
+      private boolean useFloat;
+
+      @Override
+      protected void makeOptions(Parameterization config) {
+        super.makeOptions(config);
+        FileParameter dirP = new FileParameter(DIR_ID, FileParameter.FileType.OUTPUT_FILE);
+        dirP.setOptional(true);
+        if(config.grab(dirP)) {
+          dir = dirP.getValue();
+        }
+        Flag floatF = new Flag(FLOAT_ID);
+        if(config.grab(floatF)) {
+          useFloat = floatF.isTrue();
+        }
+      }
+
+      @Override
+      protected Factory makeInstance() {
+        return new Factory(dir, useFloat);
+      }
+    }
+  }
+}
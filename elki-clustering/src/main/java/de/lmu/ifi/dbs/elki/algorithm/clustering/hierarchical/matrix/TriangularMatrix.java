@@ -0,0 +1,94 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.clustering.hierarchical.matrix;
+
+/**
+ * Lower triangular matrix (without the diagonal) of pairwise distances, as
+ * used by the hierarchical clustering algorithms.
+ * <p>
+ * The entry (x, y) with y &lt; x is stored at position
+ * {@code triangleSize(x) + y}. Positions are {@code long} valued, so that the
+ * matrix is not limited by the maximum Java array size of 2^31 entries
+ * (about 65535 objects).
+ * <p>
+ * Writes to distinct positions may be performed concurrently, to allow filling
+ * the matrix in parallel.
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ */
+public interface TriangularMatrix extends AutoCloseable {
+  /**
+   * Number of rows (and columns) of the matrix.
+   *
+   * @return Number of rows
+   */
+  int size();
+
+  /**
+   * Get the value at the given position.
+   *
+   * @param pos Position, see {@link #triangleSize}
+   * @return Value
+   */
+  double get(long pos);
+
+  /**
+   * Set the value at the given position.
+   *
+   * @param pos Position, see {@link #triangleSize}
+   * @param v Value
+   */
+  void set(long pos, double v);
+
+  /**
+   * Release the storage of the matrix.
+   */
+  @Override
+  void close();
+
+  /**
+   * Compute the size of a complete x by x triangle (minus diagonal).
+   *
+   * @param x Offset
+   * @return Size of complete triangle
+   */
+  static long triangleSize(int x) {
+    return (x * (long) (x - 1)) >>> 1;
+  }
+
+  /**
+   * Factory for triangular matrixes.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.has TriangularMatrix
+   */
+  interface Factory {
+    /**
+     * Allocate a new matrix.
+     *
+     * @param size Number of rows
+     * @return Matrix
+     */
+    TriangularMatrix make(int size);
+  }
+}
@@ -40,6 +40,7 @@ import de.lmu.ifi.dbs.elki.distance.distancefunction.NumberVectorDistanceFunctio
 import de.lmu.ifi.dbs.elki.logging.Logging;
 import de.lmu.ifi.dbs.elki.logging.progress.IndefiniteProgress;
 import de.lmu.ifi.dbs.elki.logging.statistics.DoubleStatistic;
+import de.lmu.ifi.dbs.elki.logging.statistics.Duration;
 import de.lmu.ifi.dbs.elki.logging.statistics.LongStatistic;
 import de.lmu.ifi.dbs.elki.logging.statistics.StringStatistic;
 import de.lmu.ifi.dbs.elki.utilities.Alias;
@@ -106,7 +107,11 @@ public class KMeansLloyd<V extends NumberVector> extends AbstractKMeans<V, KMean
     if(LOG.isStatistics()) {
       LOG.statistics(new StringStatistic(KEY + ".initialization", initializer.toString()));
     }
+    Duration inittime = LOG.isStatistics() ? LOG.newDuration(KEY + ".initialization.time").begin() : null;
     double[][] means = initializer.chooseInitialMeans(database, relation, k, getDistanceFunction());
+    if(inittime != null) {
+      LOG.statistics(inittime.end());
+    }
     // Setup cluster assignment store
     List<ModifiableDBIDs> clusters = new ArrayList<>();
     for(int i = 0; i < k; i++) {
@@ -117,6 +122,7 @@ public class KMeansLloyd<V extends NumberVector> extends AbstractKMeans<V, KMean
 
     IndefiniteProgress prog = LOG.isVerbose() ? new IndefiniteProgress("K-Means iteration", LOG) : null;
     DoubleStatistic varstat = LOG.isStatistics() ? new DoubleStatistic(this.getClass().getName() + ".variance-sum") : null;
+    Duration itertime = LOG.isStatistics() ? LOG.newDuration(KEY + ".iterations.time").begin() : null;
     int iteration = 0;
     for(; maxiter <= 0 || iteration < maxiter; iteration++) {
       LOG.incrementProcessed(prog);
@@ -130,6 +136,9 @@ public class KMeansLloyd<V extends NumberVector> extends AbstractKMeans<V, KMean
       means = means(clusters, means, relation);
     }
     LOG.setCompleted(prog);
+    if(itertime != null) {
+      LOG.statistics(itertime.end());
+    }
     if(LOG.isStatistics()) {
       LOG.statistics(new LongStatistic(KEY + ".iterations", iteration));
     }
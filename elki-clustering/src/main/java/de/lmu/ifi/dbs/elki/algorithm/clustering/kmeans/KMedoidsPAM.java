@@ -46,6 +46,7 @@ import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDVar;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
 import de.lmu.ifi.dbs.elki.database.query.DatabaseQuery;
+import de.lmu.ifi.dbs.elki.database.query.distance.CountingDistanceQuery;
 import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
 import de.lmu.ifi.dbs.elki.database.relation.Relation;
 import de.lmu.ifi.dbs.elki.distance.distancefunction.DistanceFunction;
@@ -53,6 +54,7 @@ import de.lmu.ifi.dbs.elki.index.distancematrix.PrecomputedDistanceMatrix;
 import de.lmu.ifi.dbs.elki.logging.Logging;
 import de.lmu.ifi.dbs.elki.logging.progress.IndefiniteProgress;
 import de.lmu.ifi.dbs.elki.logging.statistics.DoubleStatistic;
+import de.lmu.ifi.dbs.elki.logging.statistics.Duration;
 import de.lmu.ifi.dbs.elki.logging.statistics.LongStatistic;
 import de.lmu.ifi.dbs.elki.logging.statistics.StringStatistic;
 import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
@@ -150,18 +152,28 @@ public class KMedoidsPAM<V> extends AbstractDistanceBasedAlgorithm<V, Clustering
       distQ = database.getDistanceQuery(relation, getDistanceFunction());
       LOG.warning("PAM may be slow, because we do not have a precomputed distance matrix available.");
     }
+    distQ = CountingDistanceQuery.wrap(distQ, LOG, KEY + ".distance-computations");
     // Choose initial medoids
     if(LOG.isStatistics()) {
       LOG.statistics(new StringStatistic(KEY + ".initialization", initializer.toString()));
     }
+    Duration inittime = LOG.isStatistics() ? LOG.newDuration(KEY + ".initialization.time").begin() : null;
     ArrayModifiableDBIDs medoids = DBIDUtil.newArray(initializer.chooseInitialMedoids(k, ids, distQ));
+    if(inittime != null) {
+      LOG.statistics(inittime.end());
+    }
     if(medoids.size() != k) {
       throw new AbortException("Initializer " + initializer.toString() + " did not return " + k + " means, but " + medoids.size());
     }
 
     // Setup cluster assignment store
     WritableIntegerDataStore assignment = DataStoreUtil.makeIntegerStorage(ids, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_TEMP, -1);
+    Duration opttime = LOG.isStatistics() ? LOG.newDuration(KEY + ".optimization.time").begin() : null;
     runPAMOptimization(distQ, ids, medoids, assignment);
+    if(opttime != null) {
+      LOG.statistics(opttime.end());
+    }
+    CountingDistanceQuery.logStatistics(distQ, LOG);
 
     ArrayModifiableDBIDs[] clusters = ClusteringAlgorithmUtil.partitionsFromIntegerLabels(ids, assignment, k);
 
@@ -0,0 +1,287 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.clustering.kmeans.parallel;
+
+import java.util.Arrays;
+import java.util.List;
+
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableIntegerDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.NumberVectorDistanceFunction;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.SquaredEuclideanDistanceFunction;
+import de.lmu.ifi.dbs.elki.parallel.ParallelCore;
+import de.lmu.ifi.dbs.elki.parallel.ParallelExecutor;
+
+/**
+ * A fixed, contiguous partition of the data set for the parallel k-means
+ * variants that maintain per-point bounds.
+ *
+ * Each partition is processed by a single thread, which exclusively writes the
+ * assignment and bounds of the objects in its range. Changes to the cluster
+ * sums and sizes are accumulated into per-partition buffers, which are merged
+ * in partition order once per iteration. Because the partitioning does not
+ * depend on thread scheduling, the result is deterministic. With a single
+ * partition, the global sums are updated directly, in the same order as in the
+ * sequential implementations.
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ *
+ * @param <V> Vector type
+ */
+abstract class KMeansPartition<V extends NumberVector> {
+  /**
+   * Minimum number of objects per partition.
+   */
+  private static final int MIN_PARTITION_SIZE = 1024;
+
+  /**
+   * Data relation.
+   */
+  protected final Relation<V> relation;
+
+  /**
+   * Distance function.
+   */
+  protected final NumberVectorDistanceFunction<? super V> df;
+
+  /**
+   * Whether the distance function is squared Euclidean.
+   */
+  protected final boolean issquared;
+
+  /**
+   * Cluster assignment.
+   */
+  protected final WritableIntegerDataStore assignment;
+
+  /**
+   * Object IDs, and the range of this partition.
+   */
+  private final ArrayDBIDs ids;
+
+  /**
+   * Range of this partition.
+   */
+  private final int start, end;
+
+  /**
+   * Current means (shared, read-only during an iteration).
+   */
+  protected double[][] means;
+
+  /**
+   * Changes to the cluster sums in this partition.
+   */
+  final double[][] sums;
+
+  /**
+   * Changes to the cluster sizes in this partition.
+   */
+  final int[] sizes;
+
+  /**
+   * Flag whether the buffers are owned by this partition (and not the global
+   * sums).
+   */
+  private final boolean owned;
+
+  /**
+   * Number of reassigned objects in this partition.
+   */
+  int changed;
+
+  /**
+   * Flag for the initial assignment.
+   */
+  private boolean initial;
+
+  /**
+   * Constructor.
+   *
+   * @param relation Data relation
+   * @param df Distance function
+   * @param assignment Cluster assignment
+   * @param ids Object IDs
+   * @param start First offset
+   * @param end End offset (exclusive)
+   * @param sums Global cluster sums
+   * @param sizes Global cluster sizes
+   * @param direct Update the global sums and sizes directly (single partition
+   *        only)
+   */
+  KMeansPartition(Relation<V> relation, NumberVectorDistanceFunction<? super V> df, WritableIntegerDataStore assignment, ArrayDBIDs ids, int start, int end, double[][] sums, int[] sizes, boolean direct) {
+    this.relation = relation;
+    this.df = df;
+    this.issquared = df instanceof SquaredEuclideanDistanceFunction;
+    this.assignment = assignment;
+    this.ids = ids;
+    this.start = start;
+    this.end = end;
+    this.owned = !direct;
+    this.sums = direct ? sums : new double[sums.length][sums[0].length];
+    this.sizes = direct ? sizes : new int[sizes.length];
+  }
+
+  /**
+   * Prepare the next iteration.
+   *
+   * @param means Current means
+   * @param initial Flag for the initial assignment
+   */
+  void nextIteration(double[][] means, boolean initial) {
+    this.means = means;
+    this.initial = initial;
+  }
+
+  /**
+   * Process all objects of this partition, for one iteration.
+   */
+  void iterate() {
+    if(owned) {
+      for(double[] row : sums) {
+        Arrays.fill(row, 0.);
+      }
+      Arrays.fill(sizes, 0);
+    }
+    changed = 0;
+    for(DBIDArrayIter it = ids.iter().seek(start); it.getOffset() < end; it.advance()) {
+      if(initial) {
+        final int cur = initialAssign(it);
+        assignment.putInt(it, cur);
+        plusEquals(sums[cur], relation.get(it), 1.);
+        ++sizes[cur];
+        continue;
+      }
+      final int orig = assignment.intValue(it);
+      final int cur = reassign(it, orig);
+      if(cur != orig) {
+        assignment.putInt(it, cur);
+        final V fv = relation.get(it);
+        plusEquals(sums[cur], fv, 1.);
+        plusEquals(sums[orig], fv, -1.);
+        ++sizes[cur];
+        --sizes[orig];
+        ++changed;
+      }
+    }
+    if(initial) {
+      changed = end - start;
+    }
+  }
+
+  /**
+   * Add a vector to a sum.
+   *
+   * @param sum Sum
+   * @param fv Vector
+   * @param sign Sign
+   */
+  private static void plusEquals(double[] sum, NumberVector fv, double sign) {
+    for(int d = 0; d < sum.length; d++) {
+      sum[d] += sign * fv.doubleValue(d);
+    }
+  }
+
+  /**
+   * Initial assignment of an object, also initializing its bounds.
+   *
+   * @param it Object
+   * @return Cluster number
+   */
+  protected abstract int initialAssign(DBIDRef it);
+
+  /**
+   * Update the bounds of an object, and reassign it if necessary.
+   *
+   * @param it Object
+   * @param orig Current cluster number
+   * @return New cluster number
+   */
+  protected abstract int reassign(DBIDRef it, int orig);
+
+  /**
+   * Number of partitions to use.
+   *
+   * @param size Data set size
+   * @return Number of partitions
+   */
+  static int numPartitions(int size) {
+    final int max = (size + MIN_PARTITION_SIZE - 1) / MIN_PARTITION_SIZE;
+    return Math.max(1, Math.min(ParallelCore.getCore().getParallelism(), max));
+  }
+
+  /**
+   * Offset where a partition starts.
+   *
+   * @param i Partition number
+   * @param num Number of partitions
+   * @param size Data set size
+   * @return Starting offset
+   */
+  static int partitionStart(int i, int num, int size) {
+    return (int) (i * (long) size / num);
+  }
+
+  /**
+   * Run one iteration on all partitions, and merge the changes into the
+   * cluster sums and sizes, in partition order.
+   *
+   * @param parts Partitions
+   * @param sums Cluster sums (modified)
+   * @param sizes Cluster sizes (modified)
+   * @return Number of reassigned objects
+   */
+  static int runIteration(final List<? extends KMeansPartition<?>> parts, double[][] sums, int[] sizes) {
+    ParallelExecutor.runBlocks(parts.size(), 1, new ParallelExecutor.BlockWorkerFactory<ParallelExecutor.BlockWorker>() {
+      @Override
+      public ParallelExecutor.BlockWorker make() {
+        return new ParallelExecutor.BlockWorker() {
+          @Override
+          public void process(int start, int end) {
+            for(int i = start; i < end; i++) {
+              parts.get(i).iterate();
+            }
+          }
+        };
+      }
+    });
+    int changed = 0;
+    for(KMeansPartition<?> part : parts) {
+      changed += part.changed;
+      if(!part.owned || part.changed == 0) {
+        continue; // Already merged, or nothing to merge.
+      }
+      for(int i = 0; i < sums.length; i++) {
+        final double[] sum = sums[i], psum = part.sums[i];
+        for(int d = 0; d < sum.length; d++) {
+          sum[d] += psum[d];
+        }
+        sizes[i] += part.sizes[i];
+      }
+    }
+    return changed;
+  }
+}
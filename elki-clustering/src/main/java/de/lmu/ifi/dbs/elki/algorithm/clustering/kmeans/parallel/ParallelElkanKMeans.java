@@ -0,0 +1,453 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.clustering.kmeans.parallel;
+
+import static de.lmu.ifi.dbs.elki.math.linearalgebra.VMath.timesEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import de.lmu.ifi.dbs.elki.algorithm.clustering.ClusteringAlgorithmUtil;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.kmeans.AbstractKMeans;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.kmeans.KMeansElkan;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.kmeans.initialization.KMeansInitialization;
+import de.lmu.ifi.dbs.elki.data.Cluster;
+import de.lmu.ifi.dbs.elki.data.Clustering;
+import de.lmu.ifi.dbs.elki.data.DoubleVector;
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.data.model.KMeansModel;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableDataStore;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableDoubleDataStore;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableIntegerDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayModifiableDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.NumberVectorDistanceFunction;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.SquaredEuclideanDistanceFunction;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.logging.progress.IndefiniteProgress;
+import de.lmu.ifi.dbs.elki.logging.statistics.DoubleStatistic;
+import de.lmu.ifi.dbs.elki.logging.statistics.LongStatistic;
+import de.lmu.ifi.dbs.elki.logging.statistics.StringStatistic;
+import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.Flag;
+import net.jafama.FastMath;
+
+/**
+ * Parallel version of Elkan's fast k-means.
+ *
+ * The data set is split into one contiguous partition per thread. Each thread
+ * updates the assignment, the upper bound and the k lower bounds of its own
+ * objects, and accumulates the changes to the cluster sums into its own
+ * buffer; the buffers are merged once per iteration. The bound update of the
+ * previous iteration is folded into the reassignment pass to save one pass
+ * over the data.
+ *
+ * With a single thread, the result is identical to {@link KMeansElkan}. With
+ * more threads, the partial sums are added in a different order, so the means
+ * may differ in the last bits (but the result does not depend on the thread
+ * scheduling).
+ *
+ * <p>
+ * Reference:<br />
+ * C. Elkan<br/>
+ * Using the triangle inequality to accelerate k-means<br/>
+ * Proc. 20th International Conference on Machine Learning, ICML 2003
+ * </p>
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ *
+ * @apiviz.has KMeansModel
+ * @apiviz.composedOf KMeansPartition
+ *
+ * @param <V> vector datatype
+ */
+@Reference(authors = "C. Elkan", //
+title = "Using the triangle inequality to accelerate k-means", //
+booktitle = "Proc. 20th International Conference on Machine Learning, ICML 2003", //
+url = "http://www.aaai.org/Library/ICML/2003/icml03-022.php")
+public class ParallelElkanKMeans<V extends NumberVector> extends AbstractKMeans<V, KMeansModel> {
+  /**
+   * The logger for this class.
+   */
+  private static final Logging LOG = Logging.getLogger(ParallelElkanKMeans.class);
+
+  /**
+   * Key for statistics logging.
+   */
+  private static final String KEY = ParallelElkanKMeans.class.getName();
+
+  /**
+   * Flag whether to compute the final variance statistic.
+   */
+  private boolean varstat = false;
+
+  /**
+   * Constructor.
+   *
+   * @param distanceFunction distance function
+   * @param k k parameter
+   * @param maxiter Maxiter parameter
+   * @param initializer Initialization method
+   * @param varstat Compute the variance statistic
+   */
+  public ParallelElkanKMeans(NumberVectorDistanceFunction<? super V> distanceFunction, int k, int maxiter, KMeansInitialization<? super V> initializer, boolean varstat) {
+    super(distanceFunction, k, maxiter, initializer);
+    this.varstat = varstat;
+  }
+
+  @Override
+  public Clustering<KMeansModel> run(Database database, Relation<V> relation) {
+    if(relation.size() <= 0) {
+      return new Clustering<>("k-Means Clustering", "kmeans-clustering");
+    }
+    // Choose initial means
+    if(LOG.isStatistics()) {
+      LOG.statistics(new StringStatistic(KEY + ".initialization", initializer.toString()));
+    }
+    double[][] means = initializer.chooseInitialMeans(database, relation, k, getDistanceFunction());
+    ArrayDBIDs ids = DBIDUtil.ensureArray(relation.getDBIDs());
+    WritableIntegerDataStore assignment = DataStoreUtil.makeIntegerStorage(ids, DataStoreFactory.HINT_TEMP | DataStoreFactory.HINT_HOT, -1);
+    // Elkan bounds
+    WritableDoubleDataStore upper = DataStoreUtil.makeDoubleStorage(ids, DataStoreFactory.HINT_TEMP | DataStoreFactory.HINT_HOT, Double.POSITIVE_INFINITY);
+    WritableDataStore<double[]> lower = DataStoreUtil.makeStorage(ids, DataStoreFactory.HINT_TEMP | DataStoreFactory.HINT_HOT, double[].class);
+    // Store all entries, so the threads only modify existing entries.
+    for(DBIDIter it = ids.iter(); it.valid(); it.advance()) {
+      assignment.putInt(it, -1);
+      upper.putDouble(it, Double.POSITIVE_INFINITY);
+      lower.put(it, new double[k]); // Filled with 0.
+    }
+    // Storage for updated means:
+    final int dim = means[0].length;
+    double[][] sums = new double[k][dim];
+    int[] sizes = new int[k];
+    // Separation of means, distance moved.
+    double[] sep = new double[k], move = new double[k];
+    // Cluster distances
+    double[][] cdist = new double[k][k];
+
+    final int size = ids.size(), numparts = KMeansPartition.numPartitions(size);
+    List<Partition<V>> parts = new ArrayList<>(numparts);
+    for(int i = 0; i < numparts; i++) {
+      final int start = KMeansPartition.partitionStart(i, numparts, size);
+      final int end = KMeansPartition.partitionStart(i + 1, numparts, size);
+      parts.add(new Partition<>(relation, distanceFunction, assignment, ids, start, end, sums, sizes, numparts == 1, upper, lower, sep, cdist, move));
+    }
+
+    IndefiniteProgress prog = LOG.isVerbose() ? new IndefiniteProgress("K-Means iteration", LOG) : null;
+    LongStatistic rstat = LOG.isStatistics() ? new LongStatistic(KEY + ".reassignments") : null;
+    int iteration = 0;
+    for(; maxiter <= 0 || iteration < maxiter; iteration++) {
+      LOG.incrementProcessed(prog);
+      if(iteration > 0) {
+        recomputeSeperation(means, sep, cdist);
+      }
+      for(Partition<V> part : parts) {
+        part.nextIteration(means, iteration == 0);
+      }
+      int changed = KMeansPartition.runIteration(parts, sums, sizes);
+      if(rstat != null) {
+        rstat.setLong(changed);
+        LOG.statistics(rstat);
+      }
+      // Stop if no cluster assignment changed.
+      if(changed == 0) {
+        break;
+      }
+      // Recompute means.
+      for(int i = 0; i < k; i++) {
+        final int s = sizes[i];
+        timesEquals(sums[i], s > 0 ? 1. / s : 1.);
+      }
+      maxMoved(means, sums, move);
+      for(int i = 0; i < k; i++) {
+        final int s = sizes[i];
+        System.arraycopy(sums[i], 0, means[i], 0, dim);
+        // Restore to sum for next iteration
+        timesEquals(sums[i], s > 0 ? s : 1.);
+      }
+    }
+    LOG.setCompleted(prog);
+    if(LOG.isStatistics()) {
+      LOG.statistics(new LongStatistic(KEY + ".iterations", iteration));
+    }
+
+    upper.destroy();
+    lower.destroy();
+
+    // Wrap result
+    ArrayModifiableDBIDs[] clusters = ClusteringAlgorithmUtil.partitionsFromIntegerLabels(ids, assignment, k);
+    double totalvariance = 0.;
+    Clustering<KMeansModel> result = new Clustering<>("k-Means Clustering", "kmeans-clustering");
+    for(int i = 0; i < clusters.length; i++) {
+      DBIDs cids = clusters[i];
+      if(cids.size() == 0) {
+        continue;
+      }
+      double[] mean = means[i];
+      double varsum = 0.;
+      if(varstat) {
+        DoubleVector mvec = DoubleVector.wrap(mean);
+        for(DBIDIter it = cids.iter(); it.valid(); it.advance()) {
+          varsum += distanceFunction.distance(mvec, relation.get(it));
+        }
+        totalvariance += varsum;
+      }
+      KMeansModel model = new KMeansModel(mean, varsum);
+      result.addToplevelCluster(new Cluster<>(cids, model));
+    }
+    if(LOG.isStatistics() && varstat) {
+      LOG.statistics(new DoubleStatistic(this.getClass().getName() + ".variance-sum", totalvariance));
+    }
+    return result;
+  }
+
+  /**
+   * Recompute the separation of cluster means.
+   *
+   * @param means Means
+   * @param sep Output array of separation
+   * @param cdist Center-to-Center distances
+   */
+  private void recomputeSeperation(double[][] means, double[] sep, double[][] cdist) {
+    final int k = means.length;
+    assert (sep.length == k);
+    boolean issquared = (distanceFunction instanceof SquaredEuclideanDistanceFunction);
+    Arrays.fill(sep, Double.POSITIVE_INFINITY);
+    for(int i = 1; i < k; i++) {
+      DoubleVector mi = DoubleVector.wrap(means[i]);
+      for(int j = 0; j < i; j++) {
+        double d = distanceFunction.distance(mi, DoubleVector.wrap(means[j]));
+        d = issquared ? FastMath.sqrt(d) : d;
+        d *= .5;
+        cdist[i][j] = d;
+        cdist[j][i] = d;
+        sep[i] = (d < sep[i]) ? d : sep[i];
+        sep[j] = (d < sep[j]) ? d : sep[j];
+      }
+    }
+  }
+
+  /**
+   * Maximum distance moved.
+   *
+   * @param means Old means
+   * @param newmeans New means
+   * @param dists Distances moved
+   * @return Maximum distance moved
+   */
+  private double maxMoved(double[][] means, double[][] newmeans, double[] dists) {
+    assert (means.length == k);
+    assert (newmeans.length == k);
+    assert (dists.length == k);
+    boolean issquared = (distanceFunction instanceof SquaredEuclideanDistanceFunction);
+    double max = 0.;
+    for(int i = 0; i < k; i++) {
+      double d = distanceFunction.distance(DoubleVector.wrap(means[i]), DoubleVector.wrap(newmeans[i]));
+      d = issquared ? FastMath.sqrt(d) : d;
+      dists[i] = d;
+      max = (d > max) ? d : max;
+    }
+    return max;
+  }
+
+  @Override
+  protected Logging getLogger() {
+    return LOG;
+  }
+
+  /**
+   * Partition of the data set, maintaining the Elkan bounds.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   *
+   * @param <V> vector datatype
+   */
+  private static class Partition<V extends NumberVector> extends KMeansPartition<V> {
+    /**
+     * Upper bounds (shared, but each partition only modifies its own objects).
+     */
+    private final WritableDoubleDataStore upper;
+
+    /**
+     * Lower bounds (shared, but each partition only modifies its own objects).
+     */
+    private final WritableDataStore<double[]> lower;
+
+    /**
+     * Separation of means, distance moved.
+     */
+    private final double[] sep, move;
+
+    /**
+     * Center-to-center distances.
+     */
+    private final double[][] cdist;
+
+    /**
+     * Constructor.
+     *
+     * @param relation Data relation
+     * @param df Distance function
+     * @param assignment Cluster assignment
+     * @param ids Object IDs
+     * @param start First offset
+     * @param end End offset (exclusive)
+     * @param sums Global cluster sums
+     * @param sizes Global cluster sizes
+     * @param direct Update the global sums directly
+     * @param upper Upper bounds
+     * @param lower Lower bounds
+     * @param sep Separation of means
+     * @param cdist Center-to-center distances
+     * @param move Distance moved
+     */
+    Partition(Relation<V> relation, NumberVectorDistanceFunction<? super V> df, WritableIntegerDataStore assignment, ArrayDBIDs ids, int start, int end, double[][] sums, int[] sizes, boolean direct, WritableDoubleDataStore upper, WritableDataStore<double[]> lower, double[] sep, double[][] cdist, double[] move) {
+      super(relation, df, assignment, ids, start, end, sums, sizes, direct);
+      this.upper = upper;
+      this.lower = lower;
+      this.sep = sep;
+      this.cdist = cdist;
+      this.move = move;
+    }
+
+    @Override
+    protected int initialAssign(DBIDRef it) {
+      V fv = relation.get(it);
+      double[] l = lower.get(it);
+      // Check all (other) means:
+      double best = Double.POSITIVE_INFINITY;
+      int cur = -1;
+      for(int j = 0; j < means.length; j++) {
+        double dist = df.distance(fv, DoubleVector.wrap(means[j]));
+        dist = issquared ? FastMath.sqrt(dist) : dist;
+        l[j] = dist;
+        if(dist < best) {
+          cur = j;
+          best = dist;
+        }
+      }
+      upper.putDouble(it, best);
+      return cur;
+    }
+
+    @Override
+    protected int reassign(DBIDRef it, int orig) {
+      // Update the bounds for the movement of the centers:
+      double u = upper.doubleValue(it) + move[orig];
+      upper.putDouble(it, u);
+      double[] l = lower.get(it);
+      final int k = l.length;
+      for(int i = 0; i < k; i++) {
+        l[i] -= move[i];
+      }
+      // Upper bound check (#2):
+      if(u <= sep[orig]) {
+        return orig;
+      }
+      boolean recompute_u = true; // Elkan's r(x)
+      V fv = relation.get(it);
+      // Check all (other) means:
+      int cur = orig;
+      for(int j = 0; j < k; j++) {
+        if(orig == j || u <= l[j] || u <= cdist[cur][j]) {
+          continue; // Condition #3 i-iii not satisfied
+        }
+        if(recompute_u) { // Need to update bound? #3a
+          u = df.distance(fv, DoubleVector.wrap(means[cur]));
+          u = issquared ? FastMath.sqrt(u) : u;
+          upper.putDouble(it, u);
+          recompute_u = false; // Once only
+          if(u <= l[j] || u <= cdist[cur][j]) { // #3b
+            continue;
+          }
+        }
+        double dist = df.distance(fv, DoubleVector.wrap(means[j]));
+        dist = issquared ? FastMath.sqrt(dist) : dist;
+        l[j] = dist;
+        if(dist < u) {
+          cur = j;
+          u = dist;
+        }
+      }
+      if(cur != orig) {
+        upper.putDouble(it, u); // Remember bound.
+      }
+      return cur;
+    }
+  }
+
+  /**
+   * Parameterization class.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   */
+  public static class Parameterizer<V extends NumberVector> extends AbstractKMeans.Parameterizer<V> {
+    /**
+     * Compute the final variance statisic.
+     */
+    protected boolean varstat = false;
+
+    @Override
+    protected Logging getLogger() {
+      return LOG;
+    }
+
+    @Override
+    protected void getParameterDistanceFunction(Parameterization config) {
+      super.getParameterDistanceFunction(config);
+      if(distanceFunction instanceof SquaredEuclideanDistanceFunction) {
+        return; // Proper choice.
+      }
+      if(distanceFunction != null && !distanceFunction.isMetric()) {
+        LOG.warning("Elkan k-means requires a metric distance, and k-means should only be used with squared Euclidean distance!");
+      }
+    }
+
+    @Override
+    protected void makeOptions(Parameterization config) {
+      super.makeOptions(config);
+      Flag varF = new Flag(KMeansElkan.Parameterizer.VARSTAT_ID);
+      if(config.grab(varF)) {
+        varstat = varF.isTrue();
+      }
+    }
+
+    @Override
+    protected ParallelElkanKMeans<V> makeInstance() {
+      return new ParallelElkanKMeans<>(distanceFunction, k, maxiter, initializer, varstat);
+    }
+  }
+}
@@ -24,6 +24,9 @@ import de.lmu.ifi.dbs.elki.algorithm.AbstractDistanceBasedAlgorithm;
 import de.lmu.ifi.dbs.elki.data.type.TypeInformation;
 import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
 import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.datastore.IntegerDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
+import de.lmu.ifi.dbs.elki.database.query.range.RangeQuery;
 import de.lmu.ifi.dbs.elki.database.relation.Relation;
 import de.lmu.ifi.dbs.elki.distance.distancefunction.DistanceFunction;
 import de.lmu.ifi.dbs.elki.utilities.Alias;
@@ -34,6 +37,7 @@ import de.lmu.ifi.dbs.elki.utilities.optionhandling.OptionID;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.constraints.CommonConstraints;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.DoubleParameter;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.Flag;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.IntParameter;
 
 /**
@@ -41,6 +45,10 @@ import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.IntParameter;
  * 
  * This is the abstract base class, providing the shared parameters only.
  * 
+ * Optionally, the epsilon-neighborhoods of all objects can be computed in
+ * parallel before the ordering, see {@link OPTICSNeighborhoods}. This trades
+ * memory for using all cores for the range queries.
+ * 
  * Reference:
  * <p>
  * M. Ankerst, M. Breunig, H.-P. Kriegel, and J. Sander:<br />
@@ -52,6 +60,8 @@ import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.IntParameter;
  * @author Erich Schubert
  * @since 0.7.0
  *
+ * @apiviz.uses OPTICSNeighborhoods
+ *
  * @param <O> the type of DatabaseObjects handled by the algorithm
  */
 @Title("OPTICS: Density-Based Hierarchical Clustering")
@@ -72,6 +82,11 @@ public abstract class AbstractOPTICS<O> extends AbstractDistanceBasedAlgorithm<O
    */
   protected int minpts;
 
+  /**
+   * Precompute all neighborhoods in parallel.
+   */
+  protected boolean precompute;
+
   /**
    * Constructor.
    * 
@@ -80,9 +95,22 @@ public abstract class AbstractOPTICS<O> extends AbstractDistanceBasedAlgorithm<O
    * @param minpts Minpts value
    */
   public AbstractOPTICS(DistanceFunction<? super O> distanceFunction, double epsilon, int minpts) {
+    this(distanceFunction, epsilon, minpts, false);
+  }
+
+  /**
+   * Constructor.
+   * 
+   * @param distanceFunction Distance function
+   * @param epsilon Epsilon value
+   * @param minpts Minpts value
+   * @param precompute Precompute all neighborhoods in parallel
+   */
+  public AbstractOPTICS(DistanceFunction<? super O> distanceFunction, double epsilon, int minpts, boolean precompute) {
     super(distanceFunction);
     this.epsilon = epsilon;
     this.minpts = minpts;
+    this.precompute = precompute;
   }
 
   /**
@@ -94,6 +122,18 @@ public abstract class AbstractOPTICS<O> extends AbstractDistanceBasedAlgorithm<O
    */
   public abstract ClusterOrder run(Database db, Relation<O> relation);
 
+  /**
+   * Compute the epsilon-neighborhoods of all objects in parallel, if enabled.
+   * 
+   * @param ids Objects
+   * @param offsets Offset of each object in {@code ids}
+   * @param rangeQuery Range query
+   * @return Neighborhoods, or {@code null} if not enabled
+   */
+  protected OPTICSNeighborhoods precomputeNeighborhoods(ArrayDBIDs ids, IntegerDataStore offsets, RangeQuery<O> rangeQuery) {
+    return precompute ? OPTICSNeighborhoods.compute(ids, offsets, rangeQuery, epsilon, minpts, getLogger()) : null;
+  }
+
   @Override
   public int getMinPts() {
     return minpts;
@@ -126,6 +166,11 @@ public abstract class AbstractOPTICS<O> extends AbstractDistanceBasedAlgorithm<O
      */
     public static final OptionID MINPTS_ID = new OptionID("optics.minpts", "Threshold for minimum number of points in the epsilon-neighborhood of a point.");
 
+    /**
+     * Flag to precompute all neighborhoods in parallel.
+     */
+    public static final OptionID PRECOMPUTE_ID = new OptionID("optics.precompute", "Precompute all epsilon-neighborhoods in parallel. This needs memory proportional to the total neighborhood size.");
+
     /**
      * Epsilon radius.
      */
@@ -136,6 +181,11 @@ public abstract class AbstractOPTICS<O> extends AbstractDistanceBasedAlgorithm<O
      */
     protected int minpts = 0;
 
+    /**
+     * Precompute all neighborhoods.
+     */
+    protected boolean precompute = false;
+
     @Override
     protected void makeOptions(Parameterization config) {
       super.makeOptions(config);
@@ -150,6 +200,11 @@ public abstract class AbstractOPTICS<O> extends AbstractDistanceBasedAlgorithm<O
       if(config.grab(minptsP)) {
         minpts = minptsP.intValue();
       }
+
+      Flag precomputeF = new Flag(PRECOMPUTE_ID);
+      if(config.grab(precomputeF)) {
+        precompute = precomputeF.isTrue();
+      }
     }
   }
 }
\ No newline at end of file
@@ -24,6 +24,8 @@
  */
 package de.lmu.ifi.dbs.elki.algorithm.clustering.optics;
 
+import java.util.Arrays;
+
 import de.lmu.ifi.dbs.elki.algorithm.AbstractAlgorithm;
 import de.lmu.ifi.dbs.elki.data.NumberVector;
 import de.lmu.ifi.dbs.elki.data.type.TypeInformation;
@@ -34,11 +36,13 @@ import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
 import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
 import de.lmu.ifi.dbs.elki.database.datastore.DoubleDataStore;
 import de.lmu.ifi.dbs.elki.database.datastore.WritableDoubleDataStore;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableIntegerDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
 import de.lmu.ifi.dbs.elki.database.ids.DBID;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
-import de.lmu.ifi.dbs.elki.database.ids.ModifiableDBIDs;
 import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
 import de.lmu.ifi.dbs.elki.database.relation.Relation;
 import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.EuclideanDistanceFunction;
@@ -46,7 +50,7 @@ import de.lmu.ifi.dbs.elki.index.preprocessed.fastoptics.RandomProjectedNeighbor
 import de.lmu.ifi.dbs.elki.logging.Logging;
 import de.lmu.ifi.dbs.elki.logging.progress.FiniteProgress;
 import de.lmu.ifi.dbs.elki.utilities.ClassGenericsUtil;
-import de.lmu.ifi.dbs.elki.utilities.datastructures.heap.UpdatableHeap;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.heap.IndexedDoubleMinHeap;
 import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.AbstractParameterizer;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.constraints.CommonConstraints;
@@ -101,9 +105,29 @@ public class FastOPTICS<V extends NumberVector> extends AbstractAlgorithm<Cluste
   WritableDoubleDataStore reachDist;
 
   /**
-   * processed points
+   * processed points, by offset
+   */
+  boolean[] processed;
+
+  /**
+   * Object ids, for offsets
    */
-  ModifiableDBIDs processed;
+  ArrayDBIDs ids;
+
+  /**
+   * Offsets of the objects in {@link #ids}
+   */
+  WritableIntegerDataStore offsets;
+
+  /**
+   * Heap of candidates, by offset
+   */
+  IndexedDoubleMinHeap heap;
+
+  /**
+   * Predecessor offset of each candidate, -1 for none
+   */
+  int[] predecessor;
 
   /**
    * neighbors of a point
@@ -146,6 +170,7 @@ public class FastOPTICS<V extends NumberVector> extends AbstractAlgorithm<Cluste
    */
   public ClusterOrder run(Database db, Relation<V> rel) {
     DBIDs ids = rel.getDBIDs();
+    this.ids = DBIDUtil.ensureArray(ids);
     DistanceQuery<V> dq = db.getDistanceQuery(rel, EuclideanDistanceFunction.STATIC);
 
     // initialize points used and reachability distance
@@ -158,10 +183,18 @@ public class FastOPTICS<V extends NumberVector> extends AbstractAlgorithm<Cluste
 
     // compute ordering as for OPTICS
     FiniteProgress prog = LOG.isVerbose() ? new FiniteProgress("FastOPTICS clustering", ids.size(), LOG) : null;
-    processed = DBIDUtil.newHashSet(ids.size());
+    final int size = ids.size();
+    processed = new boolean[size];
+    offsets = DataStoreUtil.makeIntegerStorage(ids, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_TEMP, -1);
+    for(DBIDArrayIter it = this.ids.iter(); it.valid(); it.advance()) {
+      offsets.putInt(it, it.getOffset());
+    }
+    heap = new IndexedDoubleMinHeap(size);
+    predecessor = new int[size];
+    Arrays.fill(predecessor, -1);
     order = new ClusterOrder(ids, "FastOPTICS Cluster Order", "fast-optics");
-    for(DBIDIter it = ids.iter(); it.valid(); it.advance()) {
-      if(!processed.contains(it)) {
+    for(DBIDArrayIter it = this.ids.iter(); it.valid(); it.advance()) {
+      if(!processed[it.getOffset()]) {
         expandClusterOrder(DBIDUtil.deref(it), order, dq, prog);
       }
     }
@@ -180,16 +213,19 @@ public class FastOPTICS<V extends NumberVector> extends AbstractAlgorithm<Cluste
    * @param prog Progress for logging.
    */
   protected void expandClusterOrder(DBID ipt, ClusterOrder order, DistanceQuery<V> dq, FiniteProgress prog) {
-    UpdatableHeap<OPTICSHeapEntry> heap = new UpdatableHeap<>();
-    heap.add(new OPTICSHeapEntry(ipt, null, 1e6f));
+    DBIDArrayIter currPt = ids.iter(), pre = ids.iter();
+    heap.offer(offsets.intValue(ipt), 1e6f);
     while(!heap.isEmpty()) {
-      final OPTICSHeapEntry current = heap.poll();
-      DBID currPt = current.objectID;
-      order.add(currPt, current.reachability, current.predecessorID);
-      processed.add(currPt);
+      final double reachability = heap.peekPriority();
+      final int current = heap.poll();
+      final int p = predecessor[current];
+      currPt.seek(current);
+      order.add(currPt, reachability, p >= 0 ? pre.seek(p) : null);
+      processed[current] = true;
       double coredist = inverseDensities.doubleValue(currPt);
       for(DBIDIter it = neighs.get(currPt).iter(); it.valid(); it.advance()) {
-        if(processed.contains(it)) {
+        final int off = offsets.intValue(it);
+        if(processed[off]) {
           continue;
         }
         double nrdist = dq.distance(currPt, it);
@@ -202,7 +238,9 @@ public class FastOPTICS<V extends NumberVector> extends AbstractAlgorithm<Cluste
         else if(nrdist < reachDist.doubleValue(it)) {
           reachDist.put(it, nrdist);
         }
-        heap.add(new OPTICSHeapEntry(DBIDUtil.deref(it), currPt, nrdist));
+        if(heap.offer(off, nrdist)) {
+          predecessor[off] = current;
+        }
       }
       LOG.incrementProcessed(prog);
     }
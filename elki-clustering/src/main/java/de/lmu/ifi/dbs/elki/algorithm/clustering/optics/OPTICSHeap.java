@@ -20,13 +20,16 @@
  */
 package de.lmu.ifi.dbs.elki.algorithm.clustering.optics;
 
+import java.util.Arrays;
+
 import de.lmu.ifi.dbs.elki.database.Database;
-import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
-import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableIntegerDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
-import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
 import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDListIter;
-import de.lmu.ifi.dbs.elki.database.ids.ModifiableDBIDs;
 import de.lmu.ifi.dbs.elki.database.ids.ModifiableDoubleDBIDList;
 import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
 import de.lmu.ifi.dbs.elki.database.query.range.RangeQuery;
@@ -36,7 +39,7 @@ import de.lmu.ifi.dbs.elki.logging.Logging;
 import de.lmu.ifi.dbs.elki.logging.progress.FiniteProgress;
 import de.lmu.ifi.dbs.elki.math.MathUtil;
 import de.lmu.ifi.dbs.elki.utilities.Alias;
-import de.lmu.ifi.dbs.elki.utilities.datastructures.heap.UpdatableHeap;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.heap.IndexedDoubleMinHeap;
 import de.lmu.ifi.dbs.elki.utilities.documentation.Description;
 import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
 import de.lmu.ifi.dbs.elki.utilities.documentation.Title;
@@ -44,7 +47,8 @@ import de.lmu.ifi.dbs.elki.utilities.documentation.Title;
 /**
  * The OPTICS algorithm for density-based hierarchical clustering.
  *
- * This implementation uses a heap.
+ * This implementation uses a heap, indexed by the offsets of the objects, so
+ * that reachability updates neither allocate objects nor hash.
  *
  * Reference:
  * <p>
@@ -82,7 +86,19 @@ public class OPTICSHeap<O> extends AbstractOPTICS<O> {
    * @param minpts Minpts value
    */
   public OPTICSHeap(DistanceFunction<? super O> distanceFunction, double epsilon, int minpts) {
-    super(distanceFunction, epsilon, minpts);
+    this(distanceFunction, epsilon, minpts, false);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param distanceFunction Distance function
+   * @param epsilon Epsilon value
+   * @param minpts Minpts value
+   * @param precompute Precompute all neighborhoods in parallel
+   */
+  public OPTICSHeap(DistanceFunction<? super O> distanceFunction, double epsilon, int minpts, boolean precompute) {
+    super(distanceFunction, epsilon, minpts, precompute);
   }
 
   @Override
@@ -97,14 +113,19 @@ public class OPTICSHeap<O> extends AbstractOPTICS<O> {
    */
   private class Instance {
     /**
-     * Holds a set of processed ids.
+     * Flags for processed objects, by offset.
+     */
+    private boolean[] processed;
+
+    /**
+     * Heap of candidates, by offset.
      */
-    private ModifiableDBIDs processedIDs;
+    IndexedDoubleMinHeap heap;
 
     /**
-     * Heap of candidates.
+     * Predecessor offset of each candidate, -1 for none.
      */
-    UpdatableHeap<OPTICSHeapEntry> heap;
+    int[] predecessor;
 
     /**
      * Output cluster order.
@@ -114,7 +135,12 @@ public class OPTICSHeap<O> extends AbstractOPTICS<O> {
     /**
      * IDs to process.
      */
-    private DBIDs ids;
+    private ArrayDBIDs ids;
+
+    /**
+     * Offset of each object in {@link #ids}.
+     */
+    private WritableIntegerDataStore offsets;
 
     /**
      * Progress for logging.
@@ -126,6 +152,11 @@ public class OPTICSHeap<O> extends AbstractOPTICS<O> {
      */
     RangeQuery<O> rangeQuery;
 
+    /**
+     * Precomputed neighborhoods, may be {@code null}.
+     */
+    OPTICSNeighborhoods neighborhoods;
+
     /**
      * Constructor for a single data set.
      *
@@ -133,13 +164,20 @@ public class OPTICSHeap<O> extends AbstractOPTICS<O> {
      * @param relation Data relation
      */
     public Instance(Database db, Relation<O> relation) {
-      ids = relation.getDBIDs();
-      processedIDs = DBIDUtil.newHashSet(ids.size());
+      ids = DBIDUtil.ensureArray(relation.getDBIDs());
+      final int size = ids.size();
+      offsets = DataStoreUtil.makeIntegerStorage(ids, DataStoreFactory.HINT_TEMP | DataStoreFactory.HINT_HOT, -1);
+      for(DBIDArrayIter it = ids.iter(); it.valid(); it.advance()) {
+        offsets.putInt(it, it.getOffset());
+      }
+      processed = new boolean[size];
       clusterOrder = new ClusterOrder(ids, "OPTICS Clusterorder", "optics-clusterorder");
-      progress = LOG.isVerbose() ? new FiniteProgress("OPTICS", ids.size(), LOG) : null;
+      progress = LOG.isVerbose() ? new FiniteProgress("OPTICS", size, LOG) : null;
       DistanceQuery<O> dq = db.getDistanceQuery(relation, getDistanceFunction());
       rangeQuery = db.getRangeQuery(dq, epsilon);
-      heap = new UpdatableHeap<>();
+      heap = new IndexedDoubleMinHeap(size);
+      predecessor = new int[size];
+      Arrays.fill(predecessor, -1);
     }
 
     /**
@@ -148,10 +186,12 @@ public class OPTICSHeap<O> extends AbstractOPTICS<O> {
      * @return Cluster order result.
      */
     public ClusterOrder run() {
-      for(DBIDIter iditer = ids.iter(); iditer.valid(); iditer.advance()) {
-        if(!processedIDs.contains(iditer)) {
+      neighborhoods = precomputeNeighborhoods(ids, offsets, rangeQuery);
+      DBIDArrayIter cur = ids.iter(), pre = ids.iter();
+      for(int i = 0; i < processed.length; i++) {
+        if(!processed[i]) {
           assert (heap.isEmpty());
-          expandClusterOrder(iditer);
+          expandClusterOrder(i, cur, pre);
         }
       }
       LOG.ensureCompleted(progress);
@@ -161,35 +201,68 @@ public class OPTICSHeap<O> extends AbstractOPTICS<O> {
     /**
      * OPTICS-function expandClusterOrder.
      *
-     * @param objectID the currently processed object
+     * @param start Offset of the currently processed object
+     * @param cur Iterator to reuse
+     * @param pre Iterator to reuse
      */
-    protected void expandClusterOrder(DBIDRef objectID) {
+    protected void expandClusterOrder(int start, DBIDArrayIter cur, DBIDArrayIter pre) {
       ModifiableDoubleDBIDList neighbors = DBIDUtil.newDistanceDBIDList();
       DoubleDBIDListIter neighbor = neighbors.iter();
-      heap.add(new OPTICSHeapEntry(DBIDUtil.deref(objectID), null, Double.POSITIVE_INFINITY));
+      heap.offer(start, Double.POSITIVE_INFINITY);
 
       while(!heap.isEmpty()) {
-        final OPTICSHeapEntry current = heap.poll();
-        clusterOrder.add(current.objectID, current.reachability, current.predecessorID);
-        processedIDs.add(current.objectID);
+        final double reachability = heap.peekPriority();
+        final int current = heap.poll();
+        final int p = predecessor[current];
+        cur.seek(current);
+        clusterOrder.add(cur, reachability, p >= 0 ? pre.seek(p) : null);
+        processed[current] = true;
 
+        if(neighborhoods != null) {
+          expandPrecomputed(current);
+          LOG.incrementProcessed(progress);
+          continue;
+        }
         neighbors.clear();
-        rangeQuery.getRangeForDBID(current.objectID, epsilon, neighbors);
+        rangeQuery.getRangeForDBID(cur, epsilon, neighbors);
         if(neighbors.size() >= minpts) {
           neighbors.sort();
           final double coreDistance = neighbor.seek(minpts - 1).doubleValue();
 
           for(neighbor.seek(0); neighbor.valid(); neighbor.advance()) {
-            if(processedIDs.contains(neighbor)) {
+            final int off = offsets.intValue(neighbor);
+            if(processed[off]) {
               continue;
             }
-            double reachability = MathUtil.max(neighbor.doubleValue(), coreDistance);
-            heap.add(new OPTICSHeapEntry(DBIDUtil.deref(neighbor), current.objectID, reachability));
+            if(heap.offer(off, MathUtil.max(neighbor.doubleValue(), coreDistance))) {
+              predecessor[off] = current;
+            }
           }
         }
         LOG.incrementProcessed(progress);
       }
     }
+
+    /**
+     * Update the heap with the precomputed neighbors of an object.
+     *
+     * @param current Offset of the current object
+     */
+    private void expandPrecomputed(int current) {
+      final double coreDistance = neighborhoods.getCoreDistance(current);
+      if(coreDistance != coreDistance) { // NaN: not a core object
+        return;
+      }
+      for(int k = 0, n = neighborhoods.size(current); k < n; k++) {
+        final int off = neighborhoods.getNeighbor(current, k);
+        if(processed[off]) {
+          continue;
+        }
+        if(heap.offer(off, MathUtil.max(neighborhoods.getDistance(current, k), coreDistance))) {
+          predecessor[off] = current;
+        }
+      }
+    }
   }
 
   @Override
@@ -207,7 +280,7 @@ public class OPTICSHeap<O> extends AbstractOPTICS<O> {
   public static class Parameterizer<O> extends AbstractOPTICS.Parameterizer<O> {
     @Override
     protected OPTICSHeap<O> makeInstance() {
-      return new OPTICSHeap<>(distanceFunction, epsilon, minpts);
+      return new OPTICSHeap<>(distanceFunction, epsilon, minpts, precompute);
     }
   }
 }
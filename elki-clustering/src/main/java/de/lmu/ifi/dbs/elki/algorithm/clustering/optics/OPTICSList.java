@@ -25,7 +25,10 @@ import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
 import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
 import de.lmu.ifi.dbs.elki.database.datastore.WritableDBIDDataStore;
 import de.lmu.ifi.dbs.elki.database.datastore.WritableDoubleDataStore;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableIntegerDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
 import de.lmu.ifi.dbs.elki.database.ids.ArrayModifiableDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayMIter;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
@@ -88,7 +91,19 @@ public class OPTICSList<O> extends AbstractOPTICS<O> {
    * @param minpts Minpts value
    */
   public OPTICSList(DistanceFunction<? super O> distanceFunction, double epsilon, int minpts) {
-    super(distanceFunction, epsilon, minpts);
+    this(distanceFunction, epsilon, minpts, false);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param distanceFunction Distance function
+   * @param epsilon Epsilon value
+   * @param minpts Minpts value
+   * @param precompute Precompute all neighborhoods in parallel
+   */
+  public OPTICSList(DistanceFunction<? super O> distanceFunction, double epsilon, int minpts, boolean precompute) {
+    super(distanceFunction, epsilon, minpts, precompute);
   }
 
   @Override
@@ -142,6 +157,21 @@ public class OPTICSList<O> extends AbstractOPTICS<O> {
      */
     RangeQuery<O> rangeQuery;
 
+    /**
+     * Precomputed neighborhoods, may be {@code null}.
+     */
+    OPTICSNeighborhoods neighborhoods;
+
+    /**
+     * Offset of each object in the precomputed neighborhoods.
+     */
+    WritableIntegerDataStore offsets;
+
+    /**
+     * Iterator to access the precomputed neighbors by offset.
+     */
+    DBIDArrayIter nbr;
+
     /**
      * Constructor for a single data set.
      *
@@ -166,6 +196,15 @@ public class OPTICSList<O> extends AbstractOPTICS<O> {
      * @return Cluster order result.
      */
     public ClusterOrder run() {
+      if(precompute) {
+        ArrayDBIDs aids = DBIDUtil.ensureArray(ids);
+        offsets = DataStoreUtil.makeIntegerStorage(aids, DataStoreFactory.HINT_TEMP | DataStoreFactory.HINT_HOT, -1);
+        for(DBIDArrayIter it = aids.iter(); it.valid(); it.advance()) {
+          offsets.putInt(it, it.getOffset());
+        }
+        neighborhoods = precomputeNeighborhoods(aids, offsets, rangeQuery);
+        nbr = aids.iter();
+      }
       for(DBIDIter iditer = ids.iter(); iditer.valid(); iditer.advance()) {
         if(processedIDs.contains(iditer)) {
           continue;
@@ -200,6 +239,10 @@ public class OPTICSList<O> extends AbstractOPTICS<O> {
           LOG.incrementProcessed(progress);
         }
 
+        if(neighborhoods != null) {
+          expandPrecomputed(cur);
+          continue;
+        }
         neighbors.clear();
         rangeQuery.getRangeForDBID(cur, epsilon, neighbors);
         if(neighbors.size() >= minpts) {
@@ -210,20 +253,50 @@ public class OPTICSList<O> extends AbstractOPTICS<O> {
             if(processedIDs.contains(neighbor)) {
               continue;
             }
-            double reach = MathUtil.max(neighbor.doubleValue(), coreDistance);
-            double prevreach = reachability.doubleValue(neighbor);
-            if(reach < prevreach) {
-              reachability.put(neighbor, reach);
-              predecessor.putDBID(neighbor, cur);
-              if(prevreach >= Double.POSITIVE_INFINITY) {
-                candidates.add(neighbor);
-              }
-            }
+            update(neighbor, MathUtil.max(neighbor.doubleValue(), coreDistance), cur);
           }
         }
       }
     }
 
+    /**
+     * Update the candidates with the precomputed neighbors of an object.
+     *
+     * @param cur Current object
+     */
+    private void expandPrecomputed(DBIDRef cur) {
+      final int c = offsets.intValue(cur);
+      final double coreDistance = neighborhoods.getCoreDistance(c);
+      if(coreDistance != coreDistance) { // NaN: not a core object
+        return;
+      }
+      for(int k = 0, n = neighborhoods.size(c); k < n; k++) {
+        nbr.seek(neighborhoods.getNeighbor(c, k));
+        if(processedIDs.contains(nbr)) {
+          continue;
+        }
+        update(nbr, MathUtil.max(neighborhoods.getDistance(c, k), coreDistance), cur);
+      }
+    }
+
+    /**
+     * Update the reachability of a neighbor.
+     *
+     * @param neighbor Neighbor object
+     * @param reach New reachability
+     * @param cur Current object, the new predecessor
+     */
+    private void update(DBIDRef neighbor, double reach, DBIDRef cur) {
+      double prevreach = reachability.doubleValue(neighbor);
+      if(reach < prevreach) {
+        reachability.put(neighbor, reach);
+        predecessor.putDBID(neighbor, cur);
+        if(prevreach >= Double.POSITIVE_INFINITY) {
+          candidates.add(neighbor);
+        }
+      }
+    }
+
     /**
      * Find the minimum in the candidates array.
      *
@@ -262,7 +335,7 @@ public class OPTICSList<O> extends AbstractOPTICS<O> {
   public static class Parameterizer<O> extends AbstractOPTICS.Parameterizer<O> {
     @Override
     protected OPTICSList<O> makeInstance() {
-      return new OPTICSList<>(distanceFunction, epsilon, minpts);
+      return new OPTICSList<>(distanceFunction, epsilon, minpts, precompute);
     }
   }
 }
\ No newline at end of file
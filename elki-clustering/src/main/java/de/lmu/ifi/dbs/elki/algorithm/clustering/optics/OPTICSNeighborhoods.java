@@ -0,0 +1,212 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.clustering.optics;
+
+import java.util.Arrays;
+
+import de.lmu.ifi.dbs.elki.database.datastore.IntegerDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDListIter;
+import de.lmu.ifi.dbs.elki.database.ids.ModifiableDoubleDBIDList;
+import de.lmu.ifi.dbs.elki.database.query.range.RangeQuery;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.logging.progress.FiniteProgress;
+import de.lmu.ifi.dbs.elki.parallel.ParallelExecutor;
+
+/**
+ * Epsilon-neighborhoods and core distances of all objects, computed in
+ * parallel before the (sequential) OPTICS ordering.
+ * <p>
+ * Neighbors are stored by offset, sorted by distance, in primitive arrays
+ * covering blocks of consecutive objects. This needs memory proportional to the
+ * total neighborhood size, so it should only be used with a reasonable
+ * epsilon.
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ *
+ * @apiviz.uses ParallelExecutor
+ */
+public class OPTICSNeighborhoods {
+  /**
+   * Number of bits for the objects per block.
+   */
+  private static final int BLOCKBITS = 6;
+
+  /**
+   * Number of objects per block.
+   */
+  private static final int BLOCKSIZE = 1 << BLOCKBITS;
+
+  /**
+   * Mask for the position within a block.
+   */
+  private static final int BLOCKMASK = BLOCKSIZE - 1;
+
+  /**
+   * Start position of each object in its block, plus the end of the block.
+   */
+  private final int[][] start;
+
+  /**
+   * Neighbor offsets, by block.
+   */
+  private final int[][] neighbors;
+
+  /**
+   * Neighbor distances, by block.
+   */
+  private final double[][] distances;
+
+  /**
+   * Core distance of each object, {@code NaN} for non-core objects.
+   */
+  private final double[] coredist;
+
+  /**
+   * Constructor.
+   *
+   * @param size Number of objects
+   */
+  private OPTICSNeighborhoods(int size) {
+    final int numblocks = (size + BLOCKMASK) >>> BLOCKBITS;
+    this.start = new int[numblocks][];
+    this.neighbors = new int[numblocks][];
+    this.distances = new double[numblocks][];
+    this.coredist = new double[size];
+  }
+
+  /**
+   * Get the core distance of an object.
+   *
+   * @param i Object offset
+   * @return Core distance, {@code NaN} if not a core object
+   */
+  public double getCoreDistance(int i) {
+    return coredist[i];
+  }
+
+  /**
+   * Get the neighborhood size of an object.
+   *
+   * @param i Object offset
+   * @return Number of neighbors (including the object itself)
+   */
+  public int size(int i) {
+    final int[] s = start[i >>> BLOCKBITS];
+    final int j = i & BLOCKMASK;
+    return s[j + 1] - s[j];
+  }
+
+  /**
+   * Get the offset of a neighbor.
+   *
+   * @param i Object offset
+   * @param k Neighbor number, in ascending distance
+   * @return Offset of the neighbor
+   */
+  public int getNeighbor(int i, int k) {
+    final int b = i >>> BLOCKBITS;
+    return neighbors[b][start[b][i & BLOCKMASK] + k];
+  }
+
+  /**
+   * Get the distance to a neighbor.
+   *
+   * @param i Object offset
+   * @param k Neighbor number, in ascending distance
+   * @return Distance to the neighbor
+   */
+  public double getDistance(int i, int k) {
+    final int b = i >>> BLOCKBITS;
+    return distances[b][start[b][i & BLOCKMASK] + k];
+  }
+
+  /**
+   * Compute the neighborhoods of all objects, using all cores.
+   *
+   * The range query must support concurrent use.
+   *
+   * @param ids Objects
+   * @param offsets Offset of each object in {@code ids}
+   * @param rangeQuery Range query
+   * @param epsilon Query radius
+   * @param minpts Minimum neighborhood size of core objects
+   * @param log Logger for progress
+   * @return Neighborhoods
+   */
+  public static OPTICSNeighborhoods compute(final ArrayDBIDs ids, final IntegerDataStore offsets, final RangeQuery<?> rangeQuery, final double epsilon, final int minpts, final Logging log) {
+    final int size = ids.size();
+    final OPTICSNeighborhoods result = new OPTICSNeighborhoods(size);
+    final FiniteProgress prog = log.isVerbose() ? new FiniteProgress("Computing neighborhoods", size, log) : null;
+    ParallelExecutor.runBlocks(size, BLOCKSIZE, new ParallelExecutor.BlockWorkerFactory<ParallelExecutor.BlockWorker>() {
+      @Override
+      public ParallelExecutor.BlockWorker make() {
+        return new ParallelExecutor.BlockWorker() {
+          DBIDArrayIter it = ids.iter();
+
+          ModifiableDoubleDBIDList nbrs = DBIDUtil.newDistanceDBIDList();
+
+          DoubleDBIDListIter nbr = nbrs.iter();
+
+          int[] bnbrs = new int[BLOCKSIZE << 4];
+
+          double[] bdists = new double[BLOCKSIZE << 4];
+
+          @Override
+          public void process(int begin, int end) {
+            int[] bstart = new int[end - begin + 1];
+            int pos = 0;
+            for(int i = begin; i < end; i++) {
+              bstart[i - begin] = pos;
+              nbrs.clear();
+              rangeQuery.getRangeForDBID(it.seek(i), epsilon, nbrs);
+              nbrs.sort();
+              final int n = nbrs.size();
+              result.coredist[i] = n >= minpts ? nbr.seek(minpts - 1).doubleValue() : Double.NaN;
+              if(pos + n > bnbrs.length) {
+                final int newsize = Math.max(bnbrs.length << 1, pos + n);
+                bnbrs = Arrays.copyOf(bnbrs, newsize);
+                bdists = Arrays.copyOf(bdists, newsize);
+              }
+              for(nbr.seek(0); nbr.valid(); nbr.advance(), pos++) {
+                bnbrs[pos] = offsets.intValue(nbr);
+                bdists[pos] = nbr.doubleValue();
+              }
+            }
+            bstart[end - begin] = pos;
+            final int b = begin >>> BLOCKBITS;
+            result.start[b] = bstart;
+            result.neighbors[b] = Arrays.copyOf(bnbrs, pos);
+            result.distances[b] = Arrays.copyOf(bdists, pos);
+            if(prog != null) {
+              prog.incrementProcessed(end - begin, log);
+            }
+          }
+        };
+      }
+    });
+    log.ensureCompleted(prog);
+    return result;
+  }
+}
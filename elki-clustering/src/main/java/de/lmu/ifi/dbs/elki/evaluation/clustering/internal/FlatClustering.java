@@ -0,0 +1,400 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.evaluation.clustering.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import de.lmu.ifi.dbs.elki.data.Cluster;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayModifiableDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.logging.progress.FiniteProgress;
+import de.lmu.ifi.dbs.elki.parallel.ParallelExecutor;
+
+/**
+ * Flat view of a clustering for the parallel evaluation measures.
+ * <p>
+ * Objects are stored in an array, grouped by cluster, with singletons (noise,
+ * if {@link NoiseHandling#TREAT_NOISE_AS_SINGLETONS} is used) at the end.
+ * Ignored noise is not stored. This uses O(n) memory, and allows processing
+ * the pairwise distances in independent blocks of rows.
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ *
+ * @apiviz.uses ParallelExecutor
+ */
+final class FlatClustering {
+  /**
+   * Number of rows per work unit.
+   */
+  private static final int BLOCKSIZE = 64;
+
+  /**
+   * Objects, grouped by cluster.
+   */
+  final ArrayDBIDs ids;
+
+  /**
+   * Cluster number of each object, -1 for singletons.
+   */
+  final int[] assignment;
+
+  /**
+   * Sizes of the (non-singleton) clusters.
+   */
+  final int[] sizes;
+
+  /**
+   * Number of ignored noise objects.
+   */
+  final int ignored;
+
+  /**
+   * Constructor.
+   *
+   * @param ids Objects
+   * @param assignment Cluster assignment
+   * @param sizes Cluster sizes
+   * @param ignored Number of ignored objects
+   */
+  private FlatClustering(ArrayDBIDs ids, int[] assignment, int[] sizes, int ignored) {
+    this.ids = ids;
+    this.assignment = assignment;
+    this.sizes = sizes;
+    this.ignored = ignored;
+  }
+
+  /**
+   * Build the flat representation of a clustering.
+   *
+   * @param clusters Clusters
+   * @param noiseOption Noise handling
+   * @return Flat clustering
+   */
+  static FlatClustering build(List<? extends Cluster<?>> clusters, NoiseHandling noiseOption) {
+    int size = 0, ignored = 0, k = 0;
+    for(Cluster<?> cluster : clusters) {
+      // Note: we treat 1-element clusters the same as noise.
+      if((cluster.size() <= 1 || cluster.isNoise()) && noiseOption != NoiseHandling.MERGE_NOISE) {
+        if(noiseOption == NoiseHandling.IGNORE_NOISE) {
+          ignored += cluster.size();
+          continue;
+        }
+      }
+      else {
+        ++k;
+      }
+      size += cluster.size();
+    }
+    ArrayModifiableDBIDs ids = DBIDUtil.newArray(size);
+    int[] assignment = new int[size], sizes = new int[k];
+    int c = 0;
+    for(Cluster<?> cluster : clusters) {
+      if((cluster.size() <= 1 || cluster.isNoise()) && noiseOption != NoiseHandling.MERGE_NOISE) {
+        continue;
+      }
+      Arrays.fill(assignment, ids.size(), ids.size() + cluster.size(), c);
+      ids.addDBIDs(cluster.getIDs());
+      sizes[c++] = cluster.size();
+    }
+    if(noiseOption == NoiseHandling.TREAT_NOISE_AS_SINGLETONS) {
+      for(Cluster<?> cluster : clusters) {
+        if(cluster.size() <= 1 || cluster.isNoise()) {
+          Arrays.fill(assignment, ids.size(), ids.size() + cluster.size(), -1);
+          ids.addDBIDs(cluster.getIDs());
+        }
+      }
+    }
+    assert (ids.size() == size);
+    return new FlatClustering(ids, assignment, sizes, ignored);
+  }
+
+  /**
+   * Draw a random subset of the objects, preserving their cluster membership.
+   *
+   * @param samplesize Sample size
+   * @param rnd Random generator
+   * @return Sampled flat clustering
+   */
+  FlatClustering sample(int samplesize, Random rnd) {
+    final int n = ids.size();
+    if(samplesize >= n) {
+      return this;
+    }
+    // Partial Fisher-Yates shuffle of the offsets:
+    int[] perm = new int[n];
+    for(int i = 0; i < n; i++) {
+      perm[i] = i;
+    }
+    for(int i = 0; i < samplesize; i++) {
+      final int j = i + rnd.nextInt(n - i);
+      final int tmp = perm[i];
+      perm[i] = perm[j];
+      perm[j] = tmp;
+    }
+    // Keep the original order, and thus the grouping by cluster:
+    Arrays.sort(perm, 0, samplesize);
+    ArrayModifiableDBIDs sids = DBIDUtil.newArray(samplesize);
+    int[] sassign = new int[samplesize], ssizes = new int[sizes.length];
+    DBIDArrayIter it = ids.iter();
+    for(int i = 0; i < samplesize; i++) {
+      final int off = perm[i];
+      sids.add(it.seek(off));
+      final int c = sassign[i] = assignment[off];
+      if(c >= 0) {
+        ssizes[c]++;
+      }
+    }
+    return new FlatClustering(sids, sassign, ssizes, ignored);
+  }
+
+  /**
+   * Number of within-cluster pairs.
+   *
+   * @return Number of pairs
+   */
+  long withinPairs() {
+    long w = 0;
+    for(int s : sizes) {
+      w += (s * (long) (s - 1)) >>> 1;
+    }
+    return w;
+  }
+
+  /**
+   * Number of pairs of objects.
+   *
+   * @return Number of pairs
+   */
+  long totalPairs() {
+    final long n = ids.size();
+    return (n * (n - 1)) >>> 1;
+  }
+
+  /**
+   * Histogram bin of a distance.
+   *
+   * @param dist Distance
+   * @param min Minimum distance
+   * @param scale Number of bins divided by the distance range
+   * @param bins Number of bins
+   * @return Bin number
+   */
+  static int bin(double dist, double min, double scale, int bins) {
+    final int b = (int) ((dist - min) * scale);
+    return b < bins ? b : bins - 1;
+  }
+
+  /**
+   * Worker processing rows, one per thread.
+   *
+   * @author Erich Schubert
+   */
+  abstract static class Worker {
+    /**
+     * Process a single row.
+     *
+     * @param i Row offset
+     */
+    protected abstract void process(int i);
+  }
+
+  /**
+   * Worker for the first pass over all pairs: distance range, and the sum of
+   * within-cluster distances.
+   *
+   * @author Erich Schubert
+   */
+  static class RangeWorker extends Worker {
+    /**
+     * Flat clustering.
+     */
+    private final FlatClustering flat;
+
+    /**
+     * Distance query.
+     */
+    private final DistanceQuery<?> dq;
+
+    /**
+     * Iterators.
+     */
+    private final DBIDArrayIter it1, it2;
+
+    /**
+     * Minimum and maximum distance.
+     */
+    double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+
+    /**
+     * Sum of within-cluster distances.
+     */
+    double within = 0.;
+
+    /**
+     * Constructor.
+     *
+     * @param flat Flat clustering
+     * @param dq Distance query
+     */
+    RangeWorker(FlatClustering flat, DistanceQuery<?> dq) {
+      this.flat = flat;
+      this.dq = dq;
+      this.it1 = flat.ids.iter();
+      this.it2 = flat.ids.iter();
+    }
+
+    @Override
+    protected void process(int i) {
+      final int[] assignment = flat.assignment;
+      final int ci = assignment[i];
+      it1.seek(i);
+      for(it2.seek(i + 1); it2.valid(); it2.advance()) {
+        final double dist = dq.distance(it1, it2);
+        min = dist < min ? dist : min;
+        max = dist > max ? dist : max;
+        if(ci >= 0 && ci == assignment[it2.getOffset()]) {
+          within += dist;
+        }
+      }
+    }
+
+    /**
+     * Compute the range pass.
+     *
+     * @param flat Flat clustering
+     * @param dq Distance query
+     * @param log Logger
+     * @return Aggregated results in a single worker
+     */
+    static RangeWorker run(final FlatClustering flat, final DistanceQuery<?> dq, Logging log) {
+      FiniteProgress prog = log.isVerbose() ? new FiniteProgress("Computing distance range", flat.ids.size(), log) : null;
+      List<RangeWorker> workers = FlatClustering.run(flat.ids.size(), new WorkerFactory<RangeWorker>() {
+        @Override
+        public RangeWorker make() {
+          return new RangeWorker(flat, dq);
+        }
+      }, prog, log);
+      log.ensureCompleted(prog);
+      RangeWorker first = workers.get(0);
+      for(int i = 1; i < workers.size(); i++) {
+        RangeWorker w = workers.get(i);
+        first.min = w.min < first.min ? w.min : first.min;
+        first.max = w.max > first.max ? w.max : first.max;
+        first.within += w.within;
+      }
+      return first;
+    }
+  }
+
+  /**
+   * Factory for the per-thread workers.
+   *
+   * @author Erich Schubert
+   *
+   * @param <W> Worker type
+   */
+  interface WorkerFactory<W extends Worker> {
+    /**
+     * Make a new worker.
+     *
+     * @return Worker
+     */
+    W make();
+  }
+
+  /**
+   * Process all rows in parallel blocks.
+   *
+   * @param size Number of rows
+   * @param factory Worker factory
+   * @param prog Progress (may be {@code null}), counting rows
+   * @param log Logger
+   * @return Workers, for aggregation of their results
+   */
+  static <W extends Worker> List<W> run(final int size, final WorkerFactory<W> factory, final FiniteProgress prog, final Logging log) {
+    List<RowBlockWorker<W>> blocks = ParallelExecutor.runBlocks(size, BLOCKSIZE, new ParallelExecutor.BlockWorkerFactory<RowBlockWorker<W>>() {
+      @Override
+      public RowBlockWorker<W> make() {
+        return new RowBlockWorker<>(factory.make(), prog, log);
+      }
+    });
+    List<W> workers = new ArrayList<>(blocks.size());
+    for(RowBlockWorker<W> b : blocks) {
+      workers.add(b.worker);
+    }
+    return workers;
+  }
+
+  /**
+   * Adapter to process blocks of rows with a row worker.
+   *
+   * @author Erich Schubert
+   *
+   * @param <W> Worker type
+   */
+  private static class RowBlockWorker<W extends Worker> implements ParallelExecutor.BlockWorker {
+    /**
+     * Row worker.
+     */
+    final W worker;
+
+    /**
+     * Progress, may be {@code null}.
+     */
+    final FiniteProgress prog;
+
+    /**
+     * Logger.
+     */
+    final Logging log;
+
+    /**
+     * Constructor.
+     *
+     * @param worker Row worker
+     * @param prog Progress, may be {@code null}
+     * @param log Logger
+     */
+    RowBlockWorker(W worker, FiniteProgress prog, Logging log) {
+      this.worker = worker;
+      this.prog = prog;
+      this.log = log;
+    }
+
+    @Override
+    public void process(int start, int end) {
+      for(int i = start; i < end; i++) {
+        worker.process(i);
+      }
+      if(prog != null) {
+        prog.incrementProcessed(end - start, log);
+      }
+    }
+  }
+}
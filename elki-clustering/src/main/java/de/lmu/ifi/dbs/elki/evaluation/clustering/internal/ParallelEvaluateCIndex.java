@@ -0,0 +1,605 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.evaluation.clustering.internal;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import de.lmu.ifi.dbs.elki.data.Clustering;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
+import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.DistanceFunction;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.EuclideanDistanceFunction;
+import de.lmu.ifi.dbs.elki.evaluation.Evaluator;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.logging.progress.FiniteProgress;
+import de.lmu.ifi.dbs.elki.logging.statistics.DoubleStatistic;
+import de.lmu.ifi.dbs.elki.logging.statistics.LongStatistic;
+import de.lmu.ifi.dbs.elki.logging.statistics.StringStatistic;
+import de.lmu.ifi.dbs.elki.math.MeanVariance;
+import de.lmu.ifi.dbs.elki.math.statistics.distribution.NormalDistribution;
+import de.lmu.ifi.dbs.elki.result.EvaluationResult;
+import de.lmu.ifi.dbs.elki.result.EvaluationResult.MeasurementGroup;
+import de.lmu.ifi.dbs.elki.result.Result;
+import de.lmu.ifi.dbs.elki.result.ResultHierarchy;
+import de.lmu.ifi.dbs.elki.result.ResultUtil;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.arraylike.DoubleArray;
+import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.AbstractParameterizer;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.OptionID;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.constraints.CommonConstraints;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.EnumParameter;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.IntParameter;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.ObjectParameter;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.RandomParameter;
+import de.lmu.ifi.dbs.elki.utilities.random.RandomFactory;
+
+/**
+ * Compute the C-index of a data set in parallel, with bounded memory.
+ * <p>
+ * Instead of keeping the smallest and largest within-cluster-count distances
+ * in heaps (as {@link EvaluateCIndex} does), the distances are aggregated into
+ * a histogram (counts and sums per bin). This yields the sums of the smallest
+ * and largest distances exactly, except for the two bins containing the
+ * selection boundaries; for these we obtain lower and upper bounds. If these
+ * two bins contain few enough distances, a third pass collects them for exact
+ * selection, so the result is exact. Otherwise, the bounds on the C-index are
+ * reported.
+ * <p>
+ * Every unordered pair of (non-ignored) objects is considered exactly once.
+ * {@link EvaluateCIndex} skips some between-cluster pairs (depending on the
+ * order of the object IDs), so results can differ.
+ * The run time is still quadratic (two or three passes over all pairs).
+ * Optionally, the C-index can be estimated from repeated random subsamples,
+ * reporting a 95% confidence interval (normal approximation).
+ * <p>
+ * Reference:
+ * <p>
+ * L. J. Hubert and J. R. Levin <br />
+ * A general statistical framework for assessing categorical clustering in free
+ * recall<br />
+ * Psychological Bulletin, Vol. 83(6)
+ * </p>
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ *
+ * @apiviz.composedOf NoiseHandling
+ * @apiviz.uses FlatClustering
+ *
+ * @param <O> Object type
+ */
+@Reference(authors = "L. J. Hubert and J. R. Levin", //
+    title = "A general statistical framework for assessing categorical clustering in free recall.", //
+    booktitle = "Psychological Bulletin, Vol. 83(6)", //
+    url = "http://dx.doi.org/10.1037/0033-2909.83.6.1072")
+public class ParallelEvaluateCIndex<O> implements Evaluator {
+  /**
+   * Logger for debug output.
+   */
+  private static final Logging LOG = Logging.getLogger(ParallelEvaluateCIndex.class);
+
+  /**
+   * Option for noise handling.
+   */
+  private NoiseHandling noiseOption;
+
+  /**
+   * Distance function to use.
+   */
+  private DistanceFunction<? super O> distance;
+
+  /**
+   * Number of histogram bins.
+   */
+  private int bins;
+
+  /**
+   * Maximum number of distances to collect for exact refinement.
+   */
+  private int refine;
+
+  /**
+   * Sample size, 0 to use all objects.
+   */
+  private int samplesize;
+
+  /**
+   * Number of samples.
+   */
+  private int repeats;
+
+  /**
+   * Random generator for sampling.
+   */
+  private RandomFactory rnd;
+
+  /**
+   * Key for logging statistics.
+   */
+  private String key = ParallelEvaluateCIndex.class.getName();
+
+  /**
+   * Constructor.
+   *
+   * @param distance Distance function
+   * @param noiseOpt Flag to control noise handling
+   * @param bins Number of histogram bins
+   * @param refine Maximum number of distances to collect for refinement
+   * @param samplesize Sample size, 0 for all objects
+   * @param repeats Number of samples
+   * @param rnd Random generator
+   */
+  public ParallelEvaluateCIndex(DistanceFunction<? super O> distance, NoiseHandling noiseOpt, int bins, int refine, int samplesize, int repeats, RandomFactory rnd) {
+    super();
+    this.distance = distance;
+    this.noiseOption = noiseOpt;
+    this.bins = bins;
+    this.refine = refine;
+    this.samplesize = samplesize;
+    this.repeats = repeats;
+    this.rnd = rnd;
+  }
+
+  /**
+   * Evaluate a single clustering.
+   *
+   * @param db Database
+   * @param rel Data relation
+   * @param dq Distance query
+   * @param c Clustering
+   * @return C-Index
+   */
+  public double evaluateClustering(Database db, Relation<? extends O> rel, DistanceQuery<O> dq, Clustering<?> c) {
+    final FlatClustering flat = FlatClustering.build(c.getAllClusters(), noiseOption);
+    final boolean sampling = samplesize > 0 && samplesize < flat.ids.size();
+    final double cIndex, low, high;
+    if(sampling) {
+      Random random = rnd.getSingleThreadedRandom();
+      MeanVariance mv = new MeanVariance();
+      for(int i = 0; i < repeats; i++) {
+        mv.put(computeCIndex(flat.sample(samplesize, random), dq)[0]);
+      }
+      cIndex = mv.getMean();
+      final double ci = repeats > 1 ? NormalDistribution.standardNormalQuantile(0.975) * mv.getSampleStddev() / Math.sqrt(repeats) : 0.;
+      low = cIndex - ci;
+      high = cIndex + ci;
+    }
+    else {
+      double[] res = computeCIndex(flat, dq);
+      cIndex = res[0];
+      low = res[1];
+      high = res[2];
+    }
+
+    if(LOG.isStatistics()) {
+      LOG.statistics(new StringStatistic(key + ".c-index.noise-handling", noiseOption.toString()));
+      if(flat.ignored > 0) {
+        LOG.statistics(new LongStatistic(key + ".c-index.ignored", flat.ignored));
+      }
+      LOG.statistics(new DoubleStatistic(key + ".c-index", cIndex));
+      if(low < high) {
+        LOG.statistics(new DoubleStatistic(key + ".c-index.low", low));
+        LOG.statistics(new DoubleStatistic(key + ".c-index.high", high));
+      }
+    }
+
+    EvaluationResult ev = EvaluationResult.findOrCreate(db.getHierarchy(), c, "Internal Clustering Evaluation", "internal evaluation");
+    MeasurementGroup g = ev.findOrCreateGroup("Distance-based Evaluation");
+    g.addMeasure("C-Index", cIndex, 0., 1., 0., true);
+    if(low < high) {
+      final String prefix = sampling ? "C-Index 95% CI " : "C-Index bound ";
+      g.addMeasure(prefix + "low", low, 0., 1., 0., true);
+      g.addMeasure(prefix + "high", high, 0., 1., 0., true);
+    }
+    db.getHierarchy().resultChanged(ev);
+    return cIndex;
+  }
+
+  /**
+   * Compute the C-index, with bounds.
+   *
+   * @param flat Flat clustering
+   * @param dq Distance query
+   * @return C-index estimate, lower bound, upper bound
+   */
+  protected double[] computeCIndex(final FlatClustering flat, final DistanceQuery<?> dq) {
+    final long w = flat.withinPairs();
+    // If we have fewer cross-cluster distances than within-cluster
+    // distances, min=max and cIndex = 0.
+    if(w == 0 || w > flat.totalPairs() >>> 1) {
+      return new double[] { 0., 0., 0. };
+    }
+    final FlatClustering.RangeWorker range = FlatClustering.RangeWorker.run(flat, dq, LOG);
+    if(!(range.max > range.min)) {
+      return new double[] { 0., 0., 0. };
+    }
+    final double theta = range.within, dmin = range.min;
+    final double scale = bins / (range.max - dmin), width = (range.max - dmin) / bins;
+
+    // Second pass: histogram
+    FiniteProgress prog = LOG.isVerbose() ? new FiniteProgress("Computing distance histogram", flat.ids.size(), LOG) : null;
+    List<HistogramWorker> hws = FlatClustering.run(flat.ids.size(), new FlatClustering.WorkerFactory<HistogramWorker>() {
+      @Override
+      public HistogramWorker make() {
+        return new HistogramWorker(flat, dq, dmin, scale, bins);
+      }
+    }, prog, LOG);
+    LOG.ensureCompleted(prog);
+    final long[] counts = hws.get(0).counts;
+    final double[] sums = hws.get(0).sums;
+    for(int i = 1; i < hws.size(); i++) {
+      final HistogramWorker hw = hws.get(i);
+      for(int b = 0; b < bins; b++) {
+        counts[b] += hw.counts[b];
+        sums[b] += hw.sums[b];
+      }
+    }
+
+    // Sum of the w smallest distances: full bins, and r from bin bl.
+    double min = 0.;
+    long cum = 0;
+    int bl = 0;
+    for(; cum + counts[bl] < w; bl++) {
+      cum += counts[bl];
+      min += sums[bl];
+    }
+    final long rl = w - cum;
+    // Sum of the w largest distances: full bins, and r from bin bh.
+    double max = 0.;
+    cum = 0;
+    int bh = bins - 1;
+    for(; cum + counts[bh] < w; bh--) {
+      cum += counts[bh];
+      max += sums[bh];
+    }
+    final long rh = w - cum;
+
+    final long collect = counts[bl] + (bh != bl ? counts[bh] : 0);
+    if(collect <= refine) {
+      // Third pass: exact selection within the two boundary bins.
+      final int fbl = bl, fbh = bh;
+      prog = LOG.isVerbose() ? new FiniteProgress("Refining C-index", flat.ids.size(), LOG) : null;
+      List<CollectWorker> cws = FlatClustering.run(flat.ids.size(), new FlatClustering.WorkerFactory<CollectWorker>() {
+        @Override
+        public CollectWorker make() {
+          return new CollectWorker(flat, dq, dmin, scale, bins, fbl, fbh);
+        }
+      }, prog, LOG);
+      LOG.ensureCompleted(prog);
+      double[] vals = new double[(int) collect];
+      int p = 0;
+      for(CollectWorker cw : cws) {
+        System.arraycopy(cw.buf.data, 0, vals, p, cw.buf.size);
+        p += cw.buf.size;
+      }
+      assert (p == collect);
+      Arrays.sort(vals);
+      for(int i = 0; i < rl; i++) {
+        min += vals[i];
+      }
+      for(int i = 0; i < rh; i++) {
+        max += vals[vals.length - 1 - i];
+      }
+      final double cIndex = (max > min) ? (theta - min) / (max - min) : 0.;
+      return new double[] { cIndex, cIndex, cIndex };
+    }
+    // Bounds: the smallest r of a bin are at least the lower bin edge, but at
+    // most the bin average; the largest r at least the bin average, at most
+    // the upper bin edge.
+    final double minLo = min + rl * (dmin + bl * width);
+    final double minHi = min + rl * (sums[bl] / counts[bl]);
+    final double maxLo = max + rh * (sums[bh] / counts[bh]);
+    final double maxHi = max + rh * (dmin + (bh + 1) * width);
+    // The C-index is decreasing in both min and max:
+    final double low = cindex(theta, minHi, maxHi), high = cindex(theta, minLo, maxLo);
+    final double est = cindex(theta, .5 * (minLo + minHi), .5 * (maxLo + maxHi));
+    return new double[] { est, low, high };
+  }
+
+  /**
+   * C-index formula.
+   *
+   * @param theta Sum of within-cluster distances
+   * @param min Sum of smallest distances
+   * @param max Sum of largest distances
+   * @return C-index
+   */
+  private static double cindex(double theta, double min, double max) {
+    return (max > min) ? (theta - min) / (max - min) : 0.;
+  }
+
+  @Override
+  public void processNewResult(ResultHierarchy hier, Result result) {
+    List<Clustering<?>> crs = Clustering.getClusteringResults(result);
+    if(crs.isEmpty()) {
+      return;
+    }
+    Database db = ResultUtil.findDatabase(hier);
+    Relation<O> rel = db.getRelation(distance.getInputTypeRestriction());
+    DistanceQuery<O> dq = db.getDistanceQuery(rel, distance);
+
+    for(Clustering<?> c : crs) {
+      evaluateClustering(db, rel, dq, c);
+    }
+  }
+
+  /**
+   * Worker building a histogram of all pairwise distances.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   */
+  private static class HistogramWorker extends FlatClustering.Worker {
+    /**
+     * Distance query.
+     */
+    private final DistanceQuery<?> dq;
+
+    /**
+     * Iterators.
+     */
+    private final DBIDArrayIter it1, it2;
+
+    /**
+     * Histogram parameters.
+     */
+    private final double min, scale;
+
+    /**
+     * Number of bins.
+     */
+    private final int bins;
+
+    /**
+     * Counts per bin.
+     */
+    final long[] counts;
+
+    /**
+     * Sums per bin.
+     */
+    final double[] sums;
+
+    /**
+     * Constructor.
+     *
+     * @param flat Flat clustering
+     * @param dq Distance query
+     * @param min Minimum distance
+     * @param scale Histogram scale
+     * @param bins Number of bins
+     */
+    HistogramWorker(FlatClustering flat, DistanceQuery<?> dq, double min, double scale, int bins) {
+      this.dq = dq;
+      this.it1 = flat.ids.iter();
+      this.it2 = flat.ids.iter();
+      this.min = min;
+      this.scale = scale;
+      this.bins = bins;
+      this.counts = new long[bins];
+      this.sums = new double[bins];
+    }
+
+    @Override
+    protected void process(int i) {
+      it1.seek(i);
+      for(it2.seek(i + 1); it2.valid(); it2.advance()) {
+        final double dist = dq.distance(it1, it2);
+        final int b = FlatClustering.bin(dist, min, scale, bins);
+        counts[b]++;
+        sums[b] += dist;
+      }
+    }
+  }
+
+  /**
+   * Worker collecting the distances in the two boundary bins.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   */
+  private static class CollectWorker extends FlatClustering.Worker {
+    /**
+     * Distance query.
+     */
+    private final DistanceQuery<?> dq;
+
+    /**
+     * Iterators.
+     */
+    private final DBIDArrayIter it1, it2;
+
+    /**
+     * Histogram parameters.
+     */
+    private final double min, scale;
+
+    /**
+     * Number of bins, and bins to collect.
+     */
+    private final int bins, bl, bh;
+
+    /**
+     * Collected distances.
+     */
+    final DoubleArray buf = new DoubleArray();
+
+    /**
+     * Constructor.
+     *
+     * @param flat Flat clustering
+     * @param dq Distance query
+     * @param min Minimum distance
+     * @param scale Histogram scale
+     * @param bins Number of bins
+     * @param bl Lower bin to collect
+     * @param bh Upper bin to collect
+     */
+    CollectWorker(FlatClustering flat, DistanceQuery<?> dq, double min, double scale, int bins, int bl, int bh) {
+      this.dq = dq;
+      this.it1 = flat.ids.iter();
+      this.it2 = flat.ids.iter();
+      this.min = min;
+      this.scale = scale;
+      this.bins = bins;
+      this.bl = bl;
+      this.bh = bh;
+    }
+
+    @Override
+    protected void process(int i) {
+      it1.seek(i);
+      for(it2.seek(i + 1); it2.valid(); it2.advance()) {
+        final double dist = dq.distance(it1, it2);
+        final int b = FlatClustering.bin(dist, min, scale, bins);
+        if(b == bl || b == bh) {
+          buf.add(dist);
+        }
+      }
+    }
+  }
+
+  /**
+   * Parameterization class.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   */
+  public static class Parameterizer<O> extends AbstractParameterizer {
+    /**
+     * Number of histogram bins.
+     */
+    public static final OptionID BINS_ID = new OptionID("c-index.bins", "Number of histogram bins for approximating the extreme distances.");
+
+    /**
+     * Maximum number of distances to collect for exact refinement.
+     */
+    public static final OptionID REFINE_ID = new OptionID("c-index.refine", "Maximum number of distances to keep in memory for computing the exact C-index. If the boundary histogram bins contain more, bounds are reported instead.");
+
+    /**
+     * Sample size.
+     */
+    public static final OptionID SAMPLE_ID = new OptionID("c-index.sample", "Sample size for estimating the C-index. 0 uses all objects.");
+
+    /**
+     * Number of samples.
+     */
+    public static final OptionID REPEATS_ID = new OptionID("c-index.repeats", "Number of samples to draw for the confidence interval.");
+
+    /**
+     * Random seed.
+     */
+    public static final OptionID SEED_ID = new OptionID("c-index.seed", "Random generator seed for sampling.");
+
+    /**
+     * Distance function to use.
+     */
+    private DistanceFunction<? super O> distance;
+
+    /**
+     * Option, how noise should be treated.
+     */
+    private NoiseHandling noiseOption;
+
+    /**
+     * Number of bins.
+     */
+    private int bins;
+
+    /**
+     * Refinement buffer size.
+     */
+    private int refine;
+
+    /**
+     * Sample size.
+     */
+    private int samplesize = 0;
+
+    /**
+     * Number of samples.
+     */
+    private int repeats = 1;
+
+    /**
+     * Random generator.
+     */
+    private RandomFactory rnd;
+
+    @Override
+    protected void makeOptions(Parameterization config) {
+      super.makeOptions(config);
+      ObjectParameter<DistanceFunction<? super O>> distanceFunctionP = new ObjectParameter<>(EvaluateCIndex.Parameterizer.DISTANCE_ID, DistanceFunction.class, EuclideanDistanceFunction.class);
+      if(config.grab(distanceFunctionP)) {
+        distance = distanceFunctionP.instantiateClass(config);
+      }
+
+      EnumParameter<NoiseHandling> noiseP = new EnumParameter<NoiseHandling>(EvaluateCIndex.Parameterizer.NOISE_ID, NoiseHandling.class, NoiseHandling.TREAT_NOISE_AS_SINGLETONS);
+      if(config.grab(noiseP)) {
+        noiseOption = noiseP.getValue();
+      }
+
+      IntParameter binsP = new IntParameter(BINS_ID, 1 << 16) //
+          .addConstraint(CommonConstraints.GREATER_EQUAL_ONE_INT);
+      if(config.grab(binsP)) {
+        bins = binsP.intValue();
+      }
+
+      IntParameter refineP = new IntParameter(REFINE_ID, 1 << 20) //
+          .addConstraint(CommonConstraints.GREATER_EQUAL_ZERO_INT);
+      if(config.grab(refineP)) {
+        refine = refineP.intValue();
+      }
+
+      IntParameter sampleP = new IntParameter(SAMPLE_ID, 0) //
+          .addConstraint(CommonConstraints.GREATER_EQUAL_ZERO_INT);
+      if(config.grab(sampleP)) {
+        samplesize = sampleP.intValue();
+      }
+
+      if(samplesize > 0) {
+        IntParameter repeatsP = new IntParameter(REPEATS_ID, 10) //
+            .addConstraint(CommonConstraints.GREATER_EQUAL_ONE_INT);
+        if(config.grab(repeatsP)) {
+          repeats = repeatsP.intValue();
+        }
+
+        RandomParameter rndP = new RandomParameter(SEED_ID);
+        if(config.grab(rndP)) {
+          rnd = rndP.getValue();
+        }
+      }
+    }
+
+    @Override
+    protected ParallelEvaluateCIndex<O> makeInstance() {
+      return new ParallelEvaluateCIndex<>(distance, noiseOption, bins, refine, samplesize, repeats, rnd != null ? rnd : RandomFactory.DEFAULT);
+    }
+  }
+}
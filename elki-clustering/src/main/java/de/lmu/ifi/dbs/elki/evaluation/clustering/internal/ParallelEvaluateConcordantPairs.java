@@ -0,0 +1,462 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.evaluation.clustering.internal;
+
+import java.util.List;
+import java.util.Random;
+
+import de.lmu.ifi.dbs.elki.data.Clustering;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
+import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.DistanceFunction;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.EuclideanDistanceFunction;
+import de.lmu.ifi.dbs.elki.evaluation.Evaluator;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.logging.progress.FiniteProgress;
+import de.lmu.ifi.dbs.elki.logging.statistics.DoubleStatistic;
+import de.lmu.ifi.dbs.elki.logging.statistics.LongStatistic;
+import de.lmu.ifi.dbs.elki.logging.statistics.StringStatistic;
+import de.lmu.ifi.dbs.elki.math.MeanVariance;
+import de.lmu.ifi.dbs.elki.math.statistics.distribution.NormalDistribution;
+import de.lmu.ifi.dbs.elki.result.EvaluationResult;
+import de.lmu.ifi.dbs.elki.result.EvaluationResult.MeasurementGroup;
+import de.lmu.ifi.dbs.elki.result.Result;
+import de.lmu.ifi.dbs.elki.result.ResultHierarchy;
+import de.lmu.ifi.dbs.elki.result.ResultUtil;
+import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.AbstractParameterizer;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.OptionID;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.constraints.CommonConstraints;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.EnumParameter;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.IntParameter;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.ObjectParameter;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.RandomParameter;
+import de.lmu.ifi.dbs.elki.utilities.random.RandomFactory;
+import net.jafama.FastMath;
+
+/**
+ * Compute the Gamma Criterion and Tau of a data set in parallel, with bounded
+ * memory.
+ * <p>
+ * Instead of materializing and sorting all within-cluster distances (as
+ * {@link EvaluateConcordantPairs} does), within- and between-cluster distances
+ * are counted in two histograms with identical bins. Pairs of distances in
+ * different bins are classified exactly as concordant or discordant; pairs in
+ * the same bin are undecided, and yield lower and upper bounds of Gamma and
+ * Tau. With the default number of bins, these are usually very tight.
+ * <p>
+ * Noise objects treated as singletons form between-cluster pairs with each
+ * other. Optionally, the measures can be estimated from repeated random
+ * subsamples, reporting a 95% confidence interval (normal approximation).
+ * <p>
+ * References:
+ * <p>
+ * F. B. Baker, and L. J. Hubert<br />
+ * Measuring the Power of Hierarchical Cluster Analysis<br />
+ * Journal of the American Statistical Association, 70(349)
+ * </p>
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ *
+ * @apiviz.composedOf NoiseHandling
+ * @apiviz.uses FlatClustering
+ *
+ * @param <O> Object type
+ */
+@Reference(authors = "F. B. Baker, and L. J. Hubert", //
+    title = "Measuring the Power of Hierarchical Cluster Analysis", //
+    booktitle = "Journal of the American Statistical Association, 70(349)", //
+    url = "http://dx.doi.org/10.1080/01621459.1975.10480256")
+public class ParallelEvaluateConcordantPairs<O> implements Evaluator {
+  /**
+   * Logger for debug output.
+   */
+  private static final Logging LOG = Logging.getLogger(ParallelEvaluateConcordantPairs.class);
+
+  /**
+   * Option for noise handling.
+   */
+  private NoiseHandling noiseHandling;
+
+  /**
+   * Distance function to use.
+   */
+  private DistanceFunction<? super O> distance;
+
+  /**
+   * Number of histogram bins.
+   */
+  private int bins;
+
+  /**
+   * Sample size, 0 to use all objects.
+   */
+  private int samplesize;
+
+  /**
+   * Number of samples.
+   */
+  private int repeats;
+
+  /**
+   * Random generator for sampling.
+   */
+  private RandomFactory rnd;
+
+  /**
+   * Key for logging statistics.
+   */
+  private String key = ParallelEvaluateConcordantPairs.class.getName();
+
+  /**
+   * Constructor.
+   *
+   * @param distance Distance function
+   * @param noiseHandling Control noise handling
+   * @param bins Number of histogram bins
+   * @param samplesize Sample size, 0 for all objects
+   * @param repeats Number of samples
+   * @param rnd Random generator
+   */
+  public ParallelEvaluateConcordantPairs(DistanceFunction<? super O> distance, NoiseHandling noiseHandling, int bins, int samplesize, int repeats, RandomFactory rnd) {
+    super();
+    this.distance = distance;
+    this.noiseHandling = noiseHandling;
+    this.bins = bins;
+    this.samplesize = samplesize;
+    this.repeats = repeats;
+    this.rnd = rnd;
+  }
+
+  /**
+   * Evaluate a single clustering.
+   *
+   * @param db Database
+   * @param rel Data relation
+   * @param dq Distance query
+   * @param c Clustering
+   * @return Gamma index
+   */
+  public double evaluateClustering(Database db, Relation<? extends O> rel, DistanceQuery<O> dq, Clustering<?> c) {
+    final FlatClustering flat = FlatClustering.build(c.getAllClusters(), noiseHandling);
+    final boolean sampling = samplesize > 0 && samplesize < flat.ids.size();
+    // Gamma, low, high, Tau, low, high
+    final double[] res;
+    if(sampling) {
+      Random random = rnd.getSingleThreadedRandom();
+      MeanVariance mgamma = new MeanVariance(), mtau = new MeanVariance();
+      for(int i = 0; i < repeats; i++) {
+        double[] r = computeConcordance(flat.sample(samplesize, random), dq);
+        mgamma.put(r[0]);
+        mtau.put(r[3]);
+      }
+      final double z = repeats > 1 ? NormalDistribution.standardNormalQuantile(0.975) / Math.sqrt(repeats) : 0.;
+      final double cig = z * mgamma.getSampleStddev(), cit = z * mtau.getSampleStddev();
+      final double gamma = mgamma.getMean(), tau = mtau.getMean();
+      res = new double[] { gamma, gamma - cig, gamma + cig, tau, tau - cit, tau + cit };
+    }
+    else {
+      res = computeConcordance(flat, dq);
+    }
+
+    if(LOG.isStatistics()) {
+      LOG.statistics(new StringStatistic(key + ".pbm.noise-handling", noiseHandling.toString()));
+      if(flat.ignored > 0) {
+        LOG.statistics(new LongStatistic(key + ".pbm.ignored", flat.ignored));
+      }
+      LOG.statistics(new DoubleStatistic(key + ".gamma", res[0]));
+      LOG.statistics(new DoubleStatistic(key + ".tau", res[3]));
+      if(res[1] < res[2]) {
+        LOG.statistics(new DoubleStatistic(key + ".gamma.low", res[1]));
+        LOG.statistics(new DoubleStatistic(key + ".gamma.high", res[2]));
+        LOG.statistics(new DoubleStatistic(key + ".tau.low", res[4]));
+        LOG.statistics(new DoubleStatistic(key + ".tau.high", res[5]));
+      }
+    }
+
+    EvaluationResult ev = EvaluationResult.findOrCreate(db.getHierarchy(), c, "Internal Clustering Evaluation", "internal evaluation");
+    MeasurementGroup g = ev.findOrCreateGroup("Concordance-based Evaluation");
+    g.addMeasure("Gamma", res[0], -1., 1., 0., false);
+    g.addMeasure("Tau", res[3], -1., +1., 0., false);
+    if(res[1] < res[2]) {
+      final String suffix = sampling ? " 95% CI " : " bound ";
+      g.addMeasure("Gamma" + suffix + "low", res[1], -1., 1., 0., false);
+      g.addMeasure("Gamma" + suffix + "high", res[2], -1., 1., 0., false);
+      g.addMeasure("Tau" + suffix + "low", res[4], -1., 1., 0., false);
+      g.addMeasure("Tau" + suffix + "high", res[5], -1., 1., 0., false);
+    }
+    db.getHierarchy().resultChanged(ev);
+    return res[0];
+  }
+
+  /**
+   * Compute Gamma and Tau, with bounds.
+   *
+   * @param flat Flat clustering
+   * @param dq Distance query
+   * @return Gamma, lower bound, upper bound, Tau, lower bound, upper bound
+   */
+  protected double[] computeConcordance(final FlatClustering flat, final DistanceQuery<?> dq) {
+    final FlatClustering.RangeWorker range = FlatClustering.RangeWorker.run(flat, dq, LOG);
+    final double dmin = range.min;
+    final double scale = range.max > dmin ? bins / (range.max - dmin) : 0.;
+
+    FiniteProgress prog = LOG.isVerbose() ? new FiniteProgress("Computing distance histograms", flat.ids.size(), LOG) : null;
+    List<HistogramWorker> hws = FlatClustering.run(flat.ids.size(), new FlatClustering.WorkerFactory<HistogramWorker>() {
+      @Override
+      public HistogramWorker make() {
+        return new HistogramWorker(flat, dq, dmin, scale, bins);
+      }
+    }, prog, LOG);
+    LOG.ensureCompleted(prog);
+    final long[] within = hws.get(0).within, between = hws.get(0).between;
+    for(int i = 1; i < hws.size(); i++) {
+      final HistogramWorker hw = hws.get(i);
+      for(int b = 0; b < bins; b++) {
+        within[b] += hw.within[b];
+        between[b] += hw.between[b];
+      }
+    }
+
+    // Products may exceed the range of long, so we use doubles.
+    double wd = 0., bd = 0.;
+    for(int b = 0; b < bins; b++) {
+      wd += within[b];
+      bd += between[b];
+    }
+    double concordant = 0., discordant = 0., undecided = 0., cum = 0.;
+    for(int b = 0; b < bins; b++) {
+      concordant += between[b] * cum;
+      discordant += between[b] * (wd - cum - within[b]);
+      undecided += between[b] * (double) within[b];
+      cum += within[b];
+    }
+
+    final double gamma = (concordant - discordant) / (concordant + discordant + undecided);
+    final double glow = (concordant - discordant - undecided) / (concordant + discordant + undecided);
+    final double ghigh = (concordant - discordant + undecided) / (concordant + discordant + undecided);
+    // Tau, as in Rohlf:
+    final double t = flat.totalPairs(), m = .5 * t * (t - 1);
+    final double tie = .5 * (wd * (wd - 1) + bd * (bd - 1));
+    final double norm = FastMath.sqrt((m - tie) * m);
+    final double tau = (concordant - discordant) / norm;
+    final double tlow = (concordant - discordant - undecided) / norm;
+    final double thigh = (concordant - discordant + undecided) / norm;
+    return new double[] { gamma, glow, ghigh, tau, tlow, thigh };
+  }
+
+  @Override
+  public void processNewResult(ResultHierarchy hier, Result result) {
+    List<Clustering<?>> crs = Clustering.getClusteringResults(result);
+    if(crs.isEmpty()) {
+      return;
+    }
+    Database db = ResultUtil.findDatabase(hier);
+    Relation<O> rel = db.getRelation(distance.getInputTypeRestriction());
+    DistanceQuery<O> dq = db.getDistanceQuery(rel, distance);
+
+    for(Clustering<?> c : crs) {
+      evaluateClustering(db, rel, dq, c);
+    }
+  }
+
+  /**
+   * Worker building histograms of within- and between-cluster distances.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   */
+  private static class HistogramWorker extends FlatClustering.Worker {
+    /**
+     * Cluster assignment.
+     */
+    private final int[] assignment;
+
+    /**
+     * Distance query.
+     */
+    private final DistanceQuery<?> dq;
+
+    /**
+     * Iterators.
+     */
+    private final DBIDArrayIter it1, it2;
+
+    /**
+     * Histogram parameters.
+     */
+    private final double min, scale;
+
+    /**
+     * Number of bins.
+     */
+    private final int bins;
+
+    /**
+     * Counts per bin.
+     */
+    final long[] within, between;
+
+    /**
+     * Constructor.
+     *
+     * @param flat Flat clustering
+     * @param dq Distance query
+     * @param min Minimum distance
+     * @param scale Histogram scale
+     * @param bins Number of bins
+     */
+    HistogramWorker(FlatClustering flat, DistanceQuery<?> dq, double min, double scale, int bins) {
+      this.assignment = flat.assignment;
+      this.dq = dq;
+      this.it1 = flat.ids.iter();
+      this.it2 = flat.ids.iter();
+      this.min = min;
+      this.scale = scale;
+      this.bins = bins;
+      this.within = new long[bins];
+      this.between = new long[bins];
+    }
+
+    @Override
+    protected void process(int i) {
+      final int ci = assignment[i];
+      it1.seek(i);
+      for(it2.seek(i + 1); it2.valid(); it2.advance()) {
+        final int b = FlatClustering.bin(dq.distance(it1, it2), min, scale, bins);
+        if(ci >= 0 && ci == assignment[it2.getOffset()]) {
+          within[b]++;
+        }
+        else {
+          between[b]++;
+        }
+      }
+    }
+  }
+
+  /**
+   * Parameterization class.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   */
+  public static class Parameterizer<O> extends AbstractParameterizer {
+    /**
+     * Number of histogram bins.
+     */
+    public static final OptionID BINS_ID = new OptionID("concordant-pairs.bins", "Number of histogram bins for counting concordant pairs.");
+
+    /**
+     * Sample size.
+     */
+    public static final OptionID SAMPLE_ID = new OptionID("concordant-pairs.sample", "Sample size for estimating Gamma and Tau. 0 uses all objects.");
+
+    /**
+     * Number of samples.
+     */
+    public static final OptionID REPEATS_ID = new OptionID("concordant-pairs.repeats", "Number of samples to draw for the confidence interval.");
+
+    /**
+     * Random seed.
+     */
+    public static final OptionID SEED_ID = new OptionID("concordant-pairs.seed", "Random generator seed for sampling.");
+
+    /**
+     * Distance function to use.
+     */
+    private DistanceFunction<? super O> distance;
+
+    /**
+     * Option, how noise should be treated.
+     */
+    private NoiseHandling noiseHandling;
+
+    /**
+     * Number of bins.
+     */
+    private int bins;
+
+    /**
+     * Sample size.
+     */
+    private int samplesize = 0;
+
+    /**
+     * Number of samples.
+     */
+    private int repeats = 1;
+
+    /**
+     * Random generator.
+     */
+    private RandomFactory rnd;
+
+    @Override
+    protected void makeOptions(Parameterization config) {
+      super.makeOptions(config);
+      ObjectParameter<DistanceFunction<? super O>> distanceFunctionP = new ObjectParameter<>(EvaluateConcordantPairs.Parameterizer.DISTANCE_ID, DistanceFunction.class, EuclideanDistanceFunction.class);
+      if(config.grab(distanceFunctionP)) {
+        distance = distanceFunctionP.instantiateClass(config);
+      }
+
+      EnumParameter<NoiseHandling> noiseP = new EnumParameter<NoiseHandling>(EvaluateConcordantPairs.Parameterizer.NOISE_ID, NoiseHandling.class, NoiseHandling.TREAT_NOISE_AS_SINGLETONS);
+      if(config.grab(noiseP)) {
+        noiseHandling = noiseP.getValue();
+      }
+
+      IntParameter binsP = new IntParameter(BINS_ID, 1 << 16) //
+          .addConstraint(CommonConstraints.GREATER_EQUAL_ONE_INT);
+      if(config.grab(binsP)) {
+        bins = binsP.intValue();
+      }
+
+      IntParameter sampleP = new IntParameter(SAMPLE_ID, 0) //
+          .addConstraint(CommonConstraints.GREATER_EQUAL_ZERO_INT);
+      if(config.grab(sampleP)) {
+        samplesize = sampleP.intValue();
+      }
+
+      if(samplesize > 0) {
+        IntParameter repeatsP = new IntParameter(REPEATS_ID, 10) //
+            .addConstraint(CommonConstraints.GREATER_EQUAL_ONE_INT);
+        if(config.grab(repeatsP)) {
+          repeats = repeatsP.intValue();
+        }
+
+        RandomParameter rndP = new RandomParameter(SEED_ID);
+        if(config.grab(rndP)) {
+          rnd = rndP.getValue();
+        }
+      }
+    }
+
+    @Override
+    protected ParallelEvaluateConcordantPairs<O> makeInstance() {
+      return new ParallelEvaluateConcordantPairs<>(distance, noiseHandling, bins, samplesize, repeats, rnd != null ? rnd : RandomFactory.DEFAULT);
+    }
+  }
+}
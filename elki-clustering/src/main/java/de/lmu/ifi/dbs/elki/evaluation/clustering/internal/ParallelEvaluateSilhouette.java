@@ -0,0 +1,421 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.evaluation.clustering.internal;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import de.lmu.ifi.dbs.elki.data.Clustering;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
+import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.DistanceFunction;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.EuclideanDistanceFunction;
+import de.lmu.ifi.dbs.elki.evaluation.Evaluator;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.logging.progress.FiniteProgress;
+import de.lmu.ifi.dbs.elki.logging.statistics.DoubleStatistic;
+import de.lmu.ifi.dbs.elki.logging.statistics.LongStatistic;
+import de.lmu.ifi.dbs.elki.logging.statistics.StringStatistic;
+import de.lmu.ifi.dbs.elki.math.MeanVariance;
+import de.lmu.ifi.dbs.elki.math.statistics.distribution.NormalDistribution;
+import de.lmu.ifi.dbs.elki.result.EvaluationResult;
+import de.lmu.ifi.dbs.elki.result.EvaluationResult.MeasurementGroup;
+import de.lmu.ifi.dbs.elki.result.Result;
+import de.lmu.ifi.dbs.elki.result.ResultHierarchy;
+import de.lmu.ifi.dbs.elki.result.ResultUtil;
+import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
+import de.lmu.ifi.dbs.elki.utilities.io.FormatUtil;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.AbstractParameterizer;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.OptionID;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.constraints.CommonConstraints;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.EnumParameter;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.Flag;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.IntParameter;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.ObjectParameter;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.RandomParameter;
+import de.lmu.ifi.dbs.elki.utilities.random.RandomFactory;
+
+/**
+ * Compute the silhouette of a data set in parallel, with memory linear in the
+ * data set size.
+ * <p>
+ * In contrast to {@link EvaluateSilhouette}, each object is processed
+ * independently (using per-thread accumulators for the distance sums to each
+ * cluster), so no pairwise distances are stored. Optionally, only a random
+ * sample of objects is evaluated (each against the full data set), and a 95%
+ * confidence interval of the mean silhouette is reported.
+ * <p>
+ * Reference:
+ * <p>
+ * P. J. Rousseeuw<br />
+ * Silhouettes: A graphical aid to the interpretation and validation of cluster
+ * analysis<br />
+ * In: Journal of Computational and Applied Mathematics Volume 20, November 1987
+ * </p>
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ *
+ * @apiviz.composedOf NoiseHandling
+ * @apiviz.uses FlatClustering
+ *
+ * @param <O> Object type
+ */
+@Reference(authors = "P. J. Rousseeuw", //
+    title = "Silhouettes: A graphical aid to the interpretation and validation of cluster analysis", //
+    booktitle = "Journal of Computational and Applied Mathematics, Volume 20", //
+    url = "http://dx.doi.org/10.1016%2F0377-0427%2887%2990125-7")
+public class ParallelEvaluateSilhouette<O> implements Evaluator {
+  /**
+   * Logger for debug output.
+   */
+  private static final Logging LOG = Logging.getLogger(ParallelEvaluateSilhouette.class);
+
+  /**
+   * Distance function to use.
+   */
+  private DistanceFunction<? super O> distance;
+
+  /**
+   * Option for noise handling.
+   */
+  private NoiseHandling noiseOption;
+
+  /**
+   * Penalize noise, if {@link NoiseHandling#IGNORE_NOISE} is set.
+   */
+  private boolean penalize = true;
+
+  /**
+   * Sample size, 0 to evaluate all objects.
+   */
+  private int samplesize;
+
+  /**
+   * Random generator for sampling.
+   */
+  private RandomFactory rnd;
+
+  /**
+   * Key for logging statistics.
+   */
+  private String key = ParallelEvaluateSilhouette.class.getName();
+
+  /**
+   * Constructor.
+   *
+   * @param distance Distance function
+   * @param noiseOption Handling of "noise" clusters.
+   * @param penalize noise, if {@link NoiseHandling#IGNORE_NOISE} is set.
+   * @param samplesize Number of objects to sample, 0 for all
+   * @param rnd Random generator
+   */
+  public ParallelEvaluateSilhouette(DistanceFunction<? super O> distance, NoiseHandling noiseOption, boolean penalize, int samplesize, RandomFactory rnd) {
+    super();
+    this.distance = distance;
+    this.noiseOption = noiseOption;
+    this.penalize = penalize;
+    this.samplesize = samplesize;
+    this.rnd = rnd;
+  }
+
+  /**
+   * Evaluate a single clustering.
+   *
+   * @param db Database
+   * @param rel Data relation
+   * @param dq Distance query
+   * @param c Clustering
+   * @return Average silhouette
+   */
+  public double evaluateClustering(Database db, Relation<O> rel, final DistanceQuery<O> dq, Clustering<?> c) {
+    final FlatClustering flat = FlatClustering.build(c.getAllClusters(), noiseOption);
+    final int n = flat.ids.size();
+    final int[] rows = samplesize > 0 && samplesize < n ? sampleRows(n, samplesize, rnd.getSingleThreadedRandom()) : null;
+    final int m = rows != null ? rows.length : n;
+
+    FiniteProgress prog = LOG.isVerbose() ? new FiniteProgress("Computing silhouettes", m, LOG) : null;
+    List<SilhouetteWorker> workers = FlatClustering.run(m, new FlatClustering.WorkerFactory<SilhouetteWorker>() {
+      @Override
+      public SilhouetteWorker make() {
+        return new SilhouetteWorker(flat, dq, rows);
+      }
+    }, prog, LOG);
+    LOG.ensureCompleted(prog);
+    MeanVariance msil = new MeanVariance();
+    for(SilhouetteWorker w : workers) {
+      msil.put(w.msil);
+    }
+
+    double penalty = 1.;
+    // Only if {@link NoiseHandling#IGNORE_NOISE}:
+    if(penalize && flat.ignored > 0) {
+      penalty = (rel.size() - flat.ignored) / (double) rel.size();
+    }
+    final double meansil = penalty * msil.getMean();
+    final double stdsil = penalty * msil.getSampleStddev();
+    // Confidence interval of the mean, when sampling:
+    final double ci = rows != null ? NormalDistribution.standardNormalQuantile(0.975) * stdsil / Math.sqrt(m) : 0.;
+    if(LOG.isStatistics()) {
+      LOG.statistics(new StringStatistic(key + ".silhouette.noise-handling", noiseOption.toString()));
+      if(flat.ignored > 0) {
+        LOG.statistics(new LongStatistic(key + ".silhouette.noise", flat.ignored));
+      }
+      LOG.statistics(new DoubleStatistic(key + ".silhouette.mean", meansil));
+      LOG.statistics(new DoubleStatistic(key + ".silhouette.stddev", stdsil));
+      if(rows != null) {
+        LOG.statistics(new LongStatistic(key + ".silhouette.sample-size", m));
+        LOG.statistics(new DoubleStatistic(key + ".silhouette.ci95.low", meansil - ci));
+        LOG.statistics(new DoubleStatistic(key + ".silhouette.ci95.high", meansil + ci));
+      }
+    }
+
+    EvaluationResult ev = EvaluationResult.findOrCreate(db.getHierarchy(), c, "Internal Clustering Evaluation", "internal evaluation");
+    MeasurementGroup g = ev.findOrCreateGroup("Distance-based Evaluation");
+    g.addMeasure("Silhouette +-" + FormatUtil.NF2.format(stdsil), meansil, -1., 1., 0., false);
+    if(rows != null) {
+      g.addMeasure("Silhouette 95% CI low", meansil - ci, -1., 1., 0., false);
+      g.addMeasure("Silhouette 95% CI high", meansil + ci, -1., 1., 0., false);
+    }
+    db.getHierarchy().resultChanged(ev);
+    return meansil;
+  }
+
+  /**
+   * Choose a random sample of rows.
+   *
+   * @param n Number of rows
+   * @param size Sample size
+   * @param random Random generator
+   * @return Sorted row numbers
+   */
+  private static int[] sampleRows(int n, int size, Random random) {
+    int[] perm = new int[n];
+    for(int i = 0; i < n; i++) {
+      perm[i] = i;
+    }
+    for(int i = 0; i < size; i++) {
+      final int j = i + random.nextInt(n - i);
+      final int tmp = perm[i];
+      perm[i] = perm[j];
+      perm[j] = tmp;
+    }
+    int[] rows = Arrays.copyOf(perm, size);
+    Arrays.sort(rows);
+    return rows;
+  }
+
+  @Override
+  public void processNewResult(ResultHierarchy hier, Result result) {
+    List<Clustering<?>> crs = Clustering.getClusteringResults(result);
+    if(crs.isEmpty()) {
+      return;
+    }
+    Database db = ResultUtil.findDatabase(hier);
+    Relation<O> rel = db.getRelation(distance.getInputTypeRestriction());
+    DistanceQuery<O> dq = db.getDistanceQuery(rel, distance);
+    for(Clustering<?> c : crs) {
+      evaluateClustering(db, rel, dq, c);
+    }
+  }
+
+  /**
+   * Worker computing the silhouette of individual objects.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   */
+  private static class SilhouetteWorker extends FlatClustering.Worker {
+    /**
+     * Flat clustering.
+     */
+    private final FlatClustering flat;
+
+    /**
+     * Distance query.
+     */
+    private final DistanceQuery<?> dq;
+
+    /**
+     * Rows to process, {@code null} for all.
+     */
+    private final int[] rows;
+
+    /**
+     * Iterators.
+     */
+    private final DBIDArrayIter it1, it2;
+
+    /**
+     * Distance sums to each cluster.
+     */
+    private final double[] sums;
+
+    /**
+     * Silhouette statistics.
+     */
+    final MeanVariance msil = new MeanVariance();
+
+    /**
+     * Constructor.
+     *
+     * @param flat Flat clustering
+     * @param dq Distance query
+     * @param rows Rows to process, {@code null} for all
+     */
+    SilhouetteWorker(FlatClustering flat, DistanceQuery<?> dq, int[] rows) {
+      this.flat = flat;
+      this.dq = dq;
+      this.rows = rows;
+      this.it1 = flat.ids.iter();
+      this.it2 = flat.ids.iter();
+      this.sums = new double[flat.sizes.length];
+    }
+
+    @Override
+    protected void process(int r) {
+      final int i = rows != null ? rows[r] : r;
+      final int[] assignment = flat.assignment, sizes = flat.sizes;
+      final int ci = assignment[i];
+      if(ci < 0) {
+        // As suggested in Rousseeuw, we use 0 for singletons.
+        msil.put(0.);
+        return;
+      }
+      Arrays.fill(sums, 0.);
+      double b = Double.POSITIVE_INFINITY; // Minimum over singletons
+      it1.seek(i);
+      for(it2.seek(0); it2.valid(); it2.advance()) {
+        final int j = it2.getOffset();
+        if(j == i) {
+          continue;
+        }
+        final double dist = dq.distance(it1, it2);
+        final int cj = assignment[j];
+        if(cj >= 0) {
+          sums[cj] += dist;
+        }
+        else {
+          b = dist < b ? dist : b;
+        }
+      }
+      final double a = sums[ci] / (sizes[ci] - 1);
+      // b: minimum average distance to other clusters:
+      for(int cj = 0; cj < sums.length; cj++) {
+        if(cj != ci) {
+          final double btmp = sums[cj] / sizes[cj];
+          b = btmp < b ? btmp : b;
+        }
+      }
+      // One cluster only?
+      b = b < Double.POSITIVE_INFINITY ? b : a;
+      msil.put((b - a) / (b > a ? b : a));
+    }
+  }
+
+  /**
+   * Parameterization class.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   */
+  public static class Parameterizer<O> extends AbstractParameterizer {
+    /**
+     * Number of objects to sample.
+     */
+    public static final OptionID SAMPLE_ID = new OptionID("silhouette.sample", "Number of objects to evaluate (against all objects). 0 evaluates all objects.");
+
+    /**
+     * Random seed for sampling.
+     */
+    public static final OptionID SEED_ID = new OptionID("silhouette.seed", "Random generator seed for sampling.");
+
+    /**
+     * Distance function to use.
+     */
+    private DistanceFunction<? super O> distance;
+
+    /**
+     * Noise handling
+     */
+    private NoiseHandling noiseOption;
+
+    /**
+     * Penalize noise, if {@link NoiseHandling#IGNORE_NOISE} is set.
+     */
+    private boolean penalize = true;
+
+    /**
+     * Sample size.
+     */
+    private int samplesize = 0;
+
+    /**
+     * Random generator.
+     */
+    private RandomFactory rnd;
+
+    @Override
+    protected void makeOptions(Parameterization config) {
+      super.makeOptions(config);
+      ObjectParameter<DistanceFunction<? super O>> distP = new ObjectParameter<>(EvaluateSilhouette.Parameterizer.DISTANCE_ID, DistanceFunction.class, EuclideanDistanceFunction.class);
+      if(config.grab(distP)) {
+        distance = distP.instantiateClass(config);
+      }
+
+      EnumParameter<NoiseHandling> noiseP = new EnumParameter<>(EvaluateSilhouette.Parameterizer.NOISE_ID, NoiseHandling.class, NoiseHandling.TREAT_NOISE_AS_SINGLETONS);
+      if(config.grab(noiseP)) {
+        noiseOption = noiseP.getValue();
+      }
+
+      if(noiseOption == NoiseHandling.IGNORE_NOISE) {
+        Flag penalizeP = new Flag(EvaluateSilhouette.Parameterizer.NO_PENALIZE_ID);
+        if(config.grab(penalizeP)) {
+          penalize = penalizeP.isFalse();
+        }
+      }
+
+      IntParameter sampleP = new IntParameter(SAMPLE_ID, 0) //
+          .addConstraint(CommonConstraints.GREATER_EQUAL_ZERO_INT);
+      if(config.grab(sampleP)) {
+        samplesize = sampleP.intValue();
+      }
+
+      if(samplesize > 0) {
+        RandomParameter rndP = new RandomParameter(SEED_ID);
+        if(config.grab(rndP)) {
+          rnd = rndP.getValue();
+        }
+      }
+    }
+
+    @Override
+    protected ParallelEvaluateSilhouette<O> makeInstance() {
+      return new ParallelEvaluateSilhouette<>(distance, noiseOption, penalize, samplesize, rnd != null ? rnd : RandomFactory.DEFAULT);
+    }
+  }
+}
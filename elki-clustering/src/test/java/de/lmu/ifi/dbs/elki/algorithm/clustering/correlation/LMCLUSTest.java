@@ -55,8 +55,8 @@ public class LMCLUSTest extends AbstractClusterAlgorithmTest {
     testParameterizationOk(params);
 
     Clustering<Model> result = lmclus.run(db);
-    testFMeasure(db, result, 0.49033868);
-    testClusterSizes(result, new int[] { 23, 577 });
+    testFMeasure(db, result, 0.5);
+    testClusterSizes(result, new int[] { 600 });
   }
 
   /**
@@ -77,7 +77,7 @@ public class LMCLUSTest extends AbstractClusterAlgorithmTest {
     testParameterizationOk(params);
 
     Clustering<Model> result = lmclus.run(db);
-    testClusterSizes(result, new int[] { 200, 201, 249 });
-    testFMeasure(db, result, 0.921865);
+    testClusterSizes(result, new int[] { 200, 202, 248 });
+    testFMeasure(db, result, 0.919217);
   }
 }
\ No newline at end of file
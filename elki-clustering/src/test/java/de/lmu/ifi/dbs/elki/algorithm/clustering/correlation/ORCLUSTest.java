@@ -64,8 +64,8 @@ public class ORCLUSTest extends AbstractClusterAlgorithmTest {
     // run ORCLUS on database
     Clustering<Model> result = orclus.run(db);
 
-    testFMeasure(db, result, 0.61389521);
-    testClusterSizes(result, new int[] { 20, 32, 398 });
+    testFMeasure(db, result, 0.64131);
+    testClusterSizes(result, new int[] { 19, 26, 405 });
   }
 
   /**
@@ -0,0 +1,201 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.clustering.em;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.algorithm.clustering.AbstractClusterAlgorithmTest;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.kmeans.KMeans;
+import de.lmu.ifi.dbs.elki.data.Clustering;
+import de.lmu.ifi.dbs.elki.data.DoubleVector;
+import de.lmu.ifi.dbs.elki.data.model.EMModel;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.evaluation.clustering.ClusterContingencyTable;
+import de.lmu.ifi.dbs.elki.math.linearalgebra.CovarianceMatrix;
+import de.lmu.ifi.dbs.elki.parallel.ParallelCore;
+import de.lmu.ifi.dbs.elki.utilities.ClassGenericsUtil;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.ListParameterization;
+
+/**
+ * Performs a full parallel EM run, and compares the result with the same
+ * golden standard as {@link EMTest}.
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ */
+public class ParallelEMTest extends AbstractClusterAlgorithmTest {
+  /**
+   * Run EM with fixed parameters and compare the result to a golden standard.
+   */
+  @Test
+  public void testEMResults() {
+    Database db = makeSimpleDatabase(UNITTEST + "hierarchical-2d.ascii", 710);
+
+    // Setup algorithm
+    ListParameterization params = new ListParameterization();
+    params.addParameter(KMeans.SEED_ID, 1);
+    params.addParameter(EM.Parameterizer.K_ID, 6);
+    ParallelEM<DoubleVector, ?> em = ClassGenericsUtil.parameterizeOrAbort(ParallelEM.class, params);
+    testParameterizationOk(params);
+
+    // run EM on database
+    Clustering<?> result = em.run(db);
+    testFMeasure(db, result, 0.967410);
+    testClusterSizes(result, new int[] { 3, 5, 91, 98, 200, 313 });
+  }
+
+  /**
+   * Run EM with fixed parameters and compare the result to a golden standard.
+   */
+  @Test
+  public void testEMResultsDiagonal() {
+    Database db = makeSimpleDatabase(UNITTEST + "hierarchical-2d.ascii", 710);
+
+    // Setup algorithm
+    ListParameterization params = new ListParameterization();
+    params.addParameter(KMeans.SEED_ID, 0);
+    params.addParameter(EM.Parameterizer.K_ID, 5);
+    params.addParameter(EM.Parameterizer.INIT_ID, DiagonalGaussianModelFactory.class);
+    ParallelEM<DoubleVector, ?> em = ClassGenericsUtil.parameterizeOrAbort(ParallelEM.class, params);
+    testParameterizationOk(params);
+
+    // run EM on database
+    Clustering<?> result = em.run(db);
+    testFMeasure(db, result, 0.9681384);
+    testClusterSizes(result, new int[] { 7, 91, 99, 200, 313 });
+  }
+
+  /**
+   * Run EM with fixed parameters and compare the result to a golden standard.
+   */
+  @Test
+  public void testEMResultsSpherical() {
+    Database db = makeSimpleDatabase(UNITTEST + "hierarchical-2d.ascii", 710);
+
+    // Setup algorithm
+    ListParameterization params = new ListParameterization();
+    params.addParameter(KMeans.SEED_ID, 1);
+    params.addParameter(EM.Parameterizer.K_ID, 4);
+    params.addParameter(EM.Parameterizer.INIT_ID, SphericalGaussianModelFactory.class);
+    ParallelEM<DoubleVector, ?> em = ClassGenericsUtil.parameterizeOrAbort(ParallelEM.class, params);
+    testParameterizationOk(params);
+
+    // run EM on database
+    Clustering<?> result = em.run(db);
+    testFMeasure(db, result, 0.812082);
+    testClusterSizes(result, new int[] { 87, 143, 163, 317 });
+  }
+
+  /**
+   * Run EM on a larger data set, split into several partitions, and compare
+   * the result to the sequential version.
+   */
+  @Test
+  public void testEMPartitioned() {
+    Database db = makeSimpleDatabase(UNITTEST + "axis-parallel-subspace-clusters-6d.csv.gz", 2500);
+
+    // Setup algorithm
+    ListParameterization params = new ListParameterization();
+    params.addParameter(KMeans.SEED_ID, 1);
+    params.addParameter(EM.Parameterizer.K_ID, 5);
+    EM<DoubleVector, ?> em = ClassGenericsUtil.parameterizeOrAbort(EM.class, params);
+    testParameterizationOk(params);
+    Clustering<?> expected = em.run(db);
+
+    params = new ListParameterization();
+    params.addParameter(KMeans.SEED_ID, 1);
+    params.addParameter(EM.Parameterizer.K_ID, 5);
+    ParallelEM<DoubleVector, ?> pem = ClassGenericsUtil.parameterizeOrAbort(ParallelEM.class, params);
+    testParameterizationOk(params);
+
+    // Use several threads, even on single-core machines.
+    final ParallelCore core = ParallelCore.getCore();
+    final int prev = core.getParallelism();
+    Clustering<?> result;
+    try {
+      core.setParallelism(4);
+      result = pem.run(db);
+    }
+    finally {
+      core.setParallelism(prev);
+    }
+    ClusterContingencyTable ct = new ClusterContingencyTable(true, false);
+    ct.process(expected, result);
+    assertEquals("Result differs from the sequential version.", 1., ct.getPaircount().f1Measure(), 0.);
+  }
+
+  /**
+   * Test merging aggregated statistics into the models.
+   */
+  @Test
+  public void testUpdateEStatistics() {
+    final int dim = 3;
+    checkUpdateE(new MultivariateGaussianModel(1., new double[dim]), new MultivariateGaussianModel(1., new double[dim]));
+    checkUpdateE(new DiagonalGaussianModel(1., new double[dim]), new DiagonalGaussianModel(1., new double[dim]));
+    checkUpdateE(new SphericalGaussianModel(1., new double[dim]), new SphericalGaussianModel(1., new double[dim]));
+  }
+
+  /**
+   * Update one model with single vectors, the other with half of the vectors
+   * aggregated, and compare the results.
+   *
+   * @param expected Model updated with single vectors
+   * @param actual Model updated with aggregated statistics
+   */
+  private static void checkUpdateE(EMClusterModel<EMModel> expected, EMClusterModel<EMModel> actual) {
+    final int dim = 3, size = 100;
+    Random rnd = new Random(0L);
+    expected.beginEStep();
+    actual.beginEStep();
+    CovarianceMatrix stats = new CovarianceMatrix(dim);
+    for(int i = 0; i < size; i++) {
+      double[] v = new double[dim];
+      for(int d = 0; d < dim; d++) {
+        v[d] = rnd.nextGaussian() * (d + 1) + d;
+      }
+      v[2] += v[0]; // Correlated attribute
+      final double w = rnd.nextDouble();
+      expected.updateE(DoubleVector.wrap(v), w);
+      if(i < size / 2) {
+        actual.updateE(DoubleVector.wrap(v), w);
+      }
+      else {
+        stats.put(v, w);
+      }
+    }
+    actual.updateE(stats);
+    expected.finalizeEStep();
+    actual.finalizeEStep();
+    EMModel emodel = expected.finalizeCluster(), amodel = actual.finalizeCluster();
+    double[] emean = emodel.getMean(), amean = amodel.getMean();
+    double[][] ecov = emodel.getCovarianceMatrix(), acov = amodel.getCovarianceMatrix();
+    for(int i = 0; i < dim; i++) {
+      assertEquals("Mean differs.", emean[i], amean[i], 1e-12);
+      for(int j = 0; j < dim; j++) {
+        assertEquals("Covariance differs.", ecov[i][j], acov[i][j], 1e-12);
+      }
+    }
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.clustering.hierarchical;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.algorithm.AbstractSimpleAlgorithmTest;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.StaticArrayDatabase;
+import de.lmu.ifi.dbs.elki.database.datastore.DoubleDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.rstar.RStarTreeFactory;
+import de.lmu.ifi.dbs.elki.persistent.AbstractPageFileFactory;
+import de.lmu.ifi.dbs.elki.utilities.ClassGenericsUtil;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.ListParameterization;
+
+/**
+ * Test the minimum spanning tree of Boruvka HDBSCAN against the linear memory
+ * HDBSCAN implementation.
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ */
+public class BoruvkaHDBSCANTest extends AbstractSimpleAlgorithmTest {
+  @Test
+  public void testBoruvkaMST() {
+    Database db = makeSimpleDatabase(UNITTEST + "different-densities-2d.ascii", 1200);
+    assertArrayEquals(mstWeights(db, HDBSCANLinearMemory.class, 5), mstWeights(db, BoruvkaHDBSCAN.class, 5), 1e-15);
+  }
+
+  @Test
+  public void testBoruvkaMSTIndexed() {
+    ListParameterization indexparams = new ListParameterization();
+    indexparams.addParameter(StaticArrayDatabase.Parameterizer.INDEX_ID, RStarTreeFactory.class);
+    indexparams.addParameter(AbstractPageFileFactory.Parameterizer.PAGE_SIZE_ID, 1000);
+    Database db = makeSimpleDatabase(UNITTEST + "different-densities-2d.ascii", 1200, indexparams, null);
+    assertArrayEquals(mstWeights(db, HDBSCANLinearMemory.class, 5), mstWeights(db, BoruvkaHDBSCAN.class, 5), 1e-15);
+  }
+
+  @Test
+  public void testMinPtsLargerThanData() {
+    Database db = makeSimpleDatabase(UNITTEST + "different-densities-2d.ascii", 1200);
+    double[] inf = new double[1200];
+    Arrays.fill(inf, Double.POSITIVE_INFINITY);
+    assertArrayEquals(inf, mstWeights(db, SLINKHDBSCANLinearMemory.class, 1500), 0.);
+    assertArrayEquals(inf, mstWeights(db, BoruvkaHDBSCAN.class, 1500), 0.);
+  }
+
+  /**
+   * Run an HDBSCAN variant, and get the sorted edge weights of its minimum
+   * spanning tree.
+   *
+   * @param db Database
+   * @param cls Algorithm class
+   * @param minpts MinPts parameter
+   * @return Sorted edge weights
+   */
+  private static double[] mstWeights(Database db, Class<?> cls, int minpts) {
+    ListParameterization params = new ListParameterization();
+    params.addParameter(AbstractHDBSCAN.Parameterizer.MIN_PTS_ID, minpts);
+    AbstractHDBSCAN<?, ?> hdbscan = ClassGenericsUtil.parameterizeOrAbort(cls, params);
+    testParameterizationOk(params);
+    PointerHierarchyRepresentationResult result = (PointerHierarchyRepresentationResult) hdbscan.run(db);
+    DoubleDataStore lambda = result.getParentDistanceStore();
+    double[] weights = new double[result.getDBIDs().size()];
+    int i = 0;
+    for(DBIDIter it = result.getDBIDs().iter(); it.valid(); it.advance()) {
+      weights[i++] = lambda.doubleValue(it);
+    }
+    Arrays.sort(weights);
+    return weights;
+  }
+}
@@ -24,9 +24,14 @@ import org.junit.Test;
 
 import de.lmu.ifi.dbs.elki.algorithm.AbstractAlgorithm;
 import de.lmu.ifi.dbs.elki.algorithm.clustering.AbstractClusterAlgorithmTest;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.hierarchical.AbstractHDBSCAN;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.hierarchical.BoruvkaHDBSCAN;
 import de.lmu.ifi.dbs.elki.algorithm.clustering.hierarchical.SLINK;
 import de.lmu.ifi.dbs.elki.data.Clustering;
 import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.StaticArrayDatabase;
+import de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.rstar.RStarTreeFactory;
+import de.lmu.ifi.dbs.elki.persistent.AbstractPageFileFactory;
 import de.lmu.ifi.dbs.elki.result.Result;
 import de.lmu.ifi.dbs.elki.utilities.ClassGenericsUtil;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.ListParameterization;
@@ -54,4 +59,42 @@ public class HDBSCANHierarchyExtractionTest extends AbstractClusterAlgorithmTest
     testFMeasure(db, clustering, 0.9407684);
     testClusterSizes(clustering, new int[] { 8, 62, 104, 156 });
   }
+
+  @Test
+  public void testBoruvkaHDBSCANResults() {
+    testHDBSCAN(BoruvkaHDBSCAN.class, null);
+  }
+
+  @Test
+  public void testBoruvkaHDBSCANIndexed() {
+    ListParameterization indexparams = new ListParameterization();
+    indexparams.addParameter(StaticArrayDatabase.Parameterizer.INDEX_ID, RStarTreeFactory.class);
+    indexparams.addParameter(AbstractPageFileFactory.Parameterizer.PAGE_SIZE_ID, 300);
+    testHDBSCAN(BoruvkaHDBSCAN.class, indexparams);
+  }
+
+  /**
+   * Run HDBSCAN with fixed parameters and compare the result to a golden
+   * standard.
+   *
+   * @param algorithm HDBSCAN algorithm class
+   * @param indexparams Index parameters, may be {@code null}
+   */
+  private void testHDBSCAN(Class<?> algorithm, ListParameterization indexparams) {
+    Database db = makeSimpleDatabase(UNITTEST + "3clusters-and-noise-2d.csv", 330, indexparams, null);
+
+    // Setup algorithm
+    ListParameterization params = new ListParameterization();
+    params.addParameter(HDBSCANHierarchyExtraction.Parameterizer.MINCLUSTERSIZE_ID, 50);
+    params.addParameter(AbstractHDBSCAN.Parameterizer.MIN_PTS_ID, 20);
+    params.addParameter(AbstractAlgorithm.ALGORITHM_ID, algorithm);
+    HDBSCANHierarchyExtraction hdbscan = ClassGenericsUtil.parameterizeOrAbort(HDBSCANHierarchyExtraction.class, params);
+    testParameterizationOk(params);
+
+    // run HDBSCAN on database
+    Result result = hdbscan.run(db);
+    Clustering<?> clustering = findSingleClustering(result);
+    testFMeasure(db, clustering, 0.97218034);
+    testClusterSizes(clustering, new int[] { 21, 54, 103, 152 });
+  }
 }
@@ -64,4 +64,27 @@ public class OPTICSHeapTest extends AbstractClusterAlgorithmTest {
     testFMeasure(db, clustering, 0.8819664);
     testClusterSizes(clustering, new int[] { 108, 120, 209, 273 });
   }
-}
\ No newline at end of file
+
+  /**
+   * Run OPTICS with precomputed neighborhoods, which must give the same result.
+   */
+  @Test
+  public void testOPTICSPrecomputed() {
+    Database db = makeSimpleDatabase(UNITTEST + "hierarchical-2d.ascii", 710);
+
+    // Setup algorithm
+    ListParameterization params = new ListParameterization();
+    params.addParameter(OPTICSHeap.Parameterizer.MINPTS_ID, 18);
+    params.addFlag(OPTICSHeap.Parameterizer.PRECOMPUTE_ID);
+    params.addParameter(OPTICSXi.Parameterizer.XI_ID, 0.038);
+    params.addParameter(OPTICSXi.Parameterizer.XIALG_ID, OPTICSHeap.class);
+    OPTICSXi opticsxi = ClassGenericsUtil.parameterizeOrAbort(OPTICSXi.class, params);
+    testParameterizationOk(params);
+
+    // run OPTICS on database
+    Clustering<?> clustering = opticsxi.run(db);
+
+    testFMeasure(db, clustering, 0.8819664);
+    testClusterSizes(clustering, new int[] { 108, 120, 209, 273 });
+  }
+}
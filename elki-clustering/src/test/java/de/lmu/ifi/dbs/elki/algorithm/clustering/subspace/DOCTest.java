@@ -81,7 +81,7 @@ public class DOCTest extends AbstractClusterAlgorithmTest {
 
     // run DOC on database
     Clustering<?> result = doc.run(db);
-    testFMeasure(db, result, .531750);
-    testClusterSizes(result, new int[] { 1, 7, 14, 15, 20, 21, 22, 22, 27, 28, 30, 310, 333 });
+    testFMeasure(db, result, 0.476269);
+    testClusterSizes(result, new int[] { 3, 10, 10, 14, 21, 21, 22, 34, 57, 72, 253, 333 });
   }
 }
\ No newline at end of file
@@ -65,8 +65,8 @@ public class PROCLUSTest extends AbstractClusterAlgorithmTest {
     // run PROCLUS on database
     Clustering<?> result = proclus.run(db);
 
-    testFMeasure(db, result, 0.871024);
-    testClusterSizes(result, new int[] { 19, 45, 201, 335 });
+    testFMeasure(db, result, 0.691279);
+    testClusterSizes(result, new int[] { 65, 116, 200, 219 });
   }
 
   /**
@@ -90,7 +90,7 @@ public class PROCLUSTest extends AbstractClusterAlgorithmTest {
 
     // run PROCLUS on database
     Clustering<?> result = proclus.run(db);
-    testFMeasure(db, result, 0.9526877);
-    testClusterSizes(result, new int[] { 150, 291, 409 });
+    testFMeasure(db, result, 0.797307);
+    testClusterSizes(result, new int[] { 190, 221, 439 });
   }
 }
\ No newline at end of file
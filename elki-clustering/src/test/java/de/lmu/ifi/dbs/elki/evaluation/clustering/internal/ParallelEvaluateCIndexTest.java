@@ -0,0 +1,99 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.evaluation.clustering.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.algorithm.AbstractSimpleAlgorithmTest;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.trivial.ByLabelClustering;
+import de.lmu.ifi.dbs.elki.data.Clustering;
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
+import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.EuclideanDistanceFunction;
+import de.lmu.ifi.dbs.elki.utilities.random.RandomFactory;
+
+/**
+ * Validate the parallel C-index against a brute-force computation.
+ *
+ * @author Erich Schubert
+ */
+public class ParallelEvaluateCIndexTest extends AbstractSimpleAlgorithmTest {
+  @Test
+  public void testCIndex() {
+    Database db = makeSimpleDatabase(UNITTEST + "3clusters-and-noise-2d.csv", 330);
+    Relation<NumberVector> rel = db.getRelation(TypeUtil.NUMBER_VECTOR_FIELD);
+    DistanceQuery<NumberVector> dq = db.getDistanceQuery(rel, EuclideanDistanceFunction.STATIC);
+    Clustering<?> c = new ByLabelClustering(false, Pattern.compile("Noise")).run(db);
+
+    for(NoiseHandling noise : NoiseHandling.values()) {
+      double expected = bruteForce(FlatClustering.build(c.getAllClusters(), noise), dq);
+      // Exact, with refinement:
+      ParallelEvaluateCIndex<NumberVector> exact = new ParallelEvaluateCIndex<>(EuclideanDistanceFunction.STATIC, noise, 1000, 1 << 20, 0, 1, RandomFactory.DEFAULT);
+      assertEquals("C-index does not match for " + noise, expected, exact.evaluateClustering(db, rel, dq, c), 1e-10);
+      // Histogram only, with bounds:
+      ParallelEvaluateCIndex<NumberVector> approx = new ParallelEvaluateCIndex<>(EuclideanDistanceFunction.STATIC, noise, 1000, 0, 0, 1, RandomFactory.DEFAULT);
+      FlatClustering flat = FlatClustering.build(c.getAllClusters(), noise);
+      double[] res = approx.computeCIndex(flat, dq);
+      assertTrue("Lower bound violated for " + noise, res[1] <= expected + 1e-10);
+      assertTrue("Upper bound violated for " + noise, res[2] >= expected - 1e-10);
+      assertEquals("Estimate too far off for " + noise, expected, res[0], 1e-3);
+    }
+  }
+
+  /**
+   * Compute the C-index by sorting all pairwise distances.
+   *
+   * @param flat Flat clustering
+   * @param dq Distance query
+   * @return C-index
+   */
+  private static double bruteForce(FlatClustering flat, DistanceQuery<?> dq) {
+    final int n = flat.ids.size();
+    double[] all = new double[(n * (n - 1)) >>> 1];
+    double theta = 0.;
+    int p = 0;
+    for(DBIDArrayIter it1 = flat.ids.iter(); it1.valid(); it1.advance()) {
+      for(DBIDArrayIter it2 = flat.ids.iter().seek(it1.getOffset() + 1); it2.valid(); it2.advance()) {
+        final double d = all[p++] = dq.distance(it1, it2);
+        final int c1 = flat.assignment[it1.getOffset()];
+        theta += c1 >= 0 && c1 == flat.assignment[it2.getOffset()] ? d : 0.;
+      }
+    }
+    Arrays.sort(all);
+    final int w = (int) flat.withinPairs();
+    double min = 0., max = 0.;
+    for(int i = 0; i < w; i++) {
+      min += all[i];
+      max += all[all.length - 1 - i];
+    }
+    return (theta - min) / (max - min);
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.evaluation.clustering.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.algorithm.AbstractSimpleAlgorithmTest;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.trivial.ByLabelClustering;
+import de.lmu.ifi.dbs.elki.data.Clustering;
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.EuclideanDistanceFunction;
+import de.lmu.ifi.dbs.elki.utilities.random.RandomFactory;
+
+/**
+ * Validate the parallel concordant pairs measures against
+ * {@link EvaluateConcordantPairs}.
+ *
+ * @author Erich Schubert
+ */
+public class ParallelEvaluateConcordantPairsTest extends AbstractSimpleAlgorithmTest {
+  @Test
+  public void testGamma() {
+    Database db = makeSimpleDatabase(UNITTEST + "3clusters-and-noise-2d.csv", 330);
+    Relation<NumberVector> rel = db.getRelation(TypeUtil.NUMBER_VECTOR_FIELD);
+    DistanceQuery<NumberVector> dq = db.getDistanceQuery(rel, EuclideanDistanceFunction.STATIC);
+    Clustering<?> c = new ByLabelClustering(false, Pattern.compile("Noise")).run(db);
+
+    // Singleton noise is handled differently, see class documentation.
+    for(NoiseHandling noise : new NoiseHandling[] { NoiseHandling.MERGE_NOISE, NoiseHandling.IGNORE_NOISE }) {
+      double expected = new EvaluateConcordantPairs<NumberVector>(EuclideanDistanceFunction.STATIC, noise).evaluateClustering(db, rel, c);
+      ParallelEvaluateConcordantPairs<NumberVector> par = new ParallelEvaluateConcordantPairs<>(EuclideanDistanceFunction.STATIC, noise, 1 << 16, 0, 1, RandomFactory.DEFAULT);
+      double[] res = par.computeConcordance(FlatClustering.build(c.getAllClusters(), noise), dq);
+      assertTrue("Lower bound violated for " + noise, res[1] <= expected + 1e-10);
+      assertTrue("Upper bound violated for " + noise, res[2] >= expected - 1e-10);
+      assertEquals("Gamma too far off for " + noise, expected, res[0], 1e-4);
+      assertEquals("Gamma too far off for " + noise, expected, par.evaluateClustering(db, rel, dq, c), 1e-4);
+    }
+  }
+}
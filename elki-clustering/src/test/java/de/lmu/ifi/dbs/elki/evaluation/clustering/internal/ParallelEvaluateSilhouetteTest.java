@@ -0,0 +1,72 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.evaluation.clustering.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.algorithm.AbstractSimpleAlgorithmTest;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.trivial.ByLabelClustering;
+import de.lmu.ifi.dbs.elki.data.Clustering;
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.EuclideanDistanceFunction;
+import de.lmu.ifi.dbs.elki.utilities.random.RandomFactory;
+
+/**
+ * Validate the parallel silhouette against {@link EvaluateSilhouette}.
+ *
+ * @author Erich Schubert
+ */
+public class ParallelEvaluateSilhouetteTest extends AbstractSimpleAlgorithmTest {
+  @Test
+  public void testSilhouette() {
+    Database db = makeSimpleDatabase(UNITTEST + "3clusters-and-noise-2d.csv", 330);
+    Relation<NumberVector> rel = db.getRelation(TypeUtil.NUMBER_VECTOR_FIELD);
+    DistanceQuery<NumberVector> dq = db.getDistanceQuery(rel, EuclideanDistanceFunction.STATIC);
+    Clustering<?> c = new ByLabelClustering(false, Pattern.compile("Noise")).run(db);
+
+    for(NoiseHandling noise : NoiseHandling.values()) {
+      double expected = new EvaluateSilhouette<NumberVector>(EuclideanDistanceFunction.STATIC, noise, true).evaluateClustering(db, rel, dq, c);
+      double silhouette = new ParallelEvaluateSilhouette<NumberVector>(EuclideanDistanceFunction.STATIC, noise, true, 0, RandomFactory.DEFAULT).evaluateClustering(db, rel, dq, c);
+      assertEquals("Silhouette does not match for " + noise, expected, silhouette, 1e-10);
+    }
+  }
+
+  @Test
+  public void testSampling() {
+    Database db = makeSimpleDatabase(UNITTEST + "3clusters-and-noise-2d.csv", 330);
+    Relation<NumberVector> rel = db.getRelation(TypeUtil.NUMBER_VECTOR_FIELD);
+    DistanceQuery<NumberVector> dq = db.getDistanceQuery(rel, EuclideanDistanceFunction.STATIC);
+    Clustering<?> c = new ByLabelClustering(false, Pattern.compile("Noise")).run(db);
+
+    double expected = new EvaluateSilhouette<NumberVector>(EuclideanDistanceFunction.STATIC, NoiseHandling.MERGE_NOISE, true).evaluateClustering(db, rel, dq, c);
+    double sampled = new ParallelEvaluateSilhouette<NumberVector>(EuclideanDistanceFunction.STATIC, NoiseHandling.MERGE_NOISE, true, 100, new RandomFactory(0L)).evaluateClustering(db, rel, dq, c);
+    assertTrue("Sampled silhouette too far off: " + sampled + " vs. " + expected, Math.abs(sampled - expected) < 0.1);
+  }
+}
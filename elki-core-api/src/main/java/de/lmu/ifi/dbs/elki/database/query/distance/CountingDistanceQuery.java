@@ -0,0 +1,144 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.database.query.distance;
+
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.DistanceFunction;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.logging.statistics.Counter;
+
+/**
+ * Wrapper around a distance query that counts the number of distance
+ * computations.
+ * 
+ * Do not wrap distance queries that are passed to the query optimizer, as the
+ * wrapper hides the type of the inner query (and thus prevents index
+ * acceleration). Use {@link #wrap} to wrap only when statistics are enabled.
+ * 
+ * @author Erich Schubert
+ * @since 0.7.2
+ * 
+ * @apiviz.composedOf DistanceQuery
+ * @apiviz.has Counter
+ * 
+ * @param <O> Object type
+ */
+public class CountingDistanceQuery<O> implements DistanceQuery<O> {
+  /**
+   * Inner distance query.
+   */
+  protected final DistanceQuery<O> inner;
+
+  /**
+   * Counter for distance computations.
+   */
+  protected final Counter counter;
+
+  /**
+   * Constructor.
+   * 
+   * @param inner Inner distance query
+   * @param counter Counter for distance computations
+   */
+  public CountingDistanceQuery(DistanceQuery<O> inner, Counter counter) {
+    super();
+    this.inner = inner;
+    this.counter = counter;
+  }
+
+  @Override
+  public double distance(DBIDRef id1, DBIDRef id2) {
+    counter.increment();
+    return inner.distance(id1, id2);
+  }
+
+  @Override
+  public double distance(O o1, DBIDRef id2) {
+    counter.increment();
+    return inner.distance(o1, id2);
+  }
+
+  @Override
+  public double distance(DBIDRef id1, O o2) {
+    counter.increment();
+    return inner.distance(id1, o2);
+  }
+
+  @Override
+  public double distance(O o1, O o2) {
+    counter.increment();
+    return inner.distance(o1, o2);
+  }
+
+  @Override
+  public DistanceFunction<? super O> getDistanceFunction() {
+    return inner.getDistanceFunction();
+  }
+
+  @Override
+  public Relation<? extends O> getRelation() {
+    return inner.getRelation();
+  }
+
+  /**
+   * Get the inner (uncounted) distance query.
+   * 
+   * @return Inner query
+   */
+  public DistanceQuery<O> getInner() {
+    return inner;
+  }
+
+  /**
+   * Get the distance computation counter.
+   * 
+   * @return Counter
+   */
+  public Counter getCounter() {
+    return counter;
+  }
+
+  /**
+   * Wrap a distance query for counting, if statistics logging is enabled.
+   * 
+   * @param inner Distance query
+   * @param log Logger
+   * @param key Statistics key
+   * @param <O> Object type
+   * @return Counting distance query, or the original query
+   */
+  public static <O> DistanceQuery<O> wrap(DistanceQuery<O> inner, Logging log, String key) {
+    return log.isStatistics() ? new CountingDistanceQuery<>(inner, log.newCounter(key)) : inner;
+  }
+
+  /**
+   * Log the number of distance computations, if the query is counting.
+   * 
+   * @param distq Distance query
+   * @param log Logger
+   */
+  public static void logStatistics(DistanceQuery<?> distq, Logging log) {
+    if(distq instanceof CountingDistanceQuery) {
+      log.statistics(((CountingDistanceQuery<?>) distq).getCounter());
+    }
+  }
+}
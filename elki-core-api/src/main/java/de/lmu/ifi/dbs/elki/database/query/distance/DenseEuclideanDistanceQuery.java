@@ -0,0 +1,70 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.database.query.distance;
+
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.relation.DenseVectorRelation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.SpatialPrimitiveDistanceFunction;
+import net.jafama.FastMath;
+
+/**
+ * Distance query for (squared) Euclidean distance on a
+ * {@link DenseVectorRelation}, which computes distances of database objects
+ * directly on the primitive storage.
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ *
+ * @apiviz.uses DenseVectorRelation
+ *
+ * @param <V> Vector type to use
+ */
+public class DenseEuclideanDistanceQuery<V extends NumberVector> extends SpatialPrimitiveDistanceQuery<V> {
+  /**
+   * Dense data relation.
+   */
+  private final DenseVectorRelation<? extends V> dense;
+
+  /**
+   * Return squared distances.
+   */
+  private final boolean squared;
+
+  /**
+   * Constructor.
+   *
+   * @param relation Representation to use
+   * @param distanceFunction Distance function to use
+   * @param squared {@code true} for squared Euclidean distance
+   */
+  public DenseEuclideanDistanceQuery(DenseVectorRelation<? extends V> relation, SpatialPrimitiveDistanceFunction<? super V> distanceFunction, boolean squared) {
+    super(relation, distanceFunction);
+    this.dense = relation;
+    this.squared = squared;
+  }
+
+  @Override
+  public double distance(DBIDRef id1, DBIDRef id2) {
+    final double sqdist = dense.squaredDistance(id1, id2);
+    return squared ? sqdist : FastMath.sqrt(sqdist);
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.database.relation;
+
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+
+/**
+ * Relation of dense vectors of fixed dimensionality, stored in primitive
+ * arrays rather than as individual vector objects.
+ *
+ * Hot loops (e.g. linear scans) can use the accessors of this interface to
+ * avoid materializing a vector object per access.
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ *
+ * @param <O> Vector type
+ */
+public interface DenseVectorRelation<O extends NumberVector> extends Relation<O> {
+  /**
+   * Get the dimensionality of all vectors.
+   *
+   * @return Dimensionality
+   */
+  int getDimensionality();
+
+  /**
+   * Get a single value.
+   *
+   * @param id Object ID
+   * @param d Dimension
+   * @return Value
+   */
+  double doubleValue(DBIDRef id, int d);
+
+  /**
+   * Copy the values of an object into a buffer.
+   *
+   * @param id Object ID
+   * @param buf Output buffer
+   * @param off Offset in output buffer
+   */
+  void copyRow(DBIDRef id, double[] buf, int off);
+
+  /**
+   * Squared Euclidean distance of two objects.
+   *
+   * @param id1 First object ID
+   * @param id2 Second object ID
+   * @return Squared Euclidean distance
+   */
+  double squaredDistance(DBIDRef id1, DBIDRef id2);
+
+  /**
+   * Squared Euclidean distance of an object to a query vector.
+   *
+   * @param id Object ID
+   * @param vec Query vector, of length {@link #getDimensionality()}
+   * @return Squared Euclidean distance
+   */
+  double squaredDistance(DBIDRef id, double[] vec);
+}
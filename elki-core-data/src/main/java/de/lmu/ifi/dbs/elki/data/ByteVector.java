@@ -53,8 +53,10 @@ public class ByteVector extends AbstractNumberVector {
 
   /**
    * Keeps the values of the real vector.
+   *
+   * Package-private for {@link VectorKernels}.
    */
-  private final byte[] values;
+  final byte[] values;
 
   /**
    * Private constructor. NOT for public use.
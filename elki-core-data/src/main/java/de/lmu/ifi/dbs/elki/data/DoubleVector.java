@@ -22,6 +22,7 @@ package de.lmu.ifi.dbs.elki.data;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 import de.lmu.ifi.dbs.elki.utilities.datastructures.arraylike.ArrayAdapter;
 import de.lmu.ifi.dbs.elki.utilities.datastructures.arraylike.DoubleArray;
@@ -61,8 +62,16 @@ public class DoubleVector extends AbstractNumberVector {
 
   /**
    * Stores the values of the real vector.
+   *
+   * Package-private for {@link VectorKernels}.
    */
-  private final double[] values;
+  final double[] values;
+
+  /**
+   * Offset of the first value, and dimensionality. Usually, the vector uses
+   * the entire array, but it may also be a view on a row of a larger array.
+   */
+  final int offset, dim;
 
   /**
    * Private constructor. NOT for public use.
@@ -71,7 +80,20 @@ public class DoubleVector extends AbstractNumberVector {
    * @param nocopy Flag to not copy the array
    */
   private DoubleVector(double[] values, boolean nocopy) {
-    this.values = nocopy ? values : values.clone();
+    this(nocopy ? values : values.clone(), 0, values.length);
+  }
+
+  /**
+   * Private constructor for views. NOT for public use.
+   *
+   * @param values Values to use (not copied)
+   * @param offset Offset of the first value
+   * @param dim Dimensionality
+   */
+  private DoubleVector(double[] values, int offset, int dim) {
+    this.values = values;
+    this.offset = offset;
+    this.dim = dim;
   }
 
   /**
@@ -80,35 +102,35 @@ public class DoubleVector extends AbstractNumberVector {
    * @param values the values to be set as values of the DoubleVector
    */
   public DoubleVector(double[] values) {
-    this.values = values.clone();
+    this(values.clone(), 0, values.length);
   }
 
   @Override
   public int getDimensionality() {
-    return values.length;
+    return dim;
   }
 
   @Override
   public double doubleValue(int dimension) {
-    return values[dimension];
+    return values[offset + dimension];
   }
 
   @Override
   public long longValue(int dimension) {
-    return (long) values[dimension];
+    return (long) values[offset + dimension];
   }
 
   @Override
   public double[] toArray() {
-    return values.clone();
+    return Arrays.copyOfRange(values, offset, offset + dim);
   }
 
   @Override
   public String toString() {
     StringBuilder featureLine = new StringBuilder();
-    for(int i = 0; i < values.length; i++) {
-      featureLine.append(values[i]);
-      if(i + 1 < values.length) {
+    for(int i = 0; i < dim; i++) {
+      featureLine.append(values[offset + i]);
+      if(i + 1 < dim) {
         featureLine.append(ATTRIBUTE_SEPARATOR);
       }
     }
@@ -138,6 +160,23 @@ public class DoubleVector extends AbstractNumberVector {
     return new DoubleVector(vals, true);
   }
 
+  /**
+   * View on a part of an array as vector (without copying), for example on one
+   * row of a larger row-major matrix.
+   * 
+   * Note: modifying the array afterwards can lead to problems if the data has
+   * e.g. been added to an index, which relies on them being immutable!
+   * 
+   * @param vals Values
+   * @param offset Offset of the first value
+   * @param dim Dimensionality
+   * @return Vector view
+   */
+  public static DoubleVector view(double[] vals, int offset, int dim) {
+    assert (offset >= 0 && offset + dim <= vals.length);
+    return new DoubleVector(vals, offset, dim);
+  }
+
   /**
    * Factory for Double vectors.
    *
@@ -222,17 +261,17 @@ public class DoubleVector extends AbstractNumberVector {
 
     @Override
     public void toByteBuffer(ByteBuffer buffer, DoubleVector vec) throws IOException {
-      assert (vec.values.length < Byte.MAX_VALUE) : "This serializer only supports a maximum dimensionality of " + Byte.MAX_VALUE + "!";
-      assert (buffer.remaining() >= ByteArrayUtil.SIZE_DOUBLE * vec.values.length) : "Not enough space remaining in buffer to write " + vec.values.length + " doubles";
-      buffer.put((byte) vec.values.length);
-      for(int i = 0; i < vec.values.length; i++) {
-        buffer.putDouble(vec.values[i]);
+      assert (vec.dim < Byte.MAX_VALUE) : "This serializer only supports a maximum dimensionality of " + Byte.MAX_VALUE + "!";
+      assert (buffer.remaining() >= ByteArrayUtil.SIZE_DOUBLE * vec.dim) : "Not enough space remaining in buffer to write " + vec.dim + " doubles";
+      buffer.put((byte) vec.dim);
+      for(int i = 0; i < vec.dim; i++) {
+        buffer.putDouble(vec.values[vec.offset + i]);
       }
     }
 
     @Override
     public int getByteSize(DoubleVector vec) {
-      assert (vec.values.length < Byte.MAX_VALUE) : "This serializer only supports a maximum dimensionality of " + Byte.MAX_VALUE + "!";
+      assert (vec.dim < Byte.MAX_VALUE) : "This serializer only supports a maximum dimensionality of " + Byte.MAX_VALUE + "!";
       return ByteArrayUtil.SIZE_BYTE + ByteArrayUtil.SIZE_DOUBLE * vec.getDimensionality();
     }
   }
@@ -261,17 +300,17 @@ public class DoubleVector extends AbstractNumberVector {
 
     @Override
     public void toByteBuffer(ByteBuffer buffer, DoubleVector vec) throws IOException {
-      assert (vec.values.length < Short.MAX_VALUE) : "This serializer only supports a maximum dimensionality of " + Short.MAX_VALUE + "!";
-      assert (buffer.remaining() >= ByteArrayUtil.SIZE_DOUBLE * vec.values.length) : "Not enough space remaining in buffer to write " + vec.values.length + " doubles";
-      buffer.putShort((short) vec.values.length);
-      for(int i = 0; i < vec.values.length; i++) {
-        buffer.putDouble(vec.values[i]);
+      assert (vec.dim < Short.MAX_VALUE) : "This serializer only supports a maximum dimensionality of " + Short.MAX_VALUE + "!";
+      assert (buffer.remaining() >= ByteArrayUtil.SIZE_DOUBLE * vec.dim) : "Not enough space remaining in buffer to write " + vec.dim + " doubles";
+      buffer.putShort((short) vec.dim);
+      for(int i = 0; i < vec.dim; i++) {
+        buffer.putDouble(vec.values[vec.offset + i]);
       }
     }
 
     @Override
     public int getByteSize(DoubleVector vec) {
-      assert (vec.values.length < Short.MAX_VALUE) : "This serializer only supports a maximum dimensionality of " + Short.MAX_VALUE + "!";
+      assert (vec.dim < Short.MAX_VALUE) : "This serializer only supports a maximum dimensionality of " + Short.MAX_VALUE + "!";
       return ByteArrayUtil.SIZE_SHORT + ByteArrayUtil.SIZE_DOUBLE * vec.getDimensionality();
     }
   }
@@ -297,16 +336,16 @@ public class DoubleVector extends AbstractNumberVector {
 
     @Override
     public void toByteBuffer(ByteBuffer buffer, DoubleVector vec) throws IOException {
-      assert (buffer.remaining() >= ByteArrayUtil.SIZE_DOUBLE * vec.values.length) : "Not enough space remaining in buffer to write " + vec.values.length + " doubles";
-      ByteArrayUtil.writeUnsignedVarint(buffer, vec.values.length);
-      for(int i = 0; i < vec.values.length; i++) {
-        buffer.putDouble(vec.values[i]);
+      assert (buffer.remaining() >= ByteArrayUtil.SIZE_DOUBLE * vec.dim) : "Not enough space remaining in buffer to write " + vec.dim + " doubles";
+      ByteArrayUtil.writeUnsignedVarint(buffer, vec.dim);
+      for(int i = 0; i < vec.dim; i++) {
+        buffer.putDouble(vec.values[vec.offset + i]);
       }
     }
 
     @Override
     public int getByteSize(DoubleVector vec) {
-      return ByteArrayUtil.getUnsignedVarintSize(vec.values.length) + ByteArrayUtil.SIZE_DOUBLE * vec.values.length;
+      return ByteArrayUtil.getUnsignedVarintSize(vec.dim) + ByteArrayUtil.SIZE_DOUBLE * vec.dim;
     }
   }
 }
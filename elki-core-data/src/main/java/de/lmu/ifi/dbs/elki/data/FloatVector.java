@@ -59,8 +59,16 @@ public class FloatVector extends AbstractNumberVector {
 
   /**
    * Keeps the values of the float vector.
+   *
+   * Package-private for {@link VectorKernels}.
    */
-  private final float[] values;
+  final float[] values;
+
+  /**
+   * Offset of the first value, and dimensionality. Usually, the vector uses
+   * the entire array, but it may also be a view on a row of a larger array.
+   */
+  final int offset, dim;
 
   /**
    * Private constructor. NOT for public use.
@@ -69,7 +77,20 @@ public class FloatVector extends AbstractNumberVector {
    * @param nocopy Flag to re-use the values array
    */
   private FloatVector(float[] values, boolean nocopy) {
-    this.values = nocopy ? values : values.clone();
+    this(nocopy ? values : values.clone(), 0, values.length);
+  }
+
+  /**
+   * Private constructor for views. NOT for public use.
+   *
+   * @param values Values to use (not copied)
+   * @param offset Offset of the first value
+   * @param dim Dimensionality
+   */
+  private FloatVector(float[] values, int offset, int dim) {
+    this.values = values;
+    this.offset = offset;
+    this.dim = dim;
   }
 
   /**
@@ -78,40 +99,40 @@ public class FloatVector extends AbstractNumberVector {
    * @param values the values to be set as values of the float vector
    */
   public FloatVector(float[] values) {
-    this.values = values.clone();
+    this(values.clone(), 0, values.length);
   }
 
   @Override
   public int getDimensionality() {
-    return values.length;
+    return dim;
   }
 
   @Deprecated
   @Override
   public Float getValue(int dimension) {
-    return values[dimension];
+    return values[offset + dimension];
   }
 
   @Override
   public double doubleValue(int dimension) {
-    return values[dimension];
+    return values[offset + dimension];
   }
 
   @Override
   public float floatValue(int dimension) {
-    return values[dimension];
+    return values[offset + dimension];
   }
 
   @Override
   public long longValue(int dimension) {
-    return (long) values[dimension];
+    return (long) values[offset + dimension];
   }
 
   @Override
   public double[] toArray() {
-    double[] data = new double[values.length];
-    for(int i = 0; i < data.length; i++) {
-      data[i] = values[i];
+    double[] data = new double[dim];
+    for(int i = 0; i < dim; i++) {
+      data[i] = values[offset + i];
     }
     return data;
   }
@@ -119,15 +140,45 @@ public class FloatVector extends AbstractNumberVector {
   @Override
   public String toString() {
     StringBuilder featureLine = new StringBuilder();
-    for(int i = 0; i < values.length; i++) {
-      featureLine.append(values[i]);
-      if(i + 1 < values.length) {
+    for(int i = 0; i < dim; i++) {
+      featureLine.append(values[offset + i]);
+      if(i + 1 < dim) {
         featureLine.append(ATTRIBUTE_SEPARATOR);
       }
     }
     return featureLine.toString();
   }
 
+  /**
+   * Wrap a float array as vector (without copying).
+   * 
+   * Note: modifying the array afterwards can lead to problems if the data has
+   * e.g. been added to an index, which relies on them being immutable!
+   * 
+   * @param vals Values
+   * @return Wrapped vector
+   */
+  public static FloatVector wrap(float[] vals) {
+    return new FloatVector(vals, true);
+  }
+
+  /**
+   * View on a part of an array as vector (without copying), for example on one
+   * row of a larger row-major matrix.
+   * 
+   * Note: modifying the array afterwards can lead to problems if the data has
+   * e.g. been added to an index, which relies on them being immutable!
+   * 
+   * @param vals Values
+   * @param offset Offset of the first value
+   * @param dim Dimensionality
+   * @return Vector view
+   */
+  public static FloatVector view(float[] vals, int offset, int dim) {
+    assert (offset >= 0 && offset + dim <= vals.length);
+    return new FloatVector(vals, offset, dim);
+  }
+
   /**
    * Factory for float vectors.
    * 
@@ -203,17 +254,17 @@ public class FloatVector extends AbstractNumberVector {
 
     @Override
     public void toByteBuffer(ByteBuffer buffer, FloatVector vec) throws IOException {
-      assert (vec.values.length < Byte.MAX_VALUE) : "This serializer only supports a maximum dimensionality of " + Byte.MAX_VALUE + "!";
-      assert (buffer.remaining() >= ByteArrayUtil.SIZE_FLOAT * vec.values.length);
-      buffer.put((byte) vec.values.length);
-      for(int i = 0; i < vec.values.length; i++) {
-        buffer.putFloat(vec.values[i]);
+      assert (vec.dim < Byte.MAX_VALUE) : "This serializer only supports a maximum dimensionality of " + Byte.MAX_VALUE + "!";
+      assert (buffer.remaining() >= ByteArrayUtil.SIZE_FLOAT * vec.dim);
+      buffer.put((byte) vec.dim);
+      for(int i = 0; i < vec.dim; i++) {
+        buffer.putFloat(vec.values[vec.offset + i]);
       }
     }
 
     @Override
     public int getByteSize(FloatVector vec) {
-      assert (vec.values.length < Byte.MAX_VALUE) : "This serializer only supports a maximum dimensionality of " + Byte.MAX_VALUE + "!";
+      assert (vec.dim < Byte.MAX_VALUE) : "This serializer only supports a maximum dimensionality of " + Byte.MAX_VALUE + "!";
       return ByteArrayUtil.SIZE_BYTE + ByteArrayUtil.SIZE_FLOAT * vec.getDimensionality();
     }
   }
@@ -241,17 +292,17 @@ public class FloatVector extends AbstractNumberVector {
 
     @Override
     public void toByteBuffer(ByteBuffer buffer, FloatVector vec) throws IOException {
-      assert (vec.values.length < Short.MAX_VALUE) : "This serializer only supports a maximum dimensionality of " + Short.MAX_VALUE + "!";
-      assert (buffer.remaining() >= ByteArrayUtil.SIZE_FLOAT * vec.values.length);
-      buffer.putShort((short) vec.values.length);
-      for(int i = 0; i < vec.values.length; i++) {
-        buffer.putFloat(vec.values[i]);
+      assert (vec.dim < Short.MAX_VALUE) : "This serializer only supports a maximum dimensionality of " + Short.MAX_VALUE + "!";
+      assert (buffer.remaining() >= ByteArrayUtil.SIZE_FLOAT * vec.dim);
+      buffer.putShort((short) vec.dim);
+      for(int i = 0; i < vec.dim; i++) {
+        buffer.putFloat(vec.values[vec.offset + i]);
       }
     }
 
     @Override
     public int getByteSize(FloatVector vec) {
-      assert (vec.values.length < Short.MAX_VALUE) : "This serializer only supports a maximum dimensionality of " + Short.MAX_VALUE + "!";
+      assert (vec.dim < Short.MAX_VALUE) : "This serializer only supports a maximum dimensionality of " + Short.MAX_VALUE + "!";
       return ByteArrayUtil.SIZE_SHORT + ByteArrayUtil.SIZE_FLOAT * vec.getDimensionality();
     }
   }
@@ -277,18 +328,18 @@ public class FloatVector extends AbstractNumberVector {
 
     @Override
     public void toByteBuffer(ByteBuffer buffer, FloatVector vec) throws IOException {
-      assert (vec.values.length < Short.MAX_VALUE) : "This serializer only supports a maximum dimensionality of " + Short.MAX_VALUE + "!";
-      assert (buffer.remaining() >= ByteArrayUtil.SIZE_FLOAT * vec.values.length);
-      ByteArrayUtil.writeUnsignedVarint(buffer, vec.values.length);
-      for(int i = 0; i < vec.values.length; i++) {
-        buffer.putFloat(vec.values[i]);
+      assert (vec.dim < Short.MAX_VALUE) : "This serializer only supports a maximum dimensionality of " + Short.MAX_VALUE + "!";
+      assert (buffer.remaining() >= ByteArrayUtil.SIZE_FLOAT * vec.dim);
+      ByteArrayUtil.writeUnsignedVarint(buffer, vec.dim);
+      for(int i = 0; i < vec.dim; i++) {
+        buffer.putFloat(vec.values[vec.offset + i]);
       }
     }
 
     @Override
     public int getByteSize(FloatVector vec) {
-      assert (vec.values.length < Short.MAX_VALUE) : "This serializer only supports a maximum dimensionality of " + Short.MAX_VALUE + "!";
-      return ByteArrayUtil.getUnsignedVarintSize(vec.values.length) + ByteArrayUtil.SIZE_FLOAT * vec.values.length;
+      assert (vec.dim < Short.MAX_VALUE) : "This serializer only supports a maximum dimensionality of " + Short.MAX_VALUE + "!";
+      return ByteArrayUtil.getUnsignedVarintSize(vec.dim) + ByteArrayUtil.SIZE_FLOAT * vec.dim;
     }
   }
 }
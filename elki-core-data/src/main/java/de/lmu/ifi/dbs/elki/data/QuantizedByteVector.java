@@ -0,0 +1,348 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import de.lmu.ifi.dbs.elki.utilities.datastructures.arraylike.ArrayAdapter;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.arraylike.NumberArrayAdapter;
+import de.lmu.ifi.dbs.elki.utilities.io.ByteArrayUtil;
+import de.lmu.ifi.dbs.elki.utilities.io.ByteBufferSerializer;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.AbstractParameterizer;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.OptionID;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.constraints.LessGlobalConstraint;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.DoubleParameter;
+
+/**
+ * Vector type using {@code byte[]} storage with a linear quantization, i.e.
+ * value {@code i} is {@code offset + scale * values[i]}.
+ * <p>
+ * This needs about one eighth of the memory of a {@link DoubleVector}, at the
+ * cost of a precision of 256 levels. Vectors sharing the same scale and offset
+ * can be compared using integer arithmetic, see {@link VectorKernels}; the
+ * {@link Factory} therefore quantizes all vectors of a data set with the same
+ * value range.
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ */
+public class QuantizedByteVector extends AbstractNumberVector {
+  /**
+   * Static instance (object factory), storing the rounded values without
+   * scaling.
+   */
+  public static final QuantizedByteVector.Factory STATIC = new QuantizedByteVector.Factory(Byte.MIN_VALUE, Byte.MAX_VALUE);
+
+  /**
+   * Serializer using varint encoding for the dimensionality.
+   */
+  public static final ByteBufferSerializer<QuantizedByteVector> VARIABLE_SERIALIZER = new VariableSerializer();
+
+  /**
+   * Quantized values.
+   *
+   * Package-private for {@link VectorKernels}.
+   */
+  final byte[] values;
+
+  /**
+   * Scale of the quantization.
+   */
+  final double scale;
+
+  /**
+   * Offset of the quantization.
+   */
+  final double offset;
+
+  /**
+   * Private constructor. NOT for public use.
+   *
+   * @param values Value data
+   * @param scale Scale
+   * @param offset Offset
+   * @param nocopy Flag to use without copying.
+   */
+  private QuantizedByteVector(byte[] values, double scale, double offset, boolean nocopy) {
+    this.values = nocopy ? values : values.clone();
+    this.scale = scale;
+    this.offset = offset;
+  }
+
+  /**
+   * Create a quantized vector from raw quantized values.
+   *
+   * @param values Quantized values
+   * @param scale Scale
+   * @param offset Offset
+   */
+  public QuantizedByteVector(byte[] values, double scale, double offset) {
+    this(values, scale, offset, false);
+  }
+
+  /**
+   * Quantize a vector using the given scale and offset.
+   * <p>
+   * All vectors of a data set should share the same quantization, which
+   * enables the integer distance kernels.
+   *
+   * @param data Data to quantize
+   * @param scale Scale
+   * @param offset Offset
+   * @return Quantized vector
+   */
+  public static QuantizedByteVector quantize(double[] data, double scale, double offset) {
+    final byte[] values = new byte[data.length];
+    final double iscale = 1. / scale;
+    for(int i = 0; i < data.length; i++) {
+      final long q = Math.round((data[i] - offset) * iscale);
+      values[i] = (byte) (q < Byte.MIN_VALUE ? Byte.MIN_VALUE : q > Byte.MAX_VALUE ? Byte.MAX_VALUE : q);
+    }
+    return new QuantizedByteVector(values, scale, offset, true);
+  }
+
+  @Override
+  public int getDimensionality() {
+    return values.length;
+  }
+
+  @Override
+  @Deprecated
+  public Double getValue(int dimension) {
+    return Double.valueOf(doubleValue(dimension));
+  }
+
+  @Override
+  public double doubleValue(int dimension) {
+    return offset + scale * values[dimension];
+  }
+
+  @Override
+  public long longValue(int dimension) {
+    return (long) doubleValue(dimension);
+  }
+
+  /**
+   * Get the quantization scale.
+   *
+   * @return Scale
+   */
+  public double getScale() {
+    return scale;
+  }
+
+  /**
+   * Get the quantization offset.
+   *
+   * @return Offset
+   */
+  public double getOffset() {
+    return offset;
+  }
+
+  /**
+   * Get a copy of the raw quantized values.
+   *
+   * @return copy of values array.
+   */
+  public byte[] getValues() {
+    return values.clone();
+  }
+
+  @Override
+  public double[] toArray() {
+    double[] data = new double[values.length];
+    for(int i = 0; i < values.length; i++) {
+      data[i] = offset + scale * values[i];
+    }
+    return data;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder featureLine = new StringBuilder();
+    for(int i = 0; i < values.length; i++) {
+      featureLine.append(doubleValue(i));
+      if(i + 1 < values.length) {
+        featureLine.append(ATTRIBUTE_SEPARATOR);
+      }
+    }
+    return featureLine.toString();
+  }
+
+  /**
+   * Factory for quantized byte vectors. All vectors are quantized with the same
+   * scale and offset, chosen to map the given value range to the 256 levels.
+   * Values outside of this range are clipped.
+   * <p>
+   * To quantize the actual value range of a data set, use the
+   * {@code QuantizationFilter}.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.has QuantizedByteVector
+   */
+  public static class Factory extends AbstractNumberVector.Factory<QuantizedByteVector> {
+    /**
+     * Scale and offset of the quantization.
+     */
+    private final double scale, offset;
+
+    /**
+     * Constructor, with the value range to quantize.
+     *
+     * @param min Minimum value
+     * @param max Maximum value
+     */
+    public Factory(double min, double max) {
+      super();
+      this.scale = max > min ? (max - min) / (Byte.MAX_VALUE - Byte.MIN_VALUE) : 1.;
+      this.offset = min - Byte.MIN_VALUE * scale;
+    }
+
+    /**
+     * Get the quantization scale.
+     *
+     * @return Scale
+     */
+    public double getScale() {
+      return scale;
+    }
+
+    /**
+     * Get the quantization offset.
+     *
+     * @return Offset
+     */
+    public double getOffset() {
+      return offset;
+    }
+
+    @Override
+    public <A> QuantizedByteVector newFeatureVector(A array, ArrayAdapter<? extends Number, A> adapter) {
+      int dim = adapter.size(array);
+      double[] values = new double[dim];
+      for(int i = 0; i < dim; i++) {
+        values[i] = adapter.get(array, i).doubleValue();
+      }
+      return quantize(values, scale, offset);
+    }
+
+    @Override
+    public <A> QuantizedByteVector newNumberVector(A array, NumberArrayAdapter<?, ? super A> adapter) {
+      int dim = adapter.size(array);
+      double[] values = new double[dim];
+      for(int i = 0; i < dim; i++) {
+        values[i] = adapter.getDouble(array, i);
+      }
+      return quantize(values, scale, offset);
+    }
+
+    @Override
+    public ByteBufferSerializer<QuantizedByteVector> getDefaultSerializer() {
+      return VARIABLE_SERIALIZER;
+    }
+
+    @Override
+    public Class<? super QuantizedByteVector> getRestrictionClass() {
+      return QuantizedByteVector.class;
+    }
+
+    /**
+     * Parameterization class.
+     *
+     * @author Erich Schubert
+     *
+     * @apiviz.exclude
+     */
+    public static class Parameterizer extends AbstractParameterizer {
+      /**
+       * Minimum value of the quantized range.
+       */
+      public static final OptionID MIN_ID = new OptionID("quantize.min", "Minimum value of the quantized range, smaller values are clipped.");
+
+      /**
+       * Maximum value of the quantized range.
+       */
+      public static final OptionID MAX_ID = new OptionID("quantize.max", "Maximum value of the quantized range, larger values are clipped.");
+
+      /**
+       * Value range.
+       */
+      private double min, max;
+
+      @Override
+      protected void makeOptions(Parameterization config) {
+        super.makeOptions(config);
+        DoubleParameter minP = new DoubleParameter(MIN_ID, Byte.MIN_VALUE);
+        if(config.grab(minP)) {
+          min = minP.doubleValue();
+        }
+        DoubleParameter maxP = new DoubleParameter(MAX_ID, Byte.MAX_VALUE);
+        if(config.grab(maxP)) {
+          max = maxP.doubleValue();
+        }
+        config.checkConstraint(new LessGlobalConstraint<>(minP, maxP));
+      }
+
+      @Override
+      protected QuantizedByteVector.Factory makeInstance() {
+        return min == Byte.MIN_VALUE && max == Byte.MAX_VALUE ? STATIC : new QuantizedByteVector.Factory(min, max);
+      }
+    }
+  }
+
+  /**
+   * Serialization class using VarInt encoding for the dimensionality, followed
+   * by scale, offset, and the raw bytes.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.uses QuantizedByteVector - - «serializes»
+   */
+  public static class VariableSerializer implements ByteBufferSerializer<QuantizedByteVector> {
+    @Override
+    public QuantizedByteVector fromByteBuffer(ByteBuffer buffer) throws IOException {
+      final int dimensionality = ByteArrayUtil.readUnsignedVarint(buffer);
+      assert (buffer.remaining() >= ByteArrayUtil.SIZE_DOUBLE * 2 + dimensionality);
+      final double scale = buffer.getDouble(), offset = buffer.getDouble();
+      final byte[] values = new byte[dimensionality];
+      buffer.get(values);
+      return new QuantizedByteVector(values, scale, offset, true);
+    }
+
+    @Override
+    public void toByteBuffer(ByteBuffer buffer, QuantizedByteVector vec) throws IOException {
+      assert (buffer.remaining() >= getByteSize(vec));
+      ByteArrayUtil.writeUnsignedVarint(buffer, vec.values.length);
+      buffer.putDouble(vec.scale);
+      buffer.putDouble(vec.offset);
+      buffer.put(vec.values);
+    }
+
+    @Override
+    public int getByteSize(QuantizedByteVector vec) {
+      return ByteArrayUtil.getUnsignedVarintSize(vec.values.length) + ByteArrayUtil.SIZE_DOUBLE * 2 + vec.values.length;
+    }
+  }
+}
@@ -53,8 +53,10 @@ public class ShortVector extends AbstractNumberVector {
 
   /**
    * Keeps the values of the real vector.
+   *
+   * Package-private for {@link VectorKernels}.
    */
-  private final short[] values;
+  final short[] values;
 
   /**
    * Private constructor. NOT for public use.
@@ -0,0 +1,503 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.data;
+
+import de.lmu.ifi.dbs.elki.data.type.SimpleTypeInformation;
+import de.lmu.ifi.dbs.elki.data.type.VectorFieldTypeInformation;
+import net.jafama.FastMath;
+
+/**
+ * Distance kernels operating directly on the storage arrays of the dense
+ * vector types, avoiding the virtual {@link NumberVector#doubleValue} call per
+ * dimension.
+ * <p>
+ * The kernel is chosen <em>once</em> for a data type using
+ * {@link #get(SimpleTypeInformation)}, e.g. when instantiating a distance
+ * query for a relation; the kernels themselves do not check the vector types
+ * again.
+ * <p>
+ * For {@link QuantizedByteVector} and {@link QuantizedShortVector} with
+ * identical scale and offset, the kernels use integer arithmetic.
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ *
+ * @apiviz.has Kernel
+ */
+public final class VectorKernels {
+  /**
+   * Fake constructor: do not instantiate.
+   */
+  private VectorKernels() {
+    // Do not instantiate
+  }
+
+  /**
+   * Distance kernels for a particular vector type.
+   * <p>
+   * Both vectors must be of this type, and have the same dimensionality.
+   *
+   * @author Erich Schubert
+   */
+  public interface Kernel {
+    /**
+     * Squared Euclidean distance.
+     *
+     * @param v1 First vector
+     * @param v2 Second vector
+     * @return Squared Euclidean distance
+     */
+    double squaredEuclidean(NumberVector v1, NumberVector v2);
+
+    /**
+     * Manhattan distance.
+     *
+     * @param v1 First vector
+     * @param v2 Second vector
+     * @return Manhattan distance
+     */
+    double manhattan(NumberVector v1, NumberVector v2);
+
+    /**
+     * Cosine of the angle.
+     * <p>
+     * Same semantics as {@code VectorUtil.cosAngle}.
+     *
+     * @param v1 First vector
+     * @param v2 Second vector
+     * @return Cosine
+     */
+    double cosAngle(NumberVector v1, NumberVector v2);
+  }
+
+  /**
+   * Get the specialized kernel for a data type.
+   * <p>
+   * Kernels are only available for vector fields of a fixed dimensionality
+   * using one of the dense vector types.
+   *
+   * @param type Data type of a relation
+   * @return Kernel, or {@code null} if not supported
+   */
+  public static Kernel get(SimpleTypeInformation<?> type) {
+    if(!(type instanceof VectorFieldTypeInformation)) {
+      return null;
+    }
+    final Class<?> c = type.getRestrictionClass();
+    final Kernel kernel = c == DoubleVector.class ? DoubleKernel.STATIC : //
+        c == FloatVector.class ? FloatKernel.STATIC : //
+            c == ShortVector.class ? ShortKernel.STATIC : //
+                c == ByteVector.class ? ByteKernel.STATIC : //
+                    c == QuantizedByteVector.class ? QuantizedByteKernel.STATIC : //
+                        c == QuantizedShortVector.class ? QuantizedShortKernel.STATIC : null;
+    if(kernel == null) {
+      return null;
+    }
+    final VectorFieldTypeInformation<?> vtype = (VectorFieldTypeInformation<?>) type;
+    return vtype.mindim() == vtype.maxdim() ? kernel : null;
+  }
+
+  /**
+   * Cosine from the scalar product and the squared lengths.
+   *
+   * @param cross Scalar product
+   * @param l1 Squared length of the first vector
+   * @param l2 Squared length of the second vector
+   * @return Cosine
+   */
+  private static double cosAngle(double cross, double l1, double l2) {
+    final double a = (cross == 0.) ? 0. : //
+        (l1 == 0. || l2 == 0.) ? 1. : //
+            FastMath.sqrt((cross / l1) * (cross / l2));
+    return (a < 1.) ? a : 1.;
+  }
+
+  /**
+   * Kernels for {@link DoubleVector}.
+   *
+   * @author Erich Schubert
+   */
+  private static final class DoubleKernel implements Kernel {
+    /**
+     * Static instance.
+     */
+    static final DoubleKernel STATIC = new DoubleKernel();
+
+    @Override
+    public double squaredEuclidean(NumberVector v1, NumberVector v2) {
+      final DoubleVector x = (DoubleVector) v1, y = (DoubleVector) v2;
+      assert (x.dim == y.dim);
+      final double[] a = x.values, b = y.values;
+      double agg = 0.;
+      for(int d = 0, i = x.offset, j = y.offset; d < x.dim; d++, i++, j++) {
+        final double delta = a[i] - b[j];
+        agg += delta * delta;
+      }
+      return agg;
+    }
+
+    @Override
+    public double manhattan(NumberVector v1, NumberVector v2) {
+      final DoubleVector x = (DoubleVector) v1, y = (DoubleVector) v2;
+      assert (x.dim == y.dim);
+      final double[] a = x.values, b = y.values;
+      double agg = 0.;
+      for(int d = 0, i = x.offset, j = y.offset; d < x.dim; d++, i++, j++) {
+        agg += Math.abs(a[i] - b[j]);
+      }
+      return agg;
+    }
+
+    @Override
+    public double cosAngle(NumberVector v1, NumberVector v2) {
+      final DoubleVector x = (DoubleVector) v1, y = (DoubleVector) v2;
+      assert (x.dim == y.dim);
+      final double[] a = x.values, b = y.values;
+      double cross = 0., l1 = 0., l2 = 0.;
+      for(int d = 0, i = x.offset, j = y.offset; d < x.dim; d++, i++, j++) {
+        final double r1 = a[i], r2 = b[j];
+        cross += r1 * r2;
+        l1 += r1 * r1;
+        l2 += r2 * r2;
+      }
+      return VectorKernels.cosAngle(cross, l1, l2);
+    }
+  }
+
+  /**
+   * Kernels for {@link FloatVector}.
+   *
+   * @author Erich Schubert
+   */
+  private static final class FloatKernel implements Kernel {
+    /**
+     * Static instance.
+     */
+    static final FloatKernel STATIC = new FloatKernel();
+
+    @Override
+    public double squaredEuclidean(NumberVector v1, NumberVector v2) {
+      final FloatVector x = (FloatVector) v1, y = (FloatVector) v2;
+      assert (x.dim == y.dim);
+      final float[] a = x.values, b = y.values;
+      double agg = 0.;
+      for(int d = 0, i = x.offset, j = y.offset; d < x.dim; d++, i++, j++) {
+        final double delta = (double) a[i] - b[j];
+        agg += delta * delta;
+      }
+      return agg;
+    }
+
+    @Override
+    public double manhattan(NumberVector v1, NumberVector v2) {
+      final FloatVector x = (FloatVector) v1, y = (FloatVector) v2;
+      assert (x.dim == y.dim);
+      final float[] a = x.values, b = y.values;
+      double agg = 0.;
+      for(int d = 0, i = x.offset, j = y.offset; d < x.dim; d++, i++, j++) {
+        agg += Math.abs((double) a[i] - b[j]);
+      }
+      return agg;
+    }
+
+    @Override
+    public double cosAngle(NumberVector v1, NumberVector v2) {
+      final FloatVector x = (FloatVector) v1, y = (FloatVector) v2;
+      assert (x.dim == y.dim);
+      final float[] a = x.values, b = y.values;
+      double cross = 0., l1 = 0., l2 = 0.;
+      for(int d = 0, i = x.offset, j = y.offset; d < x.dim; d++, i++, j++) {
+        final double r1 = a[i], r2 = b[j];
+        cross += r1 * r2;
+        l1 += r1 * r1;
+        l2 += r2 * r2;
+      }
+      return VectorKernels.cosAngle(cross, l1, l2);
+    }
+  }
+
+  /**
+   * Kernels for {@link ShortVector}, using integer arithmetic.
+   *
+   * @author Erich Schubert
+   */
+  private static final class ShortKernel implements Kernel {
+    /**
+     * Static instance.
+     */
+    static final ShortKernel STATIC = new ShortKernel();
+
+    @Override
+    public double squaredEuclidean(NumberVector v1, NumberVector v2) {
+      final short[] a = ((ShortVector) v1).values, b = ((ShortVector) v2).values;
+      assert (a.length == b.length);
+      long agg = 0;
+      for(int d = 0; d < a.length; d++) {
+        final long delta = a[d] - b[d];
+        agg += delta * delta;
+      }
+      return agg;
+    }
+
+    @Override
+    public double manhattan(NumberVector v1, NumberVector v2) {
+      final short[] a = ((ShortVector) v1).values, b = ((ShortVector) v2).values;
+      assert (a.length == b.length);
+      long agg = 0;
+      for(int d = 0; d < a.length; d++) {
+        agg += Math.abs(a[d] - b[d]);
+      }
+      return agg;
+    }
+
+    @Override
+    public double cosAngle(NumberVector v1, NumberVector v2) {
+      final short[] a = ((ShortVector) v1).values, b = ((ShortVector) v2).values;
+      assert (a.length == b.length);
+      long x = 0, n1 = 0, n2 = 0;
+      for(int d = 0; d < a.length; d++) {
+        final long r1 = a[d], r2 = b[d];
+        x += r1 * r2;
+        n1 += r1 * r1;
+        n2 += r2 * r2;
+      }
+      return VectorKernels.cosAngle(x, n1, n2);
+    }
+  }
+
+  /**
+   * Kernels for {@link ByteVector}, using integer arithmetic.
+   *
+   * @author Erich Schubert
+   */
+  private static final class ByteKernel implements Kernel {
+    /**
+     * Static instance.
+     */
+    static final ByteKernel STATIC = new ByteKernel();
+
+    @Override
+    public double squaredEuclidean(NumberVector v1, NumberVector v2) {
+      final byte[] a = ((ByteVector) v1).values, b = ((ByteVector) v2).values;
+      assert (a.length == b.length);
+      long agg = 0;
+      for(int d = 0; d < a.length; d++) {
+        final int delta = a[d] - b[d];
+        agg += delta * delta;
+      }
+      return agg;
+    }
+
+    @Override
+    public double manhattan(NumberVector v1, NumberVector v2) {
+      final byte[] a = ((ByteVector) v1).values, b = ((ByteVector) v2).values;
+      assert (a.length == b.length);
+      long agg = 0;
+      for(int d = 0; d < a.length; d++) {
+        agg += Math.abs(a[d] - b[d]);
+      }
+      return agg;
+    }
+
+    @Override
+    public double cosAngle(NumberVector v1, NumberVector v2) {
+      final byte[] a = ((ByteVector) v1).values, b = ((ByteVector) v2).values;
+      assert (a.length == b.length);
+      long x = 0, n1 = 0, n2 = 0;
+      for(int d = 0; d < a.length; d++) {
+        final int r1 = a[d], r2 = b[d];
+        x += r1 * r2;
+        n1 += r1 * r1;
+        n2 += r2 * r2;
+      }
+      return VectorKernels.cosAngle(x, n1, n2);
+    }
+  }
+
+  /**
+   * Kernels for {@link QuantizedByteVector}, using integer arithmetic when both
+   * vectors share the same quantization.
+   *
+   * @author Erich Schubert
+   */
+  private static final class QuantizedByteKernel implements Kernel {
+    /**
+     * Static instance.
+     */
+    static final QuantizedByteKernel STATIC = new QuantizedByteKernel();
+
+    @Override
+    public double squaredEuclidean(NumberVector v1, NumberVector v2) {
+      final QuantizedByteVector q1 = (QuantizedByteVector) v1, q2 = (QuantizedByteVector) v2;
+      final byte[] a = q1.values, b = q2.values;
+      assert (a.length == b.length);
+      if(q1.scale == q2.scale && q1.offset == q2.offset) {
+        long agg = 0;
+        for(int d = 0; d < a.length; d++) {
+          final int delta = a[d] - b[d];
+          agg += delta * delta;
+        }
+        return agg * q1.scale * q1.scale;
+      }
+      final double s1 = q1.scale, s2 = q2.scale, o = q1.offset - q2.offset;
+      double agg = 0.;
+      for(int d = 0; d < a.length; d++) {
+        final double delta = o + s1 * a[d] - s2 * b[d];
+        agg += delta * delta;
+      }
+      return agg;
+    }
+
+    @Override
+    public double manhattan(NumberVector v1, NumberVector v2) {
+      final QuantizedByteVector q1 = (QuantizedByteVector) v1, q2 = (QuantizedByteVector) v2;
+      final byte[] a = q1.values, b = q2.values;
+      assert (a.length == b.length);
+      if(q1.scale == q2.scale && q1.offset == q2.offset) {
+        long agg = 0;
+        for(int d = 0; d < a.length; d++) {
+          agg += Math.abs(a[d] - b[d]);
+        }
+        return agg * Math.abs(q1.scale);
+      }
+      final double s1 = q1.scale, s2 = q2.scale, o = q1.offset - q2.offset;
+      double agg = 0.;
+      for(int d = 0; d < a.length; d++) {
+        agg += Math.abs(o + s1 * a[d] - s2 * b[d]);
+      }
+      return agg;
+    }
+
+    @Override
+    public double cosAngle(NumberVector v1, NumberVector v2) {
+      final QuantizedByteVector q1 = (QuantizedByteVector) v1, q2 = (QuantizedByteVector) v2;
+      final byte[] a = q1.values, b = q2.values;
+      assert (a.length == b.length);
+      // Integer moments, combined with the affine transformation below.
+      long s1 = 0, s2 = 0, x = 0, n1 = 0, n2 = 0;
+      for(int d = 0; d < a.length; d++) {
+        final int r1 = a[d], r2 = b[d];
+        s1 += r1;
+        s2 += r2;
+        x += r1 * r2;
+        n1 += r1 * r1;
+        n2 += r2 * r2;
+      }
+      return quantizedCosAngle(a.length, q1.scale, q1.offset, q2.scale, q2.offset, s1, s2, x, n1, n2);
+    }
+  }
+
+  /**
+   * Kernels for {@link QuantizedShortVector}, using integer arithmetic when
+   * both vectors share the same quantization.
+   *
+   * @author Erich Schubert
+   */
+  private static final class QuantizedShortKernel implements Kernel {
+    /**
+     * Static instance.
+     */
+    static final QuantizedShortKernel STATIC = new QuantizedShortKernel();
+
+    @Override
+    public double squaredEuclidean(NumberVector v1, NumberVector v2) {
+      final QuantizedShortVector q1 = (QuantizedShortVector) v1, q2 = (QuantizedShortVector) v2;
+      final short[] a = q1.values, b = q2.values;
+      assert (a.length == b.length);
+      if(q1.scale == q2.scale && q1.offset == q2.offset) {
+        long agg = 0;
+        for(int d = 0; d < a.length; d++) {
+          final long delta = a[d] - b[d];
+          agg += delta * delta;
+        }
+        return agg * q1.scale * q1.scale;
+      }
+      final double s1 = q1.scale, s2 = q2.scale, o = q1.offset - q2.offset;
+      double agg = 0.;
+      for(int d = 0; d < a.length; d++) {
+        final double delta = o + s1 * a[d] - s2 * b[d];
+        agg += delta * delta;
+      }
+      return agg;
+    }
+
+    @Override
+    public double manhattan(NumberVector v1, NumberVector v2) {
+      final QuantizedShortVector q1 = (QuantizedShortVector) v1, q2 = (QuantizedShortVector) v2;
+      final short[] a = q1.values, b = q2.values;
+      assert (a.length == b.length);
+      if(q1.scale == q2.scale && q1.offset == q2.offset) {
+        long agg = 0;
+        for(int d = 0; d < a.length; d++) {
+          agg += Math.abs(a[d] - b[d]);
+        }
+        return agg * Math.abs(q1.scale);
+      }
+      final double s1 = q1.scale, s2 = q2.scale, o = q1.offset - q2.offset;
+      double agg = 0.;
+      for(int d = 0; d < a.length; d++) {
+        agg += Math.abs(o + s1 * a[d] - s2 * b[d]);
+      }
+      return agg;
+    }
+
+    @Override
+    public double cosAngle(NumberVector v1, NumberVector v2) {
+      final QuantizedShortVector q1 = (QuantizedShortVector) v1, q2 = (QuantizedShortVector) v2;
+      final short[] a = q1.values, b = q2.values;
+      assert (a.length == b.length);
+      // Integer moments, combined with the affine transformation below.
+      long s1 = 0, s2 = 0, x = 0, n1 = 0, n2 = 0;
+      for(int d = 0; d < a.length; d++) {
+        final long r1 = a[d], r2 = b[d];
+        s1 += r1;
+        s2 += r2;
+        x += r1 * r2;
+        n1 += r1 * r1;
+        n2 += r2 * r2;
+      }
+      return quantizedCosAngle(a.length, q1.scale, q1.offset, q2.scale, q2.offset, s1, s2, x, n1, n2);
+    }
+  }
+
+  /**
+   * Cosine of two quantized vectors, from the integer moments.
+   *
+   * @param dim Dimensionality
+   * @param a1 Scale of the first vector
+   * @param o1 Offset of the first vector
+   * @param a2 Scale of the second vector
+   * @param o2 Offset of the second vector
+   * @param s1 Sum of the first vector
+   * @param s2 Sum of the second vector
+   * @param x Scalar product
+   * @param n1 Squared length of the first vector
+   * @param n2 Squared length of the second vector
+   * @return Cosine
+   */
+  private static double quantizedCosAngle(int dim, double a1, double o1, double a2, double o2, long s1, long s2, long x, long n1, long n2) {
+    final double cross = dim * o1 * o2 + o1 * a2 * s2 + o2 * a1 * s1 + a1 * a2 * x;
+    final double l1 = dim * o1 * o1 + 2 * o1 * a1 * s1 + a1 * a1 * n1;
+    final double l2 = dim * o2 * o2 + 2 * o2 * a2 * s2 + a2 * a2 * n2;
+    // Guard against rounding below zero:
+    return cosAngle(cross, l1 > 0. ? l1 : 0., l2 > 0. ? l2 : 0.);
+  }
+}
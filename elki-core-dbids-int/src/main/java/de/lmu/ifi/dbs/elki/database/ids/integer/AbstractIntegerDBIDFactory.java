@@ -49,7 +49,7 @@ import de.lmu.ifi.dbs.elki.utilities.io.FixedSizeByteBufferSerializer;
  * @apiviz.uses IntegerDBID oneway - - «create»
  * @apiviz.uses IntegerDBIDPair oneway - - «create»
  * @apiviz.uses IntegerDBIDRange oneway - - «create»
- * @apiviz.uses TroveHashSetModifiableDBIDs oneway - - «create»
+ * @apiviz.uses IntegerHashSetModifiableDBIDs oneway - - «create»
  * @apiviz.uses IntegerArrayDBIDs oneway - - «create»
  */
 abstract class AbstractIntegerDBIDFactory implements DBIDFactory {
@@ -103,7 +103,7 @@ abstract class AbstractIntegerDBIDFactory implements DBIDFactory {
 
   @Override
   public HashSetModifiableDBIDs newHashSet() {
-    return new TroveHashSetModifiableDBIDs();
+    return new IntegerHashSetModifiableDBIDs();
   }
 
   @Override
@@ -113,7 +113,7 @@ abstract class AbstractIntegerDBIDFactory implements DBIDFactory {
 
   @Override
   public HashSetModifiableDBIDs newHashSet(int size) {
-    return new TroveHashSetModifiableDBIDs(size);
+    return new IntegerHashSetModifiableDBIDs(size);
   }
 
   @Override
@@ -123,7 +123,7 @@ abstract class AbstractIntegerDBIDFactory implements DBIDFactory {
 
   @Override
   public HashSetModifiableDBIDs newHashSet(DBIDs existing) {
-    return new TroveHashSetModifiableDBIDs(existing);
+    return new IntegerHashSetModifiableDBIDs(existing);
   }
 
   @Override
@@ -20,10 +20,6 @@
  */
 package de.lmu.ifi.dbs.elki.database.ids.integer;
 
-import gnu.trove.impl.hash.THashPrimitiveIterator;
-import gnu.trove.impl.hash.TIntHash;
-import gnu.trove.impl.hash.TPrimitiveHash;
-import gnu.trove.set.hash.TIntHashSet;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDMIter;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
@@ -31,53 +27,54 @@ import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDVar;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
 import de.lmu.ifi.dbs.elki.database.ids.HashSetModifiableDBIDs;
-import de.lmu.ifi.dbs.elki.utilities.datastructures.iterator.Iter;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.hash.IntegerHashSet;
 
 /**
- * Implementation using GNU Trove Int Hash Sets.
- * 
+ * Implementation using an open addressing integer hash set.
+ *
  * @author Erich Schubert
- * @since 0.4.0
- * 
+ * @since 0.7.2
+ *
+ * @apiviz.composedOf IntegerHashSet
  * @apiviz.has Itr
  */
-class TroveHashSetModifiableDBIDs implements HashSetModifiableDBIDs, IntegerDBIDs {
+class IntegerHashSetModifiableDBIDs implements HashSetModifiableDBIDs, IntegerDBIDs {
   /**
    * The actual store.
    */
-  TIntHashSet store;
+  IntegerHashSet store;
 
   /**
    * Constructor.
-   * 
+   *
    * @param size Initial size
    */
-  protected TroveHashSetModifiableDBIDs(int size) {
+  protected IntegerHashSetModifiableDBIDs(int size) {
     super();
-    this.store = new TIntHashSet(size);
+    this.store = new IntegerHashSet(size);
   }
 
   /**
    * Constructor.
    */
-  protected TroveHashSetModifiableDBIDs() {
+  protected IntegerHashSetModifiableDBIDs() {
     super();
-    this.store = new TIntHashSet();
+    this.store = new IntegerHashSet();
   }
 
   /**
    * Constructor.
-   * 
+   *
    * @param existing Existing IDs
    */
-  protected TroveHashSetModifiableDBIDs(DBIDs existing) {
+  protected IntegerHashSetModifiableDBIDs(DBIDs existing) {
     this(existing.size());
     this.addDBIDs(existing);
   }
 
   @Override
   public Itr iter() {
-    return new Itr(store);
+    return new Itr(store.iter());
   }
 
   @Override
@@ -157,50 +154,40 @@ class TroveHashSetModifiableDBIDs implements HashSetModifiableDBIDs, IntegerDBID
 
   @Override
   public DBIDVar pop(DBIDVar outvar) {
-    if(store.size() == 0) {
-      throw new ArrayIndexOutOfBoundsException("Cannot pop() from an empty array.");
-    }
-    final byte[] states = store._states;
-    int i = store.capacity();
-    while(i-- > 0 && (states[i] != TPrimitiveHash.FULL)) {
-      ; // Not occupied. Continue
-    }
-    if(i < 0) { // Should never happen because size > 0
+    if(store.isEmpty()) {
       throw new ArrayIndexOutOfBoundsException("Cannot pop() from an empty array.");
     }
-    final int val = store._set[i];
+    final int val = store.pop();
     if(outvar instanceof IntegerDBIDVar) {
       ((IntegerDBIDVar) outvar).internalSetIndex(val);
     }
     else { // Fallback, should not happen (more expensive).
       outvar.set(DBIDUtil.importInteger(val));
     }
-    // Unfortunately, not visible: store.removeAt(i);
-    store.remove(val);
     return outvar;
   }
 
   /**
-   * Iterator over trove hashs.
-   * 
+   * Iterator over the hash set.
+   *
    * @author Erich Schubert
-   * 
+   *
    * @apiviz.exclude
    */
   protected static class Itr implements IntegerDBIDMIter {
     /**
      * The actual iterator. We don't have multi inheritance.
      */
-    TIntHashItr it;
+    IntegerHashSet.Itr it;
 
     /**
      * Constructor.
-     * 
-     * @param hash Trove hash
+     *
+     * @param it Hash set iterator
      */
-    public Itr(TIntHash hash) {
+    public Itr(IntegerHashSet.Itr it) {
       super();
-      this.it = new TIntHashItr(hash);
+      this.it = it;
     }
 
     @Override
@@ -228,50 +215,5 @@ class TroveHashSetModifiableDBIDs implements HashSetModifiableDBIDs, IntegerDBID
     public void remove() {
       it.remove();
     }
-
-    /**
-     * Custom iterator over TIntHash.
-     * 
-     * @author Erich Schubert
-     * 
-     * @apiviz.exclude
-     */
-    private static class TIntHashItr extends THashPrimitiveIterator implements Iter {
-      /**
-       * The hash we access.
-       */
-      private TIntHash hash;
-
-      /**
-       * Constructor.
-       * 
-       * @param hash Hash to iterate over.
-       */
-      public TIntHashItr(TIntHash hash) {
-        super(hash);
-        this.hash = hash;
-        this._index = nextIndex(); // Find first element
-      }
-
-      /**
-       * Get the current value.
-       * 
-       * @return Current value
-       */
-      public int getInt() {
-        return hash._set[_index];
-      }
-
-      @Override
-      public Iter advance() {
-        this._index = nextIndex();
-        return this;
-      }
-
-      @Override
-      public boolean valid() {
-        return _index >= 0;
-      }
-    }
   }
 }
@@ -20,11 +20,10 @@
  */
 package de.lmu.ifi.dbs.elki.database.datastore.memory;
 
-import gnu.trove.map.TIntIntMap;
-import gnu.trove.map.hash.TIntIntHashMap;
 import de.lmu.ifi.dbs.elki.database.datastore.WritableIntegerDataStore;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.hash.IntegerIntegerHashMap;
 
 /**
  * Writable data store for double values.
@@ -36,7 +35,7 @@ public class MapIntegerDBIDIntegerStore implements WritableIntegerDataStore {
   /**
    * Data storage.
    */
-  private TIntIntMap map;
+  private IntegerIntegerHashMap map;
 
   /**
    * Constructor.
@@ -55,7 +54,7 @@ public class MapIntegerDBIDIntegerStore implements WritableIntegerDataStore {
    */
   public MapIntegerDBIDIntegerStore(int size, int def) {
     super();
-    map = new TIntIntHashMap(size, 0.5f, Integer.MIN_VALUE, def);
+    map = new IntegerIntegerHashMap(size, def);
   }
 
   @Override
@@ -98,7 +97,7 @@ public class MapIntegerDBIDIntegerStore implements WritableIntegerDataStore {
 
   @Override
   public void increment(DBIDRef id, int adjust) {
-    map.adjustOrPutValue(DBIDUtil.asInteger(id), adjust, adjust);
+    map.increment(DBIDUtil.asInteger(id), adjust);
   }
 
   @Override
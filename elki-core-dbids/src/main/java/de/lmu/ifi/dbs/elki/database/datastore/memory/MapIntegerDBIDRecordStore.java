@@ -20,12 +20,13 @@
  */
 package de.lmu.ifi.dbs.elki.database.datastore.memory;
 
+import gnu.trove.iterator.TIntObjectIterator;
 import gnu.trove.map.TIntObjectMap;
-import gnu.trove.map.hash.TIntObjectHashMap;
 import de.lmu.ifi.dbs.elki.database.datastore.WritableDataStore;
 import de.lmu.ifi.dbs.elki.database.datastore.WritableRecordStore;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.hash.IntegerObjectHashMap;
 
 /**
  * A class to answer representation queries using a map and an index within the
@@ -45,7 +46,7 @@ public class MapIntegerDBIDRecordStore implements WritableRecordStore {
   /**
    * Storage Map.
    */
-  private final TIntObjectMap<Object[]> data;
+  private final IntegerObjectHashMap<Object[]> data;
 
   /**
    * Constructor with existing data.
@@ -53,19 +54,35 @@ public class MapIntegerDBIDRecordStore implements WritableRecordStore {
    * @param rlen Number of columns (record length)
    * @param data Existing data map
    */
-  public MapIntegerDBIDRecordStore(int rlen, TIntObjectMap<Object[]> data) {
+  public MapIntegerDBIDRecordStore(int rlen, IntegerObjectHashMap<Object[]> data) {
     super();
     this.rlen = rlen;
     this.data = data;
   }
 
+  /**
+   * Constructor with existing data.
+   *
+   * @param rlen Number of columns (record length)
+   * @param data Existing data map, the entries are copied
+   * @deprecated Use {@link #MapIntegerDBIDRecordStore(int, IntegerObjectHashMap)}
+   */
+  @Deprecated
+  public MapIntegerDBIDRecordStore(int rlen, TIntObjectMap<Object[]> data) {
+    this(data.size(), rlen);
+    for(TIntObjectIterator<Object[]> it = data.iterator(); it.hasNext();) {
+      it.advance();
+      this.data.put(it.key(), it.value());
+    }
+  }
+
   /**
    * Constructor without existing data.
    *
    * @param rlen Number of columns (record length)
    */
   public MapIntegerDBIDRecordStore(int rlen) {
-    this(rlen, new TIntObjectHashMap<Object[]>());
+    this(rlen, new IntegerObjectHashMap<Object[]>());
   }
 
   /**
@@ -75,7 +92,7 @@ public class MapIntegerDBIDRecordStore implements WritableRecordStore {
    * @param rlen Number of columns (record length)
    */
   public MapIntegerDBIDRecordStore(int size, int rlen) {
-    this(rlen, new TIntObjectHashMap<Object[]>(size));
+    this(rlen, new IntegerObjectHashMap<Object[]>(size));
   }
 
   @Override
@@ -20,11 +20,12 @@
  */
 package de.lmu.ifi.dbs.elki.database.datastore.memory;
 
+import gnu.trove.iterator.TIntObjectIterator;
 import gnu.trove.map.TIntObjectMap;
-import gnu.trove.map.hash.TIntObjectHashMap;
 import de.lmu.ifi.dbs.elki.database.datastore.WritableDataStore;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.hash.IntegerObjectHashMap;
 
 /**
  * A class to answer representation queries using a map. Basically, it is just a
@@ -39,24 +40,39 @@ public class MapIntegerDBIDStore<T> implements WritableDataStore<T> {
   /**
    * Storage Map.
    */
-  private TIntObjectMap<T> data;
+  private IntegerObjectHashMap<T> data;
 
   /**
    * Constructor.
    *
    * @param data Existing map
    */
-  public MapIntegerDBIDStore(TIntObjectMap<T> data) {
+  public MapIntegerDBIDStore(IntegerObjectHashMap<T> data) {
     super();
     this.data = data;
   }
 
+  /**
+   * Constructor.
+   *
+   * @param data Existing map, the entries are copied
+   * @deprecated Use {@link #MapIntegerDBIDStore(IntegerObjectHashMap)}
+   */
+  @Deprecated
+  public MapIntegerDBIDStore(TIntObjectMap<T> data) {
+    this(data.size());
+    for(TIntObjectIterator<T> it = data.iterator(); it.hasNext();) {
+      it.advance();
+      this.data.put(it.key(), it.value());
+    }
+  }
+
   /**
    * Constructor.
    */
   public MapIntegerDBIDStore() {
     super();
-    this.data = new TIntObjectHashMap<>();
+    this.data = new IntegerObjectHashMap<>();
   }
 
   /**
@@ -65,7 +81,7 @@ public class MapIntegerDBIDStore<T> implements WritableDataStore<T> {
    * @param size Expected size
    */
   public MapIntegerDBIDStore(int size) {
-    this.data = new TIntObjectHashMap<>(size);
+    this.data = new IntegerObjectHashMap<>(size);
   }
 
   @Override
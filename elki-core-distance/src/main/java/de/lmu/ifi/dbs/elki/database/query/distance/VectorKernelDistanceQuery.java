@@ -0,0 +1,115 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.database.query.distance;
+
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.data.VectorKernels;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.database.relation.RelationUtil;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.SpatialPrimitiveDistanceFunction;
+
+/**
+ * Distance query using a specialized {@link VectorKernels.Kernel}, chosen once
+ * for the data type of the relation.
+ * <p>
+ * Distances between database objects always use the kernel. Query objects
+ * passed in by the caller use the kernel only if they have the same class and
+ * dimensionality as the relation, and the generic distance function otherwise.
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ *
+ * @apiviz.uses VectorKernels.Kernel
+ *
+ * @param <V> Vector type to use
+ */
+public abstract class VectorKernelDistanceQuery<V extends NumberVector> extends SpatialPrimitiveDistanceQuery<V> {
+  /**
+   * Kernel for the vector type of the relation.
+   */
+  protected final VectorKernels.Kernel kernel;
+
+  /**
+   * Vector class of the relation.
+   */
+  private final Class<?> cls;
+
+  /**
+   * Dimensionality of the relation.
+   */
+  private final int dim;
+
+  /**
+   * Constructor.
+   *
+   * @param relation Representation to use
+   * @param distanceFunction Distance function to use
+   * @param kernel Kernel for the data type of the relation
+   */
+  public VectorKernelDistanceQuery(Relation<? extends V> relation, SpatialPrimitiveDistanceFunction<? super V> distanceFunction, VectorKernels.Kernel kernel) {
+    super(relation, distanceFunction);
+    this.kernel = kernel;
+    this.cls = relation.getDataTypeInformation().getRestrictionClass();
+    this.dim = RelationUtil.dimensionality(relation);
+  }
+
+  /**
+   * Test whether the kernel can be used for a query object.
+   *
+   * @param o Query object
+   * @return {@code true} if the object has the type of the relation
+   */
+  private boolean compatible(V o) {
+    return o.getClass() == cls && o.getDimensionality() == dim;
+  }
+
+  /**
+   * Compute the distance of two vectors of the relation type.
+   *
+   * @param v1 First vector
+   * @param v2 Second vector
+   * @return Distance
+   */
+  protected abstract double kernelDistance(V v1, V v2);
+
+  @Override
+  public double distance(DBIDRef id1, DBIDRef id2) {
+    return kernelDistance(relation.get(id1), relation.get(id2));
+  }
+
+  @Override
+  public double distance(V o1, DBIDRef id2) {
+    final V o2 = relation.get(id2);
+    return compatible(o1) ? kernelDistance(o1, o2) : distanceFunction.distance(o1, o2);
+  }
+
+  @Override
+  public double distance(DBIDRef id1, V o2) {
+    final V o1 = relation.get(id1);
+    return compatible(o2) ? kernelDistance(o1, o2) : distanceFunction.distance(o1, o2);
+  }
+
+  @Override
+  public double distance(V o1, V o2) {
+    return compatible(o1) && compatible(o2) ? kernelDistance(o1, o2) : distanceFunction.distance(o1, o2);
+  }
+}
@@ -21,9 +21,13 @@
 package de.lmu.ifi.dbs.elki.distance.distancefunction;
 
 import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.data.VectorKernels;
 import de.lmu.ifi.dbs.elki.data.VectorUtil;
 import de.lmu.ifi.dbs.elki.data.spatial.SpatialComparable;
 import de.lmu.ifi.dbs.elki.data.type.SimpleTypeInformation;
+import de.lmu.ifi.dbs.elki.database.query.distance.SpatialPrimitiveDistanceQuery;
+import de.lmu.ifi.dbs.elki.database.query.distance.VectorKernelDistanceQuery;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
 import de.lmu.ifi.dbs.elki.utilities.Alias;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.AbstractParameterizer;
 
@@ -91,11 +95,45 @@ public class CosineDistanceFunction extends AbstractSpatialDistanceFunction {
     return this.getClass().equals(obj.getClass());
   }
 
+  @Override
+  public <T extends NumberVector> SpatialPrimitiveDistanceQuery<T> instantiate(Relation<T> relation) {
+    final VectorKernels.Kernel kernel = VectorKernels.get(relation.getDataTypeInformation());
+    return kernel != null ? new KernelQuery<T>(relation, this, kernel) : super.instantiate(relation);
+  }
+
   @Override
   public SimpleTypeInformation<? super NumberVector> getInputTypeRestriction() {
     return NumberVector.VARIABLE_LENGTH;
   }
 
+  /**
+   * Distance query using a specialized kernel for the vector type.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   *
+   * @param <V> Vector type
+   */
+  private static class KernelQuery<V extends NumberVector> extends VectorKernelDistanceQuery<V> {
+    /**
+     * Constructor.
+     *
+     * @param relation Data relation
+     * @param distanceFunction Distance function
+     * @param kernel Kernel for the data type
+     */
+    KernelQuery(Relation<? extends V> relation, CosineDistanceFunction distanceFunction, VectorKernels.Kernel kernel) {
+      super(relation, distanceFunction, kernel);
+    }
+
+    @Override
+    protected double kernelDistance(V v1, V v2) {
+      final double d = kernel.cosAngle(v1, v2);
+      return (d <= 1) ? 1 - d : 0;
+    }
+  }
+
   /**
    * Parameterization class.
    * 
@@ -22,8 +22,14 @@ package de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski;
 
 import de.lmu.ifi.dbs.elki.data.NumberVector;
 import de.lmu.ifi.dbs.elki.data.SparseNumberVector;
+import de.lmu.ifi.dbs.elki.data.VectorKernels;
 import de.lmu.ifi.dbs.elki.data.spatial.SpatialComparable;
 import de.lmu.ifi.dbs.elki.data.type.SimpleTypeInformation;
+import de.lmu.ifi.dbs.elki.database.query.distance.DenseEuclideanDistanceQuery;
+import de.lmu.ifi.dbs.elki.database.query.distance.SpatialPrimitiveDistanceQuery;
+import de.lmu.ifi.dbs.elki.database.query.distance.VectorKernelDistanceQuery;
+import de.lmu.ifi.dbs.elki.database.relation.DenseVectorRelation;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
 import de.lmu.ifi.dbs.elki.distance.distancefunction.AbstractSpatialNorm;
 import de.lmu.ifi.dbs.elki.utilities.Alias;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.AbstractParameterizer;
@@ -191,6 +197,15 @@ public class SquaredEuclideanDistanceFunction extends AbstractSpatialNorm {
     return agg;
   }
 
+  @Override
+  public <T extends NumberVector> SpatialPrimitiveDistanceQuery<T> instantiate(Relation<T> relation) {
+    if(relation instanceof DenseVectorRelation) {
+      return new DenseEuclideanDistanceQuery<>((DenseVectorRelation<T>) relation, this, true);
+    }
+    final VectorKernels.Kernel kernel = VectorKernels.get(relation.getDataTypeInformation());
+    return kernel != null ? new KernelQuery<T>(relation, this, kernel) : super.instantiate(relation);
+  }
+
   @Override
   public boolean isMetric() {
     return false;
@@ -217,6 +232,33 @@ public class SquaredEuclideanDistanceFunction extends AbstractSpatialNorm {
     return NumberVector.VARIABLE_LENGTH;
   }
 
+  /**
+   * Distance query using a specialized kernel for the vector type.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   *
+   * @param <V> Vector type
+   */
+  private static class KernelQuery<V extends NumberVector> extends VectorKernelDistanceQuery<V> {
+    /**
+     * Constructor.
+     *
+     * @param relation Data relation
+     * @param distanceFunction Distance function
+     * @param kernel Kernel for the data type
+     */
+    KernelQuery(Relation<? extends V> relation, SquaredEuclideanDistanceFunction distanceFunction, VectorKernels.Kernel kernel) {
+      super(relation, distanceFunction, kernel);
+    }
+
+    @Override
+    protected double kernelDistance(V v1, V v2) {
+      return kernel.squaredEuclidean(v1, v2);
+    }
+  }
+
   /**
    * Parameterization class.
    * 
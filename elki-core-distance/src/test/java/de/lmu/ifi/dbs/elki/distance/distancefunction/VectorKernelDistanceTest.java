@@ -0,0 +1,152 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.distance.distancefunction;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.data.ByteVector;
+import de.lmu.ifi.dbs.elki.data.DoubleVector;
+import de.lmu.ifi.dbs.elki.data.FloatVector;
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.data.QuantizedByteVector;
+import de.lmu.ifi.dbs.elki.data.QuantizedShortVector;
+import de.lmu.ifi.dbs.elki.data.ShortVector;
+import de.lmu.ifi.dbs.elki.data.VectorKernels;
+import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
+import de.lmu.ifi.dbs.elki.data.type.VectorFieldTypeInformation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.EuclideanDistanceFunction;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.ManhattanDistanceFunction;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.SquaredEuclideanDistanceFunction;
+
+/**
+ * Verify the specialized vector kernels agree with the generic code paths.
+ *
+ * @author Erich Schubert
+ */
+public class VectorKernelDistanceTest {
+  /**
+   * Dimensionality of the test vectors.
+   */
+  private static final int DIM = 37;
+
+  @Test
+  public void testFloat() {
+    Random r = new Random(0L);
+    float[] a = new float[DIM], b = new float[DIM];
+    for(int i = 0; i < DIM; i++) {
+      a[i] = (float) r.nextGaussian();
+      b[i] = (float) r.nextGaussian();
+    }
+    check(FloatVector.FACTORY, new FloatVector(a), new FloatVector(b), 1e-12);
+  }
+
+  @Test
+  public void testShortAndByte() {
+    Random r = new Random(1L);
+    short[] a = new short[DIM], b = new short[DIM];
+    byte[] c = new byte[DIM], d = new byte[DIM];
+    for(int i = 0; i < DIM; i++) {
+      a[i] = (short) (r.nextInt(65536) - 32768);
+      b[i] = (short) (r.nextInt(65536) - 32768);
+      c[i] = (byte) (r.nextInt(256) - 128);
+      d[i] = (byte) (r.nextInt(256) - 128);
+    }
+    check(ShortVector.STATIC, new ShortVector(a), new ShortVector(b), 1e-12);
+    check(ByteVector.STATIC, new ByteVector(c), new ByteVector(d), 1e-12);
+  }
+
+  @Test
+  public void testQuantized() {
+    Random r = new Random(2L);
+    double[] a = new double[DIM], b = new double[DIM];
+    for(int i = 0; i < DIM; i++) {
+      a[i] = r.nextDouble() * 10 + 3;
+      b[i] = r.nextDouble() * 10 - 2;
+    }
+    // Shared quantization: integer kernels
+    check(QuantizedByteVector.STATIC, QuantizedByteVector.quantize(a, 0.1, 4.), QuantizedByteVector.quantize(b, 0.1, 4.), 1e-10);
+    check(QuantizedShortVector.STATIC, QuantizedShortVector.quantize(a, 1e-3, 4.), QuantizedShortVector.quantize(b, 1e-3, 4.), 1e-10);
+    // Different quantization: mixed kernels
+    check(QuantizedByteVector.STATIC, QuantizedByteVector.quantize(a, 0.1, 4.), QuantizedByteVector.quantize(b, 0.05, 3.), 1e-10);
+    check(QuantizedShortVector.STATIC, QuantizedShortVector.quantize(a, 1e-3, 4.), QuantizedShortVector.quantize(b, 2e-3, 3.), 1e-10);
+    // Factory with a shared value range
+    QuantizedByteVector.Factory bf = new QuantizedByteVector.Factory(-2., 13.);
+    check(bf, bf.newNumberVector(a), bf.newNumberVector(b), 1e-10);
+    QuantizedShortVector.Factory sf = new QuantizedShortVector.Factory(-2., 13.);
+    check(sf, sf.newNumberVector(a), sf.newNumberVector(b), 1e-10);
+    // Quantization error
+    QuantizedShortVector q = sf.newNumberVector(a);
+    for(int i = 0; i < DIM; i++) {
+      assertEquals("Quantization error too large.", a[i], q.doubleValue(i), 1e-3);
+    }
+  }
+
+  @Test
+  public void testKernelSelection() {
+    assertNotNull(VectorKernels.get(new VectorFieldTypeInformation<>(DoubleVector.FACTORY, DIM)));
+    assertNotNull(VectorKernels.get(new VectorFieldTypeInformation<>(QuantizedByteVector.STATIC, DIM)));
+    // Only for a fixed dimensionality and a concrete vector type:
+    assertNull(VectorKernels.get(new VectorFieldTypeInformation<>(DoubleVector.FACTORY, 2, DIM, DoubleVector.VARIABLE_SERIALIZER)));
+    assertNull(VectorKernels.get(TypeUtil.NUMBER_VECTOR_FIELD));
+  }
+
+  /**
+   * Compare the distance functions and the kernel to a generic reference
+   * implementation.
+   *
+   * @param factory Vector factory, for the data type
+   * @param v1 First vector
+   * @param v2 Second vector
+   * @param eps Relative tolerance
+   */
+  private static <V extends NumberVector> void check(NumberVector.Factory<V> factory, V v1, V v2, double eps) {
+    double l1 = 0., l2 = 0., cross = 0., n1 = 0., n2 = 0.;
+    for(int i = 0; i < DIM; i++) {
+      final double x = v1.doubleValue(i), y = v2.doubleValue(i);
+      l1 += Math.abs(x - y);
+      l2 += (x - y) * (x - y);
+      cross += x * y;
+      n1 += x * x;
+      n2 += y * y;
+    }
+    final double cos = Math.abs(cross) / Math.sqrt(n1 * n2);
+    final String name = v1.getClass().getSimpleName();
+    VectorKernels.Kernel kernel = VectorKernels.get(new VectorFieldTypeInformation<>(factory, DIM));
+    assertNotNull(name + " kernel", kernel);
+    assertEquals(name + " Manhattan kernel", l1, kernel.manhattan(v1, v2), l1 * eps);
+    assertEquals(name + " squared Euclidean kernel", l2, kernel.squaredEuclidean(v1, v2), l2 * eps);
+    assertEquals(name + " cosine kernel", cos, kernel.cosAngle(v1, v2), eps);
+    // Generic code path of the distance functions:
+    assertEquals(name + " Manhattan", l1, ManhattanDistanceFunction.STATIC.distance(v1, v2), l1 * eps);
+    assertEquals(name + " squared Euclidean", l2, SquaredEuclideanDistanceFunction.STATIC.distance(v1, v2), l2 * eps);
+    assertEquals(name + " Euclidean", Math.sqrt(l2), EuclideanDistanceFunction.STATIC.distance(v1, v2), Math.sqrt(l2) * eps);
+    assertEquals(name + " cosine", 1 - cos, CosineDistanceFunction.STATIC.distance(v1, v2), eps);
+    // Mixed types:
+    DoubleVector d2 = DoubleVector.wrap(v2.toArray());
+    assertEquals(name + " mixed", l2, SquaredEuclideanDistanceFunction.STATIC.distance(v1, d2), l2 * eps);
+  }
+}
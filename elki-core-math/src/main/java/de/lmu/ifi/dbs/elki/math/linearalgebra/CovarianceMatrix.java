@@ -228,6 +228,56 @@ public class CovarianceMatrix {
     System.arraycopy(nmea, 0, mean, 0, nmea.length);
   }
 
+  /**
+   * Join the data of another covariance matrix into this one.
+   *
+   * This allows aggregating data in parallel, then merging the partial
+   * results.
+   *
+   * @param other Other covariance matrix
+   */
+  public void put(CovarianceMatrix other) {
+    assert (other.mean.length == mean.length);
+    if(!(other.wsum > 0.)) {
+      return;
+    }
+    final double nwsum = wsum + other.wsum;
+    final double f = wsum * other.wsum / nwsum;
+    // Compute deltas of the means:
+    for(int i = 0; i < mean.length; i++) {
+      nmea[i] = other.mean[i] - mean[i];
+    }
+    // Update covariance matrix
+    for(int i = 0; i < mean.length; i++) {
+      for(int j = i; j < mean.length; j++) {
+        double delta = other.elements[i][j] + nmea[i] * nmea[j] * f;
+        elements[i][j] = elements[i][j] + delta;
+        // Optimize via symmetry
+        if(i != j) {
+          elements[j][i] = elements[j][i] + delta;
+        }
+      }
+    }
+    // Update means
+    final double r = other.wsum / nwsum;
+    for(int i = 0; i < mean.length; i++) {
+      mean[i] += nmea[i] * r;
+    }
+    wsum = nwsum;
+  }
+
+  /**
+   * Get the unnormalized scatter matrix, i.e. the weighted sum of the
+   * products of the deviations from the mean.
+   *
+   * This is the internal storage, and must not be modified.
+   *
+   * @return Scatter matrix
+   */
+  public double[][] getScatterMatrix() {
+    return elements;
+  }
+
   /**
    * Get the weight sum, to test whether the covariance matrix can be
    * materialized.
@@ -0,0 +1,69 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.math.linearalgebra;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Unit test for {@link CovarianceMatrix}.
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ */
+public class CovarianceMatrixTest {
+  @Test
+  public void testMerge() {
+    final int dim = 3, size = 1000;
+    Random r = new Random(0);
+    CovarianceMatrix all = new CovarianceMatrix(dim);
+    CovarianceMatrix[] parts = new CovarianceMatrix[4];
+    for(int p = 0; p < parts.length; p++) {
+      parts[p] = new CovarianceMatrix(dim);
+    }
+    double[] v = new double[dim];
+    for(int i = 0; i < size; i++) {
+      for(int d = 0; d < dim; d++) {
+        v[d] = r.nextGaussian() * (d + 1) + d;
+      }
+      final double w = r.nextDouble();
+      all.put(v, w);
+      // Uneven partitions, the last remains empty:
+      parts[i < 100 ? 0 : i < 700 ? 1 : 2].put(v, w);
+    }
+    CovarianceMatrix merged = new CovarianceMatrix(dim);
+    for(CovarianceMatrix p : parts) {
+      merged.put(p);
+    }
+    assertEquals("Weight does not match.", all.getWeight(), merged.getWeight(), 1e-10);
+    double[] m1 = all.getMeanVector(), m2 = merged.getMeanVector();
+    double[][] c1 = all.makeNaiveMatrix(), c2 = merged.makeNaiveMatrix();
+    for(int i = 0; i < dim; i++) {
+      assertEquals("Mean does not match.", m1[i], m2[i], 1e-12);
+      for(int j = 0; j < dim; j++) {
+        assertEquals("Covariance does not match.", c1[i][j], c2[i][j], 1e-12);
+      }
+    }
+  }
+}
@@ -30,7 +30,8 @@ import java.util.concurrent.atomic.AtomicInteger;
 /**
  * Core for parallel processing in ELKI, based on {@link ThreadPoolExecutor}.
  * 
- * TODO: make configurable how many threads are used.
+ * By default, all available processors are used; the number of threads can be
+ * changed with {@link #setParallelism}.
  * 
  * @author Erich Schubert
  * @since 0.7.0
@@ -87,6 +88,34 @@ public class ParallelCore {
     return executor != null ? executor.getMaximumPoolSize() : processors;
   }
 
+  /**
+   * Set the desired level of parallelism.
+   * 
+   * @param processors Number of threads to run in parallel
+   */
+  public synchronized void setParallelism(int processors) {
+    if(processors < 1) {
+      throw new IllegalArgumentException("At least one thread is required.");
+    }
+    this.processors = processors;
+    if(executor != null) {
+      // The core pool size must never exceed the maximum pool size:
+      final boolean busy = connected.get() > 0;
+      if(processors > executor.getMaximumPoolSize()) {
+        executor.setMaximumPoolSize(processors);
+        if(busy) {
+          executor.setCorePoolSize(processors);
+        }
+      }
+      else {
+        if(busy) {
+          executor.setCorePoolSize(processors);
+        }
+        executor.setMaximumPoolSize(processors);
+      }
+    }
+  }
+
   /**
    * Submit a task to the executor core.
    * 
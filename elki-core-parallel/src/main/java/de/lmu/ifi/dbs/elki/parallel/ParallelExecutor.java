@@ -26,11 +26,16 @@ import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.logging.progress.FiniteProgress;
 import de.lmu.ifi.dbs.elki.parallel.processor.Processor;
 import de.lmu.ifi.dbs.elki.parallel.variables.SharedVariable;
 import de.lmu.ifi.dbs.elki.parallel.variables.SharedVariable.Instance;
@@ -38,15 +43,35 @@ import de.lmu.ifi.dbs.elki.parallel.variables.SharedVariable.Instance;
 /**
  * Class to run processors in parallel, on all available cores.
  *
- * TODO: add progress
+ * Each thread initially owns a contiguous range of the data, which it
+ * processes in chunks of decreasing size. Threads that run out of work steal
+ * the second half of the largest remaining range of another thread. This way,
+ * skewed per-object cost (e.g. dense regions versus noise) does not leave a
+ * single straggler thread running, while each thread still keeps one set of
+ * processor instances (and hence, the {@link Processor#cleanup} semantics).
+ *
+ * If one thread fails, or the calling thread is interrupted, all other threads
+ * stop at the next chunk boundary.
  *
  * @author Erich Schubert
  * @since 0.7.0
  *
  * @apiviz.has BlockArrayRunner
+ * @apiviz.has BlockWorker
  * @apiviz.uses ParallelCore
  */
 public class ParallelExecutor {
+  /**
+   * Minimum chunk size to claim at once.
+   */
+  private static final int MIN_CHUNK = 16;
+
+  /**
+   * Maximum chunk size to claim at once (to keep stealing and progress
+   * responsive).
+   */
+  private static final int MAX_CHUNK = 4096;
+
   /**
    * Run a task on all available CPUs.
    *
@@ -54,33 +79,50 @@ public class ParallelExecutor {
    * @param procs Processors to run
    */
   public static final void run(DBIDs ids, Processor... procs) {
+    run(ids, null, null, procs);
+  }
+
+  /**
+   * Run a task on all available CPUs.
+   *
+   * @param ids IDs to process
+   * @param prog Progress to increment, may be {@code null}
+   * @param log Logger to report progress to
+   * @param procs Processors to run
+   */
+  public static final void run(DBIDs ids, FiniteProgress prog, Logging log, Processor... procs) {
     ParallelCore core = ParallelCore.getCore();
     core.connect();
+    final AtomicBoolean cancelled = new AtomicBoolean(false);
+    List<Future<ArrayDBIDs>> parts = null;
     try {
-      // TODO: try different strategies anyway!
       ArrayDBIDs aids = DBIDUtil.ensureArray(ids);
       final int size = aids.size();
-      int numparts = core.getParallelism();
-      // TODO: are there better heuristics for choosing this?
-      numparts = (size > numparts * numparts * 16) ? numparts * Math.max(1, numparts - 1) : numparts;
-
-      final int blocksize = (size + (numparts - 1)) / numparts;
-      List<Future<ArrayDBIDs>> parts = new ArrayList<>(numparts);
+      final int numparts = Math.max(1, Math.min(core.getParallelism(), (size + MIN_CHUNK - 1) / MIN_CHUNK));
+      BlockArrayRunner[] runners = new BlockArrayRunner[numparts];
       for(int i = 0; i < numparts; i++) {
-        final int start = i * blocksize;
-        final int end = (start + blocksize < size) ? start + blocksize : size;
-        Callable<ArrayDBIDs> run = new BlockArrayRunner(aids, start, end, procs);
-        parts.add(core.submit(run));
+        runners[i] = new BlockArrayRunner(aids, (int) (i * (long) size / numparts), (int) ((i + 1) * (long) size / numparts), procs, runners, cancelled, prog, log);
+      }
+      parts = new ArrayList<>(numparts);
+      for(int i = 0; i < numparts; i++) {
+        parts.add(core.submit(runners[i]));
       }
-
       for(Future<ArrayDBIDs> fut : parts) {
         fut.get();
       }
+      if(prog != null) {
+        prog.ensureCompleted(log);
+      }
     }
     catch(ExecutionException e) {
+      cancelled.set(true);
+      cancel(parts);
       throw new RuntimeException("Processor execution failed.", e);
     }
     catch(InterruptedException e) {
+      cancelled.set(true);
+      cancel(parts);
+      Thread.currentThread().interrupt();
       throw new RuntimeException("Parallel execution interrupted.");
     }
     finally {
@@ -89,7 +131,108 @@ public class ParallelExecutor {
   }
 
   /**
-   * Run for an array part, without step size.
+   * Process the integer range [0:size[ in blocks of (at most) the given size,
+   * on all available cores.
+   *
+   * Each thread obtains one worker from the factory, and claims blocks in
+   * ascending order until all blocks are taken. Callers that need to process
+   * expensive blocks first (e.g. long rows of a triangular matrix) should map
+   * the block indexes accordingly. If there is only one block, or only one
+   * core, the blocks are processed in the calling thread.
+   *
+   * If one worker fails, the other workers stop after their current block, and
+   * the exception is rethrown in the calling thread.
+   *
+   * @param size Number of elements
+   * @param blocksize Block size
+   * @param factory Factory for per-thread workers
+   * @param <W> Worker type
+   * @return Workers used, e.g. for aggregating per-thread results
+   */
+  public static <W extends BlockWorker> List<W> runBlocks(final int size, final int blocksize, BlockWorkerFactory<W> factory) {
+    final int numblocks = (int) ((size + (long) blocksize - 1) / blocksize);
+    final ParallelCore core = ParallelCore.getCore();
+    final int threads = Math.max(1, Math.min(core.getParallelism(), numblocks));
+    List<W> workers = new ArrayList<>(threads);
+    if(threads == 1) {
+      W worker = factory.make();
+      for(int start = 0; start < size; start += blocksize) {
+        worker.process(start, Math.min(start + blocksize, size));
+      }
+      workers.add(worker);
+      return workers;
+    }
+    final AtomicInteger next = new AtomicInteger();
+    final AtomicBoolean cancelled = new AtomicBoolean(false);
+    List<Future<W>> futures = new ArrayList<>(threads);
+    core.connect();
+    try {
+      for(int t = 0; t < threads; t++) {
+        final W worker = factory.make();
+        futures.add(core.submit(new Callable<W>() {
+          @Override
+          public W call() {
+            try {
+              for(int b = next.getAndIncrement(); b < numblocks && !cancelled.get(); b = next.getAndIncrement()) {
+                final int start = b * blocksize;
+                worker.process(start, Math.min(start + blocksize, size));
+              }
+            }
+            catch(RuntimeException | Error e) {
+              cancelled.set(true);
+              throw e;
+            }
+            return worker;
+          }
+        }));
+      }
+      for(Future<W> fut : futures) {
+        workers.add(fut.get());
+      }
+      return workers;
+    }
+    catch(ExecutionException e) {
+      cancelled.set(true);
+      cancel(futures);
+      Throwable cause = e.getCause();
+      if(cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if(cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new RuntimeException("Parallel execution failed.", cause);
+    }
+    catch(InterruptedException e) {
+      cancelled.set(true);
+      cancel(futures);
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Parallel execution interrupted.");
+    }
+    finally {
+      core.disconnect();
+    }
+  }
+
+  /**
+   * Cancel all remaining tasks, after a failure.
+   *
+   * @param parts Futures
+   */
+  private static void cancel(List<? extends Future<?>> parts) {
+    if(parts != null) {
+      for(Future<?> fut : parts) {
+        fut.cancel(true);
+      }
+    }
+  }
+
+  /**
+   * Run for an array part, stealing work from other runners when done.
+   *
+   * The remaining range is encoded into a single long, with the current
+   * position in the high and the end position in the low 32 bits, so that
+   * both the owner and thieves can update it using compare-and-swap.
    *
    * @author Erich Schubert
    *
@@ -102,20 +245,35 @@ public class ParallelExecutor {
     private ArrayDBIDs ids;
 
     /**
-     * Start position
+     * Remaining range, current position (high) and end (low).
+     */
+    private final AtomicLong range;
+
+    /**
+     * All runners of this execution, to steal work from.
      */
-    private int start;
+    private BlockArrayRunner[] runners;
 
     /**
-     * End position
+     * Cancellation flag, shared by all runners.
      */
-    private int end;
+    private final AtomicBoolean cancelled;
 
     /**
      * The processor masters that own the instances.
      */
     private Processor[] procs;
 
+    /**
+     * Progress, may be {@code null}.
+     */
+    private FiniteProgress prog;
+
+    /**
+     * Logger for progress.
+     */
+    private Logging log;
+
     /**
      * Variables map.
      */
@@ -128,13 +286,20 @@ public class ParallelExecutor {
      * @param start Starting position
      * @param end End position
      * @param procs Processors to run
+     * @param runners All runners, for work stealing
+     * @param cancelled Shared cancellation flag
+     * @param prog Progress, may be {@code null}
+     * @param log Logger for progress
      */
-    protected BlockArrayRunner(ArrayDBIDs ids, int start, int end, Processor[] procs) {
+    protected BlockArrayRunner(ArrayDBIDs ids, int start, int end, Processor[] procs, BlockArrayRunner[] runners, AtomicBoolean cancelled, FiniteProgress prog, Logging log) {
       super();
       this.ids = ids;
-      this.start = start;
-      this.end = end;
+      this.range = new AtomicLong(pack(start, end));
       this.procs = procs;
+      this.runners = runners;
+      this.cancelled = cancelled;
+      this.prog = prog;
+      this.log = log;
     }
 
     @Override
@@ -145,18 +310,107 @@ public class ParallelExecutor {
       }
 
       DBIDArrayIter iter = ids.iter();
-      iter.seek(start);
-      for(int c = end - start; iter.valid() && c >= 0; iter.advance(), c--) {
-        for(int i = 0; i < instances.length; i++) {
-          instances[i].map(iter);
+      try {
+        while(!isCancelled()) {
+          final long chunk = claim();
+          if(chunk < 0) {
+            if(!steal()) {
+              break;
+            }
+            continue;
+          }
+          final int start = (int) (chunk >>> 32), end = (int) chunk;
+          for(iter.seek(start); iter.getOffset() < end; iter.advance()) {
+            for(int i = 0; i < instances.length; i++) {
+              instances[i].map(iter);
+            }
+          }
+          if(prog != null) {
+            prog.incrementProcessed(end - start, log);
+          }
         }
       }
-      for(int i = 0; i < instances.length; i++) {
+      catch(RuntimeException | Error e) {
+        cancelled.set(true); // Stop the other runners, too.
+        throw e;
+      }
+      for(int i = 0; i < procs.length; i++) {
         procs[i].cleanup(instances[i]);
       }
       return ids;
     }
 
+    /**
+     * Claim the next chunk from the own range.
+     *
+     * @return Packed chunk (start, end), or -1 if the range is empty.
+     */
+    private long claim() {
+      while(true) {
+        final long cur = range.get();
+        final int pos = (int) (cur >>> 32), end = (int) cur;
+        if(pos >= end) {
+          return -1;
+        }
+        final int len = Math.max(MIN_CHUNK, Math.min(MAX_CHUNK, (end - pos) >>> 3));
+        final int next = Math.min(end, pos + len);
+        if(range.compareAndSet(cur, pack(next, end))) {
+          return pack(pos, next);
+        }
+      }
+    }
+
+    /**
+     * Steal the second half of the largest remaining range of another runner.
+     *
+     * @return {@code true} if work was stolen
+     */
+    private boolean steal() {
+      while(true) {
+        BlockArrayRunner victim = null;
+        long vcur = 0;
+        int best = MIN_CHUNK;
+        for(BlockArrayRunner other : runners) {
+          final long cur = other.range.get();
+          final int remaining = (int) cur - (int) (cur >>> 32);
+          if(other != this && remaining > best) {
+            victim = other;
+            vcur = cur;
+            best = remaining;
+          }
+        }
+        if(victim == null || isCancelled()) {
+          return false;
+        }
+        final int pos = (int) (vcur >>> 32), end = (int) vcur;
+        final int mid = pos + ((end - pos) >>> 1);
+        if(victim.range.compareAndSet(vcur, pack(pos, mid))) {
+          range.set(pack(mid, end));
+          return true;
+        }
+      }
+    }
+
+    /**
+     * Test for cancellation.
+     *
+     * @return {@code true} when cancelled
+     */
+    private boolean isCancelled() {
+      return cancelled.get() || Thread.currentThread().isInterrupted();
+    }
+
+    /**
+     * Pack a range into a long.
+     *
+     * @param start Start
+     * @param end End
+     * @return Packed value
+     */
+    private static long pack(int start, int end) {
+      return (((long) start) << 32) | (end & 0xFFFFFFFFL);
+    }
+
     @Override
     public <I extends Instance<?>> I getInstance(SharedVariable<I> parent) {
       @SuppressWarnings("unchecked")
@@ -168,4 +422,38 @@ public class ParallelExecutor {
       return inst;
     }
   }
+
+  /**
+   * Worker processing blocks of an integer range, for {@link #runBlocks}.
+   *
+   * Each thread uses its own worker, so workers may keep per-thread scratch
+   * space and partial results.
+   *
+   * @author Erich Schubert
+   */
+  public interface BlockWorker {
+    /**
+     * Process one block.
+     *
+     * @param start First index (inclusive)
+     * @param end Last index (exclusive)
+     */
+    void process(int start, int end);
+  }
+
+  /**
+   * Factory for per-thread block workers.
+   *
+   * @author Erich Schubert
+   *
+   * @param <W> Worker type
+   */
+  public interface BlockWorkerFactory<W extends BlockWorker> {
+    /**
+     * Make a new worker, for one thread.
+     *
+     * @return Worker
+     */
+    W make();
+  }
 }
@@ -30,6 +30,7 @@ import de.lmu.ifi.dbs.elki.parallel.variables.SharedObject;
  * Compute the kNN distance for each object.
  * 
  * Needs the k nearest neighbors as input, for example from {@link KNNProcessor}.
+ * If there are fewer than k neighbors, the k-distance is infinite.
  * 
  * @author Erich Schubert
  * @since 0.7.0
@@ -104,7 +105,7 @@ public class KDistanceProcessor extends AbstractDoubleProcessor {
 
     @Override
     public void map(DBIDRef id) {
-      output.set(input.get().get(k - 1).doubleValue());
+      output.set(input.get().getKNNDistance());
     }
   }
 }
@@ -0,0 +1,272 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.parallel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRange;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.parallel.processor.Processor;
+
+/**
+ * Test the parallel executor, with several threads even on single-core
+ * machines.
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ */
+public class ParallelExecutorTest {
+  /**
+   * Number of threads to use.
+   */
+  private static final int THREADS = 4;
+
+  /**
+   * Previous level of parallelism.
+   */
+  private int prev;
+
+  @Before
+  public void setUp() {
+    prev = ParallelCore.getCore().getParallelism();
+    ParallelCore.getCore().setParallelism(THREADS);
+  }
+
+  @After
+  public void tearDown() {
+    ParallelCore.getCore().setParallelism(prev);
+  }
+
+  @Test
+  public void testRunBlocksUneven() {
+    final int size = 10007, blocksize = 64;
+    final AtomicIntegerArray counts = new AtomicIntegerArray(size);
+    List<CountingWorker> workers = ParallelExecutor.runBlocks(size, blocksize, new ParallelExecutor.BlockWorkerFactory<CountingWorker>() {
+      @Override
+      public CountingWorker make() {
+        return new CountingWorker(counts, blocksize, -1);
+      }
+    });
+    assertEquals("Number of workers.", THREADS, workers.size());
+    int processed = 0;
+    for(CountingWorker w : workers) {
+      processed += w.processed;
+    }
+    assertEquals("Number of elements processed.", size, processed);
+    for(int i = 0; i < size; i++) {
+      assertEquals("Element not processed exactly once: " + i, 1, counts.get(i));
+    }
+  }
+
+  @Test
+  public void testRunBlocksException() {
+    final int size = 10000, blocksize = 10;
+    final AtomicIntegerArray counts = new AtomicIntegerArray(size);
+    try {
+      ParallelExecutor.runBlocks(size, blocksize, new ParallelExecutor.BlockWorkerFactory<CountingWorker>() {
+        @Override
+        public CountingWorker make() {
+          return new CountingWorker(counts, blocksize, 50);
+        }
+      });
+      fail("Exception was not propagated.");
+    }
+    catch(IllegalStateException e) {
+      assertEquals("Exception was not propagated.", "Failing block.", e.getMessage());
+    }
+    assertTrue("Other workers were not cancelled.", countProcessed(counts) < size / 2);
+  }
+
+  @Test
+  public void testRunUneven() {
+    final DBIDRange ids = DBIDUtil.generateStaticDBIDRange(10007);
+    // Skewed cost, so that the other threads steal work from the first:
+    CountingProcessor proc = new CountingProcessor(ids, -1, 1000);
+    ParallelExecutor.run(ids, proc);
+    assertEquals("Instances not cleaned up.", proc.instances.get(), proc.cleanups.get());
+    for(int i = 0; i < ids.size(); i++) {
+      assertEquals("Element not processed exactly once: " + i, 1, proc.counts.get(i));
+    }
+  }
+
+  @Test
+  public void testRunException() {
+    final DBIDRange ids = DBIDUtil.generateStaticDBIDRange(10000);
+    CountingProcessor proc = new CountingProcessor(ids, 500, ids.size());
+    try {
+      ParallelExecutor.run(ids, proc);
+      fail("Exception was not propagated.");
+    }
+    catch(RuntimeException e) {
+      assertTrue("Exception was not propagated.", e.getCause().getCause() instanceof IllegalStateException);
+    }
+    assertTrue("Other workers were not cancelled.", countProcessed(proc.counts) < ids.size() / 2);
+  }
+
+  /**
+   * Count the processed elements.
+   *
+   * @param counts Counts
+   * @return Number of elements processed at least once
+   */
+  private static int countProcessed(AtomicIntegerArray counts) {
+    int processed = 0;
+    for(int i = 0; i < counts.length(); i++) {
+      processed += counts.get(i) > 0 ? 1 : 0;
+    }
+    return processed;
+  }
+
+  /**
+   * Simulate some work on an object.
+   */
+  private static void work() {
+    LockSupport.parkNanos(100000L);
+  }
+
+  /**
+   * Block worker counting how often each element was processed.
+   *
+   * @author Erich Schubert
+   */
+  private static class CountingWorker implements ParallelExecutor.BlockWorker {
+    /**
+     * Counts per element.
+     */
+    private final AtomicIntegerArray counts;
+
+    /**
+     * Block size, and element to fail at (-1 to never fail).
+     */
+    private final int blocksize, fail;
+
+    /**
+     * Number of elements processed by this worker.
+     */
+    int processed;
+
+    /**
+     * Constructor.
+     *
+     * @param counts Counts per element
+     * @param blocksize Expected block size
+     * @param fail Element to fail at, -1 to never fail
+     */
+    CountingWorker(AtomicIntegerArray counts, int blocksize, int fail) {
+      this.counts = counts;
+      this.blocksize = blocksize;
+      this.fail = fail;
+    }
+
+    @Override
+    public void process(int start, int end) {
+      assertEquals("Block does not start at a block boundary.", 0, start % blocksize);
+      assertTrue("Block too large.", end - start <= blocksize && end <= counts.length());
+      for(int i = start; i < end; i++) {
+        if(i == fail) {
+          throw new IllegalStateException("Failing block.");
+        }
+        if(fail >= 0) {
+          work();
+        }
+        counts.incrementAndGet(i);
+        ++processed;
+      }
+    }
+  }
+
+  /**
+   * Processor counting how often each object was processed.
+   *
+   * @author Erich Schubert
+   */
+  private static class CountingProcessor implements Processor {
+    /**
+     * Objects to process.
+     */
+    final DBIDRange ids;
+
+    /**
+     * Counts per object.
+     */
+    final AtomicIntegerArray counts;
+
+    /**
+     * Object offset to fail at (-1 to never fail), and end of the expensive
+     * objects.
+     */
+    final int fail, slow;
+
+    /**
+     * Number of instances created and cleaned up.
+     */
+    final AtomicInteger instances = new AtomicInteger(), cleanups = new AtomicInteger();
+
+    /**
+     * Constructor.
+     *
+     * @param ids Objects to process
+     * @param fail Object offset to fail at, -1 to never fail
+     * @param slow Objects before this offset are expensive
+     */
+    CountingProcessor(DBIDRange ids, int fail, int slow) {
+      this.ids = ids;
+      this.counts = new AtomicIntegerArray(ids.size());
+      this.fail = fail;
+      this.slow = slow;
+    }
+
+    @Override
+    public Instance instantiate(Executor executor) {
+      instances.incrementAndGet();
+      return new Instance() {
+        @Override
+        public void map(DBIDRef id) {
+          final int off = ids.getOffset(id);
+          if(off == fail) {
+            throw new IllegalStateException("Failing object.");
+          }
+          if(off < slow) {
+            work();
+          }
+          counts.incrementAndGet(off);
+        }
+      };
+    }
+
+    @Override
+    public void cleanup(Instance inst) {
+      cleanups.incrementAndGet();
+    }
+  }
+}
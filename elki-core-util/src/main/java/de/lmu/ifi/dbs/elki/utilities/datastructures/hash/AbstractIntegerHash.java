@@ -0,0 +1,340 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.utilities.datastructures.hash;
+
+import java.util.Arrays;
+
+import de.lmu.ifi.dbs.elki.utilities.datastructures.iterator.Iter;
+
+/**
+ * Base class for open addressing hash tables with primitive integer keys.
+ *
+ * The tables use linear probing, a power-of-two capacity, and are kept at
+ * most half full. Deleted entries are removed by shifting back the following
+ * entries of the same cluster, so no tombstones are needed. The key 0 marks
+ * free slots; if the key 0 itself is stored, it is kept in an additional slot
+ * at the end of the arrays.
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ */
+public abstract class AbstractIntegerHash {
+  /**
+   * Minimum capacity.
+   */
+  private static final int MIN_CAPACITY = 4;
+
+  /**
+   * Maximum capacity.
+   */
+  private static final int MAX_CAPACITY = 1 << 30;
+
+  /**
+   * Keys, with one extra slot for the key 0.
+   */
+  protected int[] keys;
+
+  /**
+   * Bit mask of the hash table (capacity - 1).
+   */
+  protected int mask;
+
+  /**
+   * Number of entries.
+   */
+  protected int size;
+
+  /**
+   * Flag whether the key 0 is present.
+   */
+  protected boolean hasZero;
+
+  /**
+   * Constructor.
+   *
+   * @param expected Expected number of entries
+   */
+  protected AbstractIntegerHash(int expected) {
+    final int cap = capacityFor(expected);
+    this.keys = new int[cap + 1];
+    this.mask = cap - 1;
+  }
+
+  /**
+   * Compute the table size for the given number of entries.
+   *
+   * @param expected Expected number of entries
+   * @return Capacity (power of two)
+   */
+  protected static int capacityFor(int expected) {
+    if(expected >= MAX_CAPACITY >>> 1) {
+      return MAX_CAPACITY;
+    }
+    return Math.max(MIN_CAPACITY, Integer.highestOneBit((expected << 1) - 1) << 1);
+  }
+
+  /**
+   * Hash function: multiply with the golden ratio, and fold the high bits
+   * into the low bits, as only the low bits are used.
+   *
+   * @param k Key
+   * @return Hash code
+   */
+  protected static int mix(int k) {
+    final int h = k * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * Find the position of a key.
+   *
+   * @param k Key
+   * @return Position, or {@code -insertion position - 1} when not found.
+   */
+  protected final int find(int k) {
+    if(k == 0) {
+      return hasZero ? mask + 1 : -mask - 2;
+    }
+    final int[] keys = this.keys;
+    int pos = mix(k) & mask;
+    for(int cur; (cur = keys[pos]) != 0; pos = (pos + 1) & mask) {
+      if(cur == k) {
+        return pos;
+      }
+    }
+    return -pos - 1;
+  }
+
+  /**
+   * Find a free position for a key not in the table, used when rehashing.
+   *
+   * @param k Key (not 0)
+   * @return Free position
+   */
+  protected final int freeSlot(int k) {
+    int pos = mix(k) & mask;
+    while(keys[pos] != 0) {
+      pos = (pos + 1) & mask;
+    }
+    return pos;
+  }
+
+  /**
+   * Store a key at an insertion position obtained from {@link #find}.
+   *
+   * @param pos Position
+   * @param k Key
+   */
+  protected final void setKey(int pos, int k) {
+    if(pos > mask) {
+      hasZero = true;
+    }
+    else {
+      keys[pos] = k;
+    }
+  }
+
+  /**
+   * Count a new entry, and grow the table if it is more than half full. Must
+   * be called after the key and value have been stored.
+   */
+  protected final void inserted() {
+    if(++size > (mask + 1) >>> 1 && mask + 1 < MAX_CAPACITY) {
+      rehash((mask + 1) << 1);
+    }
+  }
+
+  /**
+   * Remove the entry at the given position, and shift back the following
+   * entries of the same cluster.
+   *
+   * @param pos Position
+   */
+  protected final void removeAt(int pos) {
+    --size;
+    if(pos > mask) {
+      hasZero = false;
+      clearValue(pos);
+      return;
+    }
+    final int[] keys = this.keys;
+    int last = pos;
+    while(true) {
+      pos = (last + 1) & mask;
+      int k;
+      while(true) {
+        if((k = keys[pos]) == 0) {
+          keys[last] = 0;
+          clearValue(last);
+          return;
+        }
+        final int slot = mix(k) & mask;
+        // Can the entry at pos be moved to last?
+        if(last <= pos ? (last >= slot || slot > pos) : (last >= slot && slot > pos)) {
+          break;
+        }
+        pos = (pos + 1) & mask;
+      }
+      keys[last] = k;
+      moveValue(pos, last);
+      last = pos;
+    }
+  }
+
+  /**
+   * Move a value when shifting back entries.
+   *
+   * @param from Old position
+   * @param to New position
+   */
+  protected abstract void moveValue(int from, int to);
+
+  /**
+   * Clear the value at a position, e.g. to allow garbage collection.
+   *
+   * @param pos Position
+   */
+  protected void clearValue(int pos) {
+    // Nothing to do for primitive values.
+  }
+
+  /**
+   * Resize the hash table, and reinsert all entries.
+   *
+   * @param newcap New capacity (power of two)
+   */
+  protected abstract void rehash(int newcap);
+
+  /**
+   * Ensure there is room for the given number of additional entries.
+   *
+   * @param additional Number of entries to be added
+   */
+  public void ensureCapacity(int additional) {
+    final int cap = capacityFor(size + additional);
+    if(cap > mask + 1) {
+      rehash(cap);
+    }
+  }
+
+  /**
+   * Get the number of entries.
+   *
+   * @return Size
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Test if the hash is empty.
+   *
+   * @return {@code true} when empty
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Remove all entries.
+   */
+  public void clear() {
+    Arrays.fill(keys, 0);
+    hasZero = false;
+    size = 0;
+  }
+
+  /**
+   * Iterator over the occupied positions.
+   *
+   * The entry with key 0 is returned first. The table is then scanned
+   * downwards, starting just below a free slot. Because no cluster of
+   * entries contains this free slot, removing the current entry only shifts
+   * back entries that were already returned, so removal via the iterator is
+   * safe.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   */
+  protected abstract class PositionIter implements Iter {
+    /**
+     * Current position, -1 when invalid.
+     */
+    protected int pos;
+
+    /**
+     * Free slot where the scan ends.
+     */
+    private final int stop;
+
+    /**
+     * Constructor.
+     */
+    protected PositionIter() {
+      int f = 0;
+      while(keys[f] != 0) {
+        ++f;
+      }
+      this.stop = f;
+      if(hasZero) {
+        pos = mask + 1;
+      }
+      else {
+        scan((stop - 1) & mask);
+      }
+    }
+
+    /**
+     * Scan downwards for the next occupied position.
+     *
+     * @param p Starting position
+     */
+    private void scan(int p) {
+      final int[] keys = AbstractIntegerHash.this.keys;
+      for(; p != stop; p = (p - 1) & mask) {
+        if(keys[p] != 0) {
+          pos = p;
+          return;
+        }
+      }
+      pos = -1;
+    }
+
+    @Override
+    public boolean valid() {
+      return pos >= 0;
+    }
+
+    @Override
+    public Iter advance() {
+      scan(((pos > mask ? stop : pos) - 1) & mask);
+      return this;
+    }
+
+    /**
+     * Remove the current entry. Call {@link #advance} afterwards.
+     */
+    public void remove() {
+      removeAt(pos);
+    }
+  }
+}
@@ -0,0 +1,218 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.utilities.datastructures.hash;
+
+/**
+ * Open addressing hash map from primitive integers to primitive doubles.
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ *
+ * @apiviz.has Itr
+ */
+public class IntegerDoubleHashMap extends AbstractIntegerHash {
+  /**
+   * Values.
+   */
+  private double[] values;
+
+  /**
+   * Value returned for missing keys.
+   */
+  private final double def;
+
+  /**
+   * Constructor, with default value Double.NaN.
+   *
+   * @param expected Expected number of entries
+   */
+  public IntegerDoubleHashMap(int expected) {
+    this(expected, Double.NaN);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param expected Expected number of entries
+   * @param def Value returned for missing keys
+   */
+  public IntegerDoubleHashMap(int expected, double def) {
+    super(expected);
+    this.values = new double[keys.length];
+    this.def = def;
+  }
+
+  /**
+   * Get the value returned for missing keys.
+   *
+   * @return Default value
+   */
+  public double getDefaultValue() {
+    return def;
+  }
+
+  /**
+   * Get the value of a key.
+   *
+   * @param k Key
+   * @return Value, or the default value
+   */
+  public double get(int k) {
+    final int pos = find(k);
+    return pos >= 0 ? values[pos] : def;
+  }
+
+  /**
+   * Test if a key is present.
+   *
+   * @param k Key
+   * @return {@code true} if present
+   */
+  public boolean containsKey(int k) {
+    return find(k) >= 0;
+  }
+
+  /**
+   * Set the value of a key.
+   *
+   * @param k Key
+   * @param v Value
+   * @return Previous value, or the default value
+   */
+  public double put(int k, double v) {
+    int pos = find(k);
+    if(pos >= 0) {
+      final double old = values[pos];
+      values[pos] = v;
+      return old;
+    }
+    pos = -pos - 1;
+    setKey(pos, k);
+    values[pos] = v;
+    inserted();
+    return def;
+  }
+
+  /**
+   * Add to the value of a key. Missing keys start at the default value.
+   *
+   * @param k Key
+   * @param v Increment
+   * @return New value
+   */
+  public double increment(int k, double v) {
+    int pos = find(k);
+    if(pos >= 0) {
+      return values[pos] += v;
+    }
+    pos = -pos - 1;
+    setKey(pos, k);
+    final double n = values[pos] = def + v;
+    inserted();
+    return n;
+  }
+
+  /**
+   * Remove a key.
+   *
+   * @param k Key
+   * @return Previous value, or the default value
+   */
+  public double remove(int k) {
+    final int pos = find(k);
+    if(pos < 0) {
+      return def;
+    }
+    final double old = values[pos];
+    removeAt(pos);
+    return old;
+  }
+
+  @Override
+  protected void moveValue(int from, int to) {
+    values[to] = values[from];
+  }
+
+  @Override
+  protected void rehash(int newcap) {
+    final int[] oldkeys = keys;
+    final double[] oldvalues = values;
+    final int oldcap = mask + 1;
+    keys = new int[newcap + 1];
+    values = new double[newcap + 1];
+    mask = newcap - 1;
+    for(int i = 0; i < oldcap; i++) {
+      final int k = oldkeys[i];
+      if(k != 0) {
+        final int pos = freeSlot(k);
+        keys[pos] = k;
+        values[pos] = oldvalues[i];
+      }
+    }
+    values[newcap] = oldvalues[oldcap];
+  }
+
+  /**
+   * Iterate over the entries. Entries may be removed via the iterator, but the
+   * map must not be modified otherwise while iterating.
+   *
+   * @return Iterator
+   */
+  public Itr iter() {
+    return new Itr();
+  }
+
+  /**
+   * Iterator over the entries.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   */
+  public class Itr extends PositionIter {
+    /**
+     * Get the current key.
+     *
+     * @return Key
+     */
+    public int getKey() {
+      return pos > mask ? 0 : keys[pos];
+    }
+
+    /**
+     * Get the current value.
+     *
+     * @return Value
+     */
+    public double getDouble() {
+      return values[pos];
+    }
+
+    /**
+     * Set the current value.
+     *
+     * @param v New value
+     */
+    public void setDouble(double v) {
+      values[pos] = v;
+    }
+  }
+}
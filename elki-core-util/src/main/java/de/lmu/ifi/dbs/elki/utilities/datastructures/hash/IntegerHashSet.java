@@ -0,0 +1,159 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.utilities.datastructures.hash;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Open addressing hash set of primitive integers.
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ *
+ * @apiviz.has Itr
+ */
+public class IntegerHashSet extends AbstractIntegerHash {
+  /**
+   * Constructor.
+   */
+  public IntegerHashSet() {
+    this(0);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param expected Expected number of entries
+   */
+  public IntegerHashSet(int expected) {
+    super(expected);
+  }
+
+  /**
+   * Add a value.
+   *
+   * @param k Value
+   * @return {@code true} if the set changed
+   */
+  public boolean add(int k) {
+    int pos = find(k);
+    if(pos >= 0) {
+      return false;
+    }
+    setKey(-pos - 1, k);
+    inserted();
+    return true;
+  }
+
+  /**
+   * Remove a value.
+   *
+   * @param k Value
+   * @return {@code true} if the set changed
+   */
+  public boolean remove(int k) {
+    int pos = find(k);
+    if(pos < 0) {
+      return false;
+    }
+    removeAt(pos);
+    return true;
+  }
+
+  /**
+   * Test if a value is contained.
+   *
+   * @param k Value
+   * @return {@code true} if contained
+   */
+  public boolean contains(int k) {
+    return find(k) >= 0;
+  }
+
+  /**
+   * Remove and return an arbitrary value.
+   *
+   * @return Removed value
+   * @throws NoSuchElementException when empty
+   */
+  public int pop() {
+    if(hasZero) {
+      removeAt(mask + 1);
+      return 0;
+    }
+    final int[] keys = this.keys;
+    for(int i = mask; i >= 0; i--) {
+      final int k = keys[i];
+      if(k != 0) {
+        removeAt(i);
+        return k;
+      }
+    }
+    throw new NoSuchElementException("Cannot pop() from an empty set.");
+  }
+
+  @Override
+  protected void moveValue(int from, int to) {
+    // No values.
+  }
+
+  @Override
+  protected void rehash(int newcap) {
+    final int[] oldkeys = keys;
+    final int oldcap = mask + 1;
+    keys = new int[newcap + 1];
+    mask = newcap - 1;
+    for(int i = 0; i < oldcap; i++) {
+      final int k = oldkeys[i];
+      if(k != 0) {
+        keys[freeSlot(k)] = k;
+      }
+    }
+  }
+
+  /**
+   * Iterate over the values. Values may be removed via the iterator, but the
+   * set must not be modified otherwise while iterating.
+   *
+   * @return Iterator
+   */
+  public Itr iter() {
+    return new Itr();
+  }
+
+  /**
+   * Iterator over the values.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   */
+  public class Itr extends PositionIter {
+    /**
+     * Get the current value.
+     *
+     * @return Value
+     */
+    public int getInt() {
+      return pos > mask ? 0 : keys[pos];
+    }
+  }
+}
@@ -0,0 +1,200 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.utilities.datastructures.hash;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map from primitive integers to objects.
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ *
+ * @apiviz.has Itr
+ *
+ * @param <V> Value type
+ */
+public class IntegerObjectHashMap<V> extends AbstractIntegerHash {
+  /**
+   * Values.
+   */
+  private Object[] values;
+
+  /**
+   * Constructor.
+   */
+  public IntegerObjectHashMap() {
+    this(0);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param expected Expected number of entries
+   */
+  public IntegerObjectHashMap(int expected) {
+    super(expected);
+    this.values = new Object[keys.length];
+  }
+
+  /**
+   * Get the value of a key.
+   *
+   * @param k Key
+   * @return Value, or {@code null}
+   */
+  @SuppressWarnings("unchecked")
+  public V get(int k) {
+    final int pos = find(k);
+    return pos >= 0 ? (V) values[pos] : null;
+  }
+
+  /**
+   * Test if a key is present.
+   *
+   * @param k Key
+   * @return {@code true} if present
+   */
+  public boolean containsKey(int k) {
+    return find(k) >= 0;
+  }
+
+  /**
+   * Set the value of a key.
+   *
+   * @param k Key
+   * @param v Value
+   * @return Previous value, or {@code null}
+   */
+  @SuppressWarnings("unchecked")
+  public V put(int k, V v) {
+    int pos = find(k);
+    if(pos >= 0) {
+      final V old = (V) values[pos];
+      values[pos] = v;
+      return old;
+    }
+    pos = -pos - 1;
+    setKey(pos, k);
+    values[pos] = v;
+    inserted();
+    return null;
+  }
+
+  /**
+   * Remove a key.
+   *
+   * @param k Key
+   * @return Previous value, or {@code null}
+   */
+  @SuppressWarnings("unchecked")
+  public V remove(int k) {
+    final int pos = find(k);
+    if(pos < 0) {
+      return null;
+    }
+    final V old = (V) values[pos];
+    removeAt(pos);
+    return old;
+  }
+
+  @Override
+  public void clear() {
+    super.clear();
+    Arrays.fill(values, null);
+  }
+
+  @Override
+  protected void moveValue(int from, int to) {
+    values[to] = values[from];
+  }
+
+  @Override
+  protected void clearValue(int pos) {
+    values[pos] = null;
+  }
+
+  @Override
+  protected void rehash(int newcap) {
+    final int[] oldkeys = keys;
+    final Object[] oldvalues = values;
+    final int oldcap = mask + 1;
+    keys = new int[newcap + 1];
+    values = new Object[newcap + 1];
+    mask = newcap - 1;
+    for(int i = 0; i < oldcap; i++) {
+      final int k = oldkeys[i];
+      if(k != 0) {
+        final int pos = freeSlot(k);
+        keys[pos] = k;
+        values[pos] = oldvalues[i];
+      }
+    }
+    values[newcap] = oldvalues[oldcap];
+  }
+
+  /**
+   * Iterate over the entries. Entries may be removed via the iterator, but the
+   * map must not be modified otherwise while iterating.
+   *
+   * @return Iterator
+   */
+  public Itr iter() {
+    return new Itr();
+  }
+
+  /**
+   * Iterator over the entries.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   */
+  public class Itr extends PositionIter {
+    /**
+     * Get the current key.
+     *
+     * @return Key
+     */
+    public int getKey() {
+      return pos > mask ? 0 : keys[pos];
+    }
+
+    /**
+     * Get the current value.
+     *
+     * @return Value
+     */
+    @SuppressWarnings("unchecked")
+    public V getValue() {
+      return (V) values[pos];
+    }
+
+    /**
+     * Set the current value.
+     *
+     * @param v New value
+     */
+    public void setValue(V v) {
+      values[pos] = v;
+    }
+  }
+}
@@ -3,7 +3,9 @@
  * 
  * Note: much of the desired functionality is provided by the very good GNU Trove library.
  * 
- * This package will only contain slight extensions or variations, not provided by Trove already.
+ * This package contains slight extensions or variations not provided by Trove,
+ * and lean open addressing hash tables with primitive integer keys, that are
+ * used for DBID sets and data stores.
  */
 /*
  * This file is part of ELKI:
@@ -0,0 +1,247 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.utilities.datastructures.heap;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of integer indexes in {@code [0, capacity)}, with double
+ * priorities, supporting decrease-key.
+ * <p>
+ * Unlike {@link UpdatableHeap}, this does not need entry objects or a hash map
+ * to locate the heap position of an element: priorities and positions are
+ * stored in primitive arrays indexed by the element, so updates neither
+ * allocate nor hash. This is intended for algorithms such as OPTICS, where the
+ * elements are the offsets of the objects in the data set.
+ * <p>
+ * Elements with the same priority are returned in decreasing index order (the
+ * tie-breaking previously used by OPTICS), so the output order does not depend
+ * on the order of insertions.
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ */
+public class IndexedDoubleMinHeap {
+  /**
+   * Position marker for elements not in the heap.
+   */
+  private static final int NOT_IN_HEAP = -1;
+
+  /**
+   * Heap of element indexes.
+   */
+  protected int[] heap;
+
+  /**
+   * Priority of each element.
+   */
+  protected double[] prio;
+
+  /**
+   * Position of each element in the heap, or {@link #NOT_IN_HEAP}.
+   */
+  protected int[] pos;
+
+  /**
+   * Current size of heap.
+   */
+  protected int size;
+
+  /**
+   * Constructor.
+   *
+   * @param capacity Number of elements, exclusive upper bound of the indexes.
+   */
+  public IndexedDoubleMinHeap(int capacity) {
+    super();
+    heap = new int[capacity];
+    prio = new double[capacity];
+    pos = new int[capacity];
+    Arrays.fill(pos, NOT_IN_HEAP);
+  }
+
+  /**
+   * Remove all elements.
+   */
+  public void clear() {
+    for(int i = 0; i < size; i++) {
+      pos[heap[i]] = NOT_IN_HEAP;
+    }
+    size = 0;
+  }
+
+  /**
+   * Number of elements in the heap.
+   *
+   * @return Size
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Test whether the heap is empty.
+   *
+   * @return {@code true} when empty.
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Test whether an element is currently in the heap.
+   *
+   * @param i Element index
+   * @return {@code true} when contained
+   */
+  public boolean contains(int i) {
+    return pos[i] != NOT_IN_HEAP;
+  }
+
+  /**
+   * Get the current priority of an element in the heap.
+   *
+   * @param i Element index, must be contained in the heap
+   * @return Priority
+   */
+  public double getPriority(int i) {
+    assert (contains(i)) : "Element not in heap.";
+    return prio[i];
+  }
+
+  /**
+   * Insert an element, or decrease its priority if it is already in the heap.
+   * Priorities are never increased.
+   *
+   * @param i Element index
+   * @param p Priority
+   * @return {@code true} if the element was inserted or its priority decreased
+   */
+  public boolean offer(int i, double p) {
+    int ipos = pos[i];
+    if(ipos == NOT_IN_HEAP) {
+      ipos = size++;
+    }
+    else if(!(p < prio[i])) {
+      return false;
+    }
+    prio[i] = p;
+    heapifyUp(ipos, i);
+    return true;
+  }
+
+  /**
+   * Get the element with the smallest priority.
+   *
+   * @return Element index
+   */
+  public int peek() {
+    assert (size > 0) : "Heap is empty.";
+    return heap[0];
+  }
+
+  /**
+   * Get the smallest priority.
+   *
+   * @return Priority
+   */
+  public double peekPriority() {
+    assert (size > 0) : "Heap is empty.";
+    return prio[heap[0]];
+  }
+
+  /**
+   * Remove the element with the smallest priority.
+   *
+   * @return Element index
+   */
+  public int poll() {
+    assert (size > 0) : "Heap is empty.";
+    final int top = heap[0];
+    pos[top] = NOT_IN_HEAP;
+    if(--size > 0) {
+      heapifyDown(0, heap[size]);
+    }
+    return top;
+  }
+
+  /**
+   * Order of two elements: by priority, then by descending index.
+   *
+   * @param a First element
+   * @param b Second element
+   * @return {@code true} if a is to be returned before b.
+   */
+  private boolean before(int a, int b) {
+    final double pa = prio[a], pb = prio[b];
+    return pa < pb || (pa == pb && a > b);
+  }
+
+  /**
+   * Heapify-Up method.
+   *
+   * @param ipos Start position
+   * @param cur Element to place
+   */
+  private void heapifyUp(int ipos, int cur) {
+    while(ipos > 0) {
+      final int parent = (ipos - 1) >>> 1;
+      final int par = heap[parent];
+      if(!before(cur, par)) {
+        break;
+      }
+      heap[ipos] = par;
+      pos[par] = ipos;
+      ipos = parent;
+    }
+    heap[ipos] = cur;
+    pos[cur] = ipos;
+  }
+
+  /**
+   * Heapify-Down method.
+   *
+   * @param ipos Start position
+   * @param cur Element to place
+   */
+  private void heapifyDown(int ipos, int cur) {
+    final int half = size >>> 1;
+    while(ipos < half) {
+      // Get left child (must exist!)
+      int cpos = (ipos << 1) + 1;
+      int child = heap[cpos];
+      // Test right child, if present
+      final int rpos = cpos + 1;
+      if(rpos < size && before(heap[rpos], child)) {
+        cpos = rpos;
+        child = heap[rpos];
+      }
+      if(!before(child, cur)) {
+        break;
+      }
+      heap[ipos] = child;
+      pos[child] = ipos;
+      ipos = cpos;
+    }
+    heap[ipos] = cur;
+    pos[cur] = ipos;
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.utilities.datastructures.hash;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test the open addressing integer to double hash map against
+ * {@link HashMap}.
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ */
+public class IntegerDoubleHashMapTest {
+  /**
+   * Random puts, increments and removes.
+   */
+  @Test
+  public void testRandomOperations() {
+    Random r = new Random(0L);
+    IntegerDoubleHashMap map = new IntegerDoubleHashMap(0, -1.);
+    HashMap<Integer, Double> ref = new HashMap<>();
+    for(int i = 0; i < 100000; i++) {
+      final int k = r.nextInt(2000) - 100;
+      final Double old = ref.get(k);
+      final double v = r.nextInt(100);
+      switch(r.nextInt(3)){
+      case 0:
+        ref.put(k, v);
+        assertEquals("Put result differs.", old != null ? old : -1., map.put(k, v), 0.);
+        break;
+      case 1:
+        ref.put(k, (old != null ? old : -1.) + v);
+        assertEquals("Increment result differs.", ref.get(k), map.increment(k, v), 0.);
+        break;
+      default:
+        ref.remove(k);
+        assertEquals("Remove result differs.", old != null ? old : -1., map.remove(k), 0.);
+      }
+      assertEquals("Size differs.", ref.size(), map.size());
+    }
+    for(int k = -100; k < 1900; k++) {
+      final Double v = ref.get(k);
+      assertEquals("Get differs for " + k, v != null ? v : -1., map.get(k), 0.);
+    }
+    HashMap<Integer, Double> res = new HashMap<>();
+    for(IntegerDoubleHashMap.Itr it = map.iter(); it.valid(); it.advance()) {
+      res.put(it.getKey(), it.getDouble());
+    }
+    assertEquals("Iteration differs.", ref, res);
+    for(Map.Entry<Integer, Double> e : ref.entrySet()) {
+      assertEquals("Get differs.", e.getValue(), map.get(e.getKey()), 0.);
+    }
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.utilities.datastructures.hash;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test the open addressing integer hash set against {@link HashSet}.
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ */
+public class IntegerHashSetTest {
+  /**
+   * Random adds and removes, including the special key 0, and many collisions
+   * due to the small value range.
+   */
+  @Test
+  public void testRandomOperations() {
+    Random r = new Random(0L);
+    IntegerHashSet set = new IntegerHashSet();
+    HashSet<Integer> ref = new HashSet<>();
+    for(int i = 0; i < 100000; i++) {
+      final int k = r.nextInt(2000) - 100;
+      if(r.nextInt(3) > 0) {
+        assertEquals("Add result differs.", ref.add(k), set.add(k));
+      }
+      else {
+        assertEquals("Remove result differs.", ref.remove(k), set.remove(k));
+      }
+      assertEquals("Size differs.", ref.size(), set.size());
+    }
+    for(int k = -100; k < 1900; k++) {
+      assertEquals("Contains differs for " + k, ref.contains(k), set.contains(k));
+    }
+    assertEquals("Iteration differs.", ref, toSet(set));
+  }
+
+  /**
+   * Remove every other element while iterating.
+   */
+  @Test
+  public void testIteratorRemove() {
+    Random r = new Random(1L);
+    IntegerHashSet set = new IntegerHashSet(10);
+    HashSet<Integer> ref = new HashSet<>();
+    for(int i = 0; i < 10000; i++) {
+      final int k = r.nextInt(20000) - 10000;
+      set.add(k);
+      ref.add(k);
+    }
+    final int size = set.size();
+    HashSet<Integer> seen = new HashSet<>();
+    boolean drop = false;
+    for(IntegerHashSet.Itr it = set.iter(); it.valid(); it.advance()) {
+      assertTrue("Value returned twice.", seen.add(it.getInt()));
+      if(drop = !drop) {
+        ref.remove(it.getInt());
+        it.remove();
+      }
+    }
+    assertEquals("Not all values seen.", size, seen.size());
+    assertEquals("Iteration differs.", ref, toSet(set));
+  }
+
+  /**
+   * Pop all elements.
+   */
+  @Test
+  public void testPop() {
+    IntegerHashSet set = new IntegerHashSet();
+    HashSet<Integer> ref = new HashSet<>();
+    for(int i = -50; i < 50; i++) {
+      set.add(i * 31);
+      ref.add(i * 31);
+    }
+    while(!set.isEmpty()) {
+      assertTrue("Unexpected value.", ref.remove(set.pop()));
+    }
+    assertTrue("Not all values popped.", ref.isEmpty());
+    assertFalse("Value remains.", set.contains(0));
+  }
+
+  /**
+   * Collect the contents via the iterator.
+   *
+   * @param set Hash set
+   * @return Java set
+   */
+  private static HashSet<Integer> toSet(IntegerHashSet set) {
+    HashSet<Integer> res = new HashSet<>();
+    for(IntegerHashSet.Itr it = set.iter(); it.valid(); it.advance()) {
+      assertTrue("Value returned twice.", res.add(it.getInt()));
+    }
+    assertEquals("Iterator size differs.", set.size(), res.size());
+    return res;
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.utilities.datastructures.heap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test the indexed heap used by OPTICS.
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ */
+public class IndexedDoubleMinHeapTest {
+  @Test
+  public void testIndexedHeap() {
+    final int iters = 100;
+    final int maxid = 5000;
+    final int bsize = 100;
+    final Random r = new Random(1);
+    IndexedDoubleMinHeap heap = new IndexedDoubleMinHeap(maxid);
+    // Simulation: priority of each element, NaN if absent.
+    double[] simulate = new double[maxid];
+    Arrays.fill(simulate, Double.NaN);
+    int simsize = 0;
+    for(int i = 0; i < iters; i++) {
+      int batchsize = r.nextInt(bsize);
+      for(int j = 0; j < batchsize; j++) {
+        int id = r.nextInt(maxid);
+        // Few distinct values, to have ties.
+        double score = r.nextInt(100);
+        boolean changed = heap.offer(id, score);
+        double old = simulate[id];
+        if(old != old) {
+          simulate[id] = score;
+          simsize++;
+          assertTrue("Insertion not reported.", changed);
+        }
+        else {
+          assertEquals("Update not reported correctly.", score < old, changed);
+          simulate[id] = Math.min(old, score);
+        }
+      }
+      assertEquals("Sizes don't match!", simsize, heap.size());
+      int remove = r.nextInt(simsize + 1);
+      for(int j = 0; j < remove; j++) {
+        // Find the expected minimum, ties by descending index:
+        int best = -1;
+        for(int k = 0; k < maxid; k++) {
+          if(simulate[k] == simulate[k] && (best < 0 || simulate[k] <= simulate[best])) {
+            best = k;
+          }
+        }
+        assertEquals("Priority doesn't agree.", simulate[best], heap.peekPriority(), 0.);
+        assertEquals("Element doesn't agree.", best, heap.poll());
+        assertFalse("Polled element still contained.", heap.contains(best));
+        simulate[best] = Double.NaN;
+        simsize--;
+      }
+    }
+    heap.clear();
+    assertTrue("Heap not empty after clear.", heap.isEmpty());
+    for(int k = 0; k < maxid; k++) {
+      assertFalse("Element still contained after clear.", heap.contains(k));
+    }
+  }
+}
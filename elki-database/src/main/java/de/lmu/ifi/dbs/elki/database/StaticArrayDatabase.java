@@ -21,16 +21,24 @@
 package de.lmu.ifi.dbs.elki.database;
 
 import java.util.Collection;
+import java.util.List;
 
+import de.lmu.ifi.dbs.elki.data.DoubleVector;
+import de.lmu.ifi.dbs.elki.data.FloatVector;
+import de.lmu.ifi.dbs.elki.data.NumberVector;
 import de.lmu.ifi.dbs.elki.data.type.SimpleTypeInformation;
+import de.lmu.ifi.dbs.elki.data.type.VectorFieldTypeInformation;
 import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
 import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
 import de.lmu.ifi.dbs.elki.database.datastore.WritableDataStore;
 import de.lmu.ifi.dbs.elki.database.ids.ArrayStaticDBIDs;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRange;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
 import de.lmu.ifi.dbs.elki.database.relation.DBIDView;
+import de.lmu.ifi.dbs.elki.database.relation.DoubleVectorArrayRelation;
+import de.lmu.ifi.dbs.elki.database.relation.FloatVectorArrayRelation;
 import de.lmu.ifi.dbs.elki.database.relation.MaterializedRelation;
 import de.lmu.ifi.dbs.elki.database.relation.Relation;
 import de.lmu.ifi.dbs.elki.datasource.DatabaseConnection;
@@ -50,6 +58,10 @@ import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.ObjectParameter;
  * dynamic insert, delete and update operations. However, array access is
  * expected to be faster and use less memory.
  *
+ * Dense double and float vectors of fixed dimensionality are stored in
+ * primitive arrays, see {@link DoubleVectorArrayRelation} and
+ * {@link FloatVectorArrayRelation}.
+ *
  * @author Arthur Zimek
  * @author Erich Schubert
  * @since 0.2
@@ -57,6 +69,8 @@ import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.ObjectParameter;
  * @apiviz.landmark
  * @apiviz.composedOf ArrayStaticDBIDs
  * @apiviz.uses DatabaseConnection
+ * @apiviz.has DoubleVectorArrayRelation
+ * @apiviz.has FloatVectorArrayRelation
  */
 @Description("Database using an in-memory hashtable and at least providing linear scans.")
 public class StaticArrayDatabase extends AbstractDatabase {
@@ -145,11 +159,14 @@ public class StaticArrayDatabase extends AbstractDatabase {
         SimpleTypeInformation<?> meta = bundle.meta(i);
         @SuppressWarnings("unchecked")
         SimpleTypeInformation<Object> ometa = (SimpleTypeInformation<Object>) meta;
-        WritableDataStore<Object> store = DataStoreUtil.makeStorage(ids, DataStoreFactory.HINT_DB, ometa.getRestrictionClass());
-        for(it.seek(0); it.valid(); it.advance()) {
-          store.put(it, bundle.data(it.getOffset(), i));
+        Relation<?> relation = makeDenseRelation(meta, bundle, i);
+        if(relation == null) {
+          WritableDataStore<Object> store = DataStoreUtil.makeStorage(ids, DataStoreFactory.HINT_DB, ometa.getRestrictionClass());
+          for(it.seek(0); it.valid(); it.advance()) {
+            store.put(it, bundle.data(it.getOffset(), i));
+          }
+          relation = new MaterializedRelation<>(ometa, ids, null, store);
         }
-        Relation<?> relation = new MaterializedRelation<>(ometa, ids, null, store);
         relations.add(relation);
         getHierarchy().add(this, relation);
 
@@ -176,6 +193,34 @@ public class StaticArrayDatabase extends AbstractDatabase {
     }
   }
 
+  /**
+   * Use columnar primitive storage for dense double and float vectors of fixed
+   * dimensionality.
+   *
+   * @param meta Type information
+   * @param bundle Data bundle
+   * @param col Column number
+   * @return Relation, or {@code null} if not applicable
+   */
+  @SuppressWarnings("unchecked")
+  private Relation<?> makeDenseRelation(SimpleTypeInformation<?> meta, MultipleObjectsBundle bundle, int col) {
+    if(!(ids instanceof DBIDRange) || !(meta instanceof VectorFieldTypeInformation)) {
+      return null;
+    }
+    final VectorFieldTypeInformation<?> vmeta = (VectorFieldTypeInformation<?>) meta;
+    if(vmeta.mindim() != vmeta.maxdim()) {
+      return null;
+    }
+    final List<? extends NumberVector> column = (List<? extends NumberVector>) bundle.getColumn(col);
+    if(vmeta.getRestrictionClass() == DoubleVector.class) {
+      return new DoubleVectorArrayRelation((VectorFieldTypeInformation<DoubleVector>) vmeta, (DBIDRange) ids, null, column);
+    }
+    if(vmeta.getRestrictionClass() == FloatVector.class) {
+      return new FloatVectorArrayRelation((VectorFieldTypeInformation<FloatVector>) vmeta, (DBIDRange) ids, null, column);
+    }
+    return null;
+  }
+
   @Override
   protected Logging getLogger() {
     return LOG;
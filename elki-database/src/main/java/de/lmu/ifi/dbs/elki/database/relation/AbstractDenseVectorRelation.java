@@ -0,0 +1,146 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.database.relation;
+
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.data.type.VectorFieldTypeInformation;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRange;
+import de.lmu.ifi.dbs.elki.database.ids.StaticDBIDs;
+
+/**
+ * Abstract base class for relations storing dense vectors in primitive
+ * arrays.
+ *
+ * The vectors are stored row-major, in chunks of a power-of-two number of
+ * rows, such that a single chunk does not exceed {@code 2^24} values. This
+ * allows relations larger than the maximum Java array size, while the offset
+ * computation remains a shift and a mask.
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ *
+ * @param <O> Vector type
+ */
+public abstract class AbstractDenseVectorRelation<O extends NumberVector> extends AbstractRelation<O> implements DenseVectorRelation<O> {
+  /**
+   * Maximum number of values in a single chunk (log2).
+   */
+  private static final int CHUNK_BITS = 24;
+
+  /**
+   * The type of objects we store.
+   */
+  private final VectorFieldTypeInformation<O> type;
+
+  /**
+   * The DBIDs this is defined for.
+   */
+  protected final DBIDRange ids;
+
+  /**
+   * Dimensionality.
+   */
+  protected final int dim;
+
+  /**
+   * Shift and mask to compute chunk and row within the chunk.
+   */
+  protected final int shift, mask;
+
+  /**
+   * The relation name.
+   */
+  private String name;
+
+  /**
+   * Constructor.
+   *
+   * @param type Type information, must have a fixed dimensionality
+   * @param ids IDs
+   * @param name Name
+   */
+  public AbstractDenseVectorRelation(VectorFieldTypeInformation<O> type, DBIDRange ids, String name) {
+    super();
+    assert (type.mindim() == type.maxdim()) : "Dimensionality is not fixed.";
+    this.type = type;
+    this.ids = ids;
+    this.name = name;
+    this.dim = type.getDimensionality();
+    final int rows = Integer.highestOneBit(Math.max(1, (1 << CHUNK_BITS) / Math.max(dim, 1)));
+    this.shift = Integer.numberOfTrailingZeros(rows);
+    this.mask = rows - 1;
+  }
+
+  /**
+   * Number of chunks needed to store all rows.
+   *
+   * @return Number of chunks
+   */
+  protected int numChunks() {
+    return ids.size() > 0 ? ((ids.size() - 1) >>> shift) + 1 : 0;
+  }
+
+  /**
+   * Number of values in the given chunk.
+   *
+   * @param chunk Chunk number
+   * @return Number of values
+   */
+  protected int chunkLength(int chunk) {
+    return Math.min(mask + 1, ids.size() - (chunk << shift)) * dim;
+  }
+
+  @Override
+  public int getDimensionality() {
+    return dim;
+  }
+
+  @Override
+  public StaticDBIDs getDBIDs() {
+    return ids;
+  }
+
+  @Override
+  public DBIDIter iterDBIDs() {
+    return ids.iter();
+  }
+
+  @Override
+  public int size() {
+    return ids.size();
+  }
+
+  @Override
+  public VectorFieldTypeInformation<O> getDataTypeInformation() {
+    return type;
+  }
+
+  @Override
+  public String getLongName() {
+    return (name != null) ? name : type.toString();
+  }
+
+  @Override
+  public String getShortName() {
+    return "relation";
+  }
+}
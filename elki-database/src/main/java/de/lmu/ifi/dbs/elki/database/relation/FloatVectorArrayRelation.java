@@ -0,0 +1,129 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.database.relation;
+
+import java.util.List;
+
+import de.lmu.ifi.dbs.elki.data.FloatVector;
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.data.type.VectorFieldTypeInformation;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRange;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+
+/**
+ * Relation storing dense float vectors in contiguous {@code float[]} chunks.
+ *
+ * {@link #get} returns a lightweight view on the shared storage, without
+ * copying the values.
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ *
+ * @apiviz.uses FloatVector
+ */
+public class FloatVectorArrayRelation extends AbstractDenseVectorRelation<FloatVector> {
+  /**
+   * Class logger.
+   */
+  private static final Logging LOG = Logging.getLogger(FloatVectorArrayRelation.class);
+
+  /**
+   * Data storage, row-major.
+   */
+  private final float[][] data;
+
+  /**
+   * Constructor.
+   *
+   * @param type Type information, must have a fixed dimensionality
+   * @param ids IDs
+   * @param name Name
+   * @param vecs Vectors, in the same order as the IDs
+   */
+  public FloatVectorArrayRelation(VectorFieldTypeInformation<FloatVector> type, DBIDRange ids, String name, List<? extends NumberVector> vecs) {
+    super(type, ids, name);
+    assert (vecs.size() == ids.size());
+    this.data = new float[numChunks()][];
+    for(int c = 0, row = 0; c < data.length; c++) {
+      final float[] chunk = data[c] = new float[chunkLength(c)];
+      for(int off = 0; off < chunk.length; off += dim, row++) {
+        final NumberVector vec = vecs.get(row);
+        assert (vec.getDimensionality() == dim) : "Vector of unexpected dimensionality.";
+        for(int d = 0; d < dim; d++) {
+          chunk[off + d] = vec.floatValue(d);
+        }
+      }
+    }
+  }
+
+  @Override
+  public FloatVector get(DBIDRef id) {
+    final int row = ids.getOffset(id);
+    return FloatVector.view(data[row >>> shift], (row & mask) * dim, dim);
+  }
+
+  @Override
+  public double doubleValue(DBIDRef id, int d) {
+    final int row = ids.getOffset(id);
+    return data[row >>> shift][(row & mask) * dim + d];
+  }
+
+  @Override
+  public void copyRow(DBIDRef id, double[] buf, int off) {
+    final int row = ids.getOffset(id);
+    final float[] chunk = data[row >>> shift];
+    for(int d = 0, o = (row & mask) * dim; d < dim; d++, o++) {
+      buf[off + d] = chunk[o];
+    }
+  }
+
+  @Override
+  public double squaredDistance(DBIDRef id1, DBIDRef id2) {
+    final int row1 = ids.getOffset(id1), row2 = ids.getOffset(id2);
+    final float[] v1 = data[row1 >>> shift], v2 = data[row2 >>> shift];
+    final int off1 = (row1 & mask) * dim, off2 = (row2 & mask) * dim;
+    double agg = 0.;
+    for(int d = 0; d < dim; d++) {
+      final double delta = (double) v1[off1 + d] - v2[off2 + d];
+      agg += delta * delta;
+    }
+    return agg;
+  }
+
+  @Override
+  public double squaredDistance(DBIDRef id, double[] vec) {
+    final int row = ids.getOffset(id);
+    final float[] v1 = data[row >>> shift];
+    final int off = (row & mask) * dim;
+    double agg = 0.;
+    for(int d = 0; d < dim; d++) {
+      final double delta = (double) v1[off + d] - vec[d];
+      agg += delta * delta;
+    }
+    return agg;
+  }
+
+  @Override
+  protected Logging getLogger() {
+    return LOG;
+  }
+}
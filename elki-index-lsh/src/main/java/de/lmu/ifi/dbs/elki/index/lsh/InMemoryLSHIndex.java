@@ -20,19 +20,15 @@
  */
 package de.lmu.ifi.dbs.elki.index.lsh;
 
-import gnu.trove.iterator.TIntObjectIterator;
-import gnu.trove.map.TIntObjectMap;
-import gnu.trove.map.hash.TIntObjectHashMap;
-
 import java.util.ArrayList;
+import java.util.Arrays;
 
 import de.lmu.ifi.dbs.elki.data.type.TypeInformation;
-import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
-import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
 import de.lmu.ifi.dbs.elki.database.ids.KNNHeap;
 import de.lmu.ifi.dbs.elki.database.ids.KNNList;
-import de.lmu.ifi.dbs.elki.database.ids.ModifiableDBIDs;
 import de.lmu.ifi.dbs.elki.database.ids.ModifiableDoubleDBIDList;
 import de.lmu.ifi.dbs.elki.database.query.DatabaseQuery;
 import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
@@ -49,6 +45,7 @@ import de.lmu.ifi.dbs.elki.index.lsh.hashfunctions.LocalitySensitiveHashFunction
 import de.lmu.ifi.dbs.elki.logging.Logging;
 import de.lmu.ifi.dbs.elki.logging.progress.FiniteProgress;
 import de.lmu.ifi.dbs.elki.logging.statistics.LongStatistic;
+import de.lmu.ifi.dbs.elki.parallel.ParallelExecutor;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.AbstractParameterizer;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.OptionID;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.constraints.CommonConstraints;
@@ -118,6 +115,7 @@ public class InMemoryLSHIndex<V> implements IndexFactory<V, InMemoryLSHIndex<V>.
    * @author Erich Schubert
    *
    * @apiviz.has LocalitySensitiveHashFunction
+   * @apiviz.composedOf BucketTable
    */
   public class Instance extends AbstractRefiningIndex<V> implements KNNIndex<V>, RangeIndex<V> {
     /**
@@ -126,15 +124,30 @@ public class InMemoryLSHIndex<V> implements IndexFactory<V, InMemoryLSHIndex<V>.
     ArrayList<? extends LocalitySensitiveHashFunction<? super V>> hashfunctions;
 
     /**
-     * The actual table
+     * The actual tables
+     */
+    BucketTable[] hashtables;
+
+    /**
+     * Object ids, indexed by the offsets stored in the tables.
      */
-    ArrayList<TIntObjectMap<DBIDs>> hashtables;
+    ArrayDBIDs ids;
 
     /**
      * Number of buckets to use.
      */
     private int numberOfBuckets;
 
+    /**
+     * Buffers for collecting candidates, one per thread.
+     */
+    private ThreadLocal<Candidates> candidates = new ThreadLocal<Candidates>() {
+      @Override
+      protected Candidates initialValue() {
+        return new Candidates(ids.size(), hashfunctions.get(0).getNumberOfProjections());
+      }
+    };
+
     /**
      * Constructor.
      *
@@ -160,62 +173,92 @@ public class InMemoryLSHIndex<V> implements IndexFactory<V, InMemoryLSHIndex<V>.
     @Override
     public void initialize() {
       final int numhash = hashfunctions.size();
-      hashtables = new ArrayList<>(numhash);
-      for(int i = 0; i < numhash; i++) {
-        hashtables.add(new TIntObjectHashMap<DBIDs>(numberOfBuckets));
-      }
-
-      // TODO: We assume all hash functions have the same dimensionality.
-      double[] buf = new double[hashfunctions.get(0).getNumberOfProjections()];
-      FiniteProgress progress = LOG.isVerbose() ? new FiniteProgress("Building LSH index", relation.size(), LOG) : null;
-      int expect = Math.max(2, (int) Math.ceil(relation.size() / (double) numberOfBuckets));
-      for(DBIDIter iter = relation.getDBIDs().iter(); iter.valid(); iter.advance()) {
-        V obj = relation.get(iter);
-        for(int i = 0; i < numhash; i++) {
-          final TIntObjectMap<DBIDs> table = hashtables.get(i);
-          final LocalitySensitiveHashFunction<? super V> hashfunc = hashfunctions.get(i);
-          // Get the initial (unbounded) hash code:
-          int hash = hashfunc.hashObject(obj, buf);
-          // Reduce to hash table size
-          int bucket = hash % numberOfBuckets;
-          DBIDs cur = table.get(bucket);
-          if(cur == null) {
-            table.put(bucket, DBIDUtil.deref(iter));
-          }
-          else if(cur.size() > 1) {
-            ((ModifiableDBIDs) cur).add(iter);
-          }
-          else {
-            ModifiableDBIDs newbuck = DBIDUtil.newArray(expect);
-            newbuck.addDBIDs(cur);
-            newbuck.add(iter);
-            table.put(bucket, newbuck);
-          }
+      ids = DBIDUtil.ensureArray(relation.getDBIDs());
+      hashtables = new BucketTable[numhash];
+      final FiniteProgress progress = LOG.isVerbose() ? new FiniteProgress("Building LSH index", numhash, LOG) : null;
+      ParallelExecutor.runBlocks(numhash, 1, new ParallelExecutor.BlockWorkerFactory<ParallelExecutor.BlockWorker>() {
+        @Override
+        public ParallelExecutor.BlockWorker make() {
+          return new ParallelExecutor.BlockWorker() {
+            @Override
+            public void process(int start, int end) {
+              for(int i = start; i < end; i++) {
+                hashtables[i] = buildTable(hashfunctions.get(i));
+                LOG.incrementProcessed(progress);
+              }
+            }
+          };
         }
-        LOG.incrementProcessed(progress);
-      }
+      });
       LOG.ensureCompleted(progress);
       if(LOG.isStatistics()) {
         int min = Integer.MAX_VALUE, max = 0;
-        for(int i = 0; i < numhash; i++) {
-          final TIntObjectMap<DBIDs> table = hashtables.get(i);
-          for(TIntObjectIterator<DBIDs> iter = table.iterator(); iter.hasNext();) {
-            iter.advance();
-            int size = iter.value().size();
-            if(size < min) {
-              min = size;
-            }
-            if(size > max) {
-              max = size;
-            }
+        long buckets = 0;
+        for(BucketTable table : hashtables) {
+          for(int b = 0; b < table.keys.length; b++) {
+            int size = table.offsets[b + 1] - table.offsets[b];
+            min = size < min ? size : min;
+            max = size > max ? size : max;
           }
+          buckets += table.keys.length;
         }
         LOG.statistics(new LongStatistic(this.getClass().getName() + ".fill.min", min));
         LOG.statistics(new LongStatistic(this.getClass().getName() + ".fill.max", max));
-        LOG.statistics(new LongStatistic(this.getClass().getName() + ".hashtables", hashtables.size()));
+        LOG.statistics(new LongStatistic(this.getClass().getName() + ".buckets", buckets));
+        LOG.statistics(new LongStatistic(this.getClass().getName() + ".hashtables", hashtables.length));
       }
     }
 
+    /**
+     * Build a single hash table.
+     *
+     * @param hashfunc Hash function
+     * @return Hash table
+     */
+    private BucketTable buildTable(LocalitySensitiveHashFunction<? super V> hashfunc) {
+      double[] buf = new double[hashfunc.getNumberOfProjections()];
+      int[] buckets = new int[ids.size()];
+      for(DBIDArrayIter iter = ids.iter(); iter.valid(); iter.advance()) {
+        // Get the initial (unbounded) hash code, and reduce to table size:
+        buckets[iter.getOffset()] = hashfunc.hashObject(relation.get(iter), buf) % numberOfBuckets;
+      }
+      return new BucketTable(buckets);
+    }
+
+    /**
+     * Collect the candidates of an object from all hash tables.
+     *
+     * The returned buffer is reused by the next call from the same thread.
+     *
+     * @param obj Query object
+     * @return Candidate buffer
+     */
+    private Candidates collectCandidates(V obj) {
+      final Candidates cands = candidates.get();
+      final long[] visited = cands.visited;
+      cands.size = 0;
+      for(int i = 0; i < hashtables.length; i++) {
+        final BucketTable table = hashtables[i];
+        // Get the initial (unbounded) hash code, and reduce to table size:
+        int b = table.find(hashfunctions.get(i).hashObject(obj, cands.buf) % numberOfBuckets);
+        if(b < 0) {
+          continue;
+        }
+        for(int s = table.offsets[b], e = table.offsets[b + 1]; s < e; s++) {
+          final int o = table.members[s];
+          if((visited[o >>> 6] & (1L << o)) == 0) {
+            visited[o >>> 6] |= 1L << o;
+            cands.add(o);
+          }
+        }
+      }
+      // Reset the bitmap, for the next query.
+      for(int j = 0; j < cands.size; j++) {
+        visited[cands.list[j] >>> 6] = 0L;
+      }
+      return cands;
+    }
+
     @Override
     public Logging getLogger() {
       return LOG;
@@ -268,35 +311,16 @@ public class InMemoryLSHIndex<V> implements IndexFactory<V, InMemoryLSHIndex<V>.
 
       @Override
       public KNNList getKNNForObject(V obj, int k) {
-        ModifiableDBIDs candidates = null;
-        final int numhash = hashtables.size();
-        double[] buf = new double[hashfunctions.get(0).getNumberOfProjections()];
-        for(int i = 0; i < numhash; i++) {
-          final TIntObjectMap<DBIDs> table = hashtables.get(i);
-          final LocalitySensitiveHashFunction<? super V> hashfunc = hashfunctions.get(i);
-          // Get the initial (unbounded) hash code:
-          int hash = hashfunc.hashObject(obj, buf);
-          // Reduce to hash table size
-          int bucket = hash % numberOfBuckets;
-          DBIDs cur = table.get(bucket);
-          if(cur != null) {
-            if(candidates == null) {
-              candidates = DBIDUtil.newHashSet(cur.size() * numhash + k);
-            }
-            candidates.addDBIDs(cur);
-          }
-        }
-        if(candidates == null) {
-          candidates = DBIDUtil.newArray();
-        }
-
+        final Candidates cands = collectCandidates(obj);
         // Refine.
         KNNHeap heap = DBIDUtil.newHeap(k);
-        for(DBIDIter iter = candidates.iter(); iter.valid(); iter.advance()) {
+        DBIDArrayIter iter = ids.iter();
+        for(int j = 0; j < cands.size; j++) {
+          iter.seek(cands.list[j]);
           final double dist = distanceQuery.distance(obj, iter);
-          super.incRefinements(1);
           heap.insert(dist, iter);
         }
+        super.incRefinements(cands.size);
         return heap.toKNNList();
       }
     }
@@ -320,31 +344,138 @@ public class InMemoryLSHIndex<V> implements IndexFactory<V, InMemoryLSHIndex<V>.
 
       @Override
       public void getRangeForObject(V obj, double range, ModifiableDoubleDBIDList result) {
-        ModifiableDBIDs candidates = DBIDUtil.newHashSet();
-        final int numhash = hashtables.size();
-        double[] buf = new double[hashfunctions.get(0).getNumberOfProjections()];
-        for(int i = 0; i < numhash; i++) {
-          final TIntObjectMap<DBIDs> table = hashtables.get(i);
-          final LocalitySensitiveHashFunction<? super V> hashfunc = hashfunctions.get(i);
-          // Get the initial (unbounded) hash code:
-          int hash = hashfunc.hashObject(obj, buf);
-          // Reduce to hash table size
-          int bucket = hash % numberOfBuckets;
-          DBIDs cur = table.get(bucket);
-          if(cur != null) {
-            candidates.addDBIDs(cur);
-          }
-        }
-
+        final Candidates cands = collectCandidates(obj);
         // Refine.
-        for(DBIDIter iter = candidates.iter(); iter.valid(); iter.advance()) {
+        DBIDArrayIter iter = ids.iter();
+        for(int j = 0; j < cands.size; j++) {
+          iter.seek(cands.list[j]);
           final double dist = distanceQuery.distance(obj, iter);
-          super.incRefinements(1);
           if(dist <= range) {
             result.add(dist, iter);
           }
         }
+        super.incRefinements(cands.size);
+      }
+    }
+  }
+
+  /**
+   * Hash table in a compact, compressed sparse row layout: the sorted bucket
+   * keys, and for each bucket a range in a single array of object offsets.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   */
+  static class BucketTable {
+    /**
+     * Sorted bucket keys.
+     */
+    final int[] keys;
+
+    /**
+     * Start of each bucket in {@link #members}, plus the end of the last.
+     */
+    final int[] offsets;
+
+    /**
+     * Object offsets, grouped by bucket.
+     */
+    final int[] members;
+
+    /**
+     * Constructor.
+     *
+     * @param buckets Bucket of each object offset
+     */
+    BucketTable(int[] buckets) {
+      final int n = buckets.length;
+      // Sort by bucket, then by offset, in a single pass:
+      long[] tmp = new long[n];
+      for(int i = 0; i < n; i++) {
+        tmp[i] = (((long) buckets[i]) << 32) | i;
+      }
+      Arrays.sort(tmp);
+      members = new int[n];
+      int nb = 0;
+      for(int i = 0; i < n; i++) {
+        members[i] = (int) tmp[i];
+        if(i == 0 || (tmp[i] >> 32) != (tmp[i - 1] >> 32)) {
+          ++nb;
+        }
+      }
+      keys = new int[nb];
+      offsets = new int[nb + 1];
+      for(int i = 0, b = 0; i < n; i++) {
+        if(i == 0 || (tmp[i] >> 32) != (tmp[i - 1] >> 32)) {
+          keys[b] = (int) (tmp[i] >> 32);
+          offsets[b++] = i;
+        }
+      }
+      offsets[nb] = n;
+    }
+
+    /**
+     * Find a bucket.
+     *
+     * @param key Bucket key
+     * @return Bucket index, or a negative value if the bucket is empty.
+     */
+    int find(int key) {
+      return Arrays.binarySearch(keys, key);
+    }
+  }
+
+  /**
+   * Reusable buffer for collecting the candidates of a query, with a bitmap
+   * of visited objects for duplicate elimination.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   */
+  private static class Candidates {
+    /**
+     * Bitmap of visited offsets, all zero between queries.
+     */
+    final long[] visited;
+
+    /**
+     * Buffer for hashing.
+     */
+    final double[] buf;
+
+    /**
+     * Candidate offsets.
+     */
+    int[] list = new int[16];
+
+    /**
+     * Number of candidates.
+     */
+    int size;
+
+    /**
+     * Constructor.
+     *
+     * @param n Number of objects
+     * @param projections Number of projections of the hash functions
+     */
+    Candidates(int n, int projections) {
+      this.visited = new long[(n + 63) >>> 6];
+      this.buf = new double[projections];
+    }
+
+    /**
+     * Add a candidate.
+     *
+     * @param o Object offset
+     */
+    void add(int o) {
+      if(size == list.length) {
+        list = Arrays.copyOf(list, list.length << 1);
       }
+      list[size++] = o;
     }
   }
 
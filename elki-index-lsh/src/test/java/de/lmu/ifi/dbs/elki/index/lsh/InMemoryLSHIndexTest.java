@@ -0,0 +1,116 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.index.lsh;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.algorithm.AbstractSimpleAlgorithmTest;
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDList;
+import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDListIter;
+import de.lmu.ifi.dbs.elki.database.ids.KNNList;
+import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
+import de.lmu.ifi.dbs.elki.database.query.knn.KNNQuery;
+import de.lmu.ifi.dbs.elki.database.query.knn.LinearScanDistanceKNNQuery;
+import de.lmu.ifi.dbs.elki.database.query.range.RangeQuery;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.EuclideanDistanceFunction;
+import de.lmu.ifi.dbs.elki.index.lsh.hashfamilies.EuclideanHashFunctionFamily;
+import de.lmu.ifi.dbs.elki.utilities.ClassGenericsUtil;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.ListParameterization;
+
+/**
+ * Unit test for the in-memory LSH index.
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ */
+public class InMemoryLSHIndexTest {
+  // the following values depend on the data set used!
+  static String dataset = "elki/testdata/unittests/3clusters-and-noise-2d.csv";
+
+  // size of the data set
+  int shoulds = 330;
+
+  @Test
+  public void testQueries() {
+    Database db = AbstractSimpleAlgorithmTest.makeSimpleDatabase(dataset, shoulds, null, null);
+    Relation<NumberVector> rel = db.getRelation(TypeUtil.NUMBER_VECTOR_FIELD);
+    DistanceQuery<NumberVector> dq = db.getDistanceQuery(rel, EuclideanDistanceFunction.STATIC);
+
+    ListParameterization config = new ListParameterization();
+    config.addParameter(InMemoryLSHIndex.Parameterizer.FAMILY_ID, EuclideanHashFunctionFamily.class);
+    config.addParameter(EuclideanHashFunctionFamily.Parameterizer.RANDOM_ID, 0L);
+    config.addParameter(EuclideanHashFunctionFamily.Parameterizer.WIDTH_ID, .2);
+    config.addParameter(EuclideanHashFunctionFamily.Parameterizer.NUMPROJ_ID, 2);
+    config.addParameter(InMemoryLSHIndex.Parameterizer.L_ID, 5);
+    InMemoryLSHIndex<NumberVector> f = ClassGenericsUtil.parameterizeOrAbort(InMemoryLSHIndex.class, config);
+    InMemoryLSHIndex<NumberVector>.Instance idx = f.instantiate(rel);
+    idx.initialize();
+
+    KNNQuery<NumberVector> knnq = idx.getKNNQuery(dq, 10);
+    RangeQuery<NumberVector> rangeq = idx.getRangeQuery(dq, .1);
+    assertNotNull("LSH kNN query not available.", knnq);
+    assertNotNull("LSH range query not available.", rangeq);
+    KNNQuery<NumberVector> lin = new LinearScanDistanceKNNQuery<>(dq);
+    int hits = 0;
+    for(DBIDIter it = rel.iterDBIDs(); it.valid(); it.advance()) {
+      KNNList exact = lin.getKNNForDBID(it, 10);
+      KNNList approx = knnq.getKNNForDBID(it, 10);
+      // The query point is always in its own buckets.
+      assertEquals("Query point not found.", 0., approx.get(0).doubleValue(), 0.);
+      int j = 0;
+      for(DoubleDBIDListIter a = approx.iter(); a.valid(); a.advance(), j++) {
+        assertEquals("Wrong distance.", dq.distance(it, a), a.doubleValue(), 0.);
+        assertTrue("Approximate neighbor closer than exact.", a.doubleValue() >= exact.get(j).doubleValue());
+        hits += a.doubleValue() <= exact.getKNNDistance() ? 1 : 0;
+      }
+      DoubleDBIDList range = rangeq.getRangeForDBID(it, .1);
+      assertTrue("Query point not in range.", range.contains(it));
+      for(DoubleDBIDListIter r = range.iter(); r.valid(); r.advance()) {
+        assertTrue("Range query returned a far object.", r.doubleValue() <= .1);
+        assertEquals("Duplicate result.", 1, countOf(range, r));
+      }
+    }
+    assertTrue("Recall of LSH too low: " + hits, hits > shoulds * 10 * 0.5);
+  }
+
+  /**
+   * Count how often an object occurs in a result.
+   *
+   * @param list Result list
+   * @param ref Object
+   * @return Count
+   */
+  private static int countOf(DoubleDBIDList list, DoubleDBIDListIter ref) {
+    int c = 0;
+    for(DoubleDBIDListIter it = list.iter(); it.valid(); it.advance()) {
+      c += DBIDUtil.equal(it, ref) ? 1 : 0;
+    }
+    return c;
+  }
+}
@@ -510,15 +510,27 @@ public abstract class AbstractMTree<O, N extends AbstractMTreeNode<O, N, E>, E e
      */
     protected final Counter rangeQueries;
 
+    /**
+     * For counting the number of nodes visited by queries.
+     */
+    protected final Counter nodeVisits;
+
+    /**
+     * For counting the number of leaf nodes scanned by queries.
+     */
+    protected final Counter leafScans;
+
     /**
      * Constructor.
      */
     public Statistics() {
       super();
       Logging log = getLogger();
-      distanceCalcs = log.isStatistics() ? log.newCounter(this.getClass().getName() + ".distancecalcs") : null;
-      knnQueries = log.isStatistics() ? log.newCounter(this.getClass().getName() + ".knnqueries") : null;
-      rangeQueries = log.isStatistics() ? log.newCounter(this.getClass().getName() + ".rangequeries") : null;
+      distanceCalcs = log.isStatistics() ? log.newConcurrentCounter(this.getClass().getName() + ".distancecalcs") : null;
+      knnQueries = log.isStatistics() ? log.newConcurrentCounter(this.getClass().getName() + ".knnqueries") : null;
+      rangeQueries = log.isStatistics() ? log.newConcurrentCounter(this.getClass().getName() + ".rangequeries") : null;
+      nodeVisits = log.isStatistics() ? log.newConcurrentCounter(this.getClass().getName() + ".nodevisits") : null;
+      leafScans = log.isStatistics() ? log.newConcurrentCounter(this.getClass().getName() + ".leafscans") : null;
     }
 
     /**
@@ -548,6 +560,20 @@ public abstract class AbstractMTree<O, N extends AbstractMTreeNode<O, N, E>, E e
       }
     }
 
+    /**
+     * Count a node visited during a query.
+     *
+     * @param leaf Flag to indicate the node is a leaf (and will be scanned)
+     */
+    public void countNodeVisit(boolean leaf) {
+      if(nodeVisits != null) {
+        nodeVisits.increment();
+        if(leaf) {
+          leafScans.increment();
+        }
+      }
+    }
+
     /**
      * Log the statistics.
      */
@@ -562,6 +588,12 @@ public abstract class AbstractMTree<O, N extends AbstractMTreeNode<O, N, E>, E e
       if(statistics.rangeQueries != null) {
         log.statistics(statistics.rangeQueries);
       }
+      if(statistics.nodeVisits != null) {
+        log.statistics(statistics.nodeVisits);
+      }
+      if(statistics.leafScans != null) {
+        log.statistics(statistics.leafScans);
+      }
     }
   }
 
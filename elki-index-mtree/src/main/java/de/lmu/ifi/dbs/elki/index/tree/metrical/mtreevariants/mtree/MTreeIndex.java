@@ -48,6 +48,10 @@ import de.lmu.ifi.dbs.elki.utilities.io.ByteArrayUtil;
 
 /**
  * Class for using an m-tree as database index.
+ * <p>
+ * kNN and range queries may be run from multiple threads while the tree is
+ * not modified, if the page file supports concurrent reads (such as
+ * {@link de.lmu.ifi.dbs.elki.persistent.MemoryPageFile}).
  *
  * @author Erich Schubert
  * @since 0.4.0
@@ -85,6 +85,7 @@ public class MetricalIndexKNNQuery<O> extends AbstractDistanceKNNQuery<O> {
       }
 
       AbstractMTreeNode<?, ?, ?> node = index.getNode(pqNode.nodeID);
+      index.statistics.countNodeVisit(node.isLeaf());
       DBID id_p = pqNode.routingObjectID;
       double d1 = pqNode.routingDistance;
 
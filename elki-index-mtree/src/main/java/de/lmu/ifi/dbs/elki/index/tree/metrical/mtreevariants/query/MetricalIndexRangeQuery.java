@@ -68,6 +68,7 @@ public class MetricalIndexRangeQuery<O> extends AbstractDistanceRangeQuery<O> {
    * @param result the list holding the query results
    */
   private void doRangeQuery(DBID o_p, AbstractMTreeNode<O, ?, ?> node, O q, double r_q, ModifiableDoubleDBIDList result) {
+    index.statistics.countNodeVisit(node.isLeaf());
     double d1 = 0.;
     if(o_p != null) {
       d1 = distanceQuery.distance(o_p, q);
@@ -24,6 +24,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.ObjectOutputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Stack;
 
@@ -41,10 +42,12 @@ import de.lmu.ifi.dbs.elki.index.tree.spatial.SpatialDirectoryEntry;
 import de.lmu.ifi.dbs.elki.index.tree.spatial.SpatialEntry;
 import de.lmu.ifi.dbs.elki.index.tree.spatial.SpatialIndexTree;
 import de.lmu.ifi.dbs.elki.index.tree.spatial.SpatialPointLeafEntry;
+import de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.strategies.bulk.ParallelBulkSplit;
 import de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.util.NodeArrayAdapter;
 import de.lmu.ifi.dbs.elki.logging.Logging;
 import de.lmu.ifi.dbs.elki.logging.statistics.Counter;
 import de.lmu.ifi.dbs.elki.logging.statistics.LongStatistic;
+import de.lmu.ifi.dbs.elki.parallel.ParallelExecutor;
 import de.lmu.ifi.dbs.elki.persistent.PageFile;
 import de.lmu.ifi.dbs.elki.utilities.datastructures.BitsUtil;
 import de.lmu.ifi.dbs.elki.utilities.exceptions.AbortException;
@@ -340,6 +343,10 @@ public abstract class AbstractRStarTree<N extends AbstractRStarTreeNode<N, E>, E
     int minEntries = leafMinimum;
     int maxEntries = leafCapacity;
 
+    if(settings.parallelBulkLoad) {
+      return createBulkLeafNodesParallel(objects, minEntries, maxEntries);
+    }
+
     ArrayList<E> result = new ArrayList<>();
     List<List<E>> partitions = settings.bulkSplitter.partition(objects, minEntries, maxEntries);
 
@@ -367,6 +374,93 @@ public abstract class AbstractRStarTree<N extends AbstractRStarTreeNode<N, E>, E
     return result;
   }
 
+  /**
+   * Creates and returns the leaf nodes for bulk load, using multiple threads.
+   *
+   * The partitioning (if supported by the bulk split strategy), filling the
+   * leaf nodes and computing their bounding boxes are done in parallel. The
+   * pages are written sequentially, in the same order as in the sequential
+   * bulk load, so the resulting tree is the same.
+   *
+   * @param objects the objects to be inserted
+   * @param minEntries Minimum number of entries per page
+   * @param maxEntries Maximum number of entries per page
+   * @return the array of leaf nodes containing the objects
+   */
+  private List<E> createBulkLeafNodesParallel(List<E> objects, int minEntries, int maxEntries) {
+    final List<List<E>> partitions = (settings.bulkSplitter instanceof ParallelBulkSplit) ? //
+        ((ParallelBulkSplit) settings.bulkSplitter).partitionParallel(objects, minEntries, maxEntries) : //
+        settings.bulkSplitter.partition(objects, minEntries, maxEntries);
+    final int size = partitions.size();
+    final List<N> nodes = new ArrayList<>(Collections.<N> nCopies(size, null));
+    final List<E> result = new ArrayList<>(Collections.<E> nCopies(size, null));
+    // Fill the leaf nodes:
+    parallelFor(size, new Worker() {
+      @Override
+      void process(int i) {
+        N leafNode = createNewLeafNode();
+        for(E o : partitions.get(i)) {
+          leafNode.addLeafEntry(o);
+        }
+        nodes.set(i, leafNode);
+      }
+    });
+    // Write to file, in order, to assign page numbers:
+    for(N leafNode : nodes) {
+      writeNode(leafNode);
+    }
+    // Compute the bounding boxes:
+    parallelFor(size, new Worker() {
+      @Override
+      void process(int i) {
+        result.set(i, createNewDirectoryEntry(nodes.get(i)));
+      }
+    });
+    if(getLogger().isDebugging()) {
+      getLogger().debugFine("numDataPages = " + result.size());
+    }
+    return result;
+  }
+
+  /**
+   * Process the integers 0 to size-1 in parallel.
+   *
+   * @param size Number of tasks
+   * @param worker Worker
+   */
+  private static void parallelFor(final int size, final Worker worker) {
+    // The worker keeps no per-thread state, and is shared by all threads.
+    ParallelExecutor.runBlocks(size, 1, new ParallelExecutor.BlockWorkerFactory<Worker>() {
+      @Override
+      public Worker make() {
+        return worker;
+      }
+    });
+  }
+
+  /**
+   * Worker for {@link #parallelFor}.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   */
+  private abstract static class Worker implements ParallelExecutor.BlockWorker {
+    /**
+     * Process one task.
+     *
+     * @param i Task number
+     */
+    abstract void process(int i);
+
+    @Override
+    public void process(int start, int end) {
+      for(int i = start; i < end; i++) {
+        process(i);
+      }
+    }
+  }
+
   /**
    * Performs a bulk load on this RTree with the specified data. Is called by
    * the constructor.
@@ -855,6 +949,16 @@ public abstract class AbstractRStarTree<N extends AbstractRStarTreeNode<N, E>, E
      */
     protected final Counter rangeQueries;
 
+    /**
+     * For counting the number of nodes visited by queries.
+     */
+    protected final Counter nodeVisits;
+
+    /**
+     * For counting the number of leaf nodes scanned by queries.
+     */
+    protected final Counter leafScans;
+
     /**
      * Constructor.
      */
@@ -862,9 +966,11 @@ public abstract class AbstractRStarTree<N extends AbstractRStarTreeNode<N, E>, E
       super();
       Logging log = getLogger();
       final String prefix = AbstractRStarTree.this.getClass().getName();
-      distanceCalcs = log.isStatistics() ? log.newCounter(prefix + ".distancecalcs") : null;
-      knnQueries = log.isStatistics() ? log.newCounter(prefix + ".knnqueries") : null;
-      rangeQueries = log.isStatistics() ? log.newCounter(prefix + ".rangequeries") : null;
+      distanceCalcs = log.isStatistics() ? log.newConcurrentCounter(prefix + ".distancecalcs") : null;
+      knnQueries = log.isStatistics() ? log.newConcurrentCounter(prefix + ".knnqueries") : null;
+      rangeQueries = log.isStatistics() ? log.newConcurrentCounter(prefix + ".rangequeries") : null;
+      nodeVisits = log.isStatistics() ? log.newConcurrentCounter(prefix + ".nodevisits") : null;
+      leafScans = log.isStatistics() ? log.newConcurrentCounter(prefix + ".leafscans") : null;
     }
 
     /**
@@ -894,6 +1000,20 @@ public abstract class AbstractRStarTree<N extends AbstractRStarTreeNode<N, E>, E
       }
     }
 
+    /**
+     * Count a node visited during a query.
+     *
+     * @param leaf Flag to indicate the node is a leaf (and will be scanned)
+     */
+    public void countNodeVisit(boolean leaf) {
+      if(nodeVisits != null) {
+        nodeVisits.increment();
+        if(leaf) {
+          leafScans.increment();
+        }
+      }
+    }
+
     /**
      * Log the statistics.
      */
@@ -908,6 +1028,12 @@ public abstract class AbstractRStarTree<N extends AbstractRStarTreeNode<N, E>, E
       if(statistics.rangeQueries != null) {
         log.statistics(statistics.rangeQueries);
       }
+      if(statistics.nodeVisits != null) {
+        log.statistics(statistics.nodeVisits);
+      }
+      if(statistics.leafScans != null) {
+        log.statistics(statistics.leafScans);
+      }
     }
   }
 
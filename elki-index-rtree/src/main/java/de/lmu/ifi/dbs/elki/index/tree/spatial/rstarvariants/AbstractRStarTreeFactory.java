@@ -37,6 +37,7 @@ import de.lmu.ifi.dbs.elki.utilities.optionhandling.OptionID;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.constraints.CommonConstraints;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.DoubleParameter;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.Flag;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.ObjectParameter;
 
 /**
@@ -101,6 +102,11 @@ public abstract class AbstractRStarTreeFactory<O extends NumberVector, N extends
      */
     public static final OptionID BULK_SPLIT_ID = new OptionID("spatial.bulkstrategy", "The class to perform the bulk split with.");
 
+    /**
+     * Flag for parallel bulk loading.
+     */
+    public static final OptionID PARALLEL_BULK_ID = new OptionID("spatial.bulkparallel", "Use multiple threads to bulk load the tree (when the bulk strategy supports it, and for building the leaf pages).");
+
     /**
      * Parameter for the relative minimum fill.
      */
@@ -157,6 +163,10 @@ public abstract class AbstractRStarTreeFactory<O extends NumberVector, N extends
       ObjectParameter<BulkSplit> bulkSplitP = new ObjectParameter<>(BULK_SPLIT_ID, BulkSplit.class, true);
       if(config.grab(bulkSplitP)) {
         settings.bulkSplitter = bulkSplitP.instantiateClass(config);
+        Flag parallelF = new Flag(PARALLEL_BULK_ID);
+        if(config.grab(parallelF)) {
+          settings.parallelBulkLoad = parallelF.isTrue();
+        }
       }
     }
 
@@ -45,6 +45,11 @@ public class RTreeSettings {
    */
   protected BulkSplit bulkSplitter = null;
 
+  /**
+   * Use multiple threads for bulk loading.
+   */
+  protected boolean parallelBulkLoad = false;
+
   /**
    * The split strategy.
    */
@@ -89,6 +94,15 @@ public class RTreeSettings {
     this.bulkSplitter = bulkSplitter;
   }
 
+  /**
+   * Enable or disable parallel bulk loading.
+   * 
+   * @param parallel {@code true} to use multiple threads for bulk loading
+   */
+  public void setParallelBulkLoad(boolean parallel) {
+    this.parallelBulkLoad = parallel;
+  }
+
   /**
    * Set the node splitting strategy.
    * 
@@ -106,6 +106,7 @@ public class EuclideanRStarTreeKNNQuery<O extends NumberVector> extends RStarTre
 
   private double expandNode(O object, KNNHeap knnList, final ComparableMinHeap<DoubleDistanceSearchCandidate> pq, double maxDist, final int nodeID) {
     AbstractRStarTreeNode<?, ?> node = tree.getNode(nodeID);
+    tree.statistics.countNodeVisit(node.isLeaf());
     // data node
     if(node.isLeaf()) {
       for(int i = 0; i < node.getNumEntries(); i++) {
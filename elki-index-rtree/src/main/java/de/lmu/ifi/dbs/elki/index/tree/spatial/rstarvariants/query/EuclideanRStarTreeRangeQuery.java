@@ -85,6 +85,7 @@ public class EuclideanRStarTreeRangeQuery<O extends NumberVector> extends RStarT
     while(ps > 0) {
       int pqNode = pq[--ps]; // Pop last.
       AbstractRStarTreeNode<?, ?> node = tree.getNode(pqNode);
+      tree.statistics.countNodeVisit(node.isLeaf());
       final int numEntries = node.getNumEntries();
 
       if(node.isLeaf()) {
@@ -134,6 +134,7 @@ public class RStarTreeKNNQuery<O extends SpatialComparable> implements KNNQuery<
 
   private double expandNode(O object, KNNHeap knnList, final ComparableMinHeap<DoubleDistanceSearchCandidate> pq, double maxDist, final int nodeID) {
     AbstractRStarTreeNode<?, ?> node = tree.getNode(nodeID);
+    tree.statistics.countNodeVisit(node.isLeaf());
     // data node
     if(node.isLeaf()) {
       for(int i = 0; i < node.getNumEntries(); i++) {
@@ -172,6 +173,7 @@ public class RStarTreeKNNQuery<O extends SpatialComparable> implements KNNQuery<
    * @param knnLists a map containing the knn lists for each query objects
    */
   protected void batchNN(AbstractRStarTreeNode<?, ?> node, Map<DBID, KNNHeap> knnLists) {
+    tree.statistics.countNodeVisit(node.isLeaf());
     if(node.isLeaf()) {
       for(int i = 0; i < node.getNumEntries(); i++) {
         SpatialEntry p = node.getEntry(i);
@@ -118,6 +118,7 @@ public class RStarTreeRangeQuery<O extends SpatialComparable> implements RangeQu
     while(ps > 0) {
       int pqNode = pq[--ps]; // Pop last.
       AbstractRStarTreeNode<?, ?> node = tree.getNode(pqNode);
+      tree.statistics.countNodeVisit(node.isLeaf());
       final int numEntries = node.getNumEntries();
 
       if(node.isLeaf()) {
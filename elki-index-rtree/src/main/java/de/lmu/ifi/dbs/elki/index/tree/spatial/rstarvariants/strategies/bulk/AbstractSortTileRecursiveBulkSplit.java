@@ -0,0 +1,225 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.strategies.bulk;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import de.lmu.ifi.dbs.elki.data.spatial.SpatialComparable;
+import de.lmu.ifi.dbs.elki.data.spatial.SpatialSingleMeanComparator;
+import de.lmu.ifi.dbs.elki.parallel.ParallelCore;
+import de.lmu.ifi.dbs.elki.parallel.ParallelExecutor;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.QuickSelect;
+import net.jafama.FastMath;
+
+/**
+ * Common base class for the Sort-Tile-Recursive family of bulk loads.
+ *
+ * Each recursion step cuts a range of the data into slabs along one axis, and
+ * then recurses into each slab. Because the slabs are independent, the
+ * parallel version first expands the recursion breadth-first until there are
+ * enough slabs to keep all threads busy, and then finishes each slab in its
+ * own task. The order of the resulting pages is the same as in the sequential
+ * version.
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ *
+ * @apiviz.uses ParallelExecutor
+ */
+public abstract class AbstractSortTileRecursiveBulkSplit extends AbstractBulkSplit implements ParallelBulkSplit {
+  /**
+   * Minimum number of objects before we use multiple threads.
+   */
+  private static final int PARALLEL_THRESHOLD = 1 << 14;
+
+  /**
+   * Number of slabs to generate per thread, for load balancing.
+   */
+  private static final int SLABS_PER_THREAD = 4;
+
+  @Override
+  public <T extends SpatialComparable> List<List<T>> partition(List<T> spatialObjects, int minEntries, int maxEntries) {
+    final int dims = spatialObjects.get(0).getDimensionality();
+    final int p = (int) FastMath.ceil(spatialObjects.size() / (double) maxEntries);
+    List<List<T>> ret = new ArrayList<>(p);
+    strPartition(spatialObjects, 0, spatialObjects.size(), 0, dims, maxEntries, new SpatialSingleMeanComparator(0), ret);
+    return ret;
+  }
+
+  @Override
+  public <T extends SpatialComparable> List<List<T>> partitionParallel(final List<T> spatialObjects, int minEntries, final int maxEntries) {
+    final int parallelism = ParallelCore.getCore().getParallelism();
+    final int size = spatialObjects.size();
+    if(parallelism <= 1 || size < PARALLEL_THRESHOLD) {
+      return partition(spatialObjects, minEntries, maxEntries);
+    }
+    final int dims = spatialObjects.get(0).getDimensionality();
+    final int p = (int) FastMath.ceil(size / (double) maxEntries);
+    // Expand breadth-first, until we have enough slabs.
+    List<int[]> slabs = new ArrayList<>();
+    slabs.add(new int[] { 0, size, 0 });
+    final int target = parallelism * SLABS_PER_THREAD;
+    while(slabs.size() < target) {
+      final List<int[]> cur = slabs;
+      final List<List<int[]>> children = new ArrayList<>(Collections.<List<int[]>> nCopies(cur.size(), null));
+      ParallelExecutor.runBlocks(cur.size(), 1, new ParallelExecutor.BlockWorkerFactory<ParallelExecutor.BlockWorker>() {
+        @Override
+        public ParallelExecutor.BlockWorker make() {
+          return new ParallelExecutor.BlockWorker() {
+            @Override
+            public void process(int start, int end) {
+              for(int i = start; i < end; i++) {
+                final int[] slab = cur.get(i);
+                if(slab[2] >= dims) {
+                  continue; // Final page, keep.
+                }
+                final int[] bounds = slabs(spatialObjects, slab[0], slab[1], slab[2], dims, maxEntries, new SpatialSingleMeanComparator(0));
+                List<int[]> c = new ArrayList<>(bounds.length - 1);
+                for(int j = 1; j < bounds.length; j++) {
+                  c.add(new int[] { bounds[j - 1], bounds[j], slab[2] + 1 });
+                }
+                children.set(i, c);
+              }
+            }
+          };
+        }
+      });
+      boolean expanded = false;
+      List<int[]> next = new ArrayList<>();
+      for(int i = 0; i < cur.size(); i++) {
+        List<int[]> c = children.get(i);
+        if(c == null) {
+          next.add(cur.get(i));
+          continue;
+        }
+        next.addAll(c);
+        expanded = true;
+      }
+      if(!expanded) {
+        break;
+      }
+      slabs = next;
+    }
+    // Finish each slab separately.
+    final List<int[]> fslabs = slabs;
+    final List<List<List<T>>> parts = new ArrayList<>(Collections.<List<List<T>>> nCopies(fslabs.size(), null));
+    ParallelExecutor.runBlocks(fslabs.size(), 1, new ParallelExecutor.BlockWorkerFactory<ParallelExecutor.BlockWorker>() {
+      @Override
+      public ParallelExecutor.BlockWorker make() {
+        return new ParallelExecutor.BlockWorker() {
+          @Override
+          public void process(int start, int end) {
+            for(int i = start; i < end; i++) {
+              final int[] slab = fslabs.get(i);
+              List<List<T>> ret = new ArrayList<>();
+              if(slab[2] >= dims) {
+                ret.add(spatialObjects.subList(slab[0], slab[1]));
+              }
+              else {
+                strPartition(spatialObjects, slab[0], slab[1], slab[2], dims, maxEntries, new SpatialSingleMeanComparator(0), ret);
+              }
+              parts.set(i, ret);
+            }
+          }
+        };
+      }
+    });
+    List<List<T>> ret = new ArrayList<>(p);
+    for(List<List<T>> part : parts) {
+      ret.addAll(part);
+    }
+    return ret;
+  }
+
+  /**
+   * Recursively partition.
+   *
+   * @param objs Object list
+   * @param start Subinterval start
+   * @param end Subinterval end
+   * @param depth Iteration depth (must be less than dimensionality!)
+   * @param dims Total number of dimensions
+   * @param maxEntries Maximum page size
+   * @param c Comparison helper
+   * @param ret Output list
+   * @param <T> data type
+   */
+  protected <T extends SpatialComparable> void strPartition(List<T> objs, int start, int end, int depth, int dims, int maxEntries, SpatialSingleMeanComparator c, List<List<T>> ret) {
+    final int[] bounds = slabs(objs, start, end, depth, dims, maxEntries, c);
+    for(int i = 1; i < bounds.length; i++) {
+      if(depth + 1 == dims) {
+        ret.add(objs.subList(bounds[i - 1], bounds[i]));
+      }
+      else {
+        // Descend
+        strPartition(objs, bounds[i - 1], bounds[i], depth + 1, dims, maxEntries, c, ret);
+      }
+    }
+  }
+
+  /**
+   * Cut a range into slabs, such that all objects of one slab are (along the
+   * chosen axis) less or equal than the objects of the next slab.
+   *
+   * @param objs Object list
+   * @param start Subinterval start
+   * @param end Subinterval end
+   * @param depth Iteration depth (must be less than dimensionality!)
+   * @param dims Total number of dimensions
+   * @param maxEntries Maximum page size
+   * @param c Comparison helper
+   * @param <T> data type
+   * @return Slab boundaries, starting with {@code start} and ending with
+   *         {@code end}
+   */
+  protected abstract <T extends SpatialComparable> int[] slabs(List<T> objs, int start, int end, int depth, int dims, int maxEntries, SpatialSingleMeanComparator c);
+
+  /**
+   * Cut a range into the given number of slabs of equal size.
+   *
+   * @param objs Object list
+   * @param start Subinterval start
+   * @param end Subinterval end
+   * @param s Number of slabs
+   * @param dim Dimension to sort on
+   * @param c Comparison helper
+   * @param <T> data type
+   * @return Slab boundaries
+   */
+  protected static <T extends SpatialComparable> int[] slabs(List<T> objs, int start, int end, int s, int dim, SpatialSingleMeanComparator c) {
+    final int[] bounds = new int[s + 1];
+    bounds[0] = start;
+    final double len = end - start; // double intentional!
+    for(int i = 0; i < s; i++) {
+      // We don't completely sort, but only ensure the quantile is invariant.
+      int s2 = start + (int) ((i * len) / s);
+      int e2 = start + (int) (((i + 1) * len) / s);
+      if(e2 < end) {
+        c.setDimension(dim);
+        QuickSelect.quickSelect(objs, c, s2, end, e2);
+      }
+      bounds[i + 1] = e2;
+    }
+    return bounds;
+  }
+}
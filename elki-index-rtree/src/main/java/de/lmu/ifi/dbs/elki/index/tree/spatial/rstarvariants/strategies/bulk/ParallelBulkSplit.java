@@ -0,0 +1,46 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.strategies.bulk;
+
+import java.util.List;
+
+import de.lmu.ifi.dbs.elki.data.spatial.SpatialComparable;
+
+/**
+ * Interface for bulk split strategies that can partition the data using
+ * multiple threads.
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ */
+public interface ParallelBulkSplit extends BulkSplit {
+  /**
+   * Partitions the specified feature vectors, using multiple threads. The
+   * result must be the same as for {@link #partition}.
+   *
+   * @param <T> actual type we split
+   * @param spatialObjects the spatial objects to be partitioned
+   * @param minEntries the minimum number of entries in a partition
+   * @param maxEntries the maximum number of entries in a partition
+   * @return the partition of the specified spatial objects
+   */
+  public <T extends SpatialComparable> List<List<T>> partitionParallel(List<T> spatialObjects, int minEntries, int maxEntries);
+}
@@ -20,10 +20,13 @@
  */
 package de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.rstar;
 
+import java.io.File;
+
 import org.junit.Test;
 
 import de.lmu.ifi.dbs.elki.database.StaticArrayDatabase;
 import de.lmu.ifi.dbs.elki.index.AbstractIndexStructureTest;
+import de.lmu.ifi.dbs.elki.index.PagedIndexFactory;
 import de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.AbstractRStarTreeFactory;
 import de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.query.RStarTreeKNNQuery;
 import de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.query.RStarTreeRangeQuery;
@@ -44,6 +47,8 @@ import de.lmu.ifi.dbs.elki.math.spacefillingcurves.HilbertSpatialSorter;
 import de.lmu.ifi.dbs.elki.math.spacefillingcurves.PeanoSpatialSorter;
 import de.lmu.ifi.dbs.elki.math.spacefillingcurves.ZCurveSpatialSorter;
 import de.lmu.ifi.dbs.elki.persistent.AbstractPageFileFactory;
+import de.lmu.ifi.dbs.elki.persistent.MappedPageFileFactory;
+import de.lmu.ifi.dbs.elki.persistent.PersistentPageFileFactory;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.ListParameterization;
 
 /**
@@ -319,6 +324,27 @@ public class RStarTreeTest extends AbstractIndexStructureTest {
     testExactCosine(spatparams, RStarTreeKNNQuery.class, RStarTreeRangeQuery.class);
   }
 
+  /**
+   * Test {@link RStarTree} bulk loaded in parallel using
+   * {@link SortTileRecursiveBulkSplit}
+   */
+  @Test
+  public void testSortTileRecursiveBulkSplitParallel() {
+    ListParameterization spatparams = new ListParameterization();
+    spatparams.addParameter(StaticArrayDatabase.Parameterizer.INDEX_ID, RStarTreeFactory.class);
+    spatparams.addParameter(AbstractPageFileFactory.Parameterizer.PAGE_SIZE_ID, 300);
+    spatparams.addParameter(RStarTreeFactory.Parameterizer.BULK_SPLIT_ID, SortTileRecursiveBulkSplit.class);
+    spatparams.addFlag(AbstractRStarTreeFactory.Parameterizer.PARALLEL_BULK_ID);
+    testExactEuclidean(spatparams, RStarTreeKNNQuery.class, RStarTreeRangeQuery.class);
+    //
+    spatparams = new ListParameterization();
+    spatparams.addParameter(StaticArrayDatabase.Parameterizer.INDEX_ID, RStarTreeFactory.class);
+    spatparams.addParameter(AbstractPageFileFactory.Parameterizer.PAGE_SIZE_ID, 300);
+    spatparams.addParameter(RStarTreeFactory.Parameterizer.BULK_SPLIT_ID, SortTileRecursiveBulkSplit.class);
+    spatparams.addFlag(AbstractRStarTreeFactory.Parameterizer.PARALLEL_BULK_ID);
+    testExactCosine(spatparams, RStarTreeKNNQuery.class, RStarTreeRangeQuery.class);
+  }
+
   /**
    * Test {@link RStarTree} bulk loaded using
    * {@link MaxExtensionSortTileRecursiveBulkSplit}
@@ -356,4 +382,35 @@ public class RStarTreeTest extends AbstractIndexStructureTest {
     spatparams.addParameter(RStarTreeFactory.Parameterizer.BULK_SPLIT_ID, AdaptiveSortTileRecursiveBulkSplit.class);
     testExactCosine(spatparams, RStarTreeKNNQuery.class, RStarTreeRangeQuery.class);
   }
+
+  /**
+   * Test concurrent queries on a single {@link RStarTree}.
+   */
+  @Test
+  public void testConcurrentQueries() throws Exception {
+    ListParameterization spatparams = new ListParameterization();
+    spatparams.addParameter(StaticArrayDatabase.Parameterizer.INDEX_ID, RStarTreeFactory.class);
+    spatparams.addParameter(AbstractPageFileFactory.Parameterizer.PAGE_SIZE_ID, 300);
+    testConcurrentQueries(spatparams, RStarTreeKNNQuery.class, RStarTreeRangeQuery.class);
+  }
+
+  /**
+   * Test concurrent queries on a single {@link RStarTree}, stored in a
+   * {@link de.lmu.ifi.dbs.elki.persistent.MappedPageFile}.
+   */
+  @Test
+  public void testConcurrentQueriesMapped() throws Exception {
+    File file = File.createTempFile("ELKIUnitTest", null);
+    file.delete(); // We need a new file
+    file.deleteOnExit();
+    ListParameterization spatparams = new ListParameterization();
+    spatparams.addParameter(StaticArrayDatabase.Parameterizer.INDEX_ID, RStarTreeFactory.class);
+    spatparams.addParameter(PagedIndexFactory.Parameterizer.PAGEFILE_ID, MappedPageFileFactory.class);
+    // Serialization needs some extra space.
+    spatparams.addParameter(AbstractPageFileFactory.Parameterizer.PAGE_SIZE_ID, 1024);
+    spatparams.addParameter(PersistentPageFileFactory.Parameterizer.FILE_ID, file);
+    // Use a small dirty buffer, so that most pages are read from the mapping.
+    spatparams.addParameter(MappedPageFileFactory.Parameterizer.DIRTY_ID, 8);
+    testConcurrentQueries(spatparams, RStarTreeKNNQuery.class, RStarTreeRangeQuery.class);
+  }
 }
@@ -0,0 +1,97 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.strategies.bulk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.data.DoubleVector;
+import de.lmu.ifi.dbs.elki.parallel.ParallelCore;
+
+/**
+ * Test the parallel sort-tile-recursive bulk splits, which must produce the
+ * same pages as the sequential versions.
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ */
+public class SortTileRecursiveBulkSplitTest {
+  /**
+   * Data set size, above the threshold for parallel processing.
+   */
+  private static final int SIZE = 50000;
+
+  @Test
+  public void testSortTileRecursiveBulkSplit() {
+    testParallel(SortTileRecursiveBulkSplit.STATIC);
+  }
+
+  @Test
+  public void testMaxExtensionSortTileRecursiveBulkSplit() {
+    testParallel(MaxExtensionSortTileRecursiveBulkSplit.STATIC);
+  }
+
+  @Test
+  public void testAdaptiveSortTileRecursiveBulkSplit() {
+    testParallel(AdaptiveSortTileRecursiveBulkSplit.STATIC);
+  }
+
+  /**
+   * Compare the parallel and the sequential partitioning.
+   *
+   * @param split Bulk split strategy
+   */
+  private static void testParallel(AbstractSortTileRecursiveBulkSplit split) {
+    Random rnd = new Random(0L);
+    List<DoubleVector> data = new ArrayList<>(SIZE);
+    for(int i = 0; i < SIZE; i++) {
+      // Different extents, for the adaptive and max extension variants.
+      data.add(new DoubleVector(new double[] { rnd.nextDouble(), rnd.nextDouble() * 3, rnd.nextGaussian() }));
+    }
+    // Both modify the order of the input list.
+    List<List<DoubleVector>> expected = split.partition(new ArrayList<>(data), 10, 50);
+    List<List<DoubleVector>> actual;
+    // Use several threads, even on single-core machines.
+    final ParallelCore core = ParallelCore.getCore();
+    final int prev = core.getParallelism();
+    try {
+      core.setParallelism(4);
+      actual = split.partitionParallel(new ArrayList<>(data), 10, 50);
+    }
+    finally {
+      core.setParallelism(prev);
+    }
+    assertEquals("Number of pages differs.", expected.size(), actual.size());
+    for(int i = 0; i < expected.size(); i++) {
+      List<DoubleVector> e = expected.get(i), a = actual.get(i);
+      assertEquals("Page size differs.", e.size(), a.size());
+      for(int j = 0; j < e.size(); j++) {
+        assertSame("Page contents differ.", e.get(j), a.get(j));
+      }
+    }
+  }
+}
@@ -0,0 +1,718 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.index.preprocessed.knn;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.KNNHeap;
+import de.lmu.ifi.dbs.elki.database.ids.KNNList;
+import de.lmu.ifi.dbs.elki.database.query.DatabaseQuery;
+import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
+import de.lmu.ifi.dbs.elki.database.query.knn.KNNQuery;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.DistanceFunction;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.logging.progress.IndefiniteProgress;
+import de.lmu.ifi.dbs.elki.logging.statistics.DoubleStatistic;
+import de.lmu.ifi.dbs.elki.logging.statistics.LongStatistic;
+import de.lmu.ifi.dbs.elki.parallel.ParallelExecutor;
+import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
+import de.lmu.ifi.dbs.elki.utilities.exceptions.AbortException;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.constraints.CommonConstraints;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.DoubleParameter;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.IntParameter;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.RandomParameter;
+import de.lmu.ifi.dbs.elki.utilities.random.RandomFactory;
+
+/**
+ * Parallel version of NN-descent, for large data sets.
+ * <p>
+ * Instead of hash sets of DBIDs, the neighbors of each object are kept in
+ * fixed slots of flat arrays (object offset, distance, and a "new" flag),
+ * organized as a bounded max-heap. The candidate lists for the local join are
+ * sampled into fixed slots, too, using random priorities. The local joins of
+ * different objects run concurrently; heap updates are guarded by striped
+ * locks.
+ * <p>
+ * With a single thread, the result is deterministic for a fixed random seed.
+ * With multiple threads, the order of updates depends on scheduling, and the
+ * resulting approximate kNN graph may vary slightly between runs.
+ * <p>
+ * Reference:
+ * <p>
+ * W. Dong and C. Moses and K. Li<br />
+ * Efficient k-nearest neighbor graph construction for generic similarity
+ * measures<br />
+ * In Proc. 20th international conference on World Wide Web WWW'11
+ * </p>
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ *
+ * @apiviz.uses ParallelExecutor
+ *
+ * @param <O> Object type
+ */
+@Reference(authors = "W. Dong and C. Moses and K. Li", //
+    title = "Efficient k-nearest neighbor graph construction for generic similarity measures", //
+    booktitle = "Proc. 20th international conference on World Wide Web WWW'11", //
+    url = "http://dx.doi.org/10.1145/1963405.1963487")
+public class ParallelNNDescent<O> extends AbstractMaterializeKNNPreprocessor<O> {
+  /**
+   * Logger
+   */
+  private static final Logging LOG = Logging.getLogger(ParallelNNDescent.class);
+
+  /**
+   * Number of objects processed per work unit.
+   */
+  private static final int BLOCKSIZE = 256;
+
+  /**
+   * Number of lock stripes (must be a power of two).
+   */
+  private static final int STRIPES = 1 << 12;
+
+  /**
+   * Log prefix.
+   */
+  private String prefix = getClass().getCanonicalName();
+
+  /**
+   * Random generator
+   */
+  private final RandomFactory rnd;
+
+  /**
+   * Early termination parameter
+   */
+  private final double delta;
+
+  /**
+   * Sample rate
+   */
+  private final double rho;
+
+  /**
+   * Maximum number of iterations
+   */
+  private final int iterations;
+
+  /**
+   * Number of neighbors stored per object (excluding the object itself).
+   */
+  private int kk;
+
+  /**
+   * Number of candidates sampled per object.
+   */
+  private int items;
+
+  /**
+   * Neighbor offsets, {@code kk} slots per object, organized as max-heap.
+   */
+  private int[] nbrs;
+
+  /**
+   * Neighbor distances, aligned with {@link #nbrs}.
+   */
+  private double[] dists;
+
+  /**
+   * Flag for neighbors not yet used in a local join.
+   */
+  private boolean[] isnew;
+
+  /**
+   * Sampled new candidates, {@code items} slots per object.
+   */
+  private int[] newCand;
+
+  /**
+   * Sampled old candidates, {@code items} slots per object.
+   */
+  private int[] oldCand;
+
+  /**
+   * Priorities of the candidate samples.
+   */
+  private float[] newPrio, oldPrio;
+
+  /**
+   * Number of candidates of each object.
+   */
+  private int[] newCount, oldCount;
+
+  /**
+   * Lock stripes.
+   */
+  private Object[] locks;
+
+  /**
+   * Constructor.
+   *
+   * @param relation Relation to index
+   * @param distanceFunction distance function
+   * @param k k
+   * @param rnd Random generator
+   * @param delta Delta threshold
+   * @param rho Rho threshold
+   * @param iterations Maximum number of iterations
+   */
+  public ParallelNNDescent(Relation<O> relation, DistanceFunction<? super O> distanceFunction, int k, RandomFactory rnd, double delta, double rho, int iterations) {
+    super(relation, distanceFunction, k);
+    this.rnd = rnd;
+    this.delta = delta;
+    this.rho = rho;
+    this.iterations = iterations;
+  }
+
+  @Override
+  protected void preprocess() {
+    final ArrayDBIDs ids = DBIDUtil.ensureArray(relation.getDBIDs());
+    final int size = ids.size();
+    final long starttime = System.currentTimeMillis();
+    IndefiniteProgress progress = LOG.isVerbose() ? new IndefiniteProgress("KNNGraph iteration", LOG) : null;
+    final Random random = rnd.getSingleThreadedRandom();
+
+    // to add query point itself in the end, internally (k-1) is used
+    kk = k - 1;
+    items = Math.max(1, (int) Math.ceil(rho * kk));
+    if((long) size * Math.max(kk, items) > Integer.MAX_VALUE) {
+      throw new AbortException("Data set too large for NN-descent with k=" + k);
+    }
+    nbrs = new int[size * kk];
+    dists = new double[size * kk];
+    isnew = new boolean[size * kk];
+    newCand = new int[size * items];
+    oldCand = new int[size * items];
+    newPrio = new float[size * items];
+    oldPrio = new float[size * items];
+    newCount = new int[size];
+    oldCount = new int[size];
+    locks = new Object[STRIPES];
+    for(int i = 0; i < STRIPES; i++) {
+      locks[i] = new Object();
+    }
+
+    // Initialize with random neighbors:
+    long distcalc = run(ids, random, new Phase() {
+      @Override
+      void process(int i, Worker w) {
+        final int off = i * kk, n1 = Math.min(kk, size - 1);
+        Arrays.fill(nbrs, off, off + kk, -1);
+        Arrays.fill(dists, off, off + kk, Double.POSITIVE_INFINITY);
+        w.a.seek(i);
+        for(int c = 0; c < n1;) {
+          final int j = w.random.nextInt(size);
+          if(j == i || contains(off, j)) {
+            continue;
+          }
+          nbrs[off + c] = j;
+          dists[off + c] = distanceQuery.distance(w.a, w.b.seek(j));
+          isnew[off + c] = true;
+          ++w.distances;
+          ++c;
+        }
+        for(int s = (kk >>> 1) - 1; s >= 0; s--) {
+          siftDown(off, s);
+        }
+      }
+    }).distances;
+
+    int iter = 0;
+    for(; iter < iterations && kk > 0; iter++) {
+      Arrays.fill(newCount, 0);
+      Arrays.fill(oldCount, 0);
+      // Sample forward and reverse candidates:
+      run(ids, random, new Phase() {
+        @Override
+        void process(int i, Worker w) {
+          for(int s = i * kk, e = s + kk; s < e; s++) {
+            final int j = nbrs[s];
+            if(j < 0) {
+              continue;
+            }
+            final float p = w.random.nextFloat();
+            if(isnew[s]) {
+              addCandidate(newCand, newPrio, newCount, i, j, p);
+              addCandidate(newCand, newPrio, newCount, j, i, p);
+            }
+            else {
+              addCandidate(oldCand, oldPrio, oldCount, i, j, p);
+              addCandidate(oldCand, oldPrio, oldCount, j, i, p);
+            }
+          }
+        }
+      });
+      // Neighbors sampled for the join are no longer new:
+      run(ids, random, new Phase() {
+        @Override
+        void process(int i, Worker w) {
+          final int coff = i * items, cend = coff + newCount[i];
+          for(int s = i * kk, e = s + kk; s < e; s++) {
+            if(isnew[s]) {
+              for(int c = coff; c < cend; c++) {
+                if(newCand[c] == nbrs[s]) {
+                  isnew[s] = false;
+                  break;
+                }
+              }
+            }
+          }
+        }
+      });
+      // Local join:
+      Worker res = run(ids, random, new Phase() {
+        @Override
+        void process(int i, Worker w) {
+          final int coff = i * items, nn = coff + newCount[i], on = coff + oldCount[i];
+          for(int a = coff; a < nn; a++) {
+            final int u = newCand[a];
+            for(int b = a + 1; b < nn; b++) {
+              join(u, newCand[b], w);
+            }
+            for(int b = coff; b < on; b++) {
+              final int v = oldCand[b];
+              if(u != v) {
+                join(u, v, w);
+              }
+            }
+          }
+        }
+      });
+      distcalc += res.distances;
+      final double rate = res.updates / (double) (kk * (long) size);
+      if(LOG.isStatistics()) {
+        LOG.statistics(new LongStatistic(prefix + ".updates", res.updates));
+        LOG.statistics(new LongStatistic(prefix + ".distance-computations", res.distances));
+        LOG.statistics(new DoubleStatistic(prefix + ".update-rate", rate));
+        LOG.statistics(new DoubleStatistic(prefix + ".scan-rate", distcalc / (size * (size - 1.))));
+      }
+      LOG.incrementProcessed(progress);
+      if(rate < delta) {
+        LOG.verbose("KNNGraph terminated because update rate got smaller than delta.");
+        iter++;
+        break;
+      }
+    }
+    if(LOG.isVerbose() && iter == iterations) {
+      LOG.verbose("KNNGraph terminated because the maximum number of iterations was reached.");
+    }
+    LOG.setCompleted(progress);
+    newCand = oldCand = newCount = oldCount = null;
+    newPrio = oldPrio = null;
+    isnew = null;
+
+    // Convert to kNN lists, including the query point itself:
+    final KNNList[] lists = new KNNList[size];
+    run(ids, random, new Phase() {
+      @Override
+      void process(int i, Worker w) {
+        KNNHeap heap = DBIDUtil.newHeap(k);
+        heap.insert(0, w.a.seek(i));
+        for(int s = i * kk, e = s + kk; s < e; s++) {
+          if(nbrs[s] >= 0) {
+            heap.insert(dists[s], w.b.seek(nbrs[s]));
+          }
+        }
+        lists[i] = heap.toKNNList();
+      }
+    });
+    nbrs = null;
+    dists = null;
+    locks = null;
+    storage = DataStoreFactory.FACTORY.makeStorage(ids, DataStoreFactory.HINT_DB, KNNList.class);
+    for(DBIDArrayIter iditer = ids.iter(); iditer.valid(); iditer.advance()) {
+      storage.put(iditer, lists[iditer.getOffset()]);
+    }
+    final long end = System.currentTimeMillis();
+    if(LOG.isStatistics()) {
+      LOG.statistics(new LongStatistic(prefix + ".iterations", iter));
+      LOG.statistics(new LongStatistic(prefix + ".construction-time.ms", end - starttime));
+    }
+  }
+
+  /**
+   * Run a phase on all objects, using multiple threads if available.
+   *
+   * @param ids Object ids
+   * @param random Random generator, for seeding the workers
+   * @param phase Phase to run
+   * @return Accumulated counters of all workers
+   */
+  private Worker run(final ArrayDBIDs ids, final Random random, final Phase phase) {
+    List<Worker> workers = ParallelExecutor.runBlocks(ids.size(), BLOCKSIZE, new ParallelExecutor.BlockWorkerFactory<Worker>() {
+      @Override
+      public Worker make() {
+        return new Worker(ids, random.nextLong(), phase);
+      }
+    });
+    final Worker total = workers.get(0);
+    for(int i = 1; i < workers.size(); i++) {
+      final Worker w = workers.get(i);
+      total.updates += w.updates;
+      total.distances += w.distances;
+    }
+    return total;
+  }
+
+  /**
+   * Test whether a heap contains a neighbor.
+   *
+   * @param off Heap offset
+   * @param j Neighbor
+   * @return {@code true} if contained
+   */
+  private boolean contains(int off, int j) {
+    for(int s = off, e = off + kk; s < e; s++) {
+      if(nbrs[s] == j) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Compute the distance of a candidate pair, and update both heaps.
+   *
+   * @param u First object
+   * @param v Second object
+   * @param w Worker state
+   */
+  private void join(int u, int v, Worker w) {
+    final double d = distanceQuery.distance(w.a.seek(u), w.b.seek(v));
+    ++w.distances;
+    if(insert(u, v, d)) {
+      ++w.updates;
+    }
+    if(insert(v, u, d)) {
+      ++w.updates;
+    }
+  }
+
+  /**
+   * Insert a neighbor into the heap of an object.
+   *
+   * @param i Object
+   * @param j Neighbor
+   * @param d Distance
+   * @return {@code true} if the heap was modified
+   */
+  private boolean insert(int i, int j, double d) {
+    final int off = i * kk;
+    if(!(d < dists[off])) { // Unsynchronized check, repeated below.
+      return false;
+    }
+    synchronized(locks[i & (STRIPES - 1)]) {
+      if(!(d < dists[off]) || contains(off, j)) {
+        return false;
+      }
+      nbrs[off] = j;
+      dists[off] = d;
+      isnew[off] = true;
+      siftDown(off, 0);
+      return true;
+    }
+  }
+
+  /**
+   * Restore the max-heap property below a heap position.
+   *
+   * @param off Heap offset
+   * @param pos Position to sift down
+   */
+  private void siftDown(int off, int pos) {
+    final int cur = nbrs[off + pos];
+    final double curd = dists[off + pos];
+    final boolean curn = isnew[off + pos];
+    while(true) {
+      int c = (pos << 1) + 1;
+      if(c >= kk) {
+        break;
+      }
+      if(c + 1 < kk && dists[off + c + 1] > dists[off + c]) {
+        c++;
+      }
+      if(!(dists[off + c] > curd)) {
+        break;
+      }
+      nbrs[off + pos] = nbrs[off + c];
+      dists[off + pos] = dists[off + c];
+      isnew[off + pos] = isnew[off + c];
+      pos = c;
+    }
+    nbrs[off + pos] = cur;
+    dists[off + pos] = curd;
+    isnew[off + pos] = curn;
+  }
+
+  /**
+   * Add a candidate to a sample, keeping the candidates of lowest priority.
+   *
+   * @param cand Candidate slots
+   * @param prio Candidate priorities
+   * @param count Candidate counts
+   * @param i Object
+   * @param j Candidate
+   * @param p Priority
+   */
+  private void addCandidate(int[] cand, float[] prio, int[] count, int i, int j, float p) {
+    final int off = i * items;
+    synchronized(locks[i & (STRIPES - 1)]) {
+      final int c = count[i];
+      int worst = -1;
+      for(int s = off, e = off + c; s < e; s++) {
+        if(cand[s] == j) {
+          return;
+        }
+        if(worst < 0 || prio[s] > prio[worst]) {
+          worst = s;
+        }
+      }
+      if(c < items) {
+        cand[off + c] = j;
+        prio[off + c] = p;
+        count[i] = c + 1;
+      }
+      else if(p < prio[worst]) {
+        cand[worst] = j;
+        prio[worst] = p;
+      }
+    }
+  }
+
+  /**
+   * A processing phase, applied to every object.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   */
+  private abstract static class Phase {
+    /**
+     * Process a single object.
+     *
+     * @param i Object offset
+     * @param w Worker state
+     */
+    abstract void process(int i, Worker w);
+  }
+
+  /**
+   * Per-thread state.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   */
+  private static class Worker implements ParallelExecutor.BlockWorker {
+    /**
+     * Phase to run.
+     */
+    final Phase phase;
+
+    /**
+     * Random generator.
+     */
+    final Random random;
+
+    /**
+     * Iterators used as references.
+     */
+    final DBIDArrayIter a, b;
+
+    /**
+     * Counters.
+     */
+    long updates, distances;
+
+    /**
+     * Constructor.
+     *
+     * @param ids Object ids
+     * @param seed Random seed
+     * @param phase Phase to run
+     */
+    Worker(ArrayDBIDs ids, long seed, Phase phase) {
+      this.phase = phase;
+      this.random = new Random(seed);
+      this.a = ids.iter();
+      this.b = ids.iter();
+    }
+
+    @Override
+    public void process(int start, int end) {
+      for(int i = start; i < end; i++) {
+        phase.process(i, this);
+      }
+    }
+  }
+
+  @Override
+  protected Logging getLogger() {
+    return LOG;
+  }
+
+  @Override
+  public void logStatistics() {
+    // Statistics are logged during construction.
+  }
+
+  @Override
+  public String getLongName() {
+    return "Parallel NNDescent kNN";
+  }
+
+  @Override
+  public String getShortName() {
+    return "parallel-nn-descent-knn";
+  }
+
+  @Override
+  public KNNQuery<O> getKNNQuery(DistanceQuery<O> distanceQuery, Object... hints) {
+    for(Object hint : hints) {
+      if(DatabaseQuery.HINT_EXACT.equals(hint)) {
+        return null;
+      }
+    }
+    return super.getKNNQuery(distanceQuery, hints);
+  }
+
+  /**
+   * Index factory.
+   *
+   * @author Erich Schubert
+   *
+   * @param <O> Object type
+   */
+  public static class Factory<O> extends AbstractMaterializeKNNPreprocessor.Factory<O> {
+    /**
+     * Random generator
+     */
+    private final RandomFactory rnd;
+
+    /**
+     * Early termination parameter
+     */
+    private final double delta;
+
+    /**
+     * Sample rate
+     */
+    private final double rho;
+
+    /**
+     * Maximum number of iterations
+     */
+    private final int iterations;
+
+    /**
+     * Constructor.
+     *
+     * @param k K
+     * @param distanceFunction distance function
+     * @param rnd Random generator
+     * @param delta Delta threshold
+     * @param rho Rho threshold
+     * @param iterations Maximum number of iterations
+     */
+    public Factory(int k, DistanceFunction<? super O> distanceFunction, RandomFactory rnd, double delta, double rho, int iterations) {
+      super(k, distanceFunction);
+      this.rnd = rnd;
+      this.delta = delta;
+      this.rho = rho;
+      this.iterations = iterations;
+    }
+
+    @Override
+    public ParallelNNDescent<O> instantiate(Relation<O> relation) {
+      return new ParallelNNDescent<>(relation, distanceFunction, k, rnd, delta, rho, iterations);
+    }
+
+    /**
+     * Parameterization class
+     *
+     * @author Erich Schubert
+     *
+     * @apiviz.exclude
+     *
+     * @param <O> Object type
+     */
+    public static class Parameterizer<O> extends AbstractMaterializeKNNPreprocessor.Factory.Parameterizer<O> {
+      /**
+       * Random generator
+       */
+      private RandomFactory rnd;
+
+      /**
+       * Early termination parameter
+       */
+      private double delta;
+
+      /**
+       * Sample rate
+       */
+      private double rho;
+
+      /**
+       * Maximum number of iterations
+       */
+      private int iterations;
+
+      @Override
+      protected void makeOptions(Parameterization config) {
+        super.makeOptions(config);
+        RandomParameter rndP = new RandomParameter(NNDescent.Factory.Parameterizer.SEED_ID);
+        if(config.grab(rndP)) {
+          rnd = rndP.getValue();
+        }
+        DoubleParameter deltaP = new DoubleParameter(NNDescent.Factory.Parameterizer.DELTA_ID, 0.001) //
+            .addConstraint(CommonConstraints.GREATER_THAN_ZERO_DOUBLE);
+        if(config.grab(deltaP)) {
+          delta = deltaP.getValue();
+        }
+        DoubleParameter rhoP = new DoubleParameter(NNDescent.Factory.Parameterizer.RHO_ID, 1) //
+            .addConstraint(CommonConstraints.GREATER_EQUAL_ZERO_DOUBLE);
+        if(config.grab(rhoP)) {
+          rho = rhoP.getValue();
+        }
+        IntParameter iterP = new IntParameter(NNDescent.Factory.Parameterizer.ITER_ID, 100) //
+            .addConstraint(CommonConstraints.GREATER_EQUAL_ONE_INT);
+        if(config.grab(iterP)) {
+          iterations = iterP.getValue();
+        }
+      }
+
+      @Override
+      protected ParallelNNDescent.Factory<O> makeInstance() {
+        return new ParallelNNDescent.Factory<>(k, distanceFunction, rnd, delta, rho, iterations);
+      }
+    }
+  }
+}
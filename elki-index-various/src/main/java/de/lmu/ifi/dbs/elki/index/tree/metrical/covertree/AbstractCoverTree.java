@@ -20,6 +20,8 @@
  */
 package de.lmu.ifi.dbs.elki.index.tree.metrical.covertree;
 
+import java.util.concurrent.atomic.LongAdder;
+
 import de.lmu.ifi.dbs.elki.data.type.TypeInformation;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
@@ -45,6 +47,9 @@ import net.jafama.FastMath;
 
 /**
  * Abstract base class for cover tree variants.
+ * <p>
+ * Once built, the tree is not modified by queries, and the query statistics
+ * are thread-safe, so queries may be run from multiple threads concurrently.
  * 
  * @author Erich Schubert
  * @since 0.7.0
@@ -82,7 +87,17 @@ public abstract class AbstractCoverTree<O> extends AbstractIndex<O> {
   /**
    * Distance computations performed.
    */
-  protected long distComputations = 0L;
+  protected final LongAdder distComputations = new LongAdder();
+
+  /**
+   * Nodes visited by queries.
+   */
+  protected final LongAdder nodeVisits = new LongAdder();
+
+  /**
+   * Leaf nodes scanned by queries.
+   */
+  protected final LongAdder leafScans = new LongAdder();
 
   /**
    * Stop refining the tree at this size, but build a leaf.
@@ -150,7 +165,7 @@ public abstract class AbstractCoverTree<O> extends AbstractIndex<O> {
    * @return Distance
    */
   protected double distance(DBIDRef a, DBIDRef b) {
-    ++distComputations;
+    distComputations.increment();
     return distanceQuery.distance(a, b);
   }
 
@@ -162,10 +177,22 @@ public abstract class AbstractCoverTree<O> extends AbstractIndex<O> {
    * @return Distance
    */
   protected double distance(O a, DBIDRef b) {
-    ++distComputations;
+    distComputations.increment();
     return distanceQuery.distance(a, b);
   }
 
+  /**
+   * Count a node visited by a query.
+   * 
+   * @param leaf Flag to indicate the node is a leaf
+   */
+  protected void countNodeVisit(boolean leaf) {
+    nodeVisits.increment();
+    if(leaf) {
+      leafScans.increment();
+    }
+  }
+
   /**
    * Retain all elements within the current cover.
    * 
@@ -211,7 +238,11 @@ public abstract class AbstractCoverTree<O> extends AbstractIndex<O> {
 
   @Override
   public void logStatistics() {
-    getLogger().statistics(new LongStatistic(this.getClass().getName() + ".distance-computations", distComputations));
+    final String prefix = this.getClass().getName();
+    Logging log = getLogger();
+    log.statistics(new LongStatistic(prefix + ".distance-computations", distComputations.sum()));
+    log.statistics(new LongStatistic(prefix + ".node-visits", nodeVisits.sum()));
+    log.statistics(new LongStatistic(prefix + ".leaf-scans", leafScans.sum()));
   }
 
   /**
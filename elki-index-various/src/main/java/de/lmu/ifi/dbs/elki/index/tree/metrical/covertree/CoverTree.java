@@ -357,6 +357,7 @@ public class CoverTree<O> extends AbstractCoverTree<O>implements RangeIndex<O>,
       open.add(root);
       while(!open.isEmpty()) {
         final Node cur = open.remove(open.size() - 1); // pop()
+        countNodeVisit(cur.isLeaf());
         final DoubleDBIDListIter it = cur.singletons.iter();
         final double d = distance(obj, it);
         // Covered area not in range (metric assumption!):
@@ -433,6 +434,7 @@ public class CoverTree<O> extends AbstractCoverTree<O>implements RangeIndex<O>,
         if(knnList.size() >= k && prio > d_k) {
           continue;
         }
+        countNodeVisit(cur.isLeaf());
 
         final DoubleDBIDListIter it = cur.singletons.iter();
         if(!cur.isLeaf()) { // Inner node:
@@ -338,6 +338,7 @@ public class SimplifiedCoverTree<O> extends AbstractCoverTree<O>implements Range
       DBIDVar r = DBIDUtil.newVar();
       while(!open.isEmpty()) {
         final Node cur = open.remove(open.size() - 1); // pop()
+        countNodeVisit(cur.isLeaf());
         cur.singletons.assignVar(0, r);
         final double d = distance(obj, r);
         // Covered area not in range (metric assumption!):
@@ -407,6 +408,7 @@ public class SimplifiedCoverTree<O> extends AbstractCoverTree<O>implements Range
         if(knnList.size() >= k && prio > d_k) {
           continue;
         }
+        countNodeVisit(cur.isLeaf());
 
         final DBIDIter it = cur.singletons.iter();
 
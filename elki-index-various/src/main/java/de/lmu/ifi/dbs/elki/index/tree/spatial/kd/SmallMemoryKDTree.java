@@ -66,6 +66,9 @@ import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.IntParameter;
  * it is also considerably faster because it does not need to lookup this value
  * from the vectors.
  *
+ * Queries only read the tree, and may be run from multiple threads
+ * concurrently.
+ *
  * Reference:
  * <p>
  * J. L. Bentley<br/>
@@ -130,8 +133,8 @@ public class SmallMemoryKDTree<O extends NumberVector> extends AbstractIndex<O>i
     assert(leafsize >= 1);
     if(LOG.isStatistics()) {
       String prefix = this.getClass().getName();
-      this.objaccess = LOG.newCounter(prefix + ".objaccess");
-      this.distcalc = LOG.newCounter(prefix + ".distancecalcs");
+      this.objaccess = LOG.newConcurrentCounter(prefix + ".objaccess");
+      this.distcalc = LOG.newConcurrentCounter(prefix + ".distancecalcs");
     }
     else {
       this.objaccess = null;
@@ -0,0 +1,87 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.index.distancematrix;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.algorithm.AbstractSimpleAlgorithmTest;
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.QueryUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.KNNList;
+import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
+import de.lmu.ifi.dbs.elki.database.query.knn.KNNQuery;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.EuclideanDistanceFunction;
+
+/**
+ * Unit test for the precomputed distance matrix.
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ */
+public class PrecomputedDistanceMatrixTest extends AbstractSimpleAlgorithmTest {
+  @Test
+  public void testDouble() {
+    test(false, 0, 1e-15);
+  }
+
+  @Test
+  public void testFloatCached() {
+    test(true, 15, 1e-6);
+  }
+
+  /**
+   * Compare distances and kNN against a linear scan.
+   *
+   * @param useFloat Single precision
+   * @param knncache kNN cache size
+   * @param eps Tolerance
+   */
+  private void test(boolean useFloat, int knncache, double eps) {
+    Database db = makeSimpleDatabase(UNITTEST + "3clusters-and-noise-2d.csv", 330);
+    Relation<NumberVector> rel = db.getRelation(TypeUtil.NUMBER_VECTOR_FIELD);
+    DistanceQuery<NumberVector> ref = db.getDistanceQuery(rel, EuclideanDistanceFunction.STATIC);
+    KNNQuery<NumberVector> refknn = QueryUtil.getLinearScanKNNQuery(ref);
+
+    PrecomputedDistanceMatrix<NumberVector> idx = new PrecomputedDistanceMatrix<>(rel, EuclideanDistanceFunction.STATIC, useFloat, knncache);
+    idx.initialize();
+    DistanceQuery<NumberVector> dq = idx.getDistanceQuery(EuclideanDistanceFunction.STATIC);
+    KNNQuery<NumberVector> knnq = idx.getKNNQuery(ref);
+
+    for(DBIDIter i1 = rel.iterDBIDs(); i1.valid(); i1.advance()) {
+      for(DBIDIter i2 = rel.iterDBIDs(); i2.valid(); i2.advance()) {
+        final double d = ref.distance(i1, i2);
+        assertEquals("Distances do not agree.", d, dq.distance(i1, i2), d * eps);
+      }
+      // Repeated queries, with the cache filled and with smaller k.
+      for(int k : new int[] { 10, 15, 10, 20 }) {
+        KNNList expect = refknn.getKNNForDBID(i1, k), got = knnq.getKNNForDBID(i1, k);
+        assertEquals("kNN sizes do not agree.", expect.size(), got.size());
+        assertEquals("kNN distances do not agree.", expect.getKNNDistance(), got.getKNNDistance(), expect.getKNNDistance() * eps);
+      }
+    }
+  }
+}
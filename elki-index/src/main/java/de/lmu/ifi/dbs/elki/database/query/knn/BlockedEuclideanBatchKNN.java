@@ -0,0 +1,290 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.database.query.knn;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.KNNHeap;
+import de.lmu.ifi.dbs.elki.database.ids.KNNList;
+import de.lmu.ifi.dbs.elki.database.relation.DenseVectorRelation;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.parallel.ParallelExecutor;
+
+/**
+ * Cache-blocked batch kNN search for dense vectors and Euclidean distance.
+ *
+ * The query objects and the data objects are both processed in blocks that
+ * are copied into flat {@code double[]} buffers sized to fit into the L2 cache
+ * together. Each query block is owned by exactly one worker thread, so the kNN
+ * heaps are never shared. The current kNN distance of each heap is used to
+ * abort distance computations early.
+ *
+ * The result is identical to a linear scan that processes the data in
+ * relation order (including the treatment of ties).
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ *
+ * @apiviz.uses ParallelExecutor
+ */
+public final class BlockedEuclideanBatchKNN {
+  /**
+   * Assumed L2 cache size in bytes, shared by the query and the data block.
+   */
+  private static final int L2_CACHE_SIZE = 256 << 10;
+
+  /**
+   * Minimum number of vectors in a block.
+   */
+  private static final int MIN_BLOCK_SIZE = 16;
+
+  /**
+   * Number of dimensions processed before checking the pruning bound. For
+   * low-dimensional data, checking the bound costs more than it saves.
+   */
+  private static final int BOUND_CHECK_DIMS = 32;
+
+  /**
+   * Minimum number of distance computations before we use multiple threads.
+   */
+  private static final long PARALLEL_THRESHOLD = 1L << 20;
+
+  /**
+   * Fake constructor: do not instantiate.
+   */
+  private BlockedEuclideanBatchKNN() {
+    // Do not use.
+  }
+
+  /**
+   * Compute the k nearest neighbors for a batch of query objects.
+   *
+   * @param relation Data relation (dense vectors)
+   * @param ids Query object IDs
+   * @param dim Dimensionality of the relation
+   * @param k Number of neighbors
+   * @return Heaps containing <em>squared</em> Euclidean distances
+   */
+  public static KNNHeap[] batchKNN(final Relation<? extends NumberVector> relation, final ArrayDBIDs ids, final int dim, final int k) {
+    final ArrayDBIDs data = DBIDUtil.ensureArray(relation.getDBIDs());
+    final int blocksize = blockSize(dim);
+    final KNNHeap[] heaps = new KNNHeap[ids.size()];
+    if(ids.size() * (long) data.size() < PARALLEL_THRESHOLD) {
+      new BlockRunner(relation, ids, data, dim, k, blocksize, heaps).process(0, ids.size());
+      return heaps;
+    }
+    ParallelExecutor.runBlocks(ids.size(), blocksize, new ParallelExecutor.BlockWorkerFactory<BlockRunner>() {
+      @Override
+      public BlockRunner make() {
+        return new BlockRunner(relation, ids, data, dim, k, blocksize, heaps);
+      }
+    });
+    return heaps;
+  }
+
+  /**
+   * Compute the k nearest neighbors for a batch of query objects.
+   *
+   * @param relation Data relation (dense vectors)
+   * @param ids Query object IDs
+   * @param dim Dimensionality of the relation
+   * @param k Number of neighbors
+   * @return kNN lists, with Euclidean distances
+   */
+  public static List<KNNList> batchKNNSqrt(Relation<? extends NumberVector> relation, ArrayDBIDs ids, int dim, int k) {
+    KNNHeap[] heaps = batchKNN(relation, ids, dim, k);
+    List<KNNList> result = new ArrayList<>(heaps.length);
+    for(KNNHeap heap : heaps) {
+      result.add(heap.toKNNListSqrt());
+    }
+    return result;
+  }
+
+  /**
+   * Choose the number of vectors per block, such that one query block and one
+   * data block fit into the L2 cache.
+   *
+   * @param dim Dimensionality
+   * @return Block size
+   */
+  protected static int blockSize(int dim) {
+    return Math.max(MIN_BLOCK_SIZE, (L2_CACHE_SIZE >>> 1) / (Math.max(dim, 1) << 3));
+  }
+
+  /**
+   * Copy a block of vectors into a flat, row-major array.
+   *
+   * @param relation Data relation
+   * @param iter Array iterator
+   * @param start First offset
+   * @param len Number of vectors
+   * @param dim Dimensionality
+   * @param buf Output buffer
+   */
+  private static void copyBlock(Relation<? extends NumberVector> relation, DBIDArrayIter iter, int start, int len, int dim, double[] buf) {
+    iter.seek(start);
+    if(relation instanceof DenseVectorRelation) {
+      final DenseVectorRelation<?> dense = (DenseVectorRelation<?>) relation;
+      for(int i = 0, off = 0; i < len; i++, off += dim, iter.advance()) {
+        dense.copyRow(iter, buf, off);
+      }
+      return;
+    }
+    for(int i = 0, off = 0; i < len; i++, off += dim, iter.advance()) {
+      final NumberVector vec = relation.get(iter);
+      for(int d = 0; d < dim; d++) {
+        buf[off + d] = vec.doubleValue(d);
+      }
+    }
+  }
+
+  /**
+   * Squared Euclidean distance with early abort.
+   *
+   * @param a First buffer
+   * @param aoff Offset in first buffer
+   * @param b Second buffer
+   * @param boff Offset in second buffer
+   * @param dim Dimensionality
+   * @param max Pruning bound
+   * @return Squared distance, or a value larger than {@code max}
+   */
+  private static double squaredDistance(double[] a, int aoff, double[] b, int boff, int dim, double max) {
+    double agg = 0.;
+    int d = 0;
+    for(int end = BOUND_CHECK_DIMS; end < dim; end += BOUND_CHECK_DIMS) {
+      for(; d < end; d++) {
+        final double v = a[aoff + d] - b[boff + d];
+        agg += v * v;
+      }
+      if(agg > max) {
+        return agg;
+      }
+    }
+    for(; d < dim; d++) {
+      final double v = a[aoff + d] - b[boff + d];
+      agg += v * v;
+    }
+    return agg;
+  }
+
+  /**
+   * Worker: processes query blocks, scanning all data blocks for each.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   */
+  private static class BlockRunner implements ParallelExecutor.BlockWorker {
+    /**
+     * Data relation.
+     */
+    private final Relation<? extends NumberVector> relation;
+
+    /**
+     * Data object IDs.
+     */
+    private final ArrayDBIDs data;
+
+    /**
+     * Dimensionality, neighbors and block size.
+     */
+    private final int dim, k, blocksize;
+
+    /**
+     * Scratch buffers for one query and one data block.
+     */
+    private final double[] qbuf, dbuf;
+
+    /**
+     * Pruning bounds of the current query block.
+     */
+    private final double[] bounds;
+
+    /**
+     * Query and data iterators.
+     */
+    private final DBIDArrayIter qiter, diter;
+
+    /**
+     * Output heaps.
+     */
+    private final KNNHeap[] heaps;
+
+    /**
+     * Constructor.
+     *
+     * @param relation Data relation
+     * @param ids Query IDs
+     * @param data Data IDs
+     * @param dim Dimensionality
+     * @param k Number of neighbors
+     * @param blocksize Block size
+     * @param heaps Output heaps
+     */
+    BlockRunner(Relation<? extends NumberVector> relation, ArrayDBIDs ids, ArrayDBIDs data, int dim, int k, int blocksize, KNNHeap[] heaps) {
+      this.relation = relation;
+      this.data = data;
+      this.dim = dim;
+      this.k = k;
+      this.blocksize = blocksize;
+      this.heaps = heaps;
+      this.qbuf = new double[blocksize * dim];
+      this.dbuf = new double[blocksize * dim];
+      this.bounds = new double[blocksize];
+      this.qiter = ids.iter();
+      this.diter = data.iter();
+    }
+
+    @Override
+    public void process(int start, int end) {
+      final int dsize = data.size();
+      for(int qstart = start; qstart < end; qstart += blocksize) {
+        final int qlen = Math.min(blocksize, end - qstart);
+        copyBlock(relation, qiter, qstart, qlen, dim, qbuf);
+        for(int j = 0; j < qlen; j++) {
+          heaps[qstart + j] = DBIDUtil.newHeap(k);
+          bounds[j] = Double.POSITIVE_INFINITY;
+        }
+        for(int dstart = 0; dstart < dsize; dstart += blocksize) {
+          final int dlen = Math.min(blocksize, dsize - dstart);
+          copyBlock(relation, diter, dstart, dlen, dim, dbuf);
+          for(int j = 0, qoff = 0; j < qlen; j++, qoff += dim) {
+            final KNNHeap heap = heaps[qstart + j];
+            double max = bounds[j];
+            for(int i = 0, doff = 0; i < dlen; i++, doff += dim) {
+              final double dist = squaredDistance(qbuf, qoff, dbuf, doff, dim, max);
+              if(dist <= max) {
+                max = heap.insert(dist, diter.seek(dstart + i));
+              }
+            }
+            bounds[j] = max;
+          }
+        }
+      }
+    }
+  }
+}
@@ -24,6 +24,9 @@ import java.util.ArrayList;
 import java.util.List;
 
 import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.data.SparseNumberVector;
+import de.lmu.ifi.dbs.elki.data.type.SimpleTypeInformation;
+import de.lmu.ifi.dbs.elki.data.type.VectorFieldTypeInformation;
 import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
@@ -32,6 +35,7 @@ import de.lmu.ifi.dbs.elki.database.ids.KNNHeap;
 import de.lmu.ifi.dbs.elki.database.ids.KNNList;
 import de.lmu.ifi.dbs.elki.database.query.LinearScanQuery;
 import de.lmu.ifi.dbs.elki.database.query.distance.PrimitiveDistanceQuery;
+import de.lmu.ifi.dbs.elki.database.relation.DenseVectorRelation;
 import de.lmu.ifi.dbs.elki.database.relation.Relation;
 import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.EuclideanDistanceFunction;
 import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.SquaredEuclideanDistanceFunction;
@@ -42,12 +46,18 @@ import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.SquaredEuclideanD
  * This is a subtle optimization: for primitive queries, it is clearly faster to
  * retrieve the query object from the relation only once!
  *
+ * Bulk queries on dense vector fields are processed with the cache-blocked,
+ * multi-threaded {@link BlockedEuclideanBatchKNN}. On a
+ * {@link DenseVectorRelation}, the scan operates on the primitive storage.
+ *
  * @author Erich Schubert
  * @since 0.4.0
  *
  * @apiviz.uses PrimitiveDistanceQuery
  * @apiviz.uses EuclideanDistanceFunction
  * @apiviz.uses SquaredEuclideanDistanceFunction
+ * @apiviz.uses BlockedEuclideanBatchKNN
+ * @apiviz.uses DenseVectorRelation
  */
 public class LinearScanEuclideanDistanceKNNQuery<O extends NumberVector> extends LinearScanPrimitiveDistanceKNNQuery<O> implements LinearScanQuery {
   /**
@@ -86,6 +96,18 @@ public class LinearScanEuclideanDistanceKNNQuery<O extends NumberVector> extends
    */
   private KNNHeap linearScan(Relation<? extends O> relation, DBIDIter iter, final O obj, KNNHeap heap) {
     double max = Double.POSITIVE_INFINITY;
+    if(relation instanceof DenseVectorRelation && ((DenseVectorRelation<?>) relation).getDimensionality() == obj.getDimensionality()) {
+      final DenseVectorRelation<?> dense = (DenseVectorRelation<?>) relation;
+      final double[] vec = obj.toArray();
+      while(iter.valid()) {
+        final double dist = dense.squaredDistance(iter, vec);
+        if(dist <= max) {
+          max = heap.insert(dist, iter);
+        }
+        iter.advance();
+      }
+      return heap;
+    }
     while(iter.valid()) {
       final double dist = SQUARED.distance(obj, relation.get(iter));
       if(dist <= max) {
@@ -98,6 +120,10 @@ public class LinearScanEuclideanDistanceKNNQuery<O extends NumberVector> extends
 
   @Override
   public List<KNNList> getKNNForBulkDBIDs(ArrayDBIDs ids, int k) {
+    final int dim = getDenseDimensionality();
+    if(dim > 0) {
+      return BlockedEuclideanBatchKNN.batchKNNSqrt(relation, ids, dim, k);
+    }
     final int size = ids.size();
     final List<KNNHeap> heaps = new ArrayList<>(size);
     List<O> objs = new ArrayList<>(size);
@@ -114,6 +140,20 @@ public class LinearScanEuclideanDistanceKNNQuery<O extends NumberVector> extends
     return result;
   }
 
+  /**
+   * Get the dimensionality, if the relation is a dense vector field.
+   *
+   * @return Dimensionality, or -1 if not a dense vector field.
+   */
+  private int getDenseDimensionality() {
+    final SimpleTypeInformation<?> type = relation.getDataTypeInformation();
+    if(!(type instanceof VectorFieldTypeInformation) || SparseNumberVector.class.isAssignableFrom(type.getRestrictionClass())) {
+      return -1;
+    }
+    final VectorFieldTypeInformation<?> vtype = (VectorFieldTypeInformation<?>) type;
+    return vtype.mindim() == vtype.maxdim() ? vtype.mindim() : -1;
+  }
+
   /**
    * Perform a linear scan batch kNN for primitive distance functions.
    *
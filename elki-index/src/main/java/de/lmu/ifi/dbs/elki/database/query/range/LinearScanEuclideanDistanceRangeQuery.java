@@ -27,6 +27,7 @@ import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
 import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDList;
 import de.lmu.ifi.dbs.elki.database.ids.ModifiableDoubleDBIDList;
 import de.lmu.ifi.dbs.elki.database.query.distance.PrimitiveDistanceQuery;
+import de.lmu.ifi.dbs.elki.database.relation.DenseVectorRelation;
 import de.lmu.ifi.dbs.elki.database.relation.Relation;
 import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.SquaredEuclideanDistanceFunction;
 import net.jafama.FastMath;
@@ -34,10 +35,13 @@ import net.jafama.FastMath;
 /**
  * Optimized linear scan for Euclidean distance range queries.
  * 
+ * On a {@link DenseVectorRelation}, the scan operates on the primitive storage.
+ * 
  * @author Erich Schubert
  * @since 0.4.0
  * 
  * @apiviz.uses SquaredEuclideanDistanceFunction
+ * @apiviz.uses DenseVectorRelation
  * 
  * @param <O> Database object type
  */
@@ -99,6 +103,21 @@ public class LinearScanEuclideanDistanceRangeQuery<O extends NumberVector> exten
     // This should be more precise, but slower:
     // upper = MathUtil.floatToDoubleUpper((float)range);
     final double sqrange = upper * upper;
+    if(relation instanceof DenseVectorRelation && ((DenseVectorRelation<?>) relation).getDimensionality() == obj.getDimensionality()) {
+      final DenseVectorRelation<?> dense = (DenseVectorRelation<?>) relation;
+      final double[] vec = obj.toArray();
+      while(iter.valid()) {
+        final double sqdistance = dense.squaredDistance(iter, vec);
+        if(sqdistance <= sqrange) {
+          final double dist = FastMath.sqrt(sqdistance);
+          if(dist <= range) { // double check, as we increased the radius above
+            result.add(dist, iter);
+          }
+        }
+        iter.advance();
+      }
+      return;
+    }
     while(iter.valid()) {
       final double sqdistance = SQUARED.distance(obj, relation.get(iter));
       if(sqdistance <= sqrange) {
@@ -22,6 +22,7 @@ package de.lmu.ifi.dbs.elki.index.distancematrix;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import de.lmu.ifi.dbs.elki.data.type.TypeInformation;
 import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
@@ -32,6 +33,7 @@ import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
 import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDList;
+import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDListIter;
 import de.lmu.ifi.dbs.elki.database.ids.KNNHeap;
 import de.lmu.ifi.dbs.elki.database.ids.KNNList;
 import de.lmu.ifi.dbs.elki.database.ids.ModifiableDoubleDBIDList;
@@ -48,10 +50,14 @@ import de.lmu.ifi.dbs.elki.index.RangeIndex;
 import de.lmu.ifi.dbs.elki.logging.Logging;
 import de.lmu.ifi.dbs.elki.logging.progress.FiniteProgress;
 import de.lmu.ifi.dbs.elki.logging.statistics.LongStatistic;
+import de.lmu.ifi.dbs.elki.parallel.ParallelExecutor;
 import de.lmu.ifi.dbs.elki.utilities.exceptions.AbortException;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.AbstractParameterizer;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.OptionID;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.constraints.CommonConstraints;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.Flag;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.IntParameter;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.ObjectParameter;
 
 /**
@@ -64,6 +70,13 @@ import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.ObjectParameter;
  * arrays of 31 bits (signed integer), we can store at most 2^16 objects
  * (precisely, 65536 objects) in a single array, which needs about 16 GB of RAM.
  *
+ * Optionally, the matrix can be stored in single precision, which halves the
+ * memory requirements. The matrix is computed in parallel, in blocks of rows.
+ *
+ * For repeated kNN queries, the k nearest neighbors of each object can be
+ * cached (sorted, up to a maximum k) on first use, so that the row of the
+ * matrix needs to be scanned only once.
+ *
  * @author Erich Schubert
  * @since 0.7.0
  *
@@ -89,11 +102,36 @@ public class PrecomputedDistanceMatrix<O> extends AbstractIndex<O> implements Di
    */
   protected DistanceQuery<O> distanceQuery;
 
+  /**
+   * Number of rows per work unit of the parallel matrix computation.
+   */
+  private static final int BLOCKSIZE = 16;
+
   /**
    * Distance matrix.
    */
   private double[] matrix = null;
 
+  /**
+   * Distance matrix, in single precision.
+   */
+  private float[] fmatrix = null;
+
+  /**
+   * Store the matrix in single precision.
+   */
+  private final boolean useFloat;
+
+  /**
+   * Maximum k of the kNN cache, 0 to disable.
+   */
+  private final int knncache;
+
+  /**
+   * Cached kNN lists, safely published to concurrent queries.
+   */
+  private AtomicReferenceArray<KNNList> knns = null;
+
   /**
    * DBID range.
    */
@@ -111,8 +149,22 @@ public class PrecomputedDistanceMatrix<O> extends AbstractIndex<O> implements Di
    * @param distanceFunction Distance function
    */
   public PrecomputedDistanceMatrix(Relation<O> relation, DistanceFunction<? super O> distanceFunction) {
+    this(relation, distanceFunction, false, 0);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param relation Data relation
+   * @param distanceFunction Distance function
+   * @param useFloat Store the matrix in single precision
+   * @param knncache Maximum k of the kNN cache, 0 to disable
+   */
+  public PrecomputedDistanceMatrix(Relation<O> relation, DistanceFunction<? super O> distanceFunction, boolean useFloat, int knncache) {
     super(relation);
     this.distanceFunction = distanceFunction;
+    this.useFloat = useFloat;
+    this.knncache = knncache;
 
     if(!distanceFunction.isSymmetric()) {
       throw new AbortException("Distance matrixes currently only support symmetric distance functions (Patches welcome).");
@@ -134,22 +186,76 @@ public class PrecomputedDistanceMatrix<O> extends AbstractIndex<O> implements Di
     distanceQuery = distanceFunction.instantiate(relation);
 
     final int msize = triangleSize(size);
-    matrix = new double[msize];
-    DBIDArrayIter ix = ids.iter(), iy = ids.iter();
+    if(useFloat) {
+      fmatrix = new float[msize];
+    }
+    else {
+      matrix = new double[msize];
+    }
+    knns = knncache > 0 ? new AtomicReferenceArray<>(size) : null;
 
     FiniteProgress prog = LOG.isVerbose() ? new FiniteProgress("Precomputing distance matrix", msize, LOG) : null;
-    int pos = 0;
-    for(ix.seek(0); ix.valid(); ix.advance()) {
+    computeParallel(prog);
+    LOG.ensureCompleted(prog);
+  }
+
+  /**
+   * Compute the matrix in parallel, in blocks of rows. The longest rows are
+   * processed first, for better load balancing.
+   *
+   * @param prog Progress
+   */
+  private void computeParallel(final FiniteProgress prog) {
+    ParallelExecutor.runBlocks(size, BLOCKSIZE, new ParallelExecutor.BlockWorkerFactory<ParallelExecutor.BlockWorker>() {
+      @Override
+      public ParallelExecutor.BlockWorker make() {
+        return new ParallelExecutor.BlockWorker() {
+          @Override
+          public void process(int start, int end) {
+            computeRows(Math.max(1, size - end), size - start, prog);
+          }
+        };
+      }
+    });
+  }
+
+  /**
+   * Compute a range of rows of the matrix.
+   *
+   * @param start First row
+   * @param end End row (exclusive)
+   * @param prog Progress
+   */
+  private void computeRows(int start, int end, FiniteProgress prog) {
+    DBIDArrayIter ix = ids.iter(), iy = ids.iter();
+    for(ix.seek(start); ix.getOffset() < end; ix.advance()) {
+      final int x = ix.getOffset();
       // y < x -- must match {@link #getOffset}!
-      for(iy.seek(0); iy.getOffset() < ix.getOffset(); iy.advance()) {
-        matrix[pos] = distanceQuery.distance(ix, iy);
-        pos++;
+      int pos = triangleSize(x);
+      if(fmatrix != null) {
+        for(iy.seek(0); iy.getOffset() < x; iy.advance()) {
+          fmatrix[pos++] = (float) distanceQuery.distance(ix, iy);
+        }
+      }
+      else {
+        for(iy.seek(0); iy.getOffset() < x; iy.advance()) {
+          matrix[pos++] = distanceQuery.distance(ix, iy);
+        }
       }
       if(prog != null) {
-        prog.setProcessed(prog.getProcessed() + ix.getOffset(), LOG);
+        prog.incrementProcessed(x, LOG);
       }
     }
-    LOG.ensureCompleted(prog);
+  }
+
+  /**
+   * Get a value from the matrix.
+   *
+   * @param pos Array offset
+   * @return Distance
+   */
+  private double get(int pos) {
+    return matrix != null ? matrix[pos] : fmatrix[pos];
   }
 
   /**
@@ -175,8 +281,8 @@ public class PrecomputedDistanceMatrix<O> extends AbstractIndex<O> implements Di
 
   @Override
   public void logStatistics() {
-    if(matrix != null) {
-      LOG.statistics(new LongStatistic(this.getClass().getName() + ".matrix-size", matrix.length));
+    if(matrix != null || fmatrix != null) {
+      LOG.statistics(new LongStatistic(this.getClass().getName() + ".matrix-size", matrix != null ? matrix.length : fmatrix.length));
     }
   }
 
@@ -223,7 +329,7 @@ public class PrecomputedDistanceMatrix<O> extends AbstractIndex<O> implements Di
     @Override
     public double distance(DBIDRef id1, DBIDRef id2) {
       final int x = ids.getOffset(id1), y = ids.getOffset(id2);
-      return (x != y) ? matrix[getOffset(x, y)] : 0.;
+      return (x != y) ? get(getOffset(x, y)) : 0.;
     }
 
     @Override
@@ -275,7 +381,7 @@ public class PrecomputedDistanceMatrix<O> extends AbstractIndex<O> implements Di
       // Case y < x: triangleSize(x) + y
       int pos = triangleSize(x);
       for(int y = 0; y < x; y++) {
-        final double dist = matrix[pos];
+        final double dist = get(pos);
         if(dist <= range) {
           result.add(dist, it.seek(y));
         }
@@ -285,7 +391,7 @@ public class PrecomputedDistanceMatrix<O> extends AbstractIndex<O> implements Di
       // Case y > x: triangleSize(y) + x
       pos = triangleSize(x + 1) + x;
       for(int y = x + 1; y < size; y++) {
-        final double dist = matrix[pos];
+        final double dist = get(pos);
         if(dist <= range) {
           result.add(dist, it.seek(y));
         }
@@ -312,6 +418,46 @@ public class PrecomputedDistanceMatrix<O> extends AbstractIndex<O> implements Di
   private class PrecomputedKNNQuery implements KNNQuery<O> {
     @Override
     public KNNList getKNNForDBID(DBIDRef id, int k) {
+      if(k > knncache) {
+        return computeKNN(id, k);
+      }
+      final int x = ids.getOffset(id);
+      KNNList knn = knns.get(x);
+      if(knn == null) {
+        // Concurrent queries may compute the same list, keep the first.
+        knn = computeKNN(id, knncache);
+        if(!knns.compareAndSet(x, null, knn)) {
+          knn = knns.get(x);
+        }
+      }
+      return k < knncache ? subList(knn, k) : knn;
+    }
+
+    /**
+     * Shorten a cached kNN list, keeping ties.
+     *
+     * @param knn kNN list
+     * @param k Desired k
+     * @return kNN list
+     */
+    private KNNList subList(KNNList knn, int k) {
+      // Note: rebuild the list, the list is short and already sorted.
+      KNNHeap heap = DBIDUtil.newHeap(k);
+      double max = Double.POSITIVE_INFINITY;
+      for(DoubleDBIDListIter it = knn.iter(); it.valid() && it.doubleValue() <= max; it.advance()) {
+        max = heap.insert(it.doubleValue(), it);
+      }
+      return heap.toKNNList();
+    }
+
+    /**
+     * Compute the kNN by scanning the row of the matrix.
+     *
+     * @param id Query object
+     * @param k Number of neighbors
+     * @return kNN list
+     */
+    private KNNList computeKNN(DBIDRef id, int k) {
       KNNHeap heap = DBIDUtil.newHeap(k);
       heap.insert(0., id);
       DBIDArrayIter it = ids.iter();
@@ -320,7 +466,7 @@ public class PrecomputedDistanceMatrix<O> extends AbstractIndex<O> implements Di
       // Case y < x: triangleSize(x) + y
       int pos = triangleSize(x);
       for(int y = 0; y < x; y++) {
-        final double dist = matrix[pos];
+        final double dist = get(pos);
         if(dist <= max) {
           max = heap.insert(dist, it.seek(y));
         }
@@ -330,7 +476,7 @@ public class PrecomputedDistanceMatrix<O> extends AbstractIndex<O> implements Di
       // Case y > x: triangleSize(y) + x
       pos = triangleSize(x + 1) + x;
       for(int y = x + 1; y < size; y++) {
-        final double dist = matrix[pos];
+        final double dist = get(pos);
         if(dist <= max) {
           max = heap.insert(dist, it.seek(y));
         }
@@ -370,19 +516,42 @@ public class PrecomputedDistanceMatrix<O> extends AbstractIndex<O> implements Di
      */
     final protected DistanceFunction<? super O> distanceFunction;
 
+    /**
+     * Store the matrix in single precision.
+     */
+    final protected boolean useFloat;
+
+    /**
+     * Maximum k of the kNN cache, 0 to disable.
+     */
+    final protected int knncache;
+
     /**
      * Constructor.
      *
      * @param distanceFunction Distance function
      */
     public Factory(DistanceFunction<? super O> distanceFunction) {
+      this(distanceFunction, false, 0);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param distanceFunction Distance function
+     * @param useFloat Store the matrix in single precision
+     * @param knncache Maximum k of the kNN cache, 0 to disable
+     */
+    public Factory(DistanceFunction<? super O> distanceFunction, boolean useFloat, int knncache) {
       super();
       this.distanceFunction = distanceFunction;
+      this.useFloat = useFloat;
+      this.knncache = knncache;
     }
 
     @Override
     public PrecomputedDistanceMatrix<O> instantiate(Relation<O> relation) {
-      return new PrecomputedDistanceMatrix<>(relation, distanceFunction);
+      return new PrecomputedDistanceMatrix<>(relation, distanceFunction, useFloat, knncache);
     }
 
     @Override
@@ -405,11 +574,31 @@ public class PrecomputedDistanceMatrix<O> extends AbstractIndex<O> implements Di
        */
       public static final OptionID DISTANCE_ID = new OptionID("matrix.distance", "Distance function for the precomputed distance matrix.");
 
+      /**
+       * Option parameter for single precision storage.
+       */
+      public static final OptionID FLOAT_ID = new OptionID("matrix.float", "Store the distance matrix in single precision, to halve the memory requirements.");
+
+      /**
+       * Option parameter for the kNN cache.
+       */
+      public static final OptionID KNNCACHE_ID = new OptionID("matrix.knncache", "Maximum k for caching the sorted kNN of each object, 0 to disable the cache.");
+
       /**
        * Nested distance function.
        */
       protected DistanceFunction<? super O> distanceFunction;
 
+      /**
+       * Store the matrix in single precision.
+       */
+      protected boolean useFloat;
+
+      /**
+       * Maximum k of the kNN cache.
+       */
+      protected int knncache;
+
       @Override
       protected void makeOptions(Parameterization config) {
         super.makeOptions(config);
@@ -417,11 +606,20 @@ public class PrecomputedDistanceMatrix<O> extends AbstractIndex<O> implements Di
         if(config.grab(distanceP)) {
           distanceFunction = distanceP.instantiateClass(config);
         }
+        Flag floatF = new Flag(FLOAT_ID);
+        if(config.grab(floatF)) {
+          useFloat = floatF.isTrue();
+        }
+        IntParameter knncacheP = new IntParameter(KNNCACHE_ID, 0) //
+            .addConstraint(CommonConstraints.GREATER_EQUAL_ZERO_INT);
+        if(config.grab(knncacheP)) {
+          knncache = knncacheP.intValue();
+        }
       }
 
       @Override
       protected Factory<O> makeInstance() {
-        return new Factory<>(distanceFunction);
+        return new Factory<>(distanceFunction, useFloat, knncache);
       }
     }
   }
@@ -27,8 +27,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
 
+import de.lmu.ifi.dbs.elki.datasource.bundle.MultipleObjectsBundle;
 import de.lmu.ifi.dbs.elki.datasource.filter.ObjectFilter;
 import de.lmu.ifi.dbs.elki.datasource.parser.ArffParser;
+import de.lmu.ifi.dbs.elki.datasource.parser.FileParser;
 import de.lmu.ifi.dbs.elki.datasource.parser.NumberVectorLabelParser;
 import de.lmu.ifi.dbs.elki.datasource.parser.Parser;
 import de.lmu.ifi.dbs.elki.utilities.Alias;
@@ -48,6 +50,11 @@ import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.FileParameter;
  */
 @Alias("de.lmu.ifi.dbs.elki.database.connection.FileBasedDatabaseConnection")
 public class FileBasedDatabaseConnection extends InputStreamDatabaseConnection {
+  /**
+   * Input file, for parsers that can read files directly.
+   */
+  private File infile;
+
   /**
    * Constructor.
    * 
@@ -57,6 +64,7 @@ public class FileBasedDatabaseConnection extends InputStreamDatabaseConnection {
    */
   public FileBasedDatabaseConnection(List<ObjectFilter> filters, Parser parser, File infile) {
     super(null, filters, parser);
+    this.infile = infile;
     try {
       this.in = new BufferedInputStream(FileUtil.tryGzipInput(new FileInputStream(infile)));
     }
@@ -74,6 +82,7 @@ public class FileBasedDatabaseConnection extends InputStreamDatabaseConnection {
    */
   public FileBasedDatabaseConnection(List<ObjectFilter> filters, Parser parser, String infile) {
     super(null, filters, parser);
+    this.infile = new File(infile);
     try {
       this.in = new BufferedInputStream(FileUtil.tryGzipInput(new FileInputStream(infile)));
     }
@@ -93,6 +102,21 @@ public class FileBasedDatabaseConnection extends InputStreamDatabaseConnection {
     super(in, filters, parser);
   }
 
+  @Override
+  protected MultipleObjectsBundle parse() {
+    if(infile == null || !(parser instanceof FileParser)) {
+      return super.parse();
+    }
+    // Parse the file directly, the stream is not needed.
+    try {
+      in.close();
+    }
+    catch(IOException e) {
+      getLogger().exception(e);
+    }
+    return ((FileParser) parser).parse(infile);
+  }
+
   /**
    * Parameterization class.
    * 
@@ -25,6 +25,7 @@ import java.util.List;
 
 import de.lmu.ifi.dbs.elki.datasource.bundle.MultipleObjectsBundle;
 import de.lmu.ifi.dbs.elki.datasource.filter.ObjectFilter;
+import de.lmu.ifi.dbs.elki.datasource.parser.FileParser;
 import de.lmu.ifi.dbs.elki.datasource.parser.NumberVectorLabelParser;
 import de.lmu.ifi.dbs.elki.datasource.parser.Parser;
 import de.lmu.ifi.dbs.elki.datasource.parser.StreamingParser;
@@ -80,7 +81,8 @@ public class InputStreamDatabaseConnection extends AbstractDatabaseConnection {
       LOG.debugFine("Invoking parsers.");
     }
     // Streaming parsers may yield to stream filters immediately.
-    if(parser instanceof StreamingParser) {
+    // File parsers may read the whole file at once, see parse().
+    if(parser instanceof StreamingParser && !(parser instanceof FileParser)) {
       final StreamingParser streamParser = (StreamingParser) parser;
       streamParser.initStream(in);
       // normalize objects and transform labels
@@ -98,7 +100,7 @@ public class InputStreamDatabaseConnection extends AbstractDatabaseConnection {
     else {
       // For non-streaming parsers, we first parse, then filter
       Duration duration = LOG.isStatistics() ? LOG.newDuration(this.getClass().getName() + ".parse").begin() : null;
-      MultipleObjectsBundle parsingResult = parser.parse(in);
+      MultipleObjectsBundle parsingResult = parse();
       parser.cleanup();
       if(duration != null) {
         LOG.statistics(duration.end());
@@ -117,6 +119,15 @@ public class InputStreamDatabaseConnection extends AbstractDatabaseConnection {
     }
   }
 
+  /**
+   * Parse the input at once, for non-streaming parsers.
+   * 
+   * @return Parsing result
+   */
+  protected MultipleObjectsBundle parse() {
+    return parser.parse(in);
+  }
+
   @Override
   protected Logging getLogger() {
     return LOG;
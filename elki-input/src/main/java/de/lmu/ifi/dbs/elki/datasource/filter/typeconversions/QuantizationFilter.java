@@ -0,0 +1,175 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.datasource.filter.typeconversions;
+
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.data.QuantizedByteVector;
+import de.lmu.ifi.dbs.elki.data.QuantizedShortVector;
+import de.lmu.ifi.dbs.elki.data.type.SimpleTypeInformation;
+import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
+import de.lmu.ifi.dbs.elki.data.type.VectorFieldTypeInformation;
+import de.lmu.ifi.dbs.elki.datasource.filter.AbstractConversionFilter;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.AbstractParameterizer;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.OptionID;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.Flag;
+
+/**
+ * Quantize all vectors of a data set with a shared scale and offset, computed
+ * from the minimum and maximum value of the data set.
+ * <p>
+ * Because all vectors share the same quantization, distances between them can
+ * be computed with the integer kernels of
+ * {@link de.lmu.ifi.dbs.elki.data.VectorKernels}.
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ *
+ * @apiviz.uses QuantizedByteVector
+ * @apiviz.uses QuantizedShortVector
+ *
+ * @param <V> Output vector type
+ */
+public class QuantizationFilter<V extends NumberVector> extends AbstractConversionFilter<NumberVector, V> {
+  /**
+   * Class logger.
+   */
+  private static final Logging LOG = Logging.getLogger(QuantizationFilter.class);
+
+  /**
+   * Use 16 bit instead of 8 bit quantization.
+   */
+  private boolean wide;
+
+  /**
+   * Value range of the data set.
+   */
+  private double min, max;
+
+  /**
+   * Dimensionality range of the data set.
+   */
+  private int mindim, maxdim;
+
+  /**
+   * Factory for the quantized vectors.
+   */
+  private NumberVector.Factory<V> factory;
+
+  /**
+   * Constructor.
+   *
+   * @param wide Use 16 bit instead of 8 bit quantization.
+   */
+  public QuantizationFilter(boolean wide) {
+    super();
+    this.wide = wide;
+  }
+
+  @Override
+  protected boolean prepareStart(SimpleTypeInformation<NumberVector> in) {
+    min = Double.POSITIVE_INFINITY;
+    max = Double.NEGATIVE_INFINITY;
+    mindim = Integer.MAX_VALUE;
+    maxdim = 0;
+    return true;
+  }
+
+  @Override
+  protected void prepareProcessInstance(NumberVector obj) {
+    final int dim = obj.getDimensionality();
+    mindim = dim < mindim ? dim : mindim;
+    maxdim = dim > maxdim ? dim : maxdim;
+    for(int d = 0; d < dim; d++) {
+      final double v = obj.doubleValue(d);
+      min = v < min ? v : min;
+      max = v > max ? v : max;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  protected void prepareComplete() {
+    if(!(min <= max)) {
+      min = max = 0.;
+    }
+    if(LOG.isVerbose()) {
+      LOG.verbose("Quantizing value range " + min + " to " + max);
+    }
+    factory = (NumberVector.Factory<V>) (wide ? new QuantizedShortVector.Factory(min, max) : new QuantizedByteVector.Factory(min, max));
+  }
+
+  @Override
+  protected V filterSingleObject(NumberVector obj) {
+    return factory.newNumberVector(obj);
+  }
+
+  @Override
+  protected SimpleTypeInformation<? super NumberVector> getInputTypeRestriction() {
+    return TypeUtil.NUMBER_VECTOR_VARIABLE_LENGTH;
+  }
+
+  @Override
+  protected SimpleTypeInformation<? super V> convertedType(SimpleTypeInformation<NumberVector> in) {
+    return new VectorFieldTypeInformation<>(factory, mindim, maxdim, factory.getDefaultSerializer());
+  }
+
+  @Override
+  protected Logging getLogger() {
+    return LOG;
+  }
+
+  /**
+   * Parameterization class.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   *
+   * @param <V> Output vector type
+   */
+  public static class Parameterizer<V extends NumberVector> extends AbstractParameterizer {
+    /**
+     * Flag to use 16 bit instead of 8 bit quantization.
+     */
+    public static final OptionID WIDE_ID = new OptionID("quantize.16bit", "Use 16 bit instead of 8 bit quantization.");
+
+    /**
+     * Use 16 bit quantization.
+     */
+    boolean wide;
+
+    @Override
+    protected void makeOptions(Parameterization config) {
+      super.makeOptions(config);
+      Flag wideF = new Flag(WIDE_ID);
+      if(config.grab(wideF)) {
+        wide = wideF.isTrue();
+      }
+    }
+
+    @Override
+    protected QuantizationFilter<V> makeInstance() {
+      return new QuantizationFilter<>(wide);
+    }
+  }
+}
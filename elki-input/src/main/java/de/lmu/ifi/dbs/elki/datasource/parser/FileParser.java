@@ -0,0 +1,43 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.datasource.parser;
+
+import java.io.File;
+
+import de.lmu.ifi.dbs.elki.datasource.bundle.MultipleObjectsBundle;
+
+/**
+ * Parser that can read directly from a file, instead of an input stream. This
+ * allows random access, e.g., memory mapping the file and parsing it in
+ * parallel.
+ * 
+ * @author Erich Schubert
+ * @since 0.7.2
+ */
+public interface FileParser extends Parser {
+  /**
+   * Returns a list of the objects parsed from the specified file.
+   * 
+   * @param file the file to parse objects from
+   * @return a list containing those objects parsed from the file
+   */
+  MultipleObjectsBundle parse(File file);
+}
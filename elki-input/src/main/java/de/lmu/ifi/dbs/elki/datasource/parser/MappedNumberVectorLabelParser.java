@@ -0,0 +1,694 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.datasource.parser;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import de.lmu.ifi.dbs.elki.data.LabelList;
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.data.type.SimpleTypeInformation;
+import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
+import de.lmu.ifi.dbs.elki.datasource.bundle.MultipleObjectsBundle;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.parallel.ParallelExecutor;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.arraylike.DoubleArray;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.hash.Unique;
+import de.lmu.ifi.dbs.elki.utilities.exceptions.AbortException;
+import de.lmu.ifi.dbs.elki.utilities.io.FileUtil;
+import de.lmu.ifi.dbs.elki.utilities.io.ParseUtil;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.OptionID;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.constraints.CommonConstraints;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.IntParameter;
+
+/**
+ * Parser for the same format as {@link NumberVectorLabelParser}, which
+ * memory-maps the input file and parses newline-aligned chunks of it in
+ * parallel, directly from bytes.
+ *
+ * The chunks are tokenized without creating objects for each line; only the
+ * vectors and labels themselves are allocated. The results are merged in the
+ * original order of the file.
+ *
+ * Only the default column separator and comment patterns are supported by the
+ * byte-level tokenizer. With other patterns, or when the input is read from a
+ * stream (e.g. stdin, or gzip compressed files), this parser behaves exactly
+ * like {@link NumberVectorLabelParser}.
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ *
+ * @apiviz.uses ParallelExecutor
+ *
+ * @param <V> the type of NumberVector used
+ */
+public class MappedNumberVectorLabelParser<V extends NumberVector> extends NumberVectorLabelParser<V> implements FileParser {
+  /**
+   * Logging class.
+   */
+  private static final Logging LOG = Logging.getLogger(MappedNumberVectorLabelParser.class);
+
+  /**
+   * Default chunk size: 16 MiB.
+   */
+  public static final int DEFAULT_CHUNK_SIZE = 16 << 20;
+
+  /**
+   * Character set of label strings.
+   */
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  /**
+   * Input format.
+   */
+  protected CSVReaderFormat format;
+
+  /**
+   * Chunk size.
+   */
+  protected int chunksize;
+
+  /**
+   * Quote characters.
+   */
+  private byte[] quoteChars;
+
+  /**
+   * Constructor.
+   *
+   * @param format Input format
+   * @param labelIndices Column indexes that are not numeric.
+   * @param factory Vector factory
+   * @param chunksize Size of chunks to process in parallel
+   */
+  public MappedNumberVectorLabelParser(CSVReaderFormat format, long[] labelIndices, NumberVector.Factory<V> factory, int chunksize) {
+    super(format, labelIndices, factory);
+    this.format = format;
+    this.chunksize = chunksize;
+    this.quoteChars = format.quoteChars != null ? format.quoteChars.getBytes(UTF8) : new byte[0];
+  }
+
+  /**
+   * Constructor with defaults.
+   *
+   * @param factory Vector factory
+   */
+  public MappedNumberVectorLabelParser(NumberVector.Factory<V> factory) {
+    this(CSVReaderFormat.DEFAULT_FORMAT, null, factory, DEFAULT_CHUNK_SIZE);
+  }
+
+  @Override
+  public MultipleObjectsBundle parse(File file) {
+    if(!isDefaultFormat()) {
+      LOG.warning("Memory mapped parsing only supports the default column separator and comment patterns, falling back to stream parsing.");
+      return parseStream(file);
+    }
+    try {
+      FileInputStream fin = new FileInputStream(file);
+      try {
+        FileChannel channel = fin.getChannel();
+        if(isGzip(channel)) {
+          return parseStream(file);
+        }
+        return parseChunks(channel, chunkBoundaries(channel));
+      }
+      finally {
+        fin.close();
+      }
+    }
+    catch(IOException e) {
+      throw new AbortException("Could not read input file: " + file, e);
+    }
+  }
+
+  /**
+   * Fallback: parse the file as a stream.
+   *
+   * @param file Input file
+   * @return Parsed bundle
+   */
+  private MultipleObjectsBundle parseStream(File file) {
+    try {
+      InputStream in = new BufferedInputStream(FileUtil.tryGzipInput(new FileInputStream(file)));
+      try {
+        return parse(in);
+      }
+      finally {
+        in.close();
+      }
+    }
+    catch(IOException e) {
+      throw new AbortException("Could not read input file: " + file, e);
+    }
+  }
+
+  /**
+   * Test whether the format uses the default separator and comment patterns.
+   *
+   * @return {@code true} when the byte tokenizer can be used.
+   */
+  private boolean isDefaultFormat() {
+    return format.colSep != null && CSVReaderFormat.DEFAULT_SEPARATOR.equals(format.colSep.pattern()) //
+        && format.comment != null && CSVReaderFormat.COMMENT_PATTERN.equals(format.comment.pattern());
+  }
+
+  /**
+   * Test for the gzip magic number.
+   *
+   * @param channel File channel
+   * @return {@code true} if the file appears to be gzip compressed.
+   * @throws IOException on read errors
+   */
+  private static boolean isGzip(FileChannel channel) throws IOException {
+    ByteBuffer magic = ByteBuffer.allocate(2);
+    while(magic.hasRemaining() && channel.read(magic, magic.position()) > 0) {
+      // Keep reading.
+    }
+    return magic.position() == 2 && (magic.get(0) & 0xFF) == 0x1f && (magic.get(1) & 0xFF) == 0x8b;
+  }
+
+  /**
+   * Compute newline-aligned chunk boundaries.
+   *
+   * @param channel File channel
+   * @return Boundaries, starting with 0 and ending with the file size.
+   * @throws IOException on read errors
+   */
+  private long[] chunkBoundaries(FileChannel channel) throws IOException {
+    final long size = channel.size();
+    // Every chunk (except the last) has at least chunksize bytes:
+    long[] bounds = new long[(int) ((size + chunksize - 1) / chunksize) + 1];
+    ByteBuffer buf = ByteBuffer.allocate(1 << 16);
+    int n = 1;
+    long prev = 0;
+    while(true) {
+      long pos = prev + chunksize;
+      if(pos >= size) {
+        break;
+      }
+      // Find the next line start at or after pos:
+      long next = size;
+      search: for(long p = pos - 1; p < size;) {
+        buf.clear();
+        int read = channel.read(buf, p);
+        if(read <= 0) {
+          break;
+        }
+        for(int i = 0; i < read; i++) {
+          if(buf.get(i) == '\n') {
+            next = p + i + 1;
+            break search;
+          }
+        }
+        p += read;
+      }
+      if(next >= size) {
+        break;
+      }
+      bounds[n++] = prev = next;
+    }
+    bounds[n++] = size;
+    return Arrays.copyOf(bounds, n);
+  }
+
+  /**
+   * Parse the chunks in parallel, and merge the results.
+   *
+   * @param channel File channel
+   * @param bounds Chunk boundaries
+   * @return Bundle
+   */
+  private MultipleObjectsBundle parseChunks(final FileChannel channel, final long[] bounds) {
+    final int nchunks = bounds.length - 1;
+    final List<Chunk<V>> chunks = new ArrayList<>(Collections.<Chunk<V>> nCopies(nchunks, null));
+    ParallelExecutor.runBlocks(nchunks, 1, new ParallelExecutor.BlockWorkerFactory<ParallelExecutor.BlockWorker>() {
+      @Override
+      public ParallelExecutor.BlockWorker make() {
+        return new ParallelExecutor.BlockWorker() {
+          ChunkParser parser = new ChunkParser();
+
+          @Override
+          public void process(int start, int end) {
+            for(int i = start; i < end; i++) {
+              try {
+                chunks.set(i, parser.parseChunk(channel, bounds[i], bounds[i + 1]));
+              }
+              catch(IOException e) {
+                throw new AbortException("Parsing failed.", e);
+              }
+            }
+          }
+        };
+      }
+    });
+    return merge(chunks);
+  }
+
+  /**
+   * Merge the chunk results in file order.
+   *
+   * @param chunks Chunks
+   * @return Bundle
+   */
+  private MultipleObjectsBundle merge(List<Chunk<V>> chunks) {
+    int size = 0;
+    for(Chunk<V> chunk : chunks) {
+      size += chunk.vectors.size() + (chunk.leading != null ? chunk.leading.size() : 0);
+    }
+    List<V> vectors = new ArrayList<>(size);
+    List<LabelList> labels = new ArrayList<>(size);
+    int mindim = Integer.MAX_VALUE, maxdim = 0;
+    boolean haslabels = false;
+    columnnames = null;
+    for(Chunk<V> chunk : chunks) {
+      if(chunk.leading != null) {
+        if(vectors.isEmpty()) {
+          // Label rows before the first vector are column names.
+          columnnames = chunk.leading.get(chunk.leading.size() - 1);
+        }
+        else {
+          // Otherwise, these are vectors without numerical attributes.
+          for(List<String> row : chunk.leading) {
+            vectors.add(factory.newNumberVector(new double[0]));
+            labels.add(LabelList.make(row));
+            haslabels |= !row.isEmpty();
+            mindim = 0;
+          }
+        }
+      }
+      vectors.addAll(chunk.vectors);
+      labels.addAll(chunk.labels);
+      haslabels |= chunk.haslabels;
+      mindim = chunk.mindim < mindim ? chunk.mindim : mindim;
+      maxdim = chunk.maxdim > maxdim ? chunk.maxdim : maxdim;
+    }
+    if(maxdim == 0) {
+      throw new AbortException("No numeric data was read. Verify the column separator; for textual data use other parsers.");
+    }
+    SimpleTypeInformation<V> type = getTypeInformation(mindim, maxdim);
+    return haslabels ? MultipleObjectsBundle.makeSimple(type, vectors, TypeUtil.LABELLIST, labels) : MultipleObjectsBundle.makeSimple(type, vectors);
+  }
+
+  @Override
+  protected Logging getLogger() {
+    return LOG;
+  }
+
+  /**
+   * Result of parsing a single chunk.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   *
+   * @param <V> Vector type
+   */
+  private static class Chunk<V> {
+    /**
+     * Vectors parsed.
+     */
+    ArrayList<V> vectors = new ArrayList<>();
+
+    /**
+     * Labels of each vector.
+     */
+    ArrayList<LabelList> labels = new ArrayList<>();
+
+    /**
+     * Rows without numerical attributes before the first vector (may be
+     * column headers).
+     */
+    ArrayList<List<String>> leading = null;
+
+    /**
+     * Dimensionality range.
+     */
+    int mindim = Integer.MAX_VALUE, maxdim = 0;
+
+    /**
+     * Whether labels were seen.
+     */
+    boolean haslabels = false;
+  }
+
+  /**
+   * Byte-level parser for chunks, with reusable buffers (one per thread).
+   *
+   * The chunks are parsed directly from the mapped file, without copying.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   */
+  private class ChunkParser {
+    /**
+     * Current chunk of the mapped file.
+     */
+    ByteBuffer buf;
+
+    /**
+     * Character view of the current chunk, for number parsing.
+     */
+    ByteCharSequence chars = new ByteCharSequence();
+
+    /**
+     * Scratch buffer for decoding strings.
+     */
+    byte[] scratch = new byte[256];
+
+    /**
+     * Numerical attributes of the current line.
+     */
+    DoubleArray attributes = new DoubleArray(11);
+
+    /**
+     * Labels of the current line.
+     */
+    ArrayList<String> labels = new ArrayList<>();
+
+    /**
+     * Parse a chunk of the file.
+     *
+     * @param channel File channel
+     * @param start Start offset (beginning of a line)
+     * @param end End offset (beginning of a line, or end of file)
+     * @return Chunk result
+     * @throws IOException on read errors
+     */
+    Chunk<V> parseChunk(FileChannel channel, long start, long end) throws IOException {
+      final long len = end - start;
+      if(len > Integer.MAX_VALUE - 8) {
+        throw new AbortException("Line too long for memory mapped parsing near offset " + start);
+      }
+      chars.buf = buf = channel.map(FileChannel.MapMode.READ_ONLY, start, len);
+      Chunk<V> chunk = new Chunk<>();
+      Unique<String> unique = new Unique<>();
+      for(int s = 0, e; s < len; s = e + 1) {
+        e = s;
+        while(e < len && buf.get(e) != '\n') {
+          ++e;
+        }
+        int le = e;
+        while(le > s && buf.get(le - 1) == '\r') {
+          --le;
+        }
+        if(le == s || isComment(s, le)) {
+          continue;
+        }
+        parseLine(s, le, chunk, unique);
+      }
+      chars.buf = buf = null; // Allow the mapping to be released.
+      return chunk;
+    }
+
+    /**
+     * Test for comment lines: {@code ^\s*(#|//|;).*$}
+     *
+     * @param s Line start
+     * @param e Line end
+     * @return {@code true} when a comment line
+     */
+    private boolean isComment(int s, int e) {
+      while(s < e && isWhitespace(buf.get(s))) {
+        ++s;
+      }
+      if(s >= e) {
+        return false;
+      }
+      final byte c = buf.get(s);
+      return c == '#' || c == ';' || (c == '/' && s + 1 < e && buf.get(s + 1) == '/');
+    }
+
+    /**
+     * Parse a single line, emulating the tokenization of {@link Tokenizer} for
+     * the default separator {@code \s*[,;\s]\s*}.
+     *
+     * @param s Line start
+     * @param e Line end
+     * @param chunk Output chunk
+     * @param unique String unification
+     */
+    private void parseLine(int s, int e, Chunk<V> chunk, Unique<String> unique) {
+      boolean haslabels = false;
+      for(int i = 0, index = s; index <= e; i++) {
+        final byte q = isQuote(index, e);
+        int tstart = index, tend = e, next = e + 1;
+        boolean quoted = false;
+        for(int m = index;;) {
+          while(m < e && !isSeparator(buf.get(m))) {
+            ++m;
+          }
+          if(m >= e) { // Tail after last separator.
+            if(q != 0) {
+              if(buf.get(e - 1) == q) {
+                ++tstart;
+                --tend;
+                quoted = true;
+              }
+              else {
+                LOG.warning("Invalid quoted line in input: no closing quote found in: " + decode(s, e));
+              }
+            }
+            break;
+          }
+          final int mend = separatorEnd(m, e);
+          if(q != 0) {
+            // Matching closing quote found?
+            if(m > index + 1 && buf.get(m - 1) == q) {
+              tstart = index + 1;
+              tend = m - 1;
+              next = mend;
+              quoted = true;
+              break;
+            }
+            m = mend;
+            continue;
+          }
+          tend = m;
+          next = mend;
+          break;
+        }
+        if(tstart >= e) {
+          break; // No more tokens.
+        }
+        index = next;
+        if(!isLabelColumn(i) && !quoted) {
+          try {
+            attributes.add(ParseUtil.parseDouble(chars, tstart, tend));
+            continue;
+          }
+          catch(NumberFormatException ex) {
+            // Ignore attempt, add to labels below.
+          }
+        }
+        if(tend > tstart) {
+          haslabels = true;
+          labels.add(unique.addOrGet(decode(tstart, tend)));
+        }
+      }
+      if(attributes.size == 0 && chunk.vectors.isEmpty()) {
+        // Maybe a label row.
+        if(chunk.leading == null) {
+          chunk.leading = new ArrayList<>();
+        }
+        chunk.leading.add(new ArrayList<>(labels));
+        labels.clear();
+        return;
+      }
+      final int dim = attributes.size;
+      chunk.mindim = dim < chunk.mindim ? dim : chunk.mindim;
+      chunk.maxdim = dim > chunk.maxdim ? dim : chunk.maxdim;
+      chunk.haslabels |= haslabels;
+      chunk.vectors.add(factory.newNumberVector(attributes, attributes));
+      chunk.labels.add(LabelList.make(labels));
+      attributes.clear();
+      labels.clear();
+    }
+
+    /**
+     * End of a separator match beginning at m.
+     *
+     * @param m Separator start
+     * @param e Line end
+     * @return End of separator
+     */
+    private int separatorEnd(int m, int e) {
+      while(m < e && isWhitespace(buf.get(m))) {
+        ++m;
+      }
+      if(m < e && (buf.get(m) == ',' || buf.get(m) == ';')) {
+        ++m;
+        while(m < e && isWhitespace(buf.get(m))) {
+          ++m;
+        }
+      }
+      return m;
+    }
+
+    /**
+     * Test for a quote character.
+     *
+     * @param index Position
+     * @param e Line end
+     * @return Quote character, or 0
+     */
+    private byte isQuote(int index, int e) {
+      if(index >= e) {
+        return 0;
+      }
+      final byte c = buf.get(index);
+      for(int i = 0; i < quoteChars.length; i++) {
+        if(c == quoteChars[i]) {
+          return c;
+        }
+      }
+      return 0;
+    }
+
+    /**
+     * Decode a range of the current chunk as string.
+     *
+     * @param s Start
+     * @param e End
+     * @return String
+     */
+    private String decode(int s, int e) {
+      final int len = e - s;
+      if(scratch.length < len) {
+        scratch = new byte[len];
+      }
+      for(int i = 0; i < len; i++) {
+        scratch[i] = buf.get(s + i);
+      }
+      return new String(scratch, 0, len, UTF8);
+    }
+  }
+
+  /**
+   * Character view of a byte buffer, for parsing numbers with
+   * {@link ParseUtil#parseDouble(CharSequence, int, int)}.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   */
+  private static class ByteCharSequence implements CharSequence {
+    /**
+     * Byte buffer.
+     */
+    ByteBuffer buf;
+
+    @Override
+    public int length() {
+      return buf.limit();
+    }
+
+    @Override
+    public char charAt(int index) {
+      return (char) (buf.get(index) & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+      if(start < 0 || end > length() || start > end) {
+        throw new IndexOutOfBoundsException("Invalid range: " + start + " to " + end);
+      }
+      char[] chars = new char[end - start];
+      for(int i = start; i < end; i++) {
+        chars[i - start] = charAt(i);
+      }
+      return new String(chars);
+    }
+
+    @Override
+    public String toString() {
+      return subSequence(0, length()).toString();
+    }
+  }
+
+  /**
+   * Test for separator characters: {@code [,;\s]}
+   *
+   * @param c Character
+   * @return {@code true} when a separator character
+   */
+  private static boolean isSeparator(byte c) {
+    return c == ',' || c == ';' || isWhitespace(c);
+  }
+
+  /**
+   * Test for whitespace characters: {@code \s}
+   *
+   * @param c Character
+   * @return {@code true} when whitespace
+   */
+  private static boolean isWhitespace(byte c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+  }
+
+  /**
+   * Parameterization class.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   */
+  public static class Parameterizer<V extends NumberVector> extends NumberVectorLabelParser.Parameterizer<V> {
+    /**
+     * Size of the chunks to parse in parallel, in bytes.
+     * <p>
+     * Key: {@code -parser.chunksize}
+     * </p>
+     */
+    public static final OptionID CHUNK_SIZE_ID = new OptionID("parser.chunksize", "Size of the chunks (in bytes) to parse in parallel.");
+
+    /**
+     * Chunk size.
+     */
+    protected int chunksize = DEFAULT_CHUNK_SIZE;
+
+    @Override
+    protected void makeOptions(Parameterization config) {
+      super.makeOptions(config);
+      IntParameter chunksizeP = new IntParameter(CHUNK_SIZE_ID, DEFAULT_CHUNK_SIZE) //
+          .addConstraint(CommonConstraints.GREATER_EQUAL_ONE_INT);
+      if(config.grab(chunksizeP)) {
+        chunksize = chunksizeP.intValue();
+      }
+    }
+
+    @Override
+    protected MappedNumberVectorLabelParser<V> makeInstance() {
+      return new MappedNumberVectorLabelParser<>(format, labelIndices, factory, chunksize);
+    }
+  }
+}
@@ -58,7 +58,8 @@ import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
  * beneficial when the density is less than 1/31. This corresponds roughly to a
  * minimum support of 3% for 1-itemsets. When searching for itemsets with a
  * larger minimum support, it may be desirable to use a dense bitset
- * representation instead and/or implement an automatic switching technique!
+ * representation instead and/or implement an automatic switching technique, as
+ * done by {@link ParallelEclat}.
  *
  * Performance of this implementation is probably surpassed with a low-level C
  * implementation based on SIMD bitset operations as long as support of an
@@ -166,7 +167,7 @@ public class Eclat extends AbstractFrequentItemsetAlgorithm {
       if(depth1 >= minlength) {
         solution.add(new SparseItemset(items, ids.size()));
       }
-      if(depth1 <= maxlength) {
+      if(depth1 < maxlength) {
         extractItemsets(ids, idx, buf, depth1, i + 1, minsupp, solution);
       }
     }
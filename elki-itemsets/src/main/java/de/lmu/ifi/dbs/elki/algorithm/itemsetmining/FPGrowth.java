@@ -190,7 +190,7 @@ public class FPGrowth extends AbstractFrequentItemsetAlgorithm {
    * @param dim Maximum dimensionality
    * @return Item counts
    */
-  private int[] countItemSupport(final Relation<BitVector> relation, final int dim) {
+  protected int[] countItemSupport(final Relation<BitVector> relation, final int dim) {
     final int[] counts = new int[dim];
     FiniteProgress prog = LOG.isVerbose() ? new FiniteProgress("Finding frequent 1-items", relation.size(), LOG) : null;
     for(DBIDIter iditer = relation.iterDBIDs(); iditer.valid(); iditer.advance()) {
@@ -247,7 +247,7 @@ public class FPGrowth extends AbstractFrequentItemsetAlgorithm {
    * @param minsupp Minimum support
    * @return Forward index
    */
-  private int[] buildIndex(final int[] counts, int[] positions, int minsupp) {
+  protected int[] buildIndex(final int[] counts, int[] positions, int minsupp) {
     // Count the number of frequent items:
     int numfreq = 0;
     for(int i = 0; i < counts.length; i++) {
@@ -375,7 +375,7 @@ public class FPGrowth extends AbstractFrequentItemsetAlgorithm {
       // No siblings, no children: single path only.
       if(header[item].sibling == null && header[item].numchildren == 0) {
         if(header[item].count >= minsupp) {
-          extractLinear(header[item].count, minlength, maxlength, item, postfix, plen, buf2, col);
+          extractLinear(header[item].count, minlength, maxlength, header[item], postfix, plen, buf2, col);
         }
         if(destruct) {
           header[item].parent.numchildren--;
@@ -441,22 +441,24 @@ public class FPGrowth extends AbstractFrequentItemsetAlgorithm {
     }
 
     /**
-     * Extract itemsets from a linear tree.
+     * Extract itemsets from a linear path.
+     *
+     * Note: the parent nodes must be followed directly, as the header table
+     * entry of a parent item may be a node on a different path.
      *
      * @param supp Current support
      * @param minlength Minimum length
      * @param maxlength Maximum length
-     * @param item Current item
+     * @param node Current node
      * @param postfix Postfix for extracted itemsets
      * @param plen Postfix length
      * @param buf2 Scratch buffer
      * @param col Output collector
      */
-    private void extractLinear(int supp, int minlength, int maxlength, int item, int[] postfix, int plen, int[] buf2, Collector col) {
-      // For testing minimum length:
-      final int mminlength = minlength - plen;
+    private void extractLinear(int supp, int minlength, int maxlength, FPNode node, int[] postfix, int plen, int[] buf2, Collector col) {
+      final int item = node.key;
       // Unsatisfiable even with current item:
-      if(item + 1 < mminlength) {
+      if(item + 1 < minlength - plen) {
         return;
       }
       // Add current item:
@@ -468,13 +470,14 @@ public class FPGrowth extends AbstractFrequentItemsetAlgorithm {
       if(plen == maxlength) {
         return;
       }
-      assert (header[item] != null);
+      // For testing minimum length:
+      final int mminlength = minlength - plen;
       // Look at parent nodes:
-      for(FPNode p = header[item].parent; p.key >= 0; p = p.parent) {
-        if(p.key < mminlength) {
+      for(FPNode p = node.parent; p.key >= 0; p = p.parent) {
+        if(p.key + 1 < mminlength) {
           break; // Too short.
         }
-        extractLinear(supp, minlength, maxlength, p.key, postfix, plen, buf2, col);
+        extractLinear(supp, minlength, maxlength, p, postfix, plen, buf2, col);
       }
     }
 
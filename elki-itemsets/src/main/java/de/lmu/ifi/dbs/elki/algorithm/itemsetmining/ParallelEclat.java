@@ -0,0 +1,659 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.itemsetmining;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import de.lmu.ifi.dbs.elki.data.BitVector;
+import de.lmu.ifi.dbs.elki.data.SparseFeatureVector;
+import de.lmu.ifi.dbs.elki.data.type.TypeInformation;
+import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
+import de.lmu.ifi.dbs.elki.data.type.VectorFieldTypeInformation;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.database.relation.RelationUtil;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.logging.progress.FiniteProgress;
+import de.lmu.ifi.dbs.elki.logging.statistics.Duration;
+import de.lmu.ifi.dbs.elki.logging.statistics.LongStatistic;
+import de.lmu.ifi.dbs.elki.parallel.ParallelExecutor;
+import de.lmu.ifi.dbs.elki.result.FrequentItemsetsResult;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.BitsUtil;
+import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.OptionID;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.constraints.CommonConstraints;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.DoubleParameter;
+
+/**
+ * Parallel Eclat, using diffsets and dense bitsets.
+ *
+ * Transactions are numbered consecutively, and each frequent item is stored
+ * either as a sorted array of transaction numbers, or as a dense bitset if its
+ * relative support is at least the density threshold. Items are processed in
+ * order of increasing support. Once the difference to the prefix is smaller
+ * than the transaction lists themselves, an equivalence class switches to
+ * diffsets (the transactions of the prefix that do <em>not</em> contain the
+ * item), as proposed by Zaki and Gouda.
+ *
+ * The top-level equivalence classes (all itemsets with the same first item)
+ * are independent, and are processed in parallel.
+ *
+ * The result is the same as with {@link Eclat}.
+ *
+ * Reference:
+ * <p>
+ * M. J. Zaki, K. Gouda<br />
+ * Fast Vertical Mining Using Diffsets<br />
+ * Proc. 9th ACM SIGKDD Int. Conf. on Knowledge Discovery and Data Mining
+ * </p>
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ *
+ * @apiviz.uses ParallelExecutor
+ */
+@Reference(authors = "M. J. Zaki, K. Gouda", //
+    title = "Fast Vertical Mining Using Diffsets", //
+    booktitle = "Proc. 9th ACM SIGKDD Int. Conf. on Knowledge Discovery and Data Mining", //
+    url = "http://dx.doi.org/10.1145/956750.956788")
+public class ParallelEclat extends AbstractFrequentItemsetAlgorithm {
+  /**
+   * Class logger.
+   */
+  private static final Logging LOG = Logging.getLogger(ParallelEclat.class);
+
+  /**
+   * Prefix for statistics.
+   */
+  private static final String STAT = ParallelEclat.class.getName() + ".";
+
+  /**
+   * Minimum relative support to use a dense bitset.
+   */
+  protected double density;
+
+  /**
+   * Constructor.
+   *
+   * @param minsupp Minimum support
+   * @param minlength Minimum length
+   * @param maxlength Maximum length
+   * @param density Minimum relative support to use a dense bitset
+   */
+  public ParallelEclat(double minsupp, int minlength, int maxlength, double density) {
+    super(minsupp, minlength, maxlength);
+    this.density = density;
+  }
+
+  /**
+   * Run the Eclat algorithm
+   *
+   * @param db Database to process
+   * @param relation Bit vector relation
+   * @return Frequent patterns found
+   */
+  public FrequentItemsetsResult run(Database db, final Relation<BitVector> relation) {
+    final int dim = RelationUtil.dimensionality(relation);
+    final VectorFieldTypeInformation<BitVector> meta = RelationUtil.assumeVectorField(relation);
+    // Compute absolute minsupport
+    final int minsupp = getMinimumSupport(relation.size());
+    final int size = relation.size();
+    final int mindense = (int) Math.max(minsupp, Math.ceil(density * size));
+
+    LOG.verbose("Build 1-dimensional transaction lists.");
+    Duration ctime = LOG.newDuration(STAT + "eclat.transposition.time").begin();
+    final int[] idx = buildItemOrder(relation, dim, minsupp);
+    final TidList[] tids = buildIndex(relation, dim, idx, mindense);
+    LOG.statistics(ctime.end());
+    if(LOG.isStatistics()) {
+      int dense = 0;
+      for(TidList t : tids) {
+        dense += t.bits != null ? 1 : 0;
+      }
+      LOG.statistics(new LongStatistic(STAT + "frequent-items", tids.length));
+      LOG.statistics(new LongStatistic(STAT + "dense-items", dense));
+    }
+
+    Duration etime = LOG.newDuration(STAT + "eclat.extraction.time").begin();
+    final List<Itemset> solution = new ArrayList<>();
+    if(minlength <= 1) {
+      for(int i = 0; i < tids.length; i++) {
+        solution.add(new OneItemset(idx[i], tids[i].support));
+      }
+    }
+    if(maxlength > 1 && tids.length > 1) {
+      solution.addAll(extract(tids, idx, size, minsupp, mindense));
+    }
+    Collections.sort(solution);
+    LOG.statistics(etime.end());
+
+    LOG.statistics(new LongStatistic(STAT + "frequent-itemsets", solution.size()));
+    return new FrequentItemsetsResult("Eclat", "eclat", solution, meta, relation.size());
+  }
+
+  /**
+   * Find the frequent items, ordered by increasing support.
+   *
+   * @param relation Data
+   * @param dim Dimensionality
+   * @param minsupp Minimum support
+   * @return Dimensions of the frequent items
+   */
+  private int[] buildItemOrder(Relation<BitVector> relation, int dim, int minsupp) {
+    final int[] counts = new int[dim];
+    for(DBIDIter iter = relation.iterDBIDs(); iter.valid(); iter.advance()) {
+      SparseFeatureVector<?> bv = relation.get(iter);
+      for(int it = bv.iter(); bv.iterValid(it); it = bv.iterAdvance(it)) {
+        counts[bv.iterDim(it)]++;
+      }
+    }
+    long[] order = new long[dim];
+    int n = 0;
+    for(int i = 0; i < dim; i++) {
+      if(counts[i] >= minsupp) {
+        order[n++] = (((long) counts[i]) << 32) | i;
+      }
+    }
+    Arrays.sort(order, 0, n);
+    int[] idx = new int[n];
+    for(int i = 0; i < n; i++) {
+      idx[i] = (int) order[i];
+    }
+    return idx;
+  }
+
+  /**
+   * Build the transaction lists of the frequent items.
+   *
+   * @param relation Data
+   * @param dim Dimensionality
+   * @param idx Dimensions of the frequent items
+   * @param mindense Minimum support for dense bitsets
+   * @return Transaction lists
+   */
+  private TidList[] buildIndex(Relation<BitVector> relation, int dim, int[] idx, int mindense) {
+    final int size = relation.size();
+    int[] iidx = new int[dim];
+    Arrays.fill(iidx, -1);
+    for(int i = 0; i < idx.length; i++) {
+      iidx[idx[i]] = i;
+    }
+    // Count again, to allocate exact sizes.
+    int[] counts = new int[idx.length];
+    for(DBIDIter iter = relation.iterDBIDs(); iter.valid(); iter.advance()) {
+      SparseFeatureVector<?> bv = relation.get(iter);
+      for(int it = bv.iter(); bv.iterValid(it); it = bv.iterAdvance(it)) {
+        final int i = iidx[bv.iterDim(it)];
+        if(i >= 0) {
+          counts[i]++;
+        }
+      }
+    }
+    TidList[] tids = new TidList[idx.length];
+    for(int i = 0; i < idx.length; i++) {
+      tids[i] = counts[i] >= mindense ? new TidList(counts[i], BitsUtil.zero(size)) : new TidList(counts[i], new int[counts[i]]);
+      counts[i] = 0; // Reuse as insertion position
+    }
+    int tid = 0;
+    for(DBIDIter iter = relation.iterDBIDs(); iter.valid(); iter.advance(), tid++) {
+      SparseFeatureVector<?> bv = relation.get(iter);
+      for(int it = bv.iter(); bv.iterValid(it); it = bv.iterAdvance(it)) {
+        final int i = iidx[bv.iterDim(it)];
+        if(i < 0) {
+          continue;
+        }
+        if(tids[i].bits != null) {
+          BitsUtil.setI(tids[i].bits, tid);
+        }
+        else {
+          tids[i].tids[counts[i]++] = tid;
+        }
+      }
+    }
+    return tids;
+  }
+
+  /**
+   * Process the top-level equivalence classes in parallel.
+   *
+   * @param tids Transaction lists of the frequent items
+   * @param idx Dimensions of the frequent items
+   * @param size Number of transactions
+   * @param minsupp Minimum support
+   * @param mindense Minimum support for dense bitsets
+   * @return Frequent itemsets of length 2 and more
+   */
+  private List<Itemset> extract(final TidList[] tids, final int[] idx, final int size, final int minsupp, final int mindense) {
+    final FiniteProgress prog = LOG.isVerbose() ? new FiniteProgress("Building frequent itemsets", tids.length, LOG) : null;
+    List<Worker> workers = ParallelExecutor.runBlocks(tids.length, 1, new ParallelExecutor.BlockWorkerFactory<Worker>() {
+      @Override
+      public Worker make() {
+        return new Worker(tids, idx, size, minsupp, mindense, minlength, maxlength, prog);
+      }
+    });
+    LOG.ensureCompleted(prog);
+    if(workers.size() == 1) {
+      return workers.get(0).solution;
+    }
+    List<Itemset> solution = new ArrayList<>();
+    for(Worker w : workers) {
+      solution.addAll(w.solution);
+    }
+    return solution;
+  }
+
+  /**
+   * Transaction list or diffset of an itemset.
+   *
+   * Exactly one of {@link #tids} and {@link #bits} is set.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   */
+  private static class TidList {
+    /**
+     * Support of the itemset.
+     */
+    final int support;
+
+    /**
+     * Sorted transaction numbers (or diffset), may be {@code null}.
+     */
+    final int[] tids;
+
+    /**
+     * Dense bitset of transactions, may be {@code null}.
+     */
+    final long[] bits;
+
+    /**
+     * Constructor for a sparse list.
+     *
+     * @param support Support
+     * @param tids Transaction numbers
+     */
+    TidList(int support, int[] tids) {
+      this.support = support;
+      this.tids = tids;
+      this.bits = null;
+    }
+
+    /**
+     * Constructor for a dense list.
+     *
+     * @param support Support
+     * @param bits Transaction bitset
+     */
+    TidList(int support, long[] bits) {
+      this.support = support;
+      this.tids = null;
+      this.bits = bits;
+    }
+  }
+
+  /**
+   * Worker thread state.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   */
+  private static class Worker implements ParallelExecutor.BlockWorker {
+    /**
+     * Transaction lists of the frequent items.
+     */
+    final TidList[] tids;
+
+    /**
+     * Dimensions of the frequent items.
+     */
+    final int[] idx;
+
+    /**
+     * Thresholds.
+     */
+    final int minsupp, mindense, minlength, maxlength;
+
+    /**
+     * Scratch buffer for transaction lists.
+     */
+    final int[] scratch;
+
+    /**
+     * Current prefix (item ranks).
+     */
+    final int[] buf;
+
+    /**
+     * Item ranks of the top-level members.
+     */
+    final int[] ranks;
+
+    /**
+     * Progress, may be {@code null}.
+     */
+    final FiniteProgress prog;
+
+    /**
+     * Itemsets found by this worker.
+     */
+    final List<Itemset> solution = new ArrayList<>();
+
+    /**
+     * Constructor.
+     *
+     * @param tids Transaction lists of the frequent items
+     * @param idx Dimensions of the frequent items
+     * @param size Number of transactions
+     * @param minsupp Minimum support
+     * @param mindense Minimum support for dense bitsets
+     * @param minlength Minimum length
+     * @param maxlength Maximum length
+     * @param prog Progress, may be {@code null}
+     */
+    Worker(TidList[] tids, int[] idx, int size, int minsupp, int mindense, int minlength, int maxlength, FiniteProgress prog) {
+      this.tids = tids;
+      this.idx = idx;
+      this.minsupp = minsupp;
+      this.mindense = mindense;
+      this.minlength = minlength;
+      this.maxlength = maxlength;
+      this.scratch = new int[size];
+      this.buf = new int[idx.length];
+      this.ranks = new int[tids.length];
+      for(int i = 0; i < ranks.length; i++) {
+        ranks[i] = i;
+      }
+      this.prog = prog;
+    }
+
+    /**
+     * Process a range of top-level equivalence classes.
+     *
+     * @param start First class
+     * @param end End (exclusive)
+     */
+    @Override
+    public void process(int start, int end) {
+      for(int i = start; i < end; i++) {
+        extractClass(tids, ranks, tids.length, i, 0, false);
+        LOG.incrementProcessed(prog);
+      }
+    }
+
+    /**
+     * Extract the itemsets of the equivalence class of one member.
+     *
+     * @param members Members of the current class
+     * @param items Last item of each member
+     * @param k Number of members
+     * @param j Member to extend
+     * @param plen Length of the common prefix in {@link #buf}
+     * @param diff Members are stored as diffsets
+     */
+    private void extractClass(TidList[] members, int[] items, int k, int j, int plen, boolean diff) {
+      final int len = plen + 2; // Length of the new itemsets
+      // Maximum length, or not enough items left for minimum length:
+      if(len > maxlength || plen + k - j < minlength) {
+        return;
+      }
+      buf[plen] = items[j];
+      final TidList cur = members[j];
+      TidList[] cmembers = new TidList[k - j - 1];
+      int[] citems = new int[k - j - 1];
+      int c = 0;
+      long tsum = 0;
+      boolean sparse = true;
+      for(int l = j + 1; l < k; l++) {
+        TidList t = diff ? diffDiff(cur, members[l]) : intersect(cur, members[l]);
+        if(t == null) {
+          continue;
+        }
+        buf[plen + 1] = items[l];
+        if(len >= minlength) {
+          emit(t.support, len);
+        }
+        tsum += t.support;
+        sparse &= t.bits == null;
+        cmembers[c] = t;
+        citems[c++] = items[l];
+      }
+      if(c < 2 || len >= maxlength) {
+        return;
+      }
+      // Switch to diffsets if they are smaller than the transaction lists:
+      boolean cdiff = diff;
+      if(!diff && sparse && (long) cur.support * c - tsum < tsum) {
+        for(int l = 0; l < c; l++) {
+          cmembers[l] = toDiff(cur, cmembers[l]);
+        }
+        cdiff = true;
+      }
+      for(int l = 0; l < c - 1; l++) {
+        extractClass(cmembers, citems, c, l, plen + 1, cdiff);
+      }
+    }
+
+    /**
+     * Output an itemset.
+     *
+     * @param support Support
+     * @param len Length of the itemset in {@link #buf}
+     */
+    private void emit(int support, int len) {
+      int[] indices = new int[len];
+      for(int i = 0; i < len; i++) {
+        indices[i] = idx[buf[i]]; // Translate to original items
+      }
+      Arrays.sort(indices);
+      solution.add(new SparseItemset(indices, support));
+    }
+
+    /**
+     * Intersect two transaction lists.
+     *
+     * @param a First list
+     * @param b Second list
+     * @return Intersection, or {@code null} if not frequent
+     */
+    private TidList intersect(TidList a, TidList b) {
+      if(a.bits != null && b.bits != null) {
+        final int support = BitsUtil.intersectionSize(a.bits, b.bits);
+        if(support < minsupp) {
+          return null;
+        }
+        final long[] ab = a.bits, bb = b.bits;
+        if(support >= mindense) {
+          long[] bits = new long[ab.length];
+          for(int i = 0; i < ab.length; i++) {
+            bits[i] = ab[i] & bb[i];
+          }
+          return new TidList(support, bits);
+        }
+        int[] tids = new int[support];
+        for(int i = 0, n = 0; i < ab.length; i++) {
+          for(long w = ab[i] & bb[i]; w != 0; w &= w - 1) {
+            tids[n++] = (i << 6) + Long.numberOfTrailingZeros(w);
+          }
+        }
+        return new TidList(support, tids);
+      }
+      if(a.bits != null || b.bits != null) {
+        final int[] at = a.bits != null ? b.tids : a.tids;
+        final long[] bb = a.bits != null ? a.bits : b.bits;
+        // Early abort when the support can no longer be reached:
+        int n = 0;
+        for(int i = 0, miss = at.length - minsupp; i < at.length; i++) {
+          final int t = at[i];
+          if(BitsUtil.get(bb, t)) {
+            scratch[n++] = t;
+          }
+          else if(--miss < 0) {
+            return null;
+          }
+        }
+        return new TidList(n, Arrays.copyOf(scratch, n));
+      }
+      // Merge join:
+      final int[] at = a.tids, bt = b.tids;
+      int i = 0, j = 0, n = 0;
+      int miss = Math.min(at.length, bt.length) - minsupp;
+      while(i < at.length && j < bt.length) {
+        final int ai = at[i], bj = bt[j];
+        if(ai < bj) {
+          ++i;
+          if(at.length <= bt.length && --miss < 0) {
+            return null;
+          }
+        }
+        else if(ai > bj) {
+          ++j;
+          if(bt.length < at.length && --miss < 0) {
+            return null;
+          }
+        }
+        else {
+          scratch[n++] = ai;
+          ++i;
+          ++j;
+        }
+      }
+      return n < minsupp ? null : new TidList(n, Arrays.copyOf(scratch, n));
+    }
+
+    /**
+     * Compute the diffset of a joint itemset from the diffsets of two items,
+     * d(PXY) = d(PY) \ d(PX).
+     *
+     * @param a Diffset of PX
+     * @param b Diffset of PY
+     * @return Diffset of PXY, or {@code null} if not frequent
+     */
+    private TidList diffDiff(TidList a, TidList b) {
+      final int[] at = a.tids, bt = b.tids;
+      final int maxdiff = a.support - minsupp;
+      int i = 0, j = 0, n = 0;
+      while(j < bt.length) {
+        final int bj = bt[j];
+        while(i < at.length && at[i] < bj) {
+          ++i;
+        }
+        if(i == at.length || at[i] != bj) {
+          if(n == maxdiff) {
+            return null;
+          }
+          scratch[n++] = bj;
+        }
+        ++j;
+      }
+      return new TidList(a.support - n, Arrays.copyOf(scratch, n));
+    }
+
+    /**
+     * Convert a transaction list to a diffset, d(PXY) = t(PX) \ t(PXY).
+     *
+     * @param parent Transaction list of PX
+     * @param child Transaction list of PXY, sparse
+     * @return Diffset of PXY
+     */
+    private TidList toDiff(TidList parent, TidList child) {
+      final int[] ct = child.tids;
+      int n = 0, j = 0;
+      if(parent.bits != null) {
+        final long[] pb = parent.bits;
+        for(int i = 0; i < pb.length; i++) {
+          for(long w = pb[i]; w != 0; w &= w - 1) {
+            final int t = (i << 6) + Long.numberOfTrailingZeros(w);
+            if(j < ct.length && ct[j] == t) {
+              ++j;
+            }
+            else {
+              scratch[n++] = t;
+            }
+          }
+        }
+      }
+      else {
+        for(int t : parent.tids) {
+          if(j < ct.length && ct[j] == t) {
+            ++j;
+          }
+          else {
+            scratch[n++] = t;
+          }
+        }
+      }
+      return new TidList(child.support, Arrays.copyOf(scratch, n));
+    }
+  }
+
+  @Override
+  public TypeInformation[] getInputTypeRestriction() {
+    return TypeUtil.array(TypeUtil.BIT_VECTOR_FIELD);
+  }
+
+  @Override
+  protected Logging getLogger() {
+    return LOG;
+  }
+
+  /**
+   * Parameterization class.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   */
+  public static class Parameterizer extends AbstractFrequentItemsetAlgorithm.Parameterizer {
+    /**
+     * Minimum relative support to store an item as dense bitset.
+     */
+    public static final OptionID DENSITY_ID = new OptionID("eclat.density", //
+        "Minimum relative support to store the transactions of an itemset as dense bitset instead of a sorted list.");
+
+    /**
+     * Minimum relative support for dense bitsets.
+     */
+    protected double density;
+
+    @Override
+    protected void makeOptions(Parameterization config) {
+      super.makeOptions(config);
+      DoubleParameter densityP = new DoubleParameter(DENSITY_ID, 1. / 32) //
+          .addConstraint(CommonConstraints.GREATER_THAN_ZERO_DOUBLE) //
+          .addConstraint(CommonConstraints.LESS_EQUAL_ONE_DOUBLE);
+      if(config.grab(densityP)) {
+        density = densityP.getValue();
+      }
+    }
+
+    @Override
+    protected ParallelEclat makeInstance() {
+      return new ParallelEclat(minsupp, minlength, maxlength, density);
+    }
+  }
+}
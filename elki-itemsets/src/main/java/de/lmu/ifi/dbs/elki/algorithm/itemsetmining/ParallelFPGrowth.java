@@ -0,0 +1,876 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.itemsetmining;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import de.lmu.ifi.dbs.elki.data.BitVector;
+import de.lmu.ifi.dbs.elki.data.SparseFeatureVector;
+import de.lmu.ifi.dbs.elki.data.type.VectorFieldTypeInformation;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.database.relation.RelationUtil;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.logging.progress.FiniteProgress;
+import de.lmu.ifi.dbs.elki.logging.progress.IndefiniteProgress;
+import de.lmu.ifi.dbs.elki.logging.statistics.DoubleStatistic;
+import de.lmu.ifi.dbs.elki.logging.statistics.Duration;
+import de.lmu.ifi.dbs.elki.logging.statistics.LongStatistic;
+import de.lmu.ifi.dbs.elki.parallel.ParallelCore;
+import de.lmu.ifi.dbs.elki.parallel.ParallelExecutor;
+import de.lmu.ifi.dbs.elki.result.FrequentItemsetsResult;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.arraylike.IntegerArray;
+import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
+import de.lmu.ifi.dbs.elki.utilities.exceptions.AbortException;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.OptionID;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.constraints.CommonConstraints;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.IntParameter;
+
+/**
+ * Parallel FP-Growth, using a compact array-based FP-tree.
+ *
+ * The FP-tree is stored in parallel integer arrays (item, count, parent, and
+ * the next node of the same item) instead of one object per node. The
+ * extraction is partitioned by the suffix item: every thread takes the next
+ * item, and builds its own conditional trees from the shared FP-tree, which is
+ * not modified during extraction.
+ *
+ * Optionally, a memory budget can be given. Then no FP-tree is built for the
+ * whole database; instead, the suffix items are split into groups, and every
+ * transaction is added to the projected database of each group, up to the
+ * last item of this group (as in the parallel FP-Growth of Li et al.). If the
+ * projected databases exceed the memory budget, they are spilled to temporary
+ * files. The groups are then mined in parallel, with one FP-tree per group.
+ *
+ * The result is the same as with {@link FPGrowth}.
+ *
+ * Reference:
+ * <p>
+ * H. Li, Y. Wang, D. Zhang, M. Zhang, E. Y. Chang<br />
+ * PFP: Parallel FP-Growth for Query Recommendation<br />
+ * Proc. 2008 ACM Conference on Recommender Systems (RecSys '08)
+ * </p>
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ *
+ * @apiviz.composedOf ArrayFPTree
+ * @apiviz.uses ParallelExecutor
+ */
+@Reference(authors = "H. Li, Y. Wang, D. Zhang, M. Zhang, E. Y. Chang", //
+    title = "PFP: Parallel FP-Growth for Query Recommendation", //
+    booktitle = "Proc. 2008 ACM Conference on Recommender Systems (RecSys '08)", //
+    url = "http://dx.doi.org/10.1145/1454008.1454027")
+public class ParallelFPGrowth extends FPGrowth {
+  /**
+   * Class logger.
+   */
+  private static final Logging LOG = Logging.getLogger(ParallelFPGrowth.class);
+
+  /**
+   * Prefix for statistics.
+   */
+  private static final String STAT = ParallelFPGrowth.class.getName() + ".";
+
+  /**
+   * Number of item groups per thread, when using projected databases.
+   */
+  private static final int GROUPS_PER_THREAD = 4;
+
+  /**
+   * Memory budget for projected databases in bytes, 0 to build a single
+   * FP-tree in memory.
+   */
+  protected long memory;
+
+  /**
+   * Constructor.
+   *
+   * @param minsupp Minimum support (relative or absolute)
+   * @param minlength Minimum length
+   * @param maxlength Maximum length
+   * @param memory Memory budget for projected databases in bytes, 0 to build a
+   *        single FP-tree in memory
+   */
+  public ParallelFPGrowth(double minsupp, int minlength, int maxlength, long memory) {
+    super(minsupp, minlength, maxlength);
+    this.memory = memory;
+  }
+
+  /**
+   * Run the FP-Growth algorithm
+   *
+   * @param db Database to process
+   * @param relation Bit vector relation
+   * @return Frequent patterns found
+   */
+  @Override
+  public FrequentItemsetsResult run(Database db, final Relation<BitVector> relation) {
+    final int dim = RelationUtil.dimensionality(relation);
+    final VectorFieldTypeInformation<BitVector> meta = RelationUtil.assumeVectorField(relation);
+    // Compute absolute minsupport
+    final int minsupp = getMinimumSupport(relation.size());
+
+    LOG.verbose("Finding item frequencies for ordering.");
+    final int[] counts = countItemSupport(relation, dim);
+    // Forward and backward indexes
+    int[] iidx = new int[dim];
+    final int[] idx = buildIndex(counts, iidx, minsupp);
+
+    LOG.statistics(new LongStatistic(STAT + "raw-items", dim));
+    LOG.statistics(new LongStatistic(STAT + "raw-transactions", relation.size()));
+    LOG.statistics(new DoubleStatistic(STAT + "minsupp-relative", minsupp / (double) relation.size()));
+    LOG.statistics(new LongStatistic(STAT + "minsupp-absolute", minsupp));
+
+    List<Itemset> solution = memory > 0 ? //
+        runProjected(relation, iidx, idx, minsupp) : runShared(relation, iidx, idx, minsupp);
+    Collections.sort(solution);
+    LOG.statistics(new LongStatistic(STAT + "frequent-itemsets", solution.size()));
+
+    return new FrequentItemsetsResult("FP-Growth", "fp-growth", solution, meta, relation.size());
+  }
+
+  /**
+   * Build a single FP-tree, and extract the itemsets in parallel.
+   *
+   * @param relation Data
+   * @param iidx Inverse index (dimension to item rank)
+   * @param idx Forward index (item rank to dimension)
+   * @param minsupp Minimum support
+   * @return Frequent itemsets
+   */
+  private List<Itemset> runShared(final Relation<BitVector> relation, int[] iidx, int[] idx, final int minsupp) {
+    final int items = idx.length;
+    LOG.verbose("Building FP-Tree.");
+    Duration ctime = LOG.newDuration(STAT + "fp-tree.construction.time").begin();
+    final ArrayFPTree tree = new ArrayFPTree(items, 1024);
+    FiniteProgress prog = LOG.isVerbose() ? new FiniteProgress("Building FP-tree", relation.size(), LOG) : null;
+    int[] buf = new int[items];
+    for(DBIDIter iditer = relation.iterDBIDs(); iditer.valid(); iditer.advance()) {
+      final int l = toItems(relation.get(iditer), iidx, buf);
+      // Skip too short entries
+      if(l >= minlength) {
+        tree.insert(buf, 0, l, 1);
+      }
+      LOG.incrementProcessed(prog);
+    }
+    LOG.ensureCompleted(prog);
+    // Reduce memory usage:
+    tree.reduceMemory();
+    if(LOG.isStatistics()) {
+      LOG.statistics(new LongStatistic(STAT + "items", items));
+      LOG.statistics(new LongStatistic(STAT + "nodes", tree.size));
+      LOG.statistics(new LongStatistic(STAT + "transactions", tree.count[0]));
+    }
+    LOG.statistics(ctime.end());
+
+    LOG.verbose("Extracting frequent patterns.");
+    Duration etime = LOG.newDuration(STAT + "fp-growth.extraction.time").begin();
+    final int stop = (minlength > 1) ? minlength - 1 : 0;
+    final FiniteProgress eprog = LOG.isVerbose() ? new FiniteProgress("Extracting itemsets", Math.max(0, items - stop), LOG) : null;
+    // Start extraction with the least frequent items
+    List<Itemset> solution = extract(idx, Math.max(0, items - stop), new Task() {
+      @Override
+      void process(Miner m, int i) {
+        final int j = items - 1 - i;
+        tree.extract(minsupp, minlength, maxlength, j, m.postfix, 0, m.buf2, m.buf3, m);
+        LOG.incrementProcessed(eprog);
+      }
+    });
+    LOG.ensureCompleted(eprog);
+    LOG.statistics(etime.end());
+    return solution;
+  }
+
+  /**
+   * Split the database into projected databases, one per group of items, and
+   * extract the itemsets of each group in parallel.
+   *
+   * @param relation Data
+   * @param iidx Inverse index (dimension to item rank)
+   * @param idx Forward index (item rank to dimension)
+   * @param minsupp Minimum support
+   * @return Frequent itemsets
+   */
+  private List<Itemset> runProjected(final Relation<BitVector> relation, int[] iidx, int[] idx, final int minsupp) {
+    final int items = idx.length;
+    final int stop = (minlength > 1) ? minlength - 1 : 0;
+    if(items <= stop) {
+      return new ArrayList<>();
+    }
+    final int numgroups = Math.min(items - stop, GROUPS_PER_THREAD * ParallelCore.getCore().getParallelism());
+    final ProjectedDatabase[] dbs = new ProjectedDatabase[numgroups];
+    for(int g = 0; g < numgroups; g++) {
+      dbs[g] = new ProjectedDatabase();
+    }
+    try {
+      LOG.verbose("Building projected databases.");
+      Duration ctime = LOG.newDuration(STAT + "projection.time").begin();
+      FiniteProgress prog = LOG.isVerbose() ? new FiniteProgress("Projecting transactions", relation.size(), LOG) : null;
+      int[] buf = new int[items];
+      boolean[] seen = new boolean[numgroups];
+      long buffered = 0, projected = 0, spilled = 0;
+      for(DBIDIter iditer = relation.iterDBIDs(); iditer.valid(); iditer.advance()) {
+        final int l = toItems(relation.get(iditer), iidx, buf);
+        // Skip too short entries
+        if(l < minlength) {
+          LOG.incrementProcessed(prog);
+          continue;
+        }
+        // Add the prefix up to the last item of each group:
+        for(int k = l - 1; k >= 0 && buf[k] >= stop && k + 1 >= minlength; k--) {
+          final int g = (buf[k] - stop) % numgroups;
+          if(!seen[g]) {
+            seen[g] = true;
+            dbs[g].add(buf, k + 1);
+            buffered += (k + 2) << 2;
+          }
+        }
+        Arrays.fill(seen, false);
+        if(buffered > memory) {
+          for(ProjectedDatabase pdb : dbs) {
+            spilled += pdb.spill();
+          }
+          projected += buffered;
+          buffered = 0;
+        }
+        LOG.incrementProcessed(prog);
+      }
+      LOG.ensureCompleted(prog);
+      if(LOG.isStatistics()) {
+        LOG.statistics(new LongStatistic(STAT + "groups", numgroups));
+        LOG.statistics(new LongStatistic(STAT + "projected-bytes", projected + buffered));
+        LOG.statistics(new LongStatistic(STAT + "spilled-bytes", spilled));
+      }
+      LOG.statistics(ctime.end());
+
+      LOG.verbose("Extracting frequent patterns.");
+      Duration etime = LOG.newDuration(STAT + "fp-growth.extraction.time").begin();
+      final FiniteProgress eprog = LOG.isVerbose() ? new FiniteProgress("Extracting item groups", numgroups, LOG) : null;
+      List<Itemset> solution = extract(idx, numgroups, new Task() {
+        @Override
+        void process(Miner m, int g) {
+          final ArrayFPTree tree;
+          try {
+            tree = dbs[g].buildTree(items);
+          }
+          catch(IOException e) {
+            throw new AbortException("Could not read projected database.", e);
+          }
+          // Start extraction with the least frequent items of this group
+          int j = stop + g + ((items - 1 - stop - g) / numgroups) * numgroups;
+          for(; j >= stop; j -= numgroups) {
+            tree.extract(minsupp, minlength, maxlength, j, m.postfix, 0, m.buf2, m.buf3, m);
+          }
+          LOG.incrementProcessed(eprog);
+        }
+      });
+      LOG.ensureCompleted(eprog);
+      LOG.statistics(etime.end());
+      return solution;
+    }
+    catch(IOException e) {
+      throw new AbortException("Could not spill projected database.", e);
+    }
+    finally {
+      for(ProjectedDatabase pdb : dbs) {
+        pdb.close();
+      }
+    }
+  }
+
+  /**
+   * Convert a transaction to the sorted item rank representation.
+   *
+   * @param bv Transaction
+   * @param iidx Inverse index (dimension to item rank)
+   * @param buf Output buffer
+   * @return Number of frequent items
+   */
+  private static int toItems(SparseFeatureVector<?> bv, int[] iidx, int[] buf) {
+    int l = 0;
+    for(int it = bv.iter(); bv.iterValid(it); it = bv.iterAdvance(it)) {
+      int i = iidx[bv.iterDim(it)];
+      if(i < 0) {
+        continue; // Skip non-frequent items
+      }
+      buf[l++] = i;
+    }
+    Arrays.sort(buf, 0, l); // Sort ascending
+    return l;
+  }
+
+  /**
+   * Run an extraction task on all cores.
+   *
+   * @param idx Forward index (item rank to dimension)
+   * @param count Number of work units
+   * @param task Task to run
+   * @return Frequent itemsets found by all threads
+   */
+  private static List<Itemset> extract(final int[] idx, int count, final Task task) {
+    final IndefiniteProgress itemp = LOG.isVerbose() ? new IndefiniteProgress("Frequent itemsets", LOG) : null;
+    List<Miner> miners = ParallelExecutor.runBlocks(count, 1, new ParallelExecutor.BlockWorkerFactory<Miner>() {
+      @Override
+      public Miner make() {
+        return new Miner(idx, itemp, task);
+      }
+    });
+    LOG.setCompleted(itemp);
+    if(miners.size() == 1) {
+      return miners.get(0).solution;
+    }
+    List<Itemset> solution = new ArrayList<>();
+    for(Miner m : miners) {
+      solution.addAll(m.solution);
+    }
+    return solution;
+  }
+
+  /**
+   * Extraction task, shared by all threads.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   */
+  private abstract static class Task {
+    /**
+     * Process one work unit.
+     *
+     * @param m Per-thread state
+     * @param i Work unit
+     */
+    abstract void process(Miner m, int i);
+  }
+
+  /**
+   * Per-thread state: scratch buffers and the itemsets found.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   */
+  private static class Miner implements FPTree.Collector, ParallelExecutor.BlockWorker {
+    /**
+     * Forward index (item rank to dimension).
+     */
+    final int[] idx;
+
+    /**
+     * Scratch buffers.
+     */
+    final int[] postfix, buf2, buf3;
+
+    /**
+     * Itemsets found by this thread.
+     */
+    final List<Itemset> solution = new ArrayList<>();
+
+    /**
+     * Progress, may be {@code null}.
+     */
+    final IndefiniteProgress itemp;
+
+    /**
+     * Task to run.
+     */
+    final Task task;
+
+    /**
+     * Constructor.
+     *
+     * @param idx Forward index (item rank to dimension)
+     * @param itemp Progress, may be {@code null}
+     * @param task Task to run
+     */
+    Miner(int[] idx, IndefiniteProgress itemp, Task task) {
+      this.idx = idx;
+      this.postfix = new int[idx.length];
+      this.buf2 = new int[idx.length];
+      this.buf3 = new int[idx.length];
+      this.itemp = itemp;
+      this.task = task;
+    }
+
+    @Override
+    public void process(int start, int end) {
+      for(int i = start; i < end; i++) {
+        task.process(this, i);
+      }
+    }
+
+    @Override
+    public void collect(int support, int[] data, int start, int plen) {
+      // Always translate the indexes back to the original values via 'idx'!
+      if(plen - start == 1) {
+        solution.add(new OneItemset(idx[data[start]], support));
+        LOG.incrementProcessed(itemp);
+        return;
+      }
+      // Copy from buffer to a permanent storage
+      int[] indices = new int[plen - start];
+      for(int i = start, j = 0; i < plen; i++) {
+        indices[j++] = idx[data[i]]; // Translate to original items
+      }
+      Arrays.sort(indices);
+      solution.add(new SparseItemset(indices, support));
+      LOG.incrementProcessed(itemp);
+    }
+  }
+
+  /**
+   * Projected database of a group of items, kept in memory until spilled to
+   * a temporary file.
+   *
+   * Transactions are stored as their length, followed by the item ranks.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   */
+  private static class ProjectedDatabase {
+    /**
+     * Transactions not yet spilled.
+     */
+    IntegerArray buffer = new IntegerArray();
+
+    /**
+     * Temporary file, may be {@code null}.
+     */
+    File file;
+
+    /**
+     * Output stream of the temporary file, while spilling.
+     */
+    DataOutputStream out;
+
+    /**
+     * Number of integers in the temporary file.
+     */
+    long spilled;
+
+    /**
+     * Add a transaction prefix.
+     *
+     * @param buf Items
+     * @param len Length
+     */
+    void add(int[] buf, int len) {
+      buffer.add(len);
+      for(int i = 0; i < len; i++) {
+        buffer.add(buf[i]);
+      }
+    }
+
+    /**
+     * Spill the buffered transactions to the temporary file.
+     *
+     * @return Number of bytes written
+     * @throws IOException on write errors
+     */
+    long spill() throws IOException {
+      final int size = buffer.size;
+      if(size == 0) {
+        return 0;
+      }
+      if(out == null) {
+        file = File.createTempFile("elki-fpgrowth", ".tmp");
+        file.deleteOnExit();
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+      }
+      final int[] data = buffer.data;
+      for(int i = 0; i < size; i++) {
+        out.writeInt(data[i]);
+      }
+      spilled += size;
+      buffer = new IntegerArray(); // Release memory
+      return size << 2;
+    }
+
+    /**
+     * Build the FP-tree of this projected database, and release the
+     * projected database.
+     *
+     * @param items Number of items
+     * @return FP-tree
+     * @throws IOException on read errors
+     */
+    ArrayFPTree buildTree(int items) throws IOException {
+      ArrayFPTree tree = new ArrayFPTree(items, 1024);
+      if(out != null) {
+        out.close();
+        out = null;
+        int[] buf = new int[items];
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+          for(long i = 0; i < spilled;) {
+            final int len = in.readInt();
+            for(int j = 0; j < len; j++) {
+              buf[j] = in.readInt();
+            }
+            tree.insert(buf, 0, len, 1);
+            i += len + 1;
+          }
+        }
+        finally {
+          in.close();
+        }
+        close();
+      }
+      final int[] data = buffer.data;
+      for(int i = 0, size = buffer.size; i < size;) {
+        final int len = data[i++];
+        tree.insert(data, i, i + len, 1);
+        i += len;
+      }
+      buffer = null;
+      tree.reduceMemory();
+      return tree;
+    }
+
+    /**
+     * Close and remove the temporary file.
+     */
+    void close() {
+      if(out != null) {
+        try {
+          out.close();
+        }
+        catch(IOException e) {
+          LOG.exception("Could not close temporary file.", e);
+        }
+        out = null;
+      }
+      if(file != null) {
+        if(!file.delete()) {
+          LOG.warning("Could not delete temporary file " + file);
+        }
+        file = null;
+      }
+    }
+  }
+
+  /**
+   * Compact FP-tree, stored in parallel integer arrays.
+   *
+   * Node 0 is the root. For every node, we store the item, the count, the
+   * parent, and the next node with the same item (starting at the header
+   * table). During construction, the first child and the next child of the
+   * same parent are also stored; these are released afterwards, as only the
+   * child-to-parent direction is needed in extracting itemsets.
+   *
+   * @author Erich Schubert
+   */
+  public static class ArrayFPTree {
+    /**
+     * Node data: item, count, parent, and next node of the same item.
+     */
+    int[] item, count, parent, sibling;
+
+    /**
+     * First child, and next child of the same parent (construction only).
+     */
+    int[] child, next;
+
+    /**
+     * Header table: first node of each item, or -1.
+     */
+    int[] header;
+
+    /**
+     * Number of nodes, including the root.
+     */
+    int size;
+
+    /**
+     * Constructor.
+     *
+     * @param items Number of items in header table
+     * @param capacity Initial capacity
+     */
+    public ArrayFPTree(int items, int capacity) {
+      capacity = Math.max(capacity, 2);
+      item = new int[capacity];
+      count = new int[capacity];
+      parent = new int[capacity];
+      sibling = new int[capacity];
+      child = new int[capacity];
+      next = new int[capacity];
+      header = new int[items];
+      Arrays.fill(header, -1);
+      // Root node:
+      item[0] = parent[0] = sibling[0] = child[0] = next[0] = -1;
+      size = 1;
+    }
+
+    /**
+     * Insert an itemset into the tree.
+     *
+     * @param buf Buffer, items sorted ascending
+     * @param i Start position in buffer
+     * @param l End position in buffer
+     * @param weight Weight
+     */
+    public void insert(int[] buf, int i, int l, int weight) {
+      int node = 0;
+      count[0] += weight;
+      for(; i < l; i++) {
+        final int label = buf[i];
+        int c = child[node];
+        while(c >= 0 && item[c] != label) {
+          c = next[c];
+        }
+        if(c < 0) {
+          c = newNode(node, label);
+        }
+        count[c] += weight;
+        node = c;
+      }
+    }
+
+    /**
+     * Create a new node of the FP-tree, linking it into the header table.
+     *
+     * @param par Parent node
+     * @param label Node label
+     * @return New node
+     */
+    private int newNode(int par, int label) {
+      if(size == item.length) {
+        final int newsize = item.length + (item.length >>> 1);
+        item = Arrays.copyOf(item, newsize);
+        count = Arrays.copyOf(count, newsize);
+        parent = Arrays.copyOf(parent, newsize);
+        sibling = Arrays.copyOf(sibling, newsize);
+        child = Arrays.copyOf(child, newsize);
+        next = Arrays.copyOf(next, newsize);
+      }
+      final int node = size++;
+      item[node] = label;
+      count[node] = 0;
+      parent[node] = par;
+      child[node] = -1;
+      // Prepend to linked lists:
+      sibling[node] = header[label];
+      header[label] = node;
+      next[node] = child[par];
+      child[par] = node;
+      return node;
+    }
+
+    /**
+     * Release the memory used for parent-to-child navigation; the tree can no
+     * longer be modified afterwards.
+     */
+    public void reduceMemory() {
+      child = next = null;
+      if(size < item.length) {
+        item = Arrays.copyOf(item, size);
+        count = Arrays.copyOf(count, size);
+        parent = Arrays.copyOf(parent, size);
+        sibling = Arrays.copyOf(sibling, size);
+      }
+    }
+
+    /**
+     * Extract itemsets ending in the given item.
+     *
+     * This does not modify the tree, and can be used by multiple threads
+     * concurrently, with separate buffers.
+     *
+     * @param minsupp Minimum support
+     * @param minlength Minimum length
+     * @param maxlength Maximum length
+     * @param it Current item
+     * @param postfix Items to append
+     * @param plen Postfix length
+     * @param buf2 Scratch buffer
+     * @param buf3 Scratch buffer
+     * @param col Itemset collector
+     */
+    public void extract(int minsupp, int minlength, int maxlength, int it, int[] postfix, int plen, int[] buf2, int[] buf3, FPTree.Collector col) {
+      final int first = header[it];
+      // Skip items that do not occur in the tree
+      if(first < 0) {
+        return;
+      }
+      // Only one node: single path only.
+      if(sibling[first] < 0) {
+        if(count[first] >= minsupp) {
+          extractLinear(count[first], minlength, maxlength, first, postfix, plen, col);
+        }
+        return;
+      }
+      // Count total support.
+      int support = 0;
+      for(int cur = first; cur >= 0; cur = sibling[cur]) {
+        support += count[cur];
+      }
+      if(support < minsupp) {
+        return;
+      }
+      // Longer itemsets would exceed the maximum length:
+      if(plen + 1 >= maxlength) {
+        if(plen + 1 >= minlength) {
+          postfix[plen] = it;
+          col.collect(support, postfix, 0, plen + 1);
+        }
+        return;
+      }
+      // Check which parent items to keep in the projection.
+      Arrays.fill(buf3, 0, it, 0);
+      for(int cur = first; cur >= 0; cur = sibling[cur]) {
+        final int c = count[cur];
+        for(int p = parent[cur]; p > 0; p = parent[p]) {
+          buf3[item[p]] += c;
+        }
+      }
+      // For testing minimum length:
+      final int mminlength = minlength - (plen + 1);
+      if(mminlength > 0) {
+        int fparents = 0;
+        for(int i = 0; i < it; i++) {
+          if(buf3[i] >= minsupp) {
+            fparents += 1;
+          }
+        }
+        if(fparents < mminlength) {
+          return; // Not enough parents that are still frequent.
+        }
+      }
+      // Build projected tree:
+      ArrayFPTree proj = new ArrayFPTree(it, 16);
+      for(int cur = first; cur >= 0; cur = sibling[cur]) {
+        int j = buf2.length;
+        for(int p = parent[cur]; p > 0; p = parent[p]) {
+          if(buf3[item[p]] >= minsupp) {
+            buf2[--j] = item[p];
+          }
+        }
+        if(buf2.length - j >= mminlength) {
+          proj.insert(buf2, j, buf2.length, count[cur]);
+        }
+      }
+      // Release memory:
+      proj.reduceMemory();
+      postfix[plen++] = it;
+      if(plen >= minlength) {
+        col.collect(support, postfix, 0, plen);
+      }
+      for(int j = it - 1; j >= 0; j--) {
+        proj.extract(minsupp, minlength, maxlength, j, postfix, plen, buf2, buf3, col);
+      }
+    }
+
+    /**
+     * Extract itemsets from a linear path.
+     *
+     * @param supp Current support
+     * @param minlength Minimum length
+     * @param maxlength Maximum length
+     * @param node Current node
+     * @param postfix Postfix for extracted itemsets
+     * @param plen Postfix length
+     * @param col Output collector
+     */
+    private void extractLinear(int supp, int minlength, int maxlength, int node, int[] postfix, int plen, FPTree.Collector col) {
+      final int it = item[node];
+      // Unsatisfiable even with current item:
+      if(it + 1 < minlength - plen) {
+        return;
+      }
+      // Add current item:
+      postfix[plen++] = it;
+      if(plen >= minlength && plen <= maxlength) {
+        col.collect(supp, postfix, 0, plen);
+      }
+      // Any more parents will exceed the maximum length:
+      if(plen == maxlength) {
+        return;
+      }
+      // For testing minimum length:
+      final int mminlength = minlength - plen;
+      // Look at parent nodes:
+      for(int p = parent[node]; p > 0; p = parent[p]) {
+        if(item[p] + 1 < mminlength) {
+          break; // Too short.
+        }
+        extractLinear(supp, minlength, maxlength, p, postfix, plen, col);
+      }
+    }
+  }
+
+  @Override
+  protected Logging getLogger() {
+    return LOG;
+  }
+
+  /**
+   * Parameterization class.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   */
+  public static class Parameterizer extends FPGrowth.Parameterizer {
+    /**
+     * Memory budget for the projected databases, in megabytes.
+     */
+    public static final OptionID MEMORY_ID = new OptionID("fpgrowth.memory", //
+        "Memory budget for projected databases, in megabytes. " //
+            + "If set, the transactions are split into projected databases, which are spilled to temporary files when exceeding this budget.");
+
+    /**
+     * Memory budget, in megabytes.
+     */
+    protected int memory = 0;
+
+    @Override
+    protected void makeOptions(Parameterization config) {
+      super.makeOptions(config);
+      IntParameter memoryP = new IntParameter(MEMORY_ID) //
+          .setOptional(true) //
+          .addConstraint(CommonConstraints.GREATER_EQUAL_ONE_INT);
+      if(config.grab(memoryP)) {
+        memory = memoryP.getValue();
+      }
+    }
+
+    @Override
+    protected ParallelFPGrowth makeInstance() {
+      return new ParallelFPGrowth(minsupp, minlength, maxlength, memory * (1L << 20));
+    }
+  }
+}
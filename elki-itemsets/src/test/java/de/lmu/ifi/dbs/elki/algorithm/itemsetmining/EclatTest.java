@@ -120,6 +120,14 @@ public class EclatTest extends AbstractFrequentItemsetAlgorithmTest {
       FrequentItemsetsResult res = ap.run(db);
       assertEquals("Size not as expected.", 1, res.getItemsets().size());
     }
+    {
+      ListParameterization params = new ListParameterization();
+      params.addParameter(Eclat.Parameterizer.MINSUPP_ID, 1);
+      params.addParameter(Eclat.Parameterizer.MAXLENGTH_ID, 2);
+      Eclat ap = ClassGenericsUtil.parameterizeOrAbort(Eclat.class, params);
+      FrequentItemsetsResult res = ap.run(db);
+      assertEquals("Size not as expected.", 10, res.getItemsets().size());
+    }
   }
 
   @Test
@@ -120,6 +120,24 @@ public class FPGrowthTest extends AbstractFrequentItemsetAlgorithmTest {
       FrequentItemsetsResult res = ap.run(db);
       assertEquals("Size not as expected.", 1, res.getItemsets().size());
     }
+    {
+      ListParameterization params = new ListParameterization();
+      params.addParameter(FPGrowth.Parameterizer.MINSUPP_ID, 1);
+      params.addParameter(FPGrowth.Parameterizer.MINLENGTH_ID, 3);
+      FPGrowth ap = ClassGenericsUtil.parameterizeOrAbort(FPGrowth.class, params);
+      FrequentItemsetsResult res = ap.run(db);
+      assertEquals("Size not as expected.", 5, res.getItemsets().size());
+    }
+  }
+
+  @Test
+  public void testSubpaths() {
+    Database db = loadTransactions(UNITTEST + "itemsets/subpaths.txt", 4);
+    ListParameterization params = new ListParameterization();
+    params.addParameter(FPGrowth.Parameterizer.MINSUPP_ID, 1);
+    FPGrowth ap = ClassGenericsUtil.parameterizeOrAbort(FPGrowth.class, params);
+    FrequentItemsetsResult res = ap.run(db);
+    assertEquals("Size not as expected.", 5, res.getItemsets().size());
   }
 
   @Test
@@ -32,6 +32,7 @@ import de.lmu.ifi.dbs.elki.logging.progress.ProgressLogRecord;
 import de.lmu.ifi.dbs.elki.logging.progress.StepProgress;
 import de.lmu.ifi.dbs.elki.logging.statistics.Counter;
 import de.lmu.ifi.dbs.elki.logging.statistics.Duration;
+import de.lmu.ifi.dbs.elki.logging.statistics.LongAdderCounter;
 import de.lmu.ifi.dbs.elki.logging.statistics.MillisTimeDuration;
 import de.lmu.ifi.dbs.elki.logging.statistics.Statistic;
 import de.lmu.ifi.dbs.elki.logging.statistics.UnsynchronizedLongCounter;
@@ -611,6 +612,17 @@ public class Logging {
     return new UnsynchronizedLongCounter(key);
   }
 
+  /**
+   * Generate a new counter that may be incremented by multiple threads
+   * concurrently.
+   * 
+   * @param key Key to use
+   * @return Counter.
+   */
+  public Counter newConcurrentCounter(String key) {
+    return new LongAdderCounter(key);
+  }
+
   /**
    * Generate a new duration statistic.
    * 
@@ -688,7 +700,10 @@ public class Logging {
    * @param stats Statistics object to report.
    */
   public void statistics(Statistic stats) {
-    log(Level.STATISTICS, stats.getKey() + ": " + stats.formatValue());
+    LogRecord rec = new ELKILogRecord(Level.STATISTICS, stats.getKey() + ": " + stats.formatValue());
+    // Attach the statistic itself, for machine-readable collection.
+    rec.setParameters(new Object[] { stats });
+    logger.log(rec);
   }
 
   @Override
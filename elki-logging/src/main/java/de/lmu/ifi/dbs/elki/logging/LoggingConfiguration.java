@@ -245,6 +245,15 @@ public final class LoggingConfiguration {
     LogManager.getLogManager().getLogger("").addHandler(handler);
   }
 
+  /**
+   * Remove a handler from the root logger.
+   *
+   * @param handler Handler
+   */
+  public static void removeHandler(Handler handler) {
+    LogManager.getLogManager().getLogger("").removeHandler(handler);
+  }
+
   /**
    * Replace the default log handler with the given log handler.
    *
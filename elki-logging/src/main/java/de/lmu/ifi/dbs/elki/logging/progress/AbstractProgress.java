@@ -142,12 +142,27 @@ public abstract class AbstractProgress implements Progress {
     }
   }
 
+  /**
+   * Increment the processed counter by more than one.
+   * 
+   * @param increment Number of items processed
+   * @param logger Logger to report to.
+   */
+  public void incrementProcessed(int increment, Logging logger) {
+    this.processed.addAndGet(increment);
+    if(testLoggingRate()) {
+      logger.progress(this);
+    }
+  }
+
   /**
    * Logging rate control.
    * 
+   * Synchronized, as progress may be incremented from multiple threads.
+   * 
    * @return true when logging is sensible
    */
-  protected boolean testLoggingRate() {
+  protected synchronized boolean testLoggingRate() {
     final int processed = getProcessed();
     final long now = System.currentTimeMillis();
     final long age = now - lastLogged;
@@ -0,0 +1,95 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.logging.statistics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+
+import de.lmu.ifi.dbs.elki.logging.Logging;
+
+/**
+ * Log handler that collects all statistics logged via
+ * {@link Logging#statistics(Statistic)}, for machine-readable output.
+ * 
+ * Since counters and durations are mutable, a snapshot of the value at the
+ * time of logging is stored.
+ * 
+ * The collector only sees statistics that are logged, i.e. statistics logging
+ * needs to be enabled; when statistics are disabled, nothing reaches this
+ * handler.
+ * 
+ * @author Erich Schubert
+ * @since 0.7.2
+ * 
+ * @apiviz.has Statistic
+ */
+public class StatisticsCollector extends Handler {
+  /**
+   * Collected statistics.
+   */
+  private final List<Statistic> statistics = new ArrayList<>();
+
+  /**
+   * Constructor.
+   */
+  public StatisticsCollector() {
+    super();
+  }
+
+  @Override
+  public void publish(LogRecord record) {
+    if(record.getLevel().intValue() != Logging.Level.STATISTICS.intValue()) {
+      return;
+    }
+    Object[] params = record.getParameters();
+    if(params == null || params.length != 1 || !(params[0] instanceof Statistic)) {
+      return;
+    }
+    Statistic stat = (Statistic) params[0];
+    StringStatistic snapshot = new StringStatistic(stat.getKey(), stat.formatValue());
+    synchronized(statistics) {
+      statistics.add(snapshot);
+    }
+  }
+
+  /**
+   * Get the statistics collected so far.
+   * 
+   * @return Collected statistics (copy)
+   */
+  public List<Statistic> getStatistics() {
+    synchronized(statistics) {
+      return new ArrayList<>(statistics);
+    }
+  }
+
+  @Override
+  public void flush() {
+    // Nothing to do.
+  }
+
+  @Override
+  public void close() throws SecurityException {
+    // Nothing to do.
+  }
+}
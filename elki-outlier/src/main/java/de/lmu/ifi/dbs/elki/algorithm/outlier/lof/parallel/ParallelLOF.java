@@ -39,6 +39,7 @@ import de.lmu.ifi.dbs.elki.database.relation.MaterializedDoubleRelation;
 import de.lmu.ifi.dbs.elki.database.relation.Relation;
 import de.lmu.ifi.dbs.elki.distance.distancefunction.DistanceFunction;
 import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.logging.progress.FiniteProgress;
 import de.lmu.ifi.dbs.elki.math.DoubleMinMax;
 import de.lmu.ifi.dbs.elki.parallel.ParallelExecutor;
 import de.lmu.ifi.dbs.elki.parallel.processor.DoubleMinMaxProcessor;
@@ -129,7 +130,7 @@ public class ParallelLOF<O> extends AbstractDistanceBasedAlgorithm<O, OutlierRes
       kdistm.connectOutput(kdistv);
       storem.connectInput(kdistv);
 
-      ParallelExecutor.run(ids, knnm, storek, kdistm, storem);
+      ParallelExecutor.run(ids, progress("k nearest neighbors", ids), LOG, knnm, storek, kdistm, storem);
     }
 
     // Phase two: lrd
@@ -141,7 +142,7 @@ public class ParallelLOF<O> extends AbstractDistanceBasedAlgorithm<O, OutlierRes
 
       lrdm.connectOutput(lrdv);
       storelrd.connectInput(lrdv);
-      ParallelExecutor.run(ids, lrdm, storelrd);
+      ParallelExecutor.run(ids, progress("Local Reachability Densities (LRD)", ids), LOG, lrdm, storelrd);
     }
     kdists.destroy(); // No longer needed.
     kdists = null;
@@ -158,7 +159,7 @@ public class ParallelLOF<O> extends AbstractDistanceBasedAlgorithm<O, OutlierRes
       lofm.connectOutput(lofv);
       mmm.connectInput(lofv);
       storelof.connectInput(lofv);
-      ParallelExecutor.run(ids, lofm, storelof, mmm);
+      ParallelExecutor.run(ids, progress("Local Outlier Factor (LOF) scores", ids), LOG, lofm, storelof, mmm);
 
       minmax = mmm.getMinMax();
     }
@@ -168,6 +169,17 @@ public class ParallelLOF<O> extends AbstractDistanceBasedAlgorithm<O, OutlierRes
     return new OutlierResult(meta, scoreres);
   }
 
+  /**
+   * Make a progress logger, if verbose.
+   *
+   * @param task Task name
+   * @param ids IDs to process
+   * @return Progress, or {@code null}
+   */
+  private static FiniteProgress progress(String task, DBIDs ids) {
+    return LOG.isVerbose() ? new FiniteProgress(task, ids.size(), LOG) : null;
+  }
+
   @Override
   protected Logging getLogger() {
     return LOG;
@@ -39,6 +39,7 @@ import de.lmu.ifi.dbs.elki.database.relation.MaterializedDoubleRelation;
 import de.lmu.ifi.dbs.elki.database.relation.Relation;
 import de.lmu.ifi.dbs.elki.distance.distancefunction.DistanceFunction;
 import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.logging.progress.FiniteProgress;
 import de.lmu.ifi.dbs.elki.math.DoubleMinMax;
 import de.lmu.ifi.dbs.elki.parallel.ParallelExecutor;
 import de.lmu.ifi.dbs.elki.parallel.processor.DoubleMinMaxProcessor;
@@ -120,7 +121,7 @@ public class ParallelSimplifiedLOF<O> extends AbstractDistanceBasedAlgorithm<O,
       knnm.connectKNNOutput(knnv);
       storek.connectInput(knnv);
 
-      ParallelExecutor.run(ids, knnm, storek);
+      ParallelExecutor.run(ids, progress("k nearest neighbors", ids), LOG, knnm, storek);
     }
 
     // Phase two: simplified-lrd
@@ -132,7 +133,7 @@ public class ParallelSimplifiedLOF<O> extends AbstractDistanceBasedAlgorithm<O,
 
       lrdm.connectOutput(lrdv);
       storelrd.connectInput(lrdv);
-      ParallelExecutor.run(ids, lrdm, storelrd);
+      ParallelExecutor.run(ids, progress("Local Reachability Densities (LRD)", ids), LOG, lrdm, storelrd);
     }
 
     // Phase three: Simplified-LOF
@@ -147,7 +148,7 @@ public class ParallelSimplifiedLOF<O> extends AbstractDistanceBasedAlgorithm<O,
       lofm.connectOutput(lofv);
       mmm.connectInput(lofv);
       storelof.connectInput(lofv);
-      ParallelExecutor.run(ids, lofm, storelof, mmm);
+      ParallelExecutor.run(ids, progress("Simplified LOF scores", ids), LOG, lofm, storelof, mmm);
 
       minmax = mmm.getMinMax();
     }
@@ -157,6 +158,17 @@ public class ParallelSimplifiedLOF<O> extends AbstractDistanceBasedAlgorithm<O,
     return new OutlierResult(meta, scoreres);
   }
 
+  /**
+   * Make a progress logger, if verbose.
+   *
+   * @param task Task name
+   * @param ids IDs to process
+   * @return Progress, or {@code null}
+   */
+  private static FiniteProgress progress(String task, DBIDs ids) {
+    return LOG.isVerbose() ? new FiniteProgress(task, ids.size(), LOG) : null;
+  }
+
   @Override
   protected Logging getLogger() {
     return LOG;
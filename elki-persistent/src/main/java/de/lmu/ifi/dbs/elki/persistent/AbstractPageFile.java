@@ -48,8 +48,8 @@ public abstract class AbstractPageFile<P extends Page> implements PageFile<P> {
   public AbstractPageFile() {
     super();
     Logging log = getLogger();
-    this.readAccess = log.isStatistics() ? log.newCounter(this.getClass().getName() + ".reads") : null;
-    this.writeAccess = log.isStatistics() ? log.newCounter(this.getClass().getName() + ".writes") : null;
+    this.readAccess = log.isStatistics() ? log.newConcurrentCounter(this.getClass().getName() + ".reads") : null;
+    this.writeAccess = log.isStatistics() ? log.newConcurrentCounter(this.getClass().getName() + ".writes") : null;
   }
 
   /**
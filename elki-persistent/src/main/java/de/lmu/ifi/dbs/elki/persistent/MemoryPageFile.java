@@ -55,8 +55,17 @@ public class MemoryPageFile<P extends Page> extends AbstractStoringPageFile<P> {
     this.file = new TIntObjectHashMap<>();
   }
 
+  /**
+   * Read a page.
+   * <p>
+   * This does not lock, so that multiple threads can query an index
+   * concurrently; reads must not overlap with modifications of the file.
+   *
+   * @param pageID Page id
+   * @return Page, or null
+   */
   @Override
-  public synchronized P readPage(int pageID) {
+  public P readPage(int pageID) {
     countRead();
     return file.get(pageID);
   }
@@ -23,10 +23,21 @@ package de.lmu.ifi.dbs.elki.index;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import de.lmu.ifi.dbs.elki.algorithm.AbstractSimpleAlgorithmTest;
 import de.lmu.ifi.dbs.elki.data.DoubleVector;
 import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
 import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.QueryUtil;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
 import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDList;
 import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDListIter;
 import de.lmu.ifi.dbs.elki.database.ids.KNNList;
@@ -205,4 +216,67 @@ public abstract class AbstractIndexStructureTest {
       }
     }
   }
+
+  /**
+   * Stress test: query a single index from multiple threads concurrently, and
+   * compare the results to a linear scan.
+   *
+   * @param inputparams Parameters
+   * @param expectKNNQuery Expected kNN query class
+   * @param expectRangeQuery Expected range query class
+   * @throws Exception on errors
+   */
+  protected void testConcurrentQueries(ListParameterization inputparams, Class<?> expectKNNQuery, Class<?> expectRangeQuery) throws Exception {
+    Database db = AbstractSimpleAlgorithmTest.makeSimpleDatabase(dataset, shoulds, inputparams, null);
+    Relation<DoubleVector> rep = db.getRelation(TypeUtil.DOUBLE_VECTOR_FIELD);
+    DistanceQuery<DoubleVector> dist = db.getDistanceQuery(rep, EuclideanDistanceFunction.STATIC);
+    final KNNQuery<DoubleVector> knnq = db.getKNNQuery(dist, k);
+    final RangeQuery<DoubleVector> rangeq = db.getRangeQuery(dist, eps);
+    assertTrue("Returned knn query is not of expected class: expected " + expectKNNQuery + " got " + knnq.getClass(), expectKNNQuery.isAssignableFrom(knnq.getClass()));
+    assertTrue("Returned range query is not of expected class: expected " + expectRangeQuery + " got " + rangeq.getClass(), expectRangeQuery.isAssignableFrom(rangeq.getClass()));
+
+    // Reference results, by linear scan.
+    final ArrayDBIDs ids = DBIDUtil.ensureArray(rep.getDBIDs());
+    final double[] kdist = new double[ids.size()];
+    final int[] ksize = new int[ids.size()], rsize = new int[ids.size()];
+    KNNQuery<DoubleVector> knnl = QueryUtil.getLinearScanKNNQuery(dist);
+    RangeQuery<DoubleVector> rangel = QueryUtil.getLinearScanRangeQuery(dist);
+    for(DBIDArrayIter it = ids.iter(); it.valid(); it.advance()) {
+      KNNList knn = knnl.getKNNForDBID(it, k);
+      kdist[it.getOffset()] = knn.getKNNDistance();
+      ksize[it.getOffset()] = knn.size();
+      rsize[it.getOffset()] = rangel.getRangeForDBID(it, eps).size();
+    }
+
+    final int threads = 8, rounds = 3;
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    List<Future<Integer>> futures = new ArrayList<>();
+    for(int t = 0; t < threads; t++) {
+      final int offset = t * ids.size() / threads;
+      futures.add(pool.submit(new Callable<Integer>() {
+        @Override
+        public Integer call() {
+          int errors = 0;
+          DBIDArrayIter it = ids.iter();
+          for(int r = 0, n = rounds * ids.size(); r < n; r++) {
+            // Every thread starts at a different object.
+            final int i = (offset + r) % ids.size();
+            it.seek(i);
+            KNNList knn = knnq.getKNNForDBID(it, k);
+            errors += knn.size() != ksize[i] || Math.abs(knn.getKNNDistance() - kdist[i]) > 1e-15 ? 1 : 0;
+            errors += rangeq.getRangeForDBID(it, eps).size() != rsize[i] ? 1 : 0;
+          }
+          return errors;
+        }
+      }));
+    }
+    try {
+      for(Future<Integer> f : futures) {
+        assertEquals("Concurrent queries returned wrong results.", 0, (int) f.get());
+      }
+    }
+    finally {
+      pool.shutdown();
+    }
+  }
 }
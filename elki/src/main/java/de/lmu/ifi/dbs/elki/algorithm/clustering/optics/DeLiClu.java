@@ -23,6 +23,7 @@ package de.lmu.ifi.dbs.elki.algorithm.clustering.optics;
 import gnu.trove.set.TIntSet;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 
@@ -32,9 +33,13 @@ import de.lmu.ifi.dbs.elki.data.NumberVector;
 import de.lmu.ifi.dbs.elki.data.type.TypeInformation;
 import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
 import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableIntegerDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
 import de.lmu.ifi.dbs.elki.database.ids.DBID;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
-import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
 import de.lmu.ifi.dbs.elki.database.ids.KNNList;
 import de.lmu.ifi.dbs.elki.database.relation.Relation;
 import de.lmu.ifi.dbs.elki.distance.distancefunction.DistanceFunction;
@@ -53,6 +58,7 @@ import de.lmu.ifi.dbs.elki.logging.progress.FiniteProgress;
 import de.lmu.ifi.dbs.elki.math.MathUtil;
 import de.lmu.ifi.dbs.elki.result.ResultUtil;
 import de.lmu.ifi.dbs.elki.utilities.Alias;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.heap.IndexedDoubleMinHeap;
 import de.lmu.ifi.dbs.elki.utilities.datastructures.heap.UpdatableHeap;
 import de.lmu.ifi.dbs.elki.utilities.documentation.Description;
 import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
@@ -71,6 +77,9 @@ import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.IntParameter;
  * closely related to OPTICS but exploiting the structure of a R-tree for
  * acceleration.
  *
+ * Pairs of nodes are kept in an updatable heap, while pairs of objects are kept
+ * in a primitive heap indexed by the offset of the unhandled object.
+ *
  * Reference:
  * <p>
  * E. Achtert, C. Böhm, P. Kröger<br />
@@ -98,10 +107,26 @@ public class DeLiClu<NV extends NumberVector> extends AbstractDistanceBasedAlgor
   private static final Logging LOG = Logging.getLogger(DeLiClu.class);
 
   /**
-   * The priority queue for the algorithm.
+   * The priority queue for pairs of nodes.
    */
   private UpdatableHeap<SpatialObjectPair> heap;
 
+  /**
+   * The priority queue for pairs of objects, by offset of the unhandled
+   * object.
+   */
+  private IndexedDoubleMinHeap dataHeap;
+
+  /**
+   * Offset of the handled object of each pair in {@link #dataHeap}.
+   */
+  private int[] predecessor;
+
+  /**
+   * Offsets of the objects.
+   */
+  private WritableIntegerDataStore offsets;
+
   /**
    * Holds the knnJoin algorithm.
    */
@@ -143,13 +168,21 @@ public class DeLiClu<NV extends NumberVector> extends AbstractDistanceBasedAlgor
       LOG.verbose("knnJoin...");
     }
     Relation<KNNList> knns = knnJoin.run(relation);
-    DBIDs ids = relation.getDBIDs();
+    ArrayDBIDs ids = DBIDUtil.ensureArray(relation.getDBIDs());
     final int size = ids.size();
 
     FiniteProgress progress = LOG.isVerbose() ? new FiniteProgress("DeLiClu", size, LOG) : null;
 
     ClusterOrder clusterOrder = new ClusterOrder(ids, "DeLiClu Clustering", "deliclu-clustering");
     heap = new UpdatableHeap<>();
+    dataHeap = new IndexedDoubleMinHeap(size);
+    predecessor = new int[size];
+    Arrays.fill(predecessor, -1);
+    offsets = DataStoreUtil.makeIntegerStorage(ids, DataStoreFactory.HINT_TEMP | DataStoreFactory.HINT_HOT, -1);
+    DBIDArrayIter cur = ids.iter(), pre = ids.iter();
+    for(; cur.valid(); cur.advance()) {
+      offsets.putInt(cur, cur.getOffset());
+    }
 
     // add start object to cluster order and (root, root) to priority queue
     DBID startID = DBIDUtil.deref(ids.iter());
@@ -161,27 +194,26 @@ public class DeLiClu<NV extends NumberVector> extends AbstractDistanceBasedAlgor
     heap.add(spatialObjectPair);
 
     while(numHandled < size) {
-      if(heap.isEmpty()) {
+      if(heap.isEmpty() && dataHeap.isEmpty()) {
         throw new AbortException("DeLiClu heap was empty when it shouldn't have been.");
       }
-      SpatialObjectPair dataPair = heap.poll();
-
-      // pair of nodes
-      if(dataPair.isExpandable) {
-        expandNodes(index, distFunction, dataPair, knns);
+      // pair of nodes, unless a pair of objects is at least as close
+      if(dataHeap.isEmpty() || (!heap.isEmpty() && heap.peek().distance < dataHeap.peekPriority())) {
+        expandNodes(index, distFunction, heap.poll(), knns);
       }
       // pair of objects
       else {
+        final double reachability = dataHeap.peekPriority();
+        final int off = dataHeap.poll();
         // set handled
-        LeafEntry e1 = (LeafEntry) dataPair.entry1;
-        LeafEntry e2 = (LeafEntry) dataPair.entry2;
-        final DBID e1id = e1.getDBID();
+        cur.seek(off);
+        final DBID e1id = DBIDUtil.deref(cur);
         IndexTreePath<DeLiCluEntry> path = index.setHandled(e1id, relation.get(e1id));
         if(path == null) {
           throw new RuntimeException("snh: parent(" + e1id + ") = null!!!");
         }
         // add to cluster order
-        clusterOrder.add(e1id, dataPair.distance, e2.getDBID());
+        clusterOrder.add(e1id, reachability, pre.seek(predecessor[off]));
         numHandled++;
         // reinsert expanded leafs
         reinsertExpanded(distFunction, index, path, knns);
@@ -282,12 +314,25 @@ public class DeLiClu<NV extends NumberVector> extends AbstractDistanceBasedAlgor
 
         double distance = distFunction.minDist(entry1, entry2);
         double reach = MathUtil.max(distance, knns.get(((LeafEntry) entry2).getDBID()).getKNNDistance());
-        SpatialObjectPair dataPair = new SpatialObjectPair(reach, entry1, entry2, false);
-        heap.add(dataPair);
+        addDataPair(reach, (LeafEntry) entry1, (LeafEntry) entry2);
       }
     }
   }
 
+  /**
+   * Add a pair of objects to the heap, or update its reachability.
+   *
+   * @param reach Reachability distance
+   * @param entry1 Unhandled object
+   * @param entry2 Handled object
+   */
+  private void addDataPair(double reach, LeafEntry entry1, LeafEntry entry2) {
+    final int off = offsets.intValue(entry1.getDBID());
+    if(dataHeap.offer(off, reach)) {
+      predecessor[off] = offsets.intValue(entry2.getDBID());
+    }
+  }
+
   /**
    * Reinserts the objects of the already expanded nodes.
    *
@@ -325,8 +370,7 @@ public class DeLiClu<NV extends NumberVector> extends AbstractDistanceBasedAlgor
         }
         double distance = distFunction.minDist(entry1, entry2);
         double reach = MathUtil.max(distance, knns.get(((LeafEntry) entry2).getDBID()).getKNNDistance());
-        SpatialObjectPair dataPair = new SpatialObjectPair(reach, entry1, entry2, false);
-        heap.add(dataPair);
+        addDataPair(reach, (LeafEntry) entry1, (LeafEntry) entry2);
       }
       return;
     }
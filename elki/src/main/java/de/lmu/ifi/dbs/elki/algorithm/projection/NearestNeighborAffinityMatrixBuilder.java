@@ -138,22 +138,37 @@ public class NearestNeighborAffinityMatrixBuilder<O> extends PerplexityAffinityM
     DoubleArray dists = new DoubleArray(numberOfNeighbours + 10);
     IntegerArray inds = new IntegerArray(numberOfNeighbours + 10);
     // Compute nearest-neighbor sparse affinity matrix
-    FiniteProgress prog = LOG.isVerbose() ? new FiniteProgress("Finding neighbors and optimizing perplexity", ids.size(), LOG) : null;
-    MeanVariance mv = LOG.isStatistics() ? new MeanVariance() : null;
+    FiniteProgress prog = LOG.isVerbose() ? new FiniteProgress("Finding neighbors", ids.size(), LOG) : null;
     for(DBIDArrayIter ix = ids.iter(); ix.valid(); ix.advance()) {
       dists.clear();
       inds.clear();
       KNNList neighbours = knnq.getKNNForDBID(ix, numberOfNeighbours + 1);
       convertNeighbors(ids, ix, square, neighbours, dists, inds);
-      double beta = computeSigma(ix.getOffset(), dists, perplexity, logPerp, //
-          pij[ix.getOffset()] = new double[dists.size()]);
-      if(mv != null) {
-        mv.put(beta > 0 ? FastMath.sqrt(.5 / beta) : 0.); // Sigma
-      }
+      // Keep the distances in pij, until the perplexity is optimized.
+      pij[ix.getOffset()] = dists.toArray();
       indices[ix.getOffset()] = inds.toArray();
       LOG.incrementProcessed(prog);
     }
     LOG.ensureCompleted(prog);
+    // The rows are independent, and optimized in parallel.
+    final double[] betas = new double[pij.length];
+    prog = LOG.isVerbose() ? new FiniteProgress("Optimizing perplexities", pij.length, LOG) : null;
+    optimizeRows(new RowOptimizer(pij.length, prog, LOG) {
+      @Override
+      protected void optimize(int start, int end) {
+        // Scratch array, as the distances are replaced by the affinities.
+        DoubleArray scratch = new DoubleArray(numberOfNeighbours + 10);
+        for(int i = start; i < end; i++) {
+          final double[] pij_i = pij[i];
+          scratch.clear();
+          for(double d : pij_i) {
+            scratch.add(d);
+          }
+          betas[i] = computeSigma(i, scratch, perplexity, logPerp, pij_i);
+        }
+      }
+    });
+    LOG.ensureCompleted(prog);
     // Sum of the sparse affinity matrix:
     double sum = 0.;
     for(int i = 0; i < pij.length; i++) {
@@ -184,7 +199,11 @@ public class NearestNeighborAffinityMatrixBuilder<O> extends PerplexityAffinityM
         }
       }
     }
-    if(LOG.isStatistics()) { // timer != null, mv != null
+    if(LOG.isStatistics()) { // timer != null
+      MeanVariance mv = new MeanVariance();
+      for(double beta : betas) {
+        mv.put(beta > 0 ? FastMath.sqrt(.5 / beta) : 0.); // Sigma
+      }
       LOG.statistics(timer.end());
       LOG.statistics(new DoubleStatistic(NearestNeighborAffinityMatrixBuilder.class.getName() + ".sigma.average", mv.getMean()));
       LOG.statistics(new DoubleStatistic(NearestNeighborAffinityMatrixBuilder.class.getName() + ".sigma.stddev", mv.getSampleStddev()));
@@ -0,0 +1,570 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.projection;
+
+import java.util.Arrays;
+import java.util.List;
+
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.logging.progress.FiniteProgress;
+import de.lmu.ifi.dbs.elki.logging.statistics.Duration;
+import de.lmu.ifi.dbs.elki.math.MathUtil;
+import de.lmu.ifi.dbs.elki.parallel.ParallelExecutor;
+import de.lmu.ifi.dbs.elki.utilities.exceptions.AbortException;
+import de.lmu.ifi.dbs.elki.utilities.random.RandomFactory;
+
+/**
+ * Parallel tSNE using Barnes-Hut-Approximation, for large data sets.
+ *
+ * In every iteration, a space partitioning tree (a quadtree in two
+ * dimensions, an octree in three) is rebuilt in flat arrays that are
+ * allocated only once; the points are reordered such that every node covers
+ * a contiguous range. The repulsive forces are then computed for blocks of
+ * points on all cores, followed by the attractive forces. The partial
+ * normalization sums are added in block order, so the result does not depend
+ * on the thread scheduling.
+ *
+ * For larger data sets, use an index to make finding the nearest neighbors
+ * faster, e.g. cover tree or k-d-tree.
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ *
+ * @apiviz.uses ParallelExecutor
+ *
+ * @param <O> Object type
+ */
+public class ParallelBarnesHutTSNE<O> extends BarnesHutTSNE<O> {
+  /**
+   * Class logger.
+   */
+  private static final Logging LOG = Logging.getLogger(ParallelBarnesHutTSNE.class);
+
+  /**
+   * Number of points to claim at once by a worker thread.
+   */
+  private static final int BLOCKSIZE = 256;
+
+  /**
+   * Minimum resolution of the tree.
+   */
+  private static final double TREE_MIN_RESOLUTION = 1e-10;
+
+  /**
+   * Constructor.
+   *
+   * @param affinity Affinity matrix builder
+   * @param dim Output dimensionality
+   * @param finalMomentum Final momentum
+   * @param learningRate Learning rate
+   * @param maxIterations Maximum number of iterations
+   * @param random Random generator
+   * @param keep Keep the original data (or remove it)
+   * @param theta Theta parameter
+   */
+  public ParallelBarnesHutTSNE(AffinityMatrixBuilder<? super O> affinity, int dim, double finalMomentum, double learningRate, int maxIterations, RandomFactory random, boolean keep, double theta) {
+    super(affinity, dim, finalMomentum, learningRate, maxIterations, random, keep, theta);
+  }
+
+  @Override
+  protected void optimizetSNE(AffinityMatrix pij, double[][] sol) {
+    final int size = pij.size();
+    if(size * 3L * dim > 0x7FFF_FFFAL) {
+      throw new AbortException("Memory exceeds Java array size limit.");
+    }
+    // Meta information on each point; joined for memory locality.
+    // Gradient, Momentum, and learning rate
+    // For performance, we use a flat memory layout!
+    double[] meta = new double[size * 3 * dim];
+    final int dim3 = dim * 3;
+    for(int off = 2 * dim; off < meta.length; off += dim3) {
+      Arrays.fill(meta, off, off + dim, 1.); // Initial learning rate
+    }
+    // Tree, reused in every iteration
+    FlatTree tree = new FlatTree(dim, size);
+    // Partial sums of the repulsive forces, one per block
+    double[] zs = new double[(size + BLOCKSIZE - 1) / BLOCKSIZE];
+    FiniteProgress prog = LOG.isVerbose() ? new FiniteProgress("Iterative Optimization", iterations, LOG) : null;
+    Duration timer = LOG.isStatistics() ? LOG.newDuration(this.getClass().getName() + ".runtime.optimization").begin() : null;
+    // Optimize
+    for(int i = 0; i < iterations; i++) {
+      tree.build(sol);
+      computeGradient(pij, sol, meta, tree, zs);
+      updateSolution(sol, meta, i);
+      // Undo early exaggeration
+      if(i == EARLY_EXAGGERATION_ITERATIONS) {
+        pij.scale(1. / EARLY_EXAGGERATION);
+      }
+      LOG.incrementProcessed(prog);
+    }
+    LOG.ensureCompleted(prog);
+    if(timer != null) {
+      LOG.statistics(timer.end());
+    }
+  }
+
+  /**
+   * Compute the gradient, in two parallel phases.
+   *
+   * @param pij Affinity matrix
+   * @param sol Current solution
+   * @param meta Metadata array (gradient, momentum, learning rate)
+   * @param tree Tree built on the current solution
+   * @param zs Partial normalization sums, one per block
+   */
+  private void computeGradient(final AffinityMatrix pij, final double[][] sol, final double[] meta, final FlatTree tree, final double[] zs) {
+    final int dim3 = 3 * dim;
+    // Compute repulsive forces first:
+    long distances = run(sol.length, new Phase() {
+      @Override
+      void process(int start, int end, Worker w) {
+        double z = 0.;
+        for(int i = start, off = start * dim3; i < end; i++, off += dim3) {
+          Arrays.fill(meta, off, off + dim, 0.); // Reset gradient / forces
+          z -= tree.computeRepulsiveForces(meta, off, sol[i], sqtheta, w);
+        }
+        zs[start / BLOCKSIZE] = z;
+      }
+    });
+    // Add in block order, for deterministic results:
+    double z = 0.;
+    for(double zi : zs) {
+      z += zi;
+    }
+    final double s = 1 / z; // Scaling factor
+    // Normalize repulsive forces, and compute attractive forces second:
+    distances += run(sol.length, new Phase() {
+      @Override
+      void process(int start, int end, Worker w) {
+        final double[] diff = w.diff;
+        for(int i = start, off = start * dim3; i < end; i++, off += dim3) {
+          for(int k = 0; k < dim; k++) {
+            meta[off + k] *= s;
+          }
+          final double[] sol_i = sol[i];
+          for(int offj = pij.iter(i); pij.iterValid(i, offj); offj = pij.iterAdvance(i, offj)) {
+            final double[] sol_j = sol[pij.iterDim(i, offj)];
+            double dist = 0.;
+            for(int k = 0; k < dim; k++) {
+              final double v = diff[k] = sol_i[k] - sol_j[k];
+              dist += v * v;
+            }
+            final double a = pij.iterValue(i, offj) / (1. + dist);
+            for(int k = 0; k < dim; k++) {
+              meta[off + k] += a * diff[k];
+            }
+            ++w.distances;
+          }
+        }
+      }
+    });
+    projectedDistances.increment(distances);
+  }
+
+  /**
+   * Run a phase on all cores.
+   *
+   * @param size Number of points
+   * @param phase Phase to run
+   * @return Number of distance computations
+   */
+  private long run(final int size, final Phase phase) {
+    List<Worker> workers = ParallelExecutor.runBlocks(size, BLOCKSIZE, new ParallelExecutor.BlockWorkerFactory<Worker>() {
+      @Override
+      public Worker make() {
+        return new Worker(phase, dim);
+      }
+    });
+    long distances = 0;
+    for(Worker w : workers) {
+      distances += w.distances;
+    }
+    return distances;
+  }
+
+  @Override
+  protected Logging getLogger() {
+    return LOG;
+  }
+
+  /**
+   * A phase of the gradient computation, processing one block of points at a
+   * time.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   */
+  private abstract static class Phase {
+    /**
+     * Process a block of points.
+     *
+     * @param start First point
+     * @param end End point (exclusive)
+     * @param w Worker state
+     */
+    abstract void process(int start, int end, Worker w);
+  }
+
+  /**
+   * Per-thread state.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   */
+  private static class Worker implements ParallelExecutor.BlockWorker {
+    /**
+     * Phase to run.
+     */
+    final Phase phase;
+
+    /**
+     * Scratch buffer for the difference vector.
+     */
+    final double[] diff;
+
+    /**
+     * Stack for tree traversal.
+     */
+    int[] stack = new int[256];
+
+    /**
+     * Number of distance computations.
+     */
+    long distances;
+
+    /**
+     * Constructor.
+     *
+     * @param phase Phase to run
+     * @param dim Dimensionality
+     */
+    Worker(Phase phase, int dim) {
+      this.phase = phase;
+      this.diff = new double[dim];
+    }
+
+    @Override
+    public void process(int start, int end) {
+      phase.process(start, end, this);
+    }
+  }
+
+  /**
+   * Space partitioning tree for the Barnes-Hut approximation, stored in flat
+   * arrays.
+   *
+   * Every node is split at the center of its bounding box in every
+   * (non-constant) dimension, i.e. into up to 2<sup>dim</sup> children. The
+   * tree is built breadth-first, so that the children of a node are stored
+   * consecutively; as every inner node has at least two children, there are
+   * at most 2n-1 nodes. The point coordinates are copied and reordered such
+   * that every node covers a contiguous range. The data of each node is
+   * interleaved, so that a node visit touches few cache lines.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   */
+  private static class FlatTree {
+    /**
+     * Offsets in the integer node information: point range begin and end,
+     * first child and number of children (0 for leaves).
+     */
+    private static final int BEGIN = 0, END = 1, CHILD = 2, NUMCHILDREN = 3,
+        ISTRIDE = 4;
+
+    /**
+     * Dimensionality, and stride of the double node information: center of
+     * mass (NOT center of bounding box) followed by the square size.
+     */
+    final int dim, dstride;
+
+    /**
+     * Point coordinates, in tree order.
+     */
+    final double[] points;
+
+    /**
+     * Center of mass and square size of each node.
+     */
+    final double[] nodeData;
+
+    /**
+     * Point range and children of each node.
+     */
+    final int[] nodeInfo;
+
+    /**
+     * Number of nodes in use.
+     */
+    int numNodes;
+
+    /**
+     * Bounding box of the current node, scratch buffer.
+     */
+    final double[] minmax;
+
+    /**
+     * Constructor.
+     *
+     * @param dim Dimensionality
+     * @param size Number of points
+     */
+    FlatTree(int dim, int size) {
+      final int capacity = Math.max(1, 2 * size - 1);
+      this.dim = dim;
+      this.dstride = dim + 1;
+      this.points = new double[size * dim];
+      this.nodeData = new double[capacity * dstride];
+      this.nodeInfo = new int[capacity * ISTRIDE];
+      this.minmax = new double[dim << 1];
+    }
+
+    /**
+     * Rebuild the tree for the given data.
+     *
+     * @param data Data points
+     */
+    void build(double[][] data) {
+      for(int i = 0, off = 0; i < data.length; i++, off += dim) {
+        System.arraycopy(data[i], 0, points, off, dim);
+      }
+      nodeInfo[BEGIN] = 0;
+      nodeInfo[END] = data.length;
+      numNodes = 1;
+      // Breadth-first, new nodes are appended to the end:
+      for(int node = 0; node < numNodes; node++) {
+        buildNode(node);
+      }
+    }
+
+    /**
+     * Compute the statistics of a node, and split it.
+     *
+     * @param node Node number
+     */
+    private void buildNode(int node) {
+      final int ioff = node * ISTRIDE, doff = node * dstride;
+      final int b = nodeInfo[ioff + BEGIN], e = nodeInfo[ioff + END];
+      // Compute center of mass and bounding box:
+      for(int d = 0; d < minmax.length;) {
+        minmax[d++] = Double.POSITIVE_INFINITY;
+        minmax[d++] = Double.NEGATIVE_INFINITY;
+      }
+      Arrays.fill(nodeData, doff, doff + dim, 0.);
+      for(int p = b * dim, pe = e * dim; p < pe; p += dim) {
+        for(int d = 0, d2 = 0; d < dim; d++) {
+          final double v = points[p + d];
+          nodeData[doff + d] += v;
+          minmax[d2] = MathUtil.min(minmax[d2], v);
+          ++d2;
+          minmax[d2] = MathUtil.max(minmax[d2], v);
+          ++d2;
+        }
+      }
+      final double norm = 1. / (e - b);
+      double sqsize = 0.;
+      for(int d = 0, d2 = 0; d < dim; d++, d2 += 2) {
+        nodeData[doff + d] *= norm;
+        final double width = minmax[d2 + 1] - minmax[d2];
+        sqsize += width * width; // Diagonal, as in BarnesHutTSNE
+      }
+      nodeData[doff + dim] = sqsize;
+      nodeInfo[ioff + CHILD] = numNodes;
+      nodeInfo[ioff + NUMCHILDREN] = 0;
+      if(e - b == 1 || sqsize <= TREE_MIN_RESOLUTION) {
+        return; // Leaf
+      }
+      splitRecursively(b, e, 0);
+      final int numChildren = numNodes - nodeInfo[ioff + CHILD];
+      // Could not split, due to limited numerical precision:
+      if(numChildren == 1) {
+        numNodes = nodeInfo[ioff + CHILD];
+        return;
+      }
+      nodeInfo[ioff + NUMCHILDREN] = numChildren;
+    }
+
+    /**
+     * Split a node by recursive partitioning in each dimension.
+     *
+     * @param b Subset begin
+     * @param e Subset end
+     * @param d Current dimension
+     */
+    private void splitRecursively(int b, int e, int d) {
+      // Find next non-constant dimension:
+      double mid = Double.NaN;
+      for(; d < dim; d++) {
+        final double min = minmax[d << 1], max = minmax[(d << 1) + 1];
+        mid = .5 * (min + max);
+        if(min < mid) {
+          break;
+        }
+      }
+      if(d == dim) { // Add a new child node.
+        final int ioff = numNodes * ISTRIDE;
+        nodeInfo[ioff + BEGIN] = b;
+        nodeInfo[ioff + END] = e;
+        ++numNodes;
+        return;
+      }
+      // Pivotize
+      int l = b, r = e - 1;
+      while(l <= r) {
+        while(l <= r && points[l * dim + d] <= mid) {
+          ++l;
+        }
+        while(l <= r && points[r * dim + d] >= mid) {
+          --r;
+        }
+        if(l < r) {
+          swapPoints(l, r);
+          ++l;
+          --r;
+        }
+      }
+      if(b < l) {
+        splitRecursively(b, l, d + 1);
+      }
+      if(l < e) {
+        splitRecursively(l, e, d + 1);
+      }
+    }
+
+    /**
+     * Swap two points.
+     *
+     * @param i First point
+     * @param j Second point
+     */
+    private void swapPoints(int i, int j) {
+      for(int a = i * dim, b = j * dim, ae = a + dim; a < ae; a++, b++) {
+        final double tmp = points[a];
+        points[a] = points[b];
+        points[b] = tmp;
+      }
+    }
+
+    /**
+     * Compute the repulsive forces for a single point.
+     *
+     * @param rep_i Repulsive forces array
+     * @param off Point offset
+     * @param sol_i Solution vector
+     * @param sqtheta Squared approximation quality threshold
+     * @param w Worker state
+     * @return force strength
+     */
+    double computeRepulsiveForces(double[] rep_i, int off, double[] sol_i, double sqtheta, Worker w) {
+      // Depth-first traversal, using an explicit stack:
+      int[] stack = w.stack;
+      int sp = 0;
+      stack[sp++] = 0;
+      double z = 0.;
+      while(sp > 0) {
+        final int node = stack[--sp];
+        final int ioff = node * ISTRIDE, doff = node * dstride;
+        final int b = nodeInfo[ioff + BEGIN], weight = nodeInfo[ioff + END] - b;
+        double dist = 0.;
+        for(int k = 0; k < dim; k++) {
+          final double v = sol_i[k] - nodeData[doff + k];
+          dist += v * v;
+        }
+        ++w.distances;
+        // Barnes-Hut approximation:
+        if(weight == 1 || nodeData[doff + dim] / dist < sqtheta) {
+          double u = 1. / (1. + dist);
+          double nz = weight * u;
+          double a = nz * u;
+          // Recomputing the difference is cheaper than storing it.
+          for(int k = 0; k < dim; k++) {
+            rep_i[off + k] += a * (sol_i[k] - nodeData[doff + k]);
+          }
+          z += nz;
+          continue;
+        }
+        final int c = nodeInfo[ioff + CHILD], nc = nodeInfo[ioff + NUMCHILDREN];
+        if(nc == 0) {
+          // Aggregate points in this leaf:
+          z += computePointForces(rep_i, off, sol_i, b, b + weight, w);
+          continue;
+        }
+        if(sp + nc > stack.length) {
+          stack = w.stack = Arrays.copyOf(stack, (stack.length << 1) + nc);
+        }
+        for(int ch = c + nc - 1; ch >= c; ch--) {
+          stack[sp++] = ch;
+        }
+      }
+      return z;
+    }
+
+    /**
+     * Compute the repulsive forces of a range of points, without
+     * approximation.
+     *
+     * @param rep_i Repulsive forces array
+     * @param off Point offset
+     * @param sol_i Solution vector
+     * @param b First point
+     * @param e End point (exclusive)
+     * @param w Worker state
+     * @return force strength
+     */
+    private double computePointForces(double[] rep_i, int off, double[] sol_i, int b, int e, Worker w) {
+      double z = 0.;
+      for(int p = b * dim, pe = e * dim; p < pe; p += dim) {
+        double pdist = 0.;
+        for(int k = 0; k < dim; k++) {
+          final double v = sol_i[k] - points[p + k];
+          pdist += v * v;
+        }
+        double pz = 1. / (1. + pdist);
+        double a = pz * pz;
+        for(int k = 0; k < dim; k++) {
+          rep_i[off + k] += a * (sol_i[k] - points[p + k]);
+        }
+        z += pz;
+      }
+      w.distances += e - b;
+      return z;
+    }
+  }
+
+  /**
+   * Parameterization class.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   *
+   * @param <O> Object type
+   */
+  public static class Parameterizer<O> extends BarnesHutTSNE.Parameterizer<O> {
+    @Override
+    protected ParallelBarnesHutTSNE<O> makeInstance() {
+      return new ParallelBarnesHutTSNE<>(affinity, dim, finalMomentum, learningRate, iterations, random, keep, theta);
+    }
+  }
+}
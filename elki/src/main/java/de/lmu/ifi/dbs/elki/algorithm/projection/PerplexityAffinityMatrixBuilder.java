@@ -34,6 +34,7 @@ import de.lmu.ifi.dbs.elki.logging.statistics.DoubleStatistic;
 import de.lmu.ifi.dbs.elki.logging.statistics.Duration;
 import de.lmu.ifi.dbs.elki.math.MathUtil;
 import de.lmu.ifi.dbs.elki.math.MeanVariance;
+import de.lmu.ifi.dbs.elki.parallel.ParallelExecutor;
 import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.OptionID;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.constraints.CommonConstraints;
@@ -76,6 +77,11 @@ public class PerplexityAffinityMatrixBuilder<O> extends GaussianAffinityMatrixBu
    */
   final static protected int PERPLEXITY_MAXITER = 50;
 
+  /**
+   * Number of rows to claim at once, when optimizing in parallel.
+   */
+  final static protected int BLOCKSIZE = 64;
+
   /**
    * Minimum value for pij entries (even when duplicate)
    */
@@ -126,16 +132,22 @@ public class PerplexityAffinityMatrixBuilder<O> extends GaussianAffinityMatrixBu
     double[][] pij = new double[size][size];
     FiniteProgress prog = LOG.isVerbose() ? new FiniteProgress("Optimizing perplexities", size, LOG) : null;
     Duration timer = LOG.isStatistics() ? LOG.newDuration(PerplexityAffinityMatrixBuilder.class.getName() + ".runtime.pijmatrix").begin() : null;
-    MeanVariance mv = LOG.isStatistics() ? new MeanVariance() : null;
-    for(int i = 0; i < size; i++) {
-      double beta = computePi(i, dist[i], pij[i], perplexity, logPerp);
-      if(mv != null) {
-        mv.put(beta > 0 ? FastMath.sqrt(.5 / beta) : 0.); // Sigma
+    // The rows are independent, and optimized in parallel.
+    final double[] betas = new double[size];
+    optimizeRows(new RowOptimizer(size, prog, LOG) {
+      @Override
+      protected void optimize(int start, int end) {
+        for(int i = start; i < end; i++) {
+          betas[i] = computePi(i, dist[i], pij[i], perplexity, logPerp);
+        }
       }
-      LOG.incrementProcessed(prog);
-    }
+    });
     LOG.ensureCompleted(prog);
-    if(LOG.isStatistics()) { // timer != null, mv != null
+    if(LOG.isStatistics()) { // timer != null
+      MeanVariance mv = new MeanVariance();
+      for(double beta : betas) {
+        mv.put(beta > 0 ? FastMath.sqrt(.5 / beta) : 0.); // Sigma
+      }
       LOG.statistics(timer.end());
       LOG.statistics(new DoubleStatistic(PerplexityAffinityMatrixBuilder.class.getName() + ".sigma.average", mv.getMean()));
       LOG.statistics(new DoubleStatistic(PerplexityAffinityMatrixBuilder.class.getName() + ".sigma.stddev", mv.getSampleStddev()));
@@ -159,6 +171,21 @@ public class PerplexityAffinityMatrixBuilder<O> extends GaussianAffinityMatrixBu
     return pij;
   }
 
+  /**
+   * Optimize the perplexity of all rows, using all available cores.
+   *
+   * @param opt Row optimizer
+   */
+  protected static void optimizeRows(final RowOptimizer opt) {
+    // The optimizer keeps no per-thread state, and is shared by all threads.
+    ParallelExecutor.runBlocks(opt.size, BLOCKSIZE, new ParallelExecutor.BlockWorkerFactory<RowOptimizer>() {
+      @Override
+      public RowOptimizer make() {
+        return opt;
+      }
+    });
+  }
+
   /**
    * Compute row pij[i], using binary search on the kernel bandwidth sigma to
    * obtain the desired perplexity.
@@ -211,6 +238,59 @@ public class PerplexityAffinityMatrixBuilder<O> extends GaussianAffinityMatrixBu
     return .5 / sum * perplexity * (dist_i.length - 1.);
   }
 
+  /**
+   * Optimize blocks of rows; each thread claims the next block when done.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   */
+  protected abstract static class RowOptimizer implements ParallelExecutor.BlockWorker {
+    /**
+     * Number of rows.
+     */
+    final int size;
+
+    /**
+     * Progress, may be {@code null}.
+     */
+    final FiniteProgress prog;
+
+    /**
+     * Logger for progress.
+     */
+    final Logging log;
+
+    /**
+     * Constructor.
+     *
+     * @param size Number of rows
+     * @param prog Progress, may be {@code null}
+     * @param log Logger for progress
+     */
+    protected RowOptimizer(int size, FiniteProgress prog, Logging log) {
+      this.size = size;
+      this.prog = prog;
+      this.log = log;
+    }
+
+    @Override
+    public void process(int start, int end) {
+      optimize(start, end);
+      if(prog != null) {
+        prog.incrementProcessed(end - start, log);
+      }
+    }
+
+    /**
+     * Optimize a block of rows.
+     *
+     * @param start First row
+     * @param end End row (exclusive)
+     */
+    protected abstract void optimize(int start, int end);
+  }
+
   /**
    * Supported input data.
    *
@@ -0,0 +1,434 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.persistent;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import de.lmu.ifi.dbs.elki.index.tree.TreeIndexHeader;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.logging.statistics.Counter;
+import de.lmu.ifi.dbs.elki.utilities.exceptions.AbortException;
+import de.lmu.ifi.dbs.elki.utilities.io.ByteBufferInputStream;
+import de.lmu.ifi.dbs.elki.utilities.io.ByteBufferOutputStream;
+
+/**
+ * A page file that memory-maps the index file, using the same file layout as
+ * {@link PersistentPageFile}.
+ *
+ * Pages are decoded directly from the mapped buffer, without copying them
+ * into a temporary array first. Written pages are kept in a dirty page buffer,
+ * and are serialized to the mapping in batches (sorted by page id) once the
+ * buffer is full, or when the file is closed.
+ *
+ * The file is mapped in segments of {@link #SEGMENT_SIZE} bytes, which are
+ * mapped on first access.
+ *
+ * Concurrent reads are supported: the lookup of the dirty pages and the
+ * mapping of segments are synchronized, but pages are decoded in parallel.
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ *
+ * @apiviz.composedOf PageHeader
+ * @apiviz.composedOf MappedByteBuffer
+ *
+ * @param <P> Page type
+ */
+public class MappedPageFile<P extends ExternalizablePage> extends AbstractStoringPageFile<P> {
+  /**
+   * Class logger.
+   */
+  private static final Logging LOG = Logging.getLogger(MappedPageFile.class);
+
+  /**
+   * Indicates an empty page.
+   */
+  private static final int EMPTY_PAGE = 0;
+
+  /**
+   * Indicates a filled page.
+   */
+  private static final int FILLED_PAGE = 1;
+
+  /**
+   * Approximate size of a mapped segment, in bytes.
+   */
+  private static final int SEGMENT_SIZE = 1 << 26;
+
+  /**
+   * The file storing the pages.
+   */
+  private final RandomAccessFile file;
+
+  /**
+   * Channel of the file.
+   */
+  private final FileChannel channel;
+
+  /**
+   * The header of this page file.
+   */
+  protected PageHeader header;
+
+  /**
+   * The type of pages we use.
+   */
+  protected final Class<P> pageclass;
+
+  /**
+   * Whether we are initializing from an existing file.
+   */
+  private final boolean existed;
+
+  /**
+   * Mapped segments, mapped on demand.
+   */
+  private ArrayList<MappedByteBuffer> segments = new ArrayList<>();
+
+  /**
+   * Number of pages per segment.
+   */
+  private int pagesPerSegment;
+
+  /**
+   * Offset of the first page in the file.
+   */
+  private long dataOffset;
+
+  /**
+   * Pages written, but not yet serialized to the mapping.
+   */
+  private final HashMap<Integer, P> dirty = new HashMap<>();
+
+  /**
+   * Maximum number of dirty pages before flushing.
+   */
+  private final int maxDirty;
+
+  /**
+   * Serialization buffer, reused for every page.
+   */
+  private final ByteArrayOutputStream buffer;
+
+  /**
+   * Number of pages that had to be decoded from the mapping.
+   */
+  private final Counter misses;
+
+  /**
+   * Constructor.
+   *
+   * @param pageSize the page size
+   * @param fileName File name
+   * @param pageclass the class of pages to be used
+   * @param maxDirty Maximum number of buffered dirty pages
+   */
+  public MappedPageFile(int pageSize, String fileName, Class<P> pageclass, int maxDirty) {
+    super(pageSize);
+    this.pageclass = pageclass;
+    this.maxDirty = maxDirty;
+    this.buffer = new ByteArrayOutputStream(pageSize);
+    this.misses = LOG.isStatistics() ? LOG.newConcurrentCounter(this.getClass().getName() + ".misses") : null;
+    File f = new File(fileName);
+    existed = f.exists();
+    try {
+      file = new RandomAccessFile(f, "rw");
+      channel = file.getChannel();
+    }
+    catch(IOException e) {
+      throw new AbortException("IO error in loading memory mapped page file.", e);
+    }
+  }
+
+  @Override
+  public P readPage(int pageID) {
+    try {
+      final ByteBuffer buf;
+      synchronized(this) {
+        countRead();
+        P page = dirty.get(pageID);
+        if(page != null) {
+          return page;
+        }
+        buf = pageBuffer(pageID);
+      }
+      if(misses != null) {
+        misses.increment();
+      }
+      return decodePage(buf);
+    }
+    catch(IOException e) {
+      throw new RuntimeException("IOException occurred during reading of page " + pageID + "\n", e);
+    }
+  }
+
+  @Override
+  public synchronized void deletePage(int pageID) {
+    super.deletePage(pageID);
+    dirty.remove(pageID);
+    countWrite();
+    try {
+      encodePage(pageID, null);
+    }
+    catch(IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Override
+  public synchronized void writePage(int pageID, P page) {
+    countWrite();
+    dirty.put(pageID, page);
+    page.setDirty(false);
+    if(dirty.size() >= maxDirty) {
+      flush();
+    }
+  }
+
+  /**
+   * Serialize all buffered pages to the mapping, in order of their page ids.
+   */
+  public synchronized void flush() {
+    if(dirty.isEmpty()) {
+      return;
+    }
+    int[] ids = new int[dirty.size()];
+    int i = 0;
+    for(Integer id : dirty.keySet()) {
+      ids[i++] = id;
+    }
+    Arrays.sort(ids);
+    try {
+      for(int id : ids) {
+        encodePage(id, dirty.get(id));
+      }
+    }
+    catch(IOException e) {
+      throw new RuntimeException("Error writing to page file.", e);
+    }
+    dirty.clear();
+  }
+
+  /**
+   * Closes this file. All buffered pages are written, the file is truncated to
+   * the used pages, and the list of empty pages and the header are written.
+   */
+  @Override
+  public synchronized void close() {
+    try {
+      flush();
+      for(MappedByteBuffer seg : segments) {
+        if(seg != null) {
+          seg.force();
+        }
+      }
+      segments = null;
+      // Mapping may have extended the file beyond the last page.
+      file.setLength(dataOffset + nextPageID * (long) pageSize);
+      if(header instanceof TreeIndexHeader) {
+        // write the list of empty pages to the end of the file
+        ((TreeIndexHeader) header).writeEmptyPages(emptyPages, file);
+        ((TreeIndexHeader) header).setLargestPageID(nextPageID);
+      }
+      header.writeHeader(file);
+      file.close();
+    }
+    catch(IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Clears this PageFile.
+   */
+  @Override
+  public synchronized void clear() {
+    try {
+      dirty.clear();
+      segments.clear();
+      file.setLength(header.size());
+    }
+    catch(IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Get a view of the mapped page, positioned at the beginning of the page.
+   * Must be called while holding the lock, as segments are mapped on demand.
+   *
+   * @param pageID Page id
+   * @return Buffer view
+   * @throws IOException on mapping errors
+   */
+  private ByteBuffer pageBuffer(int pageID) throws IOException {
+    final int segno = pageID / pagesPerSegment;
+    while(segments.size() <= segno) {
+      segments.add(null);
+    }
+    MappedByteBuffer seg = segments.get(segno);
+    if(seg == null) {
+      final long segbytes = pagesPerSegment * (long) pageSize;
+      seg = channel.map(FileChannel.MapMode.READ_WRITE, dataOffset + segno * segbytes, segbytes);
+      segments.set(segno, seg);
+    }
+    ByteBuffer view = seg.duplicate();
+    final int off = (pageID - segno * pagesPerSegment) * pageSize;
+    view.limit(off + pageSize).position(off);
+    return view;
+  }
+
+  /**
+   * Decode a page from the buffer.
+   *
+   * @param buf Buffer, positioned at the page start
+   * @return Page, or {@code null} for an empty page
+   * @throws IOException on decoding errors
+   */
+  private P decodePage(ByteBuffer buf) throws IOException {
+    try (ObjectInputStream ois = new ObjectInputStream(new ByteBufferInputStream(buf))) {
+      int type = ois.readInt();
+      if(type == EMPTY_PAGE) {
+        return null;
+      }
+      if(type != FILLED_PAGE) {
+        throw new IllegalArgumentException("Unknown type: " + type);
+      }
+      P page = pageclass.newInstance();
+      page.readExternal(ois);
+      return page;
+    }
+    catch(InstantiationException | IllegalAccessException | ClassNotFoundException e) {
+      throw new AbortException("Error instanciating an index page", e);
+    }
+  }
+
+  /**
+   * Serialize a page into the mapping.
+   *
+   * @param pageID Page id
+   * @param page Page, or {@code null} to mark the page as empty
+   * @throws IOException on errors
+   */
+  private void encodePage(int pageID, P page) throws IOException {
+    buffer.reset();
+    try (ObjectOutputStream oos = new ObjectOutputStream(buffer)) {
+      oos.writeInt(page != null ? FILLED_PAGE : EMPTY_PAGE);
+      if(page != null) {
+        page.writeExternal(oos);
+      }
+    }
+    if(buffer.size() > pageSize) {
+      throw new IllegalArgumentException("Size of page " + page + " is greater than specified" + " pagesize: " + buffer.size() + " > " + pageSize);
+    }
+    buffer.writeTo(new ByteBufferOutputStream(pageBuffer(pageID)));
+  }
+
+  /**
+   * Get the header of this page file.
+   *
+   * @return the header used by this page file
+   */
+  public PageHeader getHeader() {
+    return header;
+  }
+
+  @Override
+  public void setNextPageID(int next_page_id) {
+    this.nextPageID = next_page_id;
+    while(!emptyPages.isEmpty() && emptyPages.peek() >= this.nextPageID) {
+      emptyPages.pop();
+    }
+  }
+
+  @Override
+  public synchronized boolean initialize(PageHeader header) {
+    this.header = header;
+    this.pagesPerSegment = Math.max(1, SEGMENT_SIZE / pageSize);
+    try {
+      if(existed) {
+        LOG.debug("Initializing from an existing page file.");
+        header.readHeader(file);
+        this.dataOffset = header.getReservedPages() * (long) pageSize;
+        if(header instanceof TreeIndexHeader) {
+          TreeIndexHeader tiHeader = (TreeIndexHeader) header;
+          nextPageID = tiHeader.getLargestPageID();
+          try {
+            emptyPages = tiHeader.readEmptyPages(file);
+          }
+          catch(ClassNotFoundException e) {
+            throw new RuntimeException("ClassNotFoundException occurred when reading empty pages.", e);
+          }
+        }
+        else { // must scan complete file
+          final int numpages = (int) ((file.length() - dataOffset) / pageSize);
+          for(int i = 0; i < numpages; i++) {
+            try (ObjectInputStream ois = new ObjectInputStream(new ByteBufferInputStream(pageBuffer(i)))) {
+              int type = ois.readInt();
+              if(type == EMPTY_PAGE) {
+                emptyPages.push(i);
+              }
+              else if(type == FILLED_PAGE) {
+                nextPageID = i + 1;
+              }
+              else {
+                throw new IllegalArgumentException("Unknown type: " + type);
+              }
+            }
+          }
+        }
+      }
+      else {
+        LOG.debug("Initializing with a new page file.");
+        header.writeHeader(file);
+        this.dataOffset = header.getReservedPages() * (long) pageSize;
+      }
+    }
+    catch(IOException e) {
+      throw new RuntimeException("IOException occurred.", e);
+    }
+    return existed;
+  }
+
+  @Override
+  public void logStatistics() {
+    super.logStatistics();
+    if(misses != null) {
+      LOG.statistics(misses);
+    }
+  }
+
+  @Override
+  protected Logging getLogger() {
+    return LOG;
+  }
+}
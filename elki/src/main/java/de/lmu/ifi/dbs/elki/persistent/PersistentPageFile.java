@@ -110,7 +110,7 @@ public class PersistentPageFile<P extends ExternalizablePage> extends AbstractSt
    * @return the page with the given pageId
    */
   @Override
-  public P readPage(int pageID) {
+  public synchronized P readPage(int pageID) {
     try {
       countRead();
       long offset = ((long) (header.getReservedPages() + pageID)) * (long) pageSize;
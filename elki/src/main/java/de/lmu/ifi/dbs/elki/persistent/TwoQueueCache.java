@@ -0,0 +1,522 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.persistent;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.logging.statistics.Counter;
+import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
+import de.lmu.ifi.dbs.elki.utilities.exceptions.AbortException;
+
+/**
+ * Thread-safe page cache with the scan-resistant 2Q replacement policy.
+ * <p>
+ * Pages read for the first time enter a FIFO queue (A1in). When they drop out
+ * of this queue, only their page id is remembered in a ghost queue (A1out).
+ * Only pages that are read again while in the ghost queue are admitted to the
+ * main queue (Am), which is managed with the CLOCK (second chance) strategy.
+ * Therefore, a single scan over the index cannot flush the frequently used
+ * pages, such as the upper levels of a tree.
+ * <p>
+ * Cache hits only perform a lookup in a concurrent hash map and set the
+ * reference bit of the entry, so multiple threads can query an index backed
+ * by this cache concurrently. Cache misses, writes and evictions are
+ * serialized, and so are all accesses to the backing page file.
+ * <p>
+ * The cache size is a memory budget in bytes, where each cached page is
+ * charged with the page size of the underlying file.
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ *
+ * @apiviz.uses PageFile
+ *
+ * @param <P> Page type
+ */
+@Reference(authors = "T. Johnson, D. Shasha", //
+    title = "2Q: A Low Overhead High Performance Buffer Management Replacement Algorithm", //
+    booktitle = "Proc. 20th Int. Conf. on Very Large Data Bases (VLDB'94)", //
+    url = "http://www.vldb.org/conf/1994/P439.PDF")
+public class TwoQueueCache<P extends Page> extends AbstractPageFile<P> {
+  /**
+   * Our class logger.
+   */
+  private static final Logging LOG = Logging.getLogger(TwoQueueCache.class);
+
+  /**
+   * Memory budget in bytes.
+   */
+  protected long cacheSizeBytes;
+
+  /**
+   * Fraction of the cache used for the A1in queue.
+   */
+  protected double inFraction;
+
+  /**
+   * Size of the ghost queue, relative to the cache capacity in pages.
+   */
+  protected double outFraction;
+
+  /**
+   * Page size of the underlying file.
+   */
+  private int pageSize;
+
+  /**
+   * Maximum number of cached pages.
+   */
+  private long capacity;
+
+  /**
+   * Maximum number of pages in the A1in queue.
+   */
+  private long maxIn;
+
+  /**
+   * Maximum number of page ids in the ghost queue.
+   */
+  private long maxOut;
+
+  /**
+   * Cached pages, for concurrent lookups.
+   */
+  private ConcurrentHashMap<Integer, Entry<P>> map;
+
+  /**
+   * FIFO queue of pages seen once.
+   */
+  private ArrayDeque<Entry<P>> in;
+
+  /**
+   * CLOCK queue of frequently used pages.
+   */
+  private ArrayDeque<Entry<P>> main;
+
+  /**
+   * Ghost queue: ids of pages recently evicted from the A1in queue.
+   */
+  private LinkedHashSet<Integer> out;
+
+  /**
+   * Number of live pages in the queues.
+   */
+  private long inSize, mainSize;
+
+  /**
+   * Number of deleted entries still in the queues.
+   */
+  private long dead;
+
+  /**
+   * Cache statistics.
+   */
+  private final Counter hits, misses, evictions, writebacks;
+
+  /**
+   * The underlying file of this cache. If an object is dropped it is written to
+   * the file.
+   */
+  protected PageFile<P> file;
+
+  /**
+   * Constructor.
+   *
+   * @param cacheSizeBytes Memory budget in bytes
+   * @param inFraction Fraction of the cache used for pages seen once
+   * @param outFraction Size of the ghost queue, relative to the cache capacity
+   * @param file the underlying file of this cache, if a page is dropped it is
+   *        written to the file
+   */
+  public TwoQueueCache(long cacheSizeBytes, double inFraction, double outFraction, PageFile<P> file) {
+    super();
+    this.cacheSizeBytes = cacheSizeBytes;
+    this.inFraction = inFraction;
+    this.outFraction = outFraction;
+    this.file = file;
+    final String prefix = this.getClass().getName();
+    this.hits = LOG.newConcurrentCounter(prefix + ".hits");
+    this.misses = LOG.newConcurrentCounter(prefix + ".misses");
+    this.evictions = LOG.newConcurrentCounter(prefix + ".evictions");
+    this.writebacks = LOG.newConcurrentCounter(prefix + ".writebacks");
+  }
+
+  /**
+   * Retrieves a page from the cache, or the underlying file.
+   * <p>
+   * This method may be called by multiple threads concurrently.
+   *
+   * @param pageID the id of the page to be returned
+   * @return the page, or null if no page with this id exists
+   */
+  @Override
+  public P readPage(int pageID) {
+    countRead();
+    Entry<P> e = map.get(pageID);
+    if(e == null) {
+      return load(pageID);
+    }
+    if(!e.referenced) { // Avoid writing to shared memory on every hit.
+      e.referenced = true;
+    }
+    hits.increment();
+    return e.page;
+  }
+
+  /**
+   * Load a page from the underlying file.
+   *
+   * @param pageID Page id
+   * @return Page, or null
+   */
+  private synchronized P load(int pageID) {
+    // The page may have been loaded by another thread in the meantime.
+    Entry<P> e = map.get(pageID);
+    if(e != null) {
+      e.referenced = true;
+      hits.increment();
+      return e.page;
+    }
+    misses.increment();
+    if(LOG.isDebuggingFine()) {
+      LOG.debugFine("Read from backing: " + pageID);
+    }
+    P page = file.readPage(pageID);
+    if(page != null) {
+      admit(pageID, page);
+    }
+    return page;
+  }
+
+  @Override
+  protected synchronized void writePage(int pageID, P page) {
+    countWrite();
+    page.setDirty(true);
+    Entry<P> e = map.get(pageID);
+    if(e != null) {
+      e.page = page;
+      e.referenced = true;
+    }
+    else {
+      admit(pageID, page);
+    }
+    if(LOG.isDebuggingFine()) {
+      LOG.debugFine("Write to cache: " + pageID);
+    }
+  }
+
+  /**
+   * Add a page to the cache, then evict pages until the budget is satisfied.
+   *
+   * @param pageID Page id
+   * @param page Page
+   */
+  private void admit(int pageID, P page) {
+    final boolean hot = out.remove(pageID);
+    Entry<P> e = new Entry<>(pageID, page, hot);
+    if(hot) {
+      main.addLast(e);
+      ++mainSize;
+    }
+    else {
+      in.addLast(e);
+      ++inSize;
+    }
+    map.put(pageID, e);
+    while(inSize + mainSize > capacity) {
+      evictOne();
+    }
+  }
+
+  /**
+   * Evict a single page.
+   */
+  private void evictOne() {
+    while(true) {
+      if(inSize > maxIn || mainSize == 0) {
+        Entry<P> e = in.pollFirst();
+        if(e.deleted) {
+          --dead;
+          continue;
+        }
+        --inSize;
+        out.add(e.id);
+        if(out.size() > maxOut) {
+          Iterator<Integer> it = out.iterator();
+          it.next();
+          it.remove();
+        }
+        expire(e);
+        return;
+      }
+      Entry<P> e = main.pollFirst();
+      if(e.deleted) {
+        --dead;
+        continue;
+      }
+      if(e.referenced) { // Second chance
+        e.referenced = false;
+        main.addLast(e);
+        continue;
+      }
+      --mainSize;
+      expire(e);
+      return;
+    }
+  }
+
+  /**
+   * Remove a page from the cache, and write it through to disk if modified.
+   *
+   * @param e Cache entry
+   */
+  private void expire(Entry<P> e) {
+    map.remove(e.id);
+    evictions.increment();
+    if(e.page.isDirty()) {
+      if(LOG.isDebuggingFine()) {
+        LOG.debugFine("Write to backing: " + e.id);
+      }
+      writebacks.increment();
+      file.writePage(e.page);
+    }
+  }
+
+  /**
+   * Remove deleted entries from a queue.
+   *
+   * @param queue Queue
+   * @param <P> Page type
+   */
+  private static <P extends Page> void removeDeleted(ArrayDeque<Entry<P>> queue) {
+    for(Iterator<Entry<P>> it = queue.iterator(); it.hasNext();) {
+      if(it.next().deleted) {
+        it.remove();
+      }
+    }
+  }
+
+  @Override
+  public synchronized void deletePage(int pageID) {
+    countWrite();
+    Entry<P> e = map.remove(pageID);
+    if(e != null) {
+      e.deleted = true;
+      if(e.hot) {
+        --mainSize;
+      }
+      else {
+        --inSize;
+      }
+      // Do not let deleted entries accumulate in the queues.
+      if(++dead > capacity) {
+        removeDeleted(in);
+        removeDeleted(main);
+        dead = 0;
+      }
+    }
+    out.remove(pageID);
+    file.deletePage(pageID);
+  }
+
+  @Override
+  public int setPageID(P page) {
+    return file.setPageID(page);
+  }
+
+  @Override
+  public int getNextPageID() {
+    return file.getNextPageID();
+  }
+
+  @Override
+  public void setNextPageID(int nextPageID) {
+    file.setNextPageID(nextPageID);
+  }
+
+  @Override
+  public int getPageSize() {
+    return file.getPageSize();
+  }
+
+  @Override
+  public synchronized boolean initialize(PageHeader header) {
+    boolean created = file.initialize(header);
+    this.pageSize = header.getPageSize();
+    this.capacity = cacheSizeBytes / pageSize;
+    if(capacity <= 0) {
+      throw new AbortException("Invalid cache size: " + cacheSizeBytes + " / " + pageSize + " = " + capacity);
+    }
+    this.maxIn = Math.max(1, (long) (capacity * inFraction));
+    this.maxOut = Math.max(1, (long) (capacity * outFraction));
+    if(LOG.isDebugging()) {
+      LOG.debug("2Q cache size is " + capacity + " pages, " + maxIn + " for new pages.");
+    }
+    this.map = new ConcurrentHashMap<>((int) Math.min(capacity + 1, 1 << 20));
+    this.in = new ArrayDeque<>();
+    this.main = new ArrayDeque<>();
+    this.out = new LinkedHashSet<>();
+    return created;
+  }
+
+  @Override
+  public synchronized void close() {
+    flush();
+    file.close();
+  }
+
+  /**
+   * Write all modified pages to the underlying file. The pages remain cached.
+   */
+  public synchronized void flush() {
+    for(Entry<P> e : map.values()) {
+      if(e.page.isDirty()) {
+        writebacks.increment();
+        file.writePage(e.page);
+      }
+    }
+  }
+
+  /**
+   * Clears this cache.
+   */
+  @Override
+  public synchronized void clear() {
+    map.clear();
+    in.clear();
+    main.clear();
+    out.clear();
+    inSize = mainSize = dead = 0;
+  }
+
+  /**
+   * Get the number of reads served from the cache.
+   *
+   * @return Number of cache hits
+   */
+  public long getHits() {
+    return hits.getValue();
+  }
+
+  /**
+   * Get the number of reads from the underlying file.
+   *
+   * @return Number of cache misses
+   */
+  public long getMisses() {
+    return misses.getValue();
+  }
+
+  /**
+   * Get the number of pages evicted from the cache.
+   *
+   * @return Number of evictions
+   */
+  public long getEvictions() {
+    return evictions.getValue();
+  }
+
+  /**
+   * Get the number of modified pages written to the underlying file.
+   *
+   * @return Number of write backs
+   */
+  public long getWriteBacks() {
+    return writebacks.getValue();
+  }
+
+  /**
+   * Get the memory currently charged to cached pages.
+   *
+   * @return Used bytes
+   */
+  public synchronized long getUsedBytes() {
+    return (inSize + mainSize) * pageSize;
+  }
+
+  @Override
+  public void logStatistics() {
+    super.logStatistics();
+    if(LOG.isStatistics()) {
+      LOG.statistics(hits);
+      LOG.statistics(misses);
+      LOG.statistics(evictions);
+      LOG.statistics(writebacks);
+    }
+    file.logStatistics();
+  }
+
+  @Override
+  protected Logging getLogger() {
+    return LOG;
+  }
+
+  /**
+   * Cache entry.
+   *
+   * @author Erich Schubert
+   *
+   * @param <P> Page type
+   */
+  private static class Entry<P extends Page> {
+    /**
+     * Page id.
+     */
+    final int id;
+
+    /**
+     * Cached page.
+     */
+    volatile P page;
+
+    /**
+     * Reference bit for CLOCK.
+     */
+    volatile boolean referenced;
+
+    /**
+     * Flag for pages in the main queue.
+     */
+    final boolean hot;
+
+    /**
+     * Flag for deleted pages.
+     */
+    boolean deleted;
+
+    /**
+     * Constructor.
+     *
+     * @param id Page id
+     * @param page Page
+     * @param hot Page is in the main queue
+     */
+    Entry(int id, P page, boolean hot) {
+      this.id = id;
+      this.page = page;
+      this.hot = hot;
+    }
+  }
+}
@@ -0,0 +1,174 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.persistent;
+
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.AbstractParameterizer;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.OptionID;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.constraints.CommonConstraints;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.constraints.GreaterEqualConstraint;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.DoubleParameter;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.LongParameter;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.ObjectParameter;
+
+/**
+ * Page file factory for thread-safe 2Q page caches.
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ *
+ * @apiviz.has TwoQueueCache
+ * @apiviz.composedOf PageFileFactory
+ *
+ * @param <P> Page type
+ */
+public class TwoQueueCachePageFileFactory<P extends Page> implements PageFileFactory<P> {
+  /**
+   * Inner page file factory.
+   */
+  private PageFileFactory<P> pageFileFactory;
+
+  /**
+   * Cache size, in bytes.
+   */
+  private long cacheSize;
+
+  /**
+   * Fraction of the cache used for pages seen once.
+   */
+  private double inFraction;
+
+  /**
+   * Size of the ghost queue, relative to the cache capacity.
+   */
+  private double outFraction;
+
+  /**
+   * Constructor.
+   *
+   * @param pageFileFactory Inner page file
+   * @param cacheSize Size of cache, in bytes.
+   * @param inFraction Fraction of the cache used for pages seen once
+   * @param outFraction Size of the ghost queue, relative to the cache capacity
+   */
+  public TwoQueueCachePageFileFactory(PageFileFactory<P> pageFileFactory, long cacheSize, double inFraction, double outFraction) {
+    super();
+    this.pageFileFactory = pageFileFactory;
+    this.cacheSize = cacheSize;
+    this.inFraction = inFraction;
+    this.outFraction = outFraction;
+  }
+
+  @Override
+  public PageFile<P> newPageFile(Class<P> cls) {
+    PageFile<P> inner = pageFileFactory.newPageFile(cls);
+    return new TwoQueueCache<>(cacheSize, inFraction, outFraction, inner);
+  }
+
+  @Override
+  public int getPageSize() {
+    return pageFileFactory.getPageSize();
+  }
+
+  /**
+   * Parameterization class.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   */
+  public static class Parameterizer extends AbstractParameterizer {
+    /**
+     * Fraction of the cache used for pages that were read only once.
+     * <p>
+     * Key: {@code -pagefile.2q.in}
+     * </p>
+     * <p>
+     * Default: {@code 0.25}
+     * </p>
+     */
+    public static final OptionID IN_ID = new OptionID("pagefile.2q.in", "Fraction of the cache used for pages that were read only once.");
+
+    /**
+     * Number of remembered ids of evicted pages, relative to the cache size.
+     * <p>
+     * Key: {@code -pagefile.2q.out}
+     * </p>
+     * <p>
+     * Default: {@code 0.5}
+     * </p>
+     */
+    public static final OptionID OUT_ID = new OptionID("pagefile.2q.out", "Number of remembered ids of evicted pages, relative to the number of cached pages.");
+
+    /**
+     * Inner page file factory.
+     */
+    PageFileFactory<Page> pageFileFactory;
+
+    /**
+     * Cache size, in bytes.
+     */
+    protected long cacheSize;
+
+    /**
+     * Fraction of the cache used for pages seen once.
+     */
+    protected double inFraction;
+
+    /**
+     * Size of the ghost queue, relative to the cache capacity.
+     */
+    protected double outFraction;
+
+    @Override
+    protected void makeOptions(Parameterization config) {
+      super.makeOptions(config);
+      ObjectParameter<PageFileFactory<Page>> pffP = new ObjectParameter<>(LRUCachePageFileFactory.Parameterizer.PAGEFILE_ID, PageFileFactory.class, PersistentPageFileFactory.class);
+      if(config.grab(pffP)) {
+        pageFileFactory = pffP.instantiateClass(config);
+      }
+
+      LongParameter cacheSizeP = new LongParameter(LRUCachePageFileFactory.Parameterizer.CACHE_SIZE_ID);
+      cacheSizeP.addConstraint(new GreaterEqualConstraint(1L));
+      if(config.grab(cacheSizeP)) {
+        cacheSize = cacheSizeP.getValue();
+      }
+
+      DoubleParameter inP = new DoubleParameter(IN_ID, .25) //
+          .addConstraint(CommonConstraints.GREATER_THAN_ZERO_DOUBLE) //
+          .addConstraint(CommonConstraints.LESS_THAN_ONE_DOUBLE);
+      if(config.grab(inP)) {
+        inFraction = inP.doubleValue();
+      }
+
+      DoubleParameter outP = new DoubleParameter(OUT_ID, .5) //
+          .addConstraint(CommonConstraints.GREATER_THAN_ZERO_DOUBLE);
+      if(config.grab(outP)) {
+        outFraction = outP.doubleValue();
+      }
+    }
+
+    @Override
+    protected TwoQueueCachePageFileFactory<Page> makeInstance() {
+      return new TwoQueueCachePageFileFactory<>(pageFileFactory, cacheSize, inFraction, outFraction);
+    }
+  }
+}
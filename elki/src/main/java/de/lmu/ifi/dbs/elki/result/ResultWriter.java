@@ -72,6 +72,11 @@ public class ResultWriter implements ResultHandler {
    */
   private Pattern filter = null;
 
+  /**
+   * Write statistics as JSON instead of CSV.
+   */
+  private boolean statisticsJSON = false;
+
   /**
    * Constructor.
    *
@@ -81,16 +86,31 @@ public class ResultWriter implements ResultHandler {
    * @param filter Filter pattern
    */
   public ResultWriter(File out, boolean gzip, boolean warnoverwrite, Pattern filter) {
+    this(out, gzip, warnoverwrite, filter, false);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param out Output file
+   * @param gzip Gzip compression
+   * @param warnoverwrite Warn before overwriting files
+   * @param filter Filter pattern
+   * @param statisticsJSON Write statistics as JSON instead of CSV
+   */
+  public ResultWriter(File out, boolean gzip, boolean warnoverwrite, Pattern filter, boolean statisticsJSON) {
     super();
     this.out = out;
     this.gzip = gzip;
     this.warnoverwrite = warnoverwrite;
     this.filter = filter;
+    this.statisticsJSON = statisticsJSON;
   }
 
   @Override
   public void processNewResult(ResultHierarchy hier, Result result) {
     TextWriter writer = new TextWriter();
+    writer.setStatisticsJSON(statisticsJSON);
 
     StreamFactory output;
     try {
@@ -155,6 +175,15 @@ public class ResultWriter implements ResultHandler {
      */
     public static final OptionID FILTER_PATTERN_ID = new OptionID("out.filter", "Filter pattern for output selection. Only output streams that match the given pattern will be written.");
 
+    /**
+     * Flag to write statistics (collected with {@code -time}) as JSON instead
+     * of CSV.
+     * <p>
+     * Key: {@code -out.statistics.json}
+     * </p>
+     */
+    public static final OptionID STATISTICS_JSON_ID = new OptionID("out.statistics.json", "Write the collected statistics as JSON instead of CSV.");
+
     /**
      * Holds the file to print results to.
      */
@@ -175,6 +204,11 @@ public class ResultWriter implements ResultHandler {
      */
     private Pattern filter = null;
 
+    /**
+     * Write statistics as JSON instead of CSV.
+     */
+    private boolean statisticsJSON = false;
+
     @Override
     protected void makeOptions(Parameterization config) {
       super.makeOptions(config);
@@ -199,11 +233,16 @@ public class ResultWriter implements ResultHandler {
       if (config.grab(filterP)) {
         filter = filterP.getValue();
       }
+
+      Flag statisticsJSONF = new Flag(STATISTICS_JSON_ID);
+      if (config.grab(statisticsJSONF)) {
+        statisticsJSON = statisticsJSONF.getValue();
+      }
     }
 
     @Override
     protected ResultWriter makeInstance() {
-      return new ResultWriter(out, gzip, warnoverwrite, filter);
+      return new ResultWriter(out, gzip, warnoverwrite, filter, statisticsJSON);
     }
   }
 }
@@ -0,0 +1,179 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.result;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import de.lmu.ifi.dbs.elki.logging.statistics.Statistic;
+
+/**
+ * Result that keeps the statistics (counters, durations, ...) logged while
+ * running the algorithms, for machine-readable export as CSV or JSON.
+ * 
+ * Values that consist of a number with an optional unit (such as
+ * {@code 123 ms}) are split into a numeric value and a unit.
+ * 
+ * @author Erich Schubert
+ * @since 0.7.2
+ * 
+ * @apiviz.composedOf Statistic
+ */
+public class StatisticsResult extends BasicResult {
+  /**
+   * Pattern for numerical values with an optional unit.
+   */
+  private static final Pattern NUMBER_UNIT = Pattern.compile("^(-?\\d+(?:\\.\\d+)?(?:[eE][-+]?\\d+)?)(?: (\\w+))?$");
+
+  /**
+   * Statistics storage.
+   */
+  List<Statistic> statistics;
+
+  /**
+   * Constructor.
+   * 
+   * @param statistics Statistics to store
+   */
+  public StatisticsResult(List<Statistic> statistics) {
+    super("Statistics", "statistics");
+    this.statistics = statistics;
+  }
+
+  /**
+   * Get the statistics.
+   * 
+   * @return the statistics
+   */
+  public List<Statistic> getStatistics() {
+    return statistics;
+  }
+
+  /**
+   * Write the statistics as CSV, with columns key, value and unit.
+   * 
+   * @param out Output stream
+   */
+  public void writeCSV(PrintStream out) {
+    out.println("key,value,unit");
+    for(Statistic stat : statistics) {
+      final String val = stat.formatValue();
+      Matcher m = NUMBER_UNIT.matcher(val);
+      out.append(csvQuote(stat.getKey())).append(',');
+      if(m.matches()) {
+        out.append(m.group(1)).append(',');
+        if(m.group(2) != null) {
+          out.append(m.group(2));
+        }
+      }
+      else {
+        out.append(csvQuote(val)).append(',');
+      }
+      out.println();
+    }
+  }
+
+  /**
+   * Write the statistics as JSON array of objects.
+   * 
+   * @param out Output stream
+   */
+  public void writeJSON(PrintStream out) {
+    out.println('[');
+    boolean first = true;
+    for(Statistic stat : statistics) {
+      if(!first) {
+        out.println(',');
+      }
+      first = false;
+      final String val = stat.formatValue();
+      Matcher m = NUMBER_UNIT.matcher(val);
+      out.append("  {\"key\":").append(jsonQuote(stat.getKey())).append(",\"value\":");
+      if(m.matches()) {
+        out.append(m.group(1));
+        if(m.group(2) != null) {
+          out.append(",\"unit\":").append(jsonQuote(m.group(2)));
+        }
+      }
+      else {
+        out.append(jsonQuote(val));
+      }
+      out.append('}');
+    }
+    if(!first) {
+      out.println();
+    }
+    out.println(']');
+  }
+
+  /**
+   * Quote a CSV value, if necessary.
+   * 
+   * @param s Value
+   * @return Quoted value
+   */
+  private static String csvQuote(String s) {
+    if(s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0) {
+      return s;
+    }
+    return '"' + s.replace("\"", "\"\"") + '"';
+  }
+
+  /**
+   * Quote a JSON string.
+   * 
+   * @param s String
+   * @return Quoted string
+   */
+  private static String jsonQuote(String s) {
+    StringBuilder buf = new StringBuilder(s.length() + 2).append('"');
+    for(int i = 0; i < s.length(); i++) {
+      final char c = s.charAt(i);
+      switch(c){
+      case '"':
+        buf.append("\\\"");
+        break;
+      case '\\':
+        buf.append("\\\\");
+        break;
+      case '\n':
+        buf.append("\\n");
+        break;
+      case '\r':
+        buf.append("\\r");
+        break;
+      case '\t':
+        buf.append("\\t");
+        break;
+      default:
+        if(c < 0x20) {
+          buf.append(String.format("\\u%04x", (int) c));
+        }
+        else {
+          buf.append(c);
+        }
+      }
+    }
+    return buf.append('"').toString();
+  }
+}
@@ -55,6 +55,7 @@ import de.lmu.ifi.dbs.elki.result.OrderingResult;
 import de.lmu.ifi.dbs.elki.result.Result;
 import de.lmu.ifi.dbs.elki.result.ResultUtil;
 import de.lmu.ifi.dbs.elki.result.SettingsResult;
+import de.lmu.ifi.dbs.elki.result.StatisticsResult;
 import de.lmu.ifi.dbs.elki.result.textwriter.naming.NamingScheme;
 import de.lmu.ifi.dbs.elki.result.textwriter.naming.SimpleEnumeratingScheme;
 import de.lmu.ifi.dbs.elki.result.textwriter.writers.*;
@@ -129,6 +130,20 @@ public class TextWriter {
    */
   private TextWriterWriterInterface<?> fallback = new TextWriterObjectComment();
 
+  /**
+   * Write statistics as JSON instead of CSV.
+   */
+  private boolean statisticsJSON = false;
+
+  /**
+   * Set the output format for statistics results.
+   *
+   * @param json {@code true} for JSON, {@code false} for CSV.
+   */
+  public void setStatisticsJSON(boolean json) {
+    this.statisticsJSON = json;
+  }
+
   /**
    * Try to find a unique file name.
    *
@@ -174,6 +189,7 @@ public class TextWriter {
     List<Clustering<?>> rc = new LinkedList<>();
     List<IterableResult<?>> ri = new LinkedList<>();
     List<SettingsResult> rs = new LinkedList<>();
+    List<StatisticsResult> rst = new LinkedList<>();
     List<Result> otherres = new LinkedList<>();
 
     // Split result objects in different known types:
@@ -209,11 +225,18 @@ public class TextWriter {
           rs.add((SettingsResult) res);
           continue;
         }
+        if(res instanceof StatisticsResult) {
+          rst.add((StatisticsResult) res);
+          continue;
+        }
         otherres.add(res);
       }
     }
 
     writeSettingsResult(streamOpener, rs);
+    for(StatisticsResult stat : rst) {
+      writeStatisticsResult(streamOpener, stat);
+    }
 
     for(IterableResult<?> rii : ri) {
       writeIterableResult(streamOpener, rii);
@@ -409,6 +432,18 @@ public class TextWriter {
     streamOpener.closeStream(outStream);
   }
 
+  private void writeStatisticsResult(StreamFactory streamOpener, StatisticsResult r) throws IOException {
+    PrintStream outStream = streamOpener.openStream(getFilename(r, r.getShortName()));
+    if(statisticsJSON) {
+      r.writeJSON(outStream);
+    }
+    else {
+      r.writeCSV(outStream);
+    }
+    outStream.flush();
+    streamOpener.closeStream(outStream);
+  }
+
   private void writeOtherResult(StreamFactory streamOpener, Result r) throws IOException {
     if(writers.getHandler(r) != null) {
       PrintStream outStream = streamOpener.openStream(getFilename(r, r.getShortName()));
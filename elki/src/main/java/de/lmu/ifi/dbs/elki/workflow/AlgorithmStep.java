@@ -29,9 +29,11 @@ import de.lmu.ifi.dbs.elki.index.Index;
 import de.lmu.ifi.dbs.elki.logging.Logging;
 import de.lmu.ifi.dbs.elki.logging.LoggingConfiguration;
 import de.lmu.ifi.dbs.elki.logging.statistics.Duration;
+import de.lmu.ifi.dbs.elki.logging.statistics.StatisticsCollector;
 import de.lmu.ifi.dbs.elki.result.BasicResult;
 import de.lmu.ifi.dbs.elki.result.Result;
 import de.lmu.ifi.dbs.elki.result.ResultHierarchy;
+import de.lmu.ifi.dbs.elki.result.StatisticsResult;
 import de.lmu.ifi.dbs.elki.utilities.datastructures.hierarchy.Hierarchy.Iter;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.AbstractParameterizer;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.OptionID;
@@ -83,6 +85,33 @@ public class AlgorithmStep implements WorkflowStep {
    */
   public Result runAlgorithms(Database database) {
     ResultHierarchy hier = database.getHierarchy();
+    // Collect statistics for machine-readable output.
+    StatisticsCollector collector = null;
+    if(LOG.isStatistics()) {
+      collector = new StatisticsCollector();
+      LoggingConfiguration.addHandler(collector);
+    }
+    try {
+      runAlgorithms(database, hier);
+    }
+    finally {
+      if(collector != null) {
+        LoggingConfiguration.removeHandler(collector);
+      }
+    }
+    if(collector != null) {
+      hier.add(database, new StatisticsResult(collector.getStatistics()));
+    }
+    return stepresult;
+  }
+
+  /**
+   * Run algorithms, and log index statistics.
+   *
+   * @param database Database
+   * @param hier Result hierarchy
+   */
+  private void runAlgorithms(Database database, ResultHierarchy hier) {
     if(LOG.isStatistics()) {
       boolean first = true;
       for(Iter<Result> it = hier.iterDescendants(database); it.valid(); it.advance()) {
@@ -122,7 +151,6 @@ public class AlgorithmStep implements WorkflowStep {
         hier.add(database, res);
       }
     }
-    return stepresult;
   }
 
   /**
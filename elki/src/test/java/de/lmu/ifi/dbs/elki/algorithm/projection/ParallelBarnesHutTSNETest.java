@@ -0,0 +1,158 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.projection;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.algorithm.AbstractSimpleAlgorithmTest;
+import de.lmu.ifi.dbs.elki.data.DoubleVector;
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.SquaredEuclideanDistanceFunction;
+import de.lmu.ifi.dbs.elki.parallel.ParallelCore;
+import de.lmu.ifi.dbs.elki.utilities.random.RandomFactory;
+
+/**
+ * Compare the parallel tSNE and affinity computations to the sequential
+ * code paths, using several threads even on single-core machines.
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ */
+public class ParallelBarnesHutTSNETest extends AbstractSimpleAlgorithmTest {
+  /**
+   * Number of threads to use for the parallel runs.
+   */
+  private static final int THREADS = 4;
+
+  /**
+   * Number of tSNE iterations. As tSNE is chaotic, the rounding differences
+   * of the two tree implementations grow with the number of iterations.
+   */
+  private static final int ITERATIONS = 20;
+
+  @Test
+  public void testPerplexityAffinityMatrix() {
+    Relation<NumberVector> rel = makeRelation();
+    PerplexityAffinityMatrixBuilder<NumberVector> builder = new PerplexityAffinityMatrixBuilder<>(SquaredEuclideanDistanceFunction.STATIC, 30);
+    AffinityMatrix seq = computeAffinityMatrix(builder, rel, 1);
+    AffinityMatrix par = computeAffinityMatrix(builder, rel, THREADS);
+    assertEquals("Matrix size does not match.", seq.size(), par.size());
+    for(int i = 0; i < seq.size(); i++) {
+      for(int j = 0; j < seq.size(); j++) {
+        assertEquals("Affinity differs at " + i + "," + j, seq.get(i, j), par.get(i, j), 0.);
+      }
+    }
+  }
+
+  @Test
+  public void testNearestNeighborAffinityMatrix() {
+    Relation<NumberVector> rel = makeRelation();
+    NearestNeighborAffinityMatrixBuilder<NumberVector> builder = new NearestNeighborAffinityMatrixBuilder<>(SquaredEuclideanDistanceFunction.STATIC, 10);
+    AffinityMatrix seq = computeAffinityMatrix(builder, rel, 1);
+    AffinityMatrix par = computeAffinityMatrix(builder, rel, THREADS);
+    assertEquals("Matrix size does not match.", seq.size(), par.size());
+    for(int i = 0; i < seq.size(); i++) {
+      int si = seq.iter(i), pi = par.iter(i);
+      for(; seq.iterValid(i, si); si = seq.iterAdvance(i, si), pi = par.iterAdvance(i, pi)) {
+        assertEquals("Number of neighbors differs for " + i, true, par.iterValid(i, pi));
+        assertEquals("Neighbor differs for " + i, seq.iterDim(i, si), par.iterDim(i, pi));
+        assertEquals("Affinity differs for " + i, seq.iterValue(i, si), par.iterValue(i, pi), 0.);
+      }
+      assertEquals("Number of neighbors differs for " + i, false, par.iterValid(i, pi));
+    }
+  }
+
+  @Test
+  public void testParallelBarnesHutTSNE() {
+    Database db = makeSimpleDatabase(UNITTEST + "3clusters-and-noise-2d.csv", 330);
+    Relation<NumberVector> rel = db.getRelation(TypeUtil.NUMBER_VECTOR_FIELD);
+    NearestNeighborAffinityMatrixBuilder<NumberVector> builder = new NearestNeighborAffinityMatrixBuilder<>(SquaredEuclideanDistanceFunction.STATIC, 10);
+    Relation<DoubleVector> sres = new BarnesHutTSNE<>(builder, 2, 0.8, 200, ITERATIONS, new RandomFactory(0L), true, 0.5).run(db, rel);
+    Relation<DoubleVector> pres1 = runWithThreads(builder, db, rel, 1);
+    Relation<DoubleVector> pres = runWithThreads(builder, db, rel, THREADS);
+    for(DBIDIter it = rel.iterDBIDs(); it.valid(); it.advance()) {
+      DoubleVector s = sres.get(it), p1 = pres1.get(it), p = pres.get(it);
+      for(int d = 0; d < 2; d++) {
+        // The partial sums are combined in block order:
+        assertEquals("Result depends on the number of threads.", p1.doubleValue(d), p.doubleValue(d), 0.);
+        // The trees only differ in the order of summation:
+        assertEquals("Result differs from the sequential version.", s.doubleValue(d), p.doubleValue(d), 1e-8);
+      }
+    }
+  }
+
+  /**
+   * Run the parallel tSNE with a given number of threads.
+   *
+   * @param builder Affinity matrix builder
+   * @param db Database
+   * @param rel Input relation
+   * @param threads Number of threads
+   * @return Projected relation
+   */
+  private static Relation<DoubleVector> runWithThreads(AffinityMatrixBuilder<NumberVector> builder, Database db, Relation<NumberVector> rel, int threads) {
+    final ParallelCore core = ParallelCore.getCore();
+    final int prev = core.getParallelism();
+    try {
+      core.setParallelism(threads);
+      return new ParallelBarnesHutTSNE<>(builder, 2, 0.8, 200, ITERATIONS, new RandomFactory(0L), true, 0.5).run(db, rel);
+    }
+    finally {
+      core.setParallelism(prev);
+    }
+  }
+
+  /**
+   * Compute an affinity matrix with a given number of threads.
+   *
+   * @param builder Affinity matrix builder
+   * @param rel Input relation
+   * @param threads Number of threads
+   * @return Affinity matrix
+   */
+  private static AffinityMatrix computeAffinityMatrix(AffinityMatrixBuilder<NumberVector> builder, Relation<NumberVector> rel, int threads) {
+    final ParallelCore core = ParallelCore.getCore();
+    final int prev = core.getParallelism();
+    try {
+      core.setParallelism(threads);
+      return builder.computeAffinityMatrix(rel, 1.);
+    }
+    finally {
+      core.setParallelism(prev);
+    }
+  }
+
+  /**
+   * Load the test data.
+   *
+   * @return Data relation
+   */
+  private Relation<NumberVector> makeRelation() {
+    Database db = makeSimpleDatabase(UNITTEST + "3clusters-and-noise-2d.csv", 330);
+    return db.getRelation(TypeUtil.NUMBER_VECTOR_FIELD);
+  }
+}
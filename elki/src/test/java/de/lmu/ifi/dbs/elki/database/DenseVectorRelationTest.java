@@ -0,0 +1,99 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.database;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.data.DoubleVector;
+import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
+import de.lmu.ifi.dbs.elki.database.relation.DenseVectorRelation;
+import de.lmu.ifi.dbs.elki.database.relation.DoubleVectorArrayRelation;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.datasource.ArrayAdapterDatabaseConnection;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.CosineDistanceFunction;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.EuclideanDistanceFunction;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.ManhattanDistanceFunction;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.SquaredEuclideanDistanceFunction;
+
+/**
+ * Test the columnar storage of dense vectors.
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ */
+public class DenseVectorRelationTest {
+  @Test
+  public void testDenseStorage() throws IOException {
+    final int size = 200, dim = 5;
+    double[][] data = new double[size][dim];
+    Random rnd = new Random(0L);
+    for(double[] row : data) {
+      for(int d = 0; d < dim; d++) {
+        row[d] = rnd.nextDouble();
+      }
+    }
+    Database db = new StaticArrayDatabase(new ArrayAdapterDatabaseConnection(data), null);
+    db.initialize();
+    Relation<DoubleVector> rel = db.getRelation(TypeUtil.DOUBLE_VECTOR_FIELD);
+    assertTrue("Dense storage not used: " + rel.getClass(), rel instanceof DoubleVectorArrayRelation);
+    DenseVectorRelation<DoubleVector> dense = (DoubleVectorArrayRelation) rel;
+    assertEquals("Dimensionality does not match.", dim, dense.getDimensionality());
+
+    DistanceQuery<DoubleVector> dq = rel.getDistanceQuery(EuclideanDistanceFunction.STATIC);
+    DistanceQuery<DoubleVector> sq = rel.getDistanceQuery(SquaredEuclideanDistanceFunction.STATIC);
+    DistanceQuery<DoubleVector> mq = rel.getDistanceQuery(ManhattanDistanceFunction.STATIC);
+    DistanceQuery<DoubleVector> cq = rel.getDistanceQuery(CosineDistanceFunction.STATIC);
+    int i = 0;
+    for(DBIDIter it = rel.iterDBIDs(); it.valid(); it.advance(), i++) {
+      DoubleVector vec = rel.get(it);
+      assertEquals("Dimensionality does not match.", dim, vec.getDimensionality());
+      assertArrayEquals("Values do not match.", data[i], vec.toArray(), 0.);
+      // Serialization must only write the row of the view:
+      ByteBuffer buf = ByteBuffer.allocate(DoubleVector.VARIABLE_SERIALIZER.getByteSize(vec));
+      DoubleVector.VARIABLE_SERIALIZER.toByteBuffer(buf, vec);
+      buf.flip();
+      assertArrayEquals("Serialization does not match.", data[i], DoubleVector.VARIABLE_SERIALIZER.fromByteBuffer(buf).toArray(), 0.);
+      for(int d = 0; d < dim; d++) {
+        assertEquals("Value does not match.", data[i][d], vec.doubleValue(d), 0.);
+        assertEquals("Value does not match.", data[i][d], dense.doubleValue(it, d), 0.);
+      }
+      for(DBIDIter it2 = rel.iterDBIDs(); it2.valid(); it2.advance()) {
+        DoubleVector vec2 = rel.get(it2);
+        assertEquals("Distance does not match.", EuclideanDistanceFunction.STATIC.distance(vec, vec2), dq.distance(it, it2), 0.);
+        assertEquals("Distance does not match.", SquaredEuclideanDistanceFunction.STATIC.distance(vec, vec2), sq.distance(it, it2), 0.);
+        assertEquals("Distance does not match.", ManhattanDistanceFunction.STATIC.distance(vec, vec2), mq.distance(it, it2), 0.);
+        assertEquals("Distance does not match.", CosineDistanceFunction.STATIC.distance(vec, vec2), cq.distance(it, it2), 1e-15);
+        // Query object not from the relation:
+        assertEquals("Distance does not match.", ManhattanDistanceFunction.STATIC.distance(vec, vec2), mq.distance(DoubleVector.copy(data[i]), it2), 0.);
+      }
+    }
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.datasource.parser;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.algorithm.AbstractSimpleAlgorithmTest;
+import de.lmu.ifi.dbs.elki.data.DoubleVector;
+import de.lmu.ifi.dbs.elki.datasource.FileBasedDatabaseConnection;
+import de.lmu.ifi.dbs.elki.datasource.bundle.MultipleObjectsBundle;
+
+/**
+ * Test the memory mapped parser against the regular stream parser.
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ */
+public class MappedNumberVectorLabelParserTest {
+  /**
+   * Test data with some difficult cases.
+   */
+  private static final String DATA = "x y label\n" //
+      + "# comment\n" //
+      + "1 2 a\n" //
+      + "  3,4;b\r\n" //
+      + "\n" //
+      + "5 ,, 6 \"c d\"\n" //
+      + " // another comment\n" //
+      + "7e1\t-8.5 'e'\n" //
+      + "; comment\n" //
+      + "9 10 11 f g\n" //
+      + "1.5 NaN \"unclosed\n" //
+      + "12 13";
+
+  @Test
+  public void testDifficultCases() throws IOException {
+    File file = File.createTempFile("ELKIUnitTest", null);
+    file.deleteOnExit();
+    byte[] data = DATA.getBytes("UTF-8");
+    OutputStream out = new FileOutputStream(file);
+    out.write(data);
+    out.close();
+    MultipleObjectsBundle expect = new NumberVectorLabelParser<>(DoubleVector.FACTORY).parse(new ByteArrayInputStream(data));
+    assertEquals("Unexpected number of objects.", 7, expect.dataLength());
+    for(int chunksize : new int[] { 1, 3, 7, 16, 1000 }) {
+      MappedNumberVectorLabelParser<DoubleVector> parser = new MappedNumberVectorLabelParser<>(CSVReaderFormat.DEFAULT_FORMAT, null, DoubleVector.FACTORY, chunksize);
+      assertSameBundle(expect, parser.parse(file));
+    }
+    file.delete();
+  }
+
+  @Test
+  public void testDataFile() throws IOException {
+    File file = File.createTempFile("ELKIUnitTest", null);
+    file.deleteOnExit();
+    InputStream in = AbstractSimpleAlgorithmTest.open(AbstractSimpleAlgorithmTest.UNITTEST + "3clusters-and-noise-2d.csv");
+    OutputStream out = new FileOutputStream(file);
+    byte[] buf = new byte[4096];
+    for(int read; (read = in.read(buf)) > 0;) {
+      out.write(buf, 0, read);
+    }
+    out.close();
+    in.close();
+    in = AbstractSimpleAlgorithmTest.open(AbstractSimpleAlgorithmTest.UNITTEST + "3clusters-and-noise-2d.csv");
+    MultipleObjectsBundle expect = new NumberVectorLabelParser<>(DoubleVector.FACTORY).parse(in);
+    in.close();
+    assertEquals("Unexpected number of objects.", 330, expect.dataLength());
+    for(int chunksize : new int[] { 100, 1000, MappedNumberVectorLabelParser.DEFAULT_CHUNK_SIZE }) {
+      MappedNumberVectorLabelParser<DoubleVector> parser = new MappedNumberVectorLabelParser<>(CSVReaderFormat.DEFAULT_FORMAT, null, DoubleVector.FACTORY, chunksize);
+      assertSameBundle(expect, parser.parse(file));
+    }
+    // The database connection passes the file to the parser:
+    MappedNumberVectorLabelParser<DoubleVector> parser = new MappedNumberVectorLabelParser<>(CSVReaderFormat.DEFAULT_FORMAT, null, DoubleVector.FACTORY, 100);
+    assertSameBundle(expect, new FileBasedDatabaseConnection(null, parser, file).loadData());
+    file.delete();
+  }
+
+  /**
+   * Compare two bundles.
+   *
+   * @param expect Expected bundle
+   * @param actual Actual bundle
+   */
+  private static void assertSameBundle(MultipleObjectsBundle expect, MultipleObjectsBundle actual) {
+    assertEquals("Number of columns differs.", expect.metaLength(), actual.metaLength());
+    assertEquals("Number of objects differs.", expect.dataLength(), actual.dataLength());
+    for(int j = 0; j < expect.metaLength(); j++) {
+      assertEquals("Column type differs.", expect.meta(j).toString(), actual.meta(j).toString());
+    }
+    for(int i = 0; i < expect.dataLength(); i++) {
+      for(int j = 0; j < expect.metaLength(); j++) {
+        assertEquals("Object differs.", String.valueOf(expect.data(i, j)), String.valueOf(actual.data(i, j)));
+      }
+    }
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.persistent;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.index.tree.TreeIndexHeader;
+import de.lmu.ifi.dbs.elki.index.tree.spatial.SpatialPointLeafEntry;
+import de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.rstar.RStarTreeNode;
+
+/**
+ * Test to validate proper MappedPageFile operation.
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ */
+public class MappedPageFileTest {
+  /**
+   * Page size.
+   */
+  static final int PAGESIZE = 1024;
+
+  /**
+   * Write pages, close the file, and read them back.
+   *
+   * @throws IOException on errors.
+   */
+  @Test
+  public void testWriteReopen() throws IOException {
+    File file = File.createTempFile("ELKIUnitTest", null);
+    file.delete(); // We need a new file
+    file.deleteOnExit();
+    final int numpages = 1000;
+
+    // Use a small dirty buffer, to test flushing.
+    MappedPageFile<RStarTreeNode> pfile = new MappedPageFile<>(PAGESIZE, file.getPath(), RStarTreeNode.class, 7);
+    Assert.assertFalse("File should not exist.", pfile.initialize(new TreeIndexHeader(PAGESIZE, 10, 10, 2, 2)));
+    for(int i = 0; i < numpages; i++) {
+      Assert.assertEquals("Page id not as expected.", i, pfile.writePage(makeNode(i)));
+    }
+    pfile.deletePage(5);
+    checkPages(pfile, numpages, 5);
+    pfile.close();
+
+    MappedPageFile<RStarTreeNode> rfile = new MappedPageFile<>(PAGESIZE, file.getPath(), RStarTreeNode.class, 7);
+    Assert.assertTrue("File should exist.", rfile.initialize(new TreeIndexHeader()));
+    Assert.assertEquals("Next page id not restored.", numpages, rfile.getNextPageID());
+    checkPages(rfile, numpages, 5);
+    Assert.assertEquals("Empty page not reused.", 5, rfile.writePage(makeNode(5)));
+    checkPages(rfile, numpages, -1);
+    rfile.close();
+  }
+
+  /**
+   * Make a leaf node with a single entry.
+   *
+   * @param i Value
+   * @return Node
+   */
+  private static RStarTreeNode makeNode(int i) {
+    RStarTreeNode node = new RStarTreeNode(10, true);
+    node.addLeafEntry(new SpatialPointLeafEntry(DBIDUtil.importInteger(i), new double[] { i, -i }));
+    return node;
+  }
+
+  /**
+   * Verify the page contents.
+   *
+   * @param pfile Page file
+   * @param numpages Number of pages
+   * @param deleted Deleted page
+   */
+  private static void checkPages(PageFile<RStarTreeNode> pfile, int numpages, int deleted) {
+    for(int i = 0; i < numpages; i++) {
+      RStarTreeNode node = pfile.readPage(i);
+      if(i == deleted) {
+        Assert.assertNull("Deleted page was returned.", node);
+        continue;
+      }
+      Assert.assertNotNull("Page missing: " + i, node);
+      Assert.assertEquals("Page content does not match.", i, node.getEntry(0).getMin(0), 0.);
+    }
+  }
+}
@@ -0,0 +1,178 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.persistent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.index.tree.TreeIndexHeader;
+import de.lmu.ifi.dbs.elki.index.tree.spatial.SpatialPointLeafEntry;
+import de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.rstar.RStarTreeNode;
+
+/**
+ * Test the 2Q page cache.
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ */
+public class TwoQueueCacheTest {
+  /**
+   * Page size.
+   */
+  static final int PAGESIZE = 1024;
+
+  /**
+   * Write pages through a small cache, and read them back.
+   */
+  @Test
+  public void testWriteBack() {
+    final int numpages = 1000;
+    MemoryPageFile<RStarTreeNode> inner = new MemoryPageFile<>(PAGESIZE);
+    TwoQueueCache<RStarTreeNode> cache = new TwoQueueCache<>(100 * PAGESIZE, .25, .5, inner);
+    cache.initialize(new TreeIndexHeader(PAGESIZE, 10, 10, 2, 2));
+    for(int i = 0; i < numpages; i++) {
+      Assert.assertEquals("Page id not as expected.", i, cache.writePage(makeNode(i)));
+    }
+    Assert.assertEquals("Budget exceeded.", 100 * PAGESIZE, cache.getUsedBytes());
+    Assert.assertEquals("Pages not written back.", numpages - 100, cache.getWriteBacks());
+    cache.deletePage(5);
+    checkPages(cache, numpages, 5);
+    cache.flush();
+    checkPages(inner, numpages, 5);
+  }
+
+  /**
+   * A scan over many pages must not evict the frequently used pages.
+   */
+  @Test
+  public void testScanResistance() {
+    final int numpages = 1000, hot = 20;
+    MemoryPageFile<RStarTreeNode> inner = new MemoryPageFile<>(PAGESIZE);
+    inner.initialize(new TreeIndexHeader(PAGESIZE, 10, 10, 2, 2));
+    for(int i = 0; i < numpages; i++) {
+      inner.writePage(makeNode(i));
+    }
+    TwoQueueCache<RStarTreeNode> cache = new TwoQueueCache<>(100 * PAGESIZE, .25, .5, inner);
+    cache.initialize(new TreeIndexHeader(PAGESIZE, 10, 10, 2, 2));
+    // Warm up: hot pages are read repeatedly, interleaved with others.
+    for(int r = 0; r < 5; r++) {
+      for(int i = 0; i < hot; i++) {
+        cache.readPage(i);
+      }
+      for(int i = 0; i < 50; i++) {
+        cache.readPage(hot + r * 50 + i);
+      }
+    }
+    // Scan all pages once.
+    for(int i = hot; i < numpages; i++) {
+      cache.readPage(i);
+    }
+    long misses = cache.getMisses();
+    for(int i = 0; i < hot; i++) {
+      cache.readPage(i);
+    }
+    Assert.assertEquals("Hot pages were evicted by the scan.", misses, cache.getMisses());
+  }
+
+  /**
+   * Concurrent readers must all see the correct pages.
+   *
+   * @throws Exception on errors
+   */
+  @Test
+  public void testConcurrentReads() throws Exception {
+    final int numpages = 2000;
+    MemoryPageFile<RStarTreeNode> inner = new MemoryPageFile<>(PAGESIZE);
+    inner.initialize(new TreeIndexHeader(PAGESIZE, 10, 10, 2, 2));
+    for(int i = 0; i < numpages; i++) {
+      inner.writePage(makeNode(i));
+    }
+    final TwoQueueCache<RStarTreeNode> cache = new TwoQueueCache<>(300 * PAGESIZE, .25, .5, inner);
+    cache.initialize(new TreeIndexHeader(PAGESIZE, 10, 10, 2, 2));
+    ExecutorService pool = Executors.newFixedThreadPool(8);
+    List<Future<Integer>> futures = new ArrayList<>();
+    for(int t = 0; t < 8; t++) {
+      final long seed = t;
+      futures.add(pool.submit(new Callable<Integer>() {
+        @Override
+        public Integer call() {
+          Random rnd = new Random(seed);
+          int errors = 0;
+          for(int j = 0; j < 20000; j++) {
+            // Skewed access pattern
+            int i = rnd.nextBoolean() ? rnd.nextInt(100) : rnd.nextInt(numpages);
+            if(cache.readPage(i).getEntry(0).getMin(0) != i) {
+              ++errors;
+            }
+          }
+          return errors;
+        }
+      }));
+    }
+    for(Future<Integer> f : futures) {
+      Assert.assertEquals("Wrong pages returned.", 0, (int) f.get());
+    }
+    pool.shutdown();
+    Assert.assertEquals("Reads not counted.", 8 * 20000, cache.getHits() + cache.getMisses());
+    Assert.assertTrue("Budget exceeded.", cache.getUsedBytes() <= 300 * PAGESIZE);
+    Assert.assertEquals("Evictions do not match.", cache.getMisses() - 300, cache.getEvictions());
+  }
+
+  /**
+   * Make a leaf node with a single entry.
+   *
+   * @param i Value
+   * @return Node
+   */
+  private static RStarTreeNode makeNode(int i) {
+    RStarTreeNode node = new RStarTreeNode(10, true);
+    node.addLeafEntry(new SpatialPointLeafEntry(DBIDUtil.importInteger(i), new double[] { i, -i }));
+    return node;
+  }
+
+  /**
+   * Verify the page contents.
+   *
+   * @param pfile Page file
+   * @param numpages Number of pages
+   * @param deleted Deleted page
+   */
+  private static void checkPages(PageFile<RStarTreeNode> pfile, int numpages, int deleted) {
+    for(int i = 0; i < numpages; i++) {
+      RStarTreeNode node = pfile.readPage(i);
+      if(i == deleted) {
+        Assert.assertNull("Deleted page was returned.", node);
+        continue;
+      }
+      Assert.assertNotNull("Page missing: " + i, node);
+      Assert.assertEquals("Page content does not match.", i, node.getEntry(0).getMin(0), 0.);
+    }
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.result;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.logging.Logger;
+
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.logging.LoggingConfiguration;
+import de.lmu.ifi.dbs.elki.logging.statistics.Counter;
+import de.lmu.ifi.dbs.elki.logging.statistics.LongStatistic;
+import de.lmu.ifi.dbs.elki.logging.statistics.StatisticsCollector;
+import de.lmu.ifi.dbs.elki.logging.statistics.StringStatistic;
+
+/**
+ * Test collecting statistics from the log, and writing them as CSV and JSON.
+ *
+ * @author Erich Schubert
+ * @since 0.7.2
+ */
+public class StatisticsResultTest {
+  @Test
+  public void testCollectAndWrite() {
+    Logging log = Logging.getLogger(StatisticsResultTest.class);
+    // Enable statistics after the logging configuration has been loaded.
+    Logger logger = Logger.getLogger(StatisticsResultTest.class.getName());
+    logger.setLevel(Logging.Level.STATISTICS);
+    StatisticsCollector collector = new StatisticsCollector();
+    LoggingConfiguration.addHandler(collector);
+    try {
+      Counter c = log.newCounter("test.counter");
+      c.increment(41);
+      log.statistics(c);
+      c.increment();
+      log.statistics(c); // Counters are mutable, values must be snapshots
+      log.statistics(new LongStatistic("test.duration", 12L) {
+        @Override
+        public String formatValue() {
+          return super.formatValue() + " ms";
+        }
+      });
+      log.statistics(new StringStatistic("test.string", "a,\"b\""));
+      log.statistics("Plain messages are not collected.");
+    }
+    finally {
+      LoggingConfiguration.removeHandler(collector);
+      logger.setLevel(null);
+    }
+    StatisticsResult res = new StatisticsResult(collector.getStatistics());
+    assertEquals("Wrong number of statistics.", 4, res.getStatistics().size());
+
+    String nl = System.getProperty("line.separator");
+    ByteArrayOutputStream buf = new ByteArrayOutputStream();
+    res.writeCSV(new PrintStream(buf, true));
+    assertEquals("key,value,unit" + nl //
+        + "test.counter,41," + nl //
+        + "test.counter,42," + nl //
+        + "test.duration,12,ms" + nl //
+        + "test.string,\"a,\"\"b\"\"\"," + nl, buf.toString());
+
+    buf.reset();
+    res.writeJSON(new PrintStream(buf, true));
+    assertEquals("[" + nl //
+        + "  {\"key\":\"test.counter\",\"value\":41}," + nl //
+        + "  {\"key\":\"test.counter\",\"value\":42}," + nl //
+        + "  {\"key\":\"test.duration\",\"value\":12,\"unit\":\"ms\"}," + nl //
+        + "  {\"key\":\"test.string\",\"value\":\"a,\\\"b\\\"\"}" + nl //
+        + "]" + nl, buf.toString());
+  }
+}